@@ -0,0 +1,519 @@
+package distantcontrolclient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.UnaryOperator;
+import org.json.JSONObject;
+
+/**
+ * Variante asynchrone d'un gestionnaire de JSON avec typage : chaque operation est
+ * executee sur un executeur et retourne un CompletableFuture, sans bloquer
+ * l'appelant (par exemple le thread JavaFX, qui reprend la main avec
+ * Platform.runLater dans la suite du futur).
+ * Les modifications d'un meme fichier sont executees dans l'ordre de leur
+ * soumission ; une lecture voit toutes les modifications soumises avant elle,
+ * et une modification attend la fin des lectures soumises avant elle.
+ * Les lectures d'un meme fichier qui se chevauchent sont regroupees en une
+ * seule analyse du fichier. Annuler le futur d'une lecture la retire du
+ * regroupement ; la lecture est abandonnee quand tous ses appelants l'ont annulee.
+ * @author Johan
+ * @param <T> type reel des objets JSON
+ */
+public class AsyncGenericJsonManager<T> {
+    private final GenericJsonManager<T> manager;
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+    private static final String READ = "read";
+    private static final String READ_AS_JSON = "readAsJSON";
+    private final Map<String, FileQueue> queues = new HashMap<>();
+
+    /**
+     * Constructeur du gestionnaire asynchrone.
+     * @param manager gestionnaire des fichiers json
+     * @param executor executeur des operations, non arrete par shutdown
+     */
+    public AsyncGenericJsonManager(GenericJsonManager<T> manager, ExecutorService executor) {
+        this(manager, executor, false);
+    }
+
+    /**
+     * Constructeur du gestionnaire asynchrone, executant les operations sur des
+     * threads virtuels quand la JVM en dispose, sinon sur des threads demons.
+     * @param manager gestionnaire des fichiers json
+     */
+    public AsyncGenericJsonManager(GenericJsonManager<T> manager) {
+        this(manager, newDefaultExecutor(), true);
+    }
+
+    private AsyncGenericJsonManager(GenericJsonManager<T> manager, ExecutorService executor, boolean ownExecutor) {
+        this.manager = manager;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+    }
+
+    /**
+     * Retourne le gestionnaire des fichiers json.
+     * @return le gestionnaire des fichiers json
+     */
+    public GenericJsonManager<T> getManager() {
+        return this.manager;
+    }
+
+    /**
+     * Retourne la liste des objets stockes dans le fichier donne. Une lecture
+     * deja en cours du meme fichier est partagee : chaque appelant recoit sa
+     * propre liste, mais les objets sont communs aux appelants regroupes.
+     * @param fileName fichier dans lequel lire les objets
+     * @return futur de la liste des objets stockes, en echec avec FileNotFoundException
+     * quand le fichier n'existe pas ou n'est pas lisible
+     */
+    public CompletableFuture<ArrayList<T>> read(String fileName) {
+        return share(fileName, READ, () -> this.manager.read(fileName));
+    }
+
+    /**
+     * Retourne la liste des objets stockes dans le fichier.
+     * @return futur de la liste des objets stockes
+     */
+    public CompletableFuture<ArrayList<T>> read() {
+        return read(this.manager.getFileName());
+    }
+
+    /**
+     * Retourne la liste des objets json stockes dans le fichier donne. Une
+     * lecture deja en cours du meme fichier est partagee.
+     * @param fileName fichier dans lequel lire les objets
+     * @return futur de la liste des objets json stockes, en echec avec
+     * FileNotFoundException quand le fichier n'existe pas ou n'est pas lisible
+     */
+    public CompletableFuture<ArrayList<JSONObject>> readAsJSON(String fileName) {
+        return share(fileName, READ_AS_JSON, () -> this.manager.readAsJSON(fileName));
+    }
+
+    /**
+     * Retourne la liste des objets json stockes dans le fichier.
+     * @return futur de la liste des objets json stockes
+     */
+    public CompletableFuture<ArrayList<JSONObject>> readAsJSON() {
+        return readAsJSON(this.manager.getFileName());
+    }
+
+    /**
+     * Ecrit le document json donne dans le fichier donne.
+     * @param json document de la forme {"Objects":[...]}
+     * @param fileName nom du fichier de stockage
+     * @return futur complete quand l'ecriture est terminee
+     */
+    public CompletableFuture<Void> writeJSON(JSONObject json, String fileName) {
+        return mutate(fileName, () -> this.manager.writeJSON(json, fileName));
+    }
+
+    /**
+     * Ecrit le document json donne dans le fichier.
+     * @param json document de la forme {"Objects":[...]}
+     * @return futur complete quand l'ecriture est terminee
+     */
+    public CompletableFuture<Void> writeJSON(JSONObject json) {
+        return writeJSON(json, this.manager.getFileName());
+    }
+
+    /**
+     * Ecrit la liste d'objets json donnee dans le fichier donne.
+     * @param jsonList liste des objets json a ecrire
+     * @param fileName nom du fichier de stockage
+     * @return futur complete quand l'ecriture est terminee
+     */
+    public CompletableFuture<Void> writeJSON(List<JSONObject> jsonList, String fileName) {
+        return mutate(fileName, () -> this.manager.writeJSON(jsonList, fileName));
+    }
+
+    /**
+     * Ecrit la liste d'objets json donnee dans le fichier.
+     * @param jsonList liste des objets json a ecrire
+     * @return futur complete quand l'ecriture est terminee
+     */
+    public CompletableFuture<Void> writeJSON(List<JSONObject> jsonList) {
+        return writeJSON(jsonList, this.manager.getFileName());
+    }
+
+    /**
+     * Ecrit la liste d'objets donnee dans le fichier donne.
+     * @param objectsList liste des objets a ecrire
+     * @param fileName nom du fichier de stockage
+     * @return futur complete quand l'ecriture est terminee
+     */
+    public CompletableFuture<Void> write(List<T> objectsList, String fileName) {
+        return mutate(fileName, () -> this.manager.write(objectsList, fileName));
+    }
+
+    /**
+     * Ecrit la liste d'objets donnee dans le fichier.
+     * @param objectsList liste des objets a ecrire
+     * @return futur complete quand l'ecriture est terminee
+     */
+    public CompletableFuture<Void> write(List<T> objectsList) {
+        return write(objectsList, this.manager.getFileName());
+    }
+
+    /**
+     * Ajoute l'objet dans le fichier donne.
+     * @param object objet a ajouter
+     * @param fileName nom du fichier de stockage
+     * @return futur complete quand l'ajout est termine
+     */
+    public CompletableFuture<Void> write(T object, String fileName) {
+        return mutate(fileName, () -> this.manager.write(object, fileName));
+    }
+
+    /**
+     * Ajoute l'objet dans le fichier.
+     * @param object objet a ajouter
+     * @return futur complete quand l'ajout est termine
+     */
+    public CompletableFuture<Void> write(T object) {
+        return write(object, this.manager.getFileName());
+    }
+
+    /**
+     * Supprime l'objet json donne du fichier donne.
+     * @param json objet a supprimer
+     * @param fileName nom du fichier de stockage
+     * @return futur complete quand la suppression est terminee
+     */
+    public CompletableFuture<Void> delete(JSONObject json, String fileName) {
+        return mutate(fileName, () -> this.manager.delete(json, fileName));
+    }
+
+    /**
+     * Supprime l'objet json donne du fichier.
+     * @param json objet a supprimer
+     * @return futur complete quand la suppression est terminee
+     */
+    public CompletableFuture<Void> delete(JSONObject json) {
+        return delete(json, this.manager.getFileName());
+    }
+
+    /**
+     * Supprime l'objet donne du fichier donne.
+     * @param object objet a supprimer
+     * @param fileName nom du fichier de stockage
+     * @return futur complete quand la suppression est terminee
+     */
+    public CompletableFuture<Void> delete(T object, String fileName) {
+        return mutate(fileName, () -> this.manager.delete(object, fileName));
+    }
+
+    /**
+     * Supprime l'objet donne du fichier.
+     * @param object objet a supprimer
+     * @return futur complete quand la suppression est terminee
+     */
+    public CompletableFuture<Void> delete(T object) {
+        return delete(object, this.manager.getFileName());
+    }
+
+    /**
+     * Supprime tous les objets qui possedent la valeur indiquee associee a
+     * la cle donnee dans le fichier donne.
+     * @param key cle
+     * @param value valeur du/des objet(s) a supprimer
+     * @param fileName nom du fichier de stockage
+     * @return futur complete quand la suppression est terminee
+     */
+    public CompletableFuture<Void> delete(String key, String value, String fileName) {
+        return mutate(fileName, () -> this.manager.delete(key, value, fileName));
+    }
+
+    /**
+     * Supprime tous les objets qui possedent la valeur indiquee associee a
+     * la cle donnee dans le fichier.
+     * @param key cle
+     * @param value valeur du/des objet(s) a supprimer
+     * @return futur complete quand la suppression est terminee
+     */
+    public CompletableFuture<Void> delete(String key, String value) {
+        return delete(key, value, this.manager.getFileName());
+    }
+
+    /**
+     * Remplace l'objet oldObject par newObject dans le fichier donne.
+     * @param oldObject ancien objet
+     * @param newObject nouvel objet
+     * @param fileName nom du fichier de stockage
+     * @return futur complete quand le remplacement est termine
+     */
+    public CompletableFuture<Void> replace(T oldObject, T newObject, String fileName) {
+        return mutate(fileName, () -> this.manager.replace(oldObject, newObject, fileName));
+    }
+
+    /**
+     * Remplace l'objet oldObject par newObject dans le fichier.
+     * @param oldObject ancien objet
+     * @param newObject nouvel objet
+     * @return futur complete quand le remplacement est termine
+     */
+    public CompletableFuture<Void> replace(T oldObject, T newObject) {
+        return replace(oldObject, newObject, this.manager.getFileName());
+    }
+
+    /**
+     * Remplace les objets possedant la valeur indiquee associee a la cle
+     * donnee par newObject dans le fichier donne.
+     * @param key cle
+     * @param value valeur du/des objet(s) a remplacer
+     * @param newObject nouvel objet
+     * @param fileName nom du fichier de stockage
+     * @return futur complete quand le remplacement est termine
+     */
+    public CompletableFuture<Void> replace(String key, String value, T newObject, String fileName) {
+        return mutate(fileName, () -> this.manager.replace(key, value, newObject, fileName));
+    }
+
+    /**
+     * Remplace les objets possedant la valeur indiquee associee a la cle
+     * donnee par newObject dans le fichier.
+     * @param key cle
+     * @param value valeur du/des objet(s) a remplacer
+     * @param newObject nouvel objet
+     * @return futur complete quand le remplacement est termine
+     */
+    public CompletableFuture<Void> replace(String key, String value, T newObject) {
+        return replace(key, value, newObject, this.manager.getFileName());
+    }
+
+    /**
+     * Arrete l'executeur cree par le gestionnaire apres les operations deja soumises.
+     * Un executeur fourni au constructeur reste a la charge de l'appelant.
+     */
+    public void shutdown() {
+        if (this.ownExecutor) this.executor.shutdown();
+    }
+
+    /**
+     * Retourne le futur d'une lecture du fichier donne, partagee avec la
+     * lecture de meme nature deja en cours s'il y en a une.
+     * @param <E> type des elements lus
+     * @param fileName nom du fichier
+     * @param kind nature de la lecture
+     * @param operation lecture a executer
+     * @return le futur propre a l'appelant
+     */
+    @SuppressWarnings("unchecked")
+    private <E> CompletableFuture<ArrayList<E>> share(String fileName, String kind, IOOperation<ArrayList<E>> operation) {
+        SharedRead<ArrayList<E>> read;
+        synchronized (this.queues) {
+            FileQueue queue = queue(fileName);
+            read = (SharedRead<ArrayList<E>>) queue.pendingReads.get(kind);
+            if (read == null) {
+                read = new SharedRead<>(queue, kind, operation);
+                queue.pendingReads.put(kind, read);
+                read.start(queue.tail);
+            }
+            read.subscribers++;
+        }
+        return read.subscribe(ArrayList::new);
+    }
+
+    /**
+     * Met la modification donnee a la suite des modifications du fichier donne,
+     * apres la fin des lectures en cours : le fichier n'est jamais reecrit
+     * pendant qu'une lecture l'analyse.
+     * Les lectures soumises ensuite ne sont pas regroupees avec les lectures
+     * en cours, qui ne voient pas la modification.
+     * Une modification soumise ne peut pas etre annulee.
+     * @param fileName nom du fichier de stockage
+     * @param operation modification a executer
+     * @return futur complete quand la modification est terminee
+     */
+    private CompletableFuture<Void> mutate(String fileName, IOAction operation) {
+        CompletableFuture<Void> done;
+        synchronized (this.queues) {
+            FileQueue queue = queue(fileName);
+            CompletableFuture<Void> after = queue.tail.exceptionally(e -> null);
+            for (SharedRead<?> read : queue.runningReads) {
+                after = CompletableFuture.allOf(after, read.finished);
+            }
+            queue.pendingReads.clear();
+            done = after.thenRunAsync(() -> run(operation), this.executor);
+            queue.tail = done;
+        }
+        return done.thenApply(v -> v);
+    }
+
+    /**
+     * Retourne la file d'operations du fichier donne, a appeler sous le verrou de queues.
+     * @param fileName nom du fichier
+     * @return la file d'operations du fichier
+     */
+    private FileQueue queue(String fileName) {
+        return this.queues.computeIfAbsent(fileName, f -> new FileQueue());
+    }
+
+    /**
+     * Execute la modification donnee en encapsulant ses exceptions pour le futur.
+     * @param operation modification a executer
+     */
+    private static void run(IOAction operation) {
+        try {
+            operation.run();
+        } catch (IOException ioe) {
+            throw new CompletionException(ioe);
+        }
+    }
+
+    /**
+     * Retourne l'executeur par defaut : threads virtuels (Java 21 et plus),
+     * recherches par reflexion, ou a defaut pool de threads demons.
+     * @return l'executeur par defaut
+     */
+    private static ExecutorService newDefaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "AsyncGenericJsonManager-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Etat des operations d'un fichier : derniere modification soumise et
+     * lectures en cours partageables par nature, et lectures non terminees.
+     */
+    private class FileQueue {
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+        private final Map<String, SharedRead<?>> pendingReads = new HashMap<>();
+        private final Set<SharedRead<?>> runningReads = new HashSet<>();
+    }
+
+    /**
+     * Lecture partagee entre plusieurs appelants, abandonnee quand tous l'ont annulee.
+     * @param <E> type du resultat de la lecture
+     */
+    private final class SharedRead<E> {
+        private final FileQueue queue;
+        private final String kind;
+        private final IOOperation<E> operation;
+        private final CompletableFuture<E> result = new CompletableFuture<>();
+        private int subscribers = 0;
+        private final CompletableFuture<Void> finished = new CompletableFuture<>();
+        private volatile boolean cancelled = false;
+
+        private SharedRead(FileQueue queue, String kind, IOOperation<E> operation) {
+            this.queue = queue;
+            this.kind = kind;
+            this.operation = operation;
+        }
+
+        /**
+         * Lance la lecture une fois la modification donnee terminee.
+         * @param after derniere modification soumise avant la lecture
+         */
+        private void start(CompletableFuture<Void> after) {
+            this.queue.runningReads.add(this);
+            after.whenComplete((v, e) -> {
+                if (this.cancelled) {
+                    finish();
+                    return;
+                }
+                AsyncGenericJsonManager.this.executor.execute(() -> {
+                    //retiree avant d'etre completee : un appelant qui arrive ensuite relit le fichier
+                    try {
+                        if (this.cancelled) return;
+                        E value = this.operation.run();
+                        release();
+                        this.result.complete(value);
+                    } catch (IOException | RuntimeException ex) {
+                        release();
+                        this.result.completeExceptionally(ex);
+                    } finally {
+                        finish();
+                    }
+                });
+            });
+        }
+
+        /**
+         * Retourne un futur propre a un appelant, complete avec une copie du resultat.
+         * @param copy copie du resultat pour l'appelant
+         * @return le futur de l'appelant
+         */
+        private CompletableFuture<E> subscribe(UnaryOperator<E> copy) {
+            CompletableFuture<E> subscriber = new CompletableFuture<E>() {
+                @Override
+                public boolean cancel(boolean mayInterruptIfRunning) {
+                    boolean done = super.cancel(mayInterruptIfRunning);
+                    if (done) unsubscribe();
+                    return done;
+                }
+            };
+            this.result.whenComplete((r, e) -> {
+                if (e == null) {
+                    subscriber.complete(copy.apply(r));
+                } else {
+                    subscriber.completeExceptionally(e);
+                }
+            });
+            return subscriber;
+        }
+
+        /**
+         * Retire un appelant et abandonne la lecture s'il etait le dernier.
+         */
+        private void unsubscribe() {
+            synchronized (AsyncGenericJsonManager.this.queues) {
+                if ((--this.subscribers > 0) || this.result.isDone()) return;
+                this.cancelled = true;
+                release();
+            }
+            this.result.cancel(false);
+        }
+
+        /**
+         * Signale la fin de la lecture aux modifications qui l'attendent.
+         */
+        private void finish() {
+            synchronized (AsyncGenericJsonManager.this.queues) {
+                this.queue.runningReads.remove(this);
+            }
+            this.finished.complete(null);
+        }
+
+        /**
+         * Retire la lecture du regroupement : les lectures suivantes relisent le fichier.
+         */
+        private void release() {
+            synchronized (AsyncGenericJsonManager.this.queues) {
+                this.queue.pendingReads.remove(this.kind, this);
+            }
+        }
+    }
+
+    /**
+     * Lecture d'un fichier executee par l'executeur.
+     * @param <R> type du resultat
+     */
+    @FunctionalInterface
+    private interface IOOperation<R> {
+        R run() throws IOException;
+    }
+
+    /**
+     * Modification d'un fichier executee par l'executeur.
+     */
+    @FunctionalInterface
+    private interface IOAction {
+        void run() throws IOException;
+    }
+}
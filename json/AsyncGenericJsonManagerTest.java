@@ -0,0 +1,130 @@
+package distantcontrolclient;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * AsyncGenericJsonManager tests.
+ * @author Johan
+ */
+public class AsyncGenericJsonManagerTest {
+    /**
+     * Test of a write submitted while a read parses the file : the write
+     * waits for the end of the read, which sees the previous content.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testWriteWaitsForRead() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        GenericJsonManager<Object> manager = new GenericJsonManager<Object>(Files.createTempDirectory("async").toString(), "a.json") {
+            @Override
+            public Object createObject(JSONObject json) {
+                return json;
+            }
+
+            @Override
+            public ArrayList<JSONObject> readAsJSON(String fileName) throws FileNotFoundException {
+                started.countDown();
+                try {
+                    gate.await();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.readAsJSON(fileName);
+            }
+        };
+        manager.writeJSON(Collections.singletonList(new JSONObject().put("id", 1)), "a.json");
+        AsyncGenericJsonManager<Object> async = new AsyncGenericJsonManager<>(manager);
+        CompletableFuture<ArrayList<JSONObject>> read = async.readAsJSON();
+        started.await();
+        CompletableFuture<Void> write = async.writeJSON(Collections.singletonList(new JSONObject().put("id", 2)));
+        try {
+            write.get(200, TimeUnit.MILLISECONDS);
+            fail("the write must wait for the read in progress");
+        } catch (TimeoutException expected) {
+        }
+        gate.countDown();
+        assertEquals("[{\"id\":1}]", read.get().toString());
+        write.get();
+        assertEquals("[{\"id\":2}]", async.readAsJSON().get().toString());
+        async.shutdown();
+    }
+
+    /**
+     * Test of a read cancelled before it started : the following writes do
+     * not wait for it.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testCancelledRead() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        GenericJsonManager<Object> manager = new GenericJsonManager<Object>(Files.createTempDirectory("async").toString(), "a.json") {
+            @Override
+            public Object createObject(JSONObject json) {
+                return json;
+            }
+
+            @Override
+            public void writeJSON(List<JSONObject> jsonList, String fileName) throws IOException {
+                try {
+                    gate.await();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+                super.writeJSON(jsonList, fileName);
+            }
+        };
+        AsyncGenericJsonManager<Object> async = new AsyncGenericJsonManager<>(manager);
+        CompletableFuture<Void> first = async.writeJSON(Collections.singletonList(new JSONObject().put("id", 1)));
+        CompletableFuture<ArrayList<JSONObject>> read = async.readAsJSON();
+        read.cancel(false);
+        CompletableFuture<Void> second = async.writeJSON(Collections.singletonList(new JSONObject().put("id", 2)));
+        gate.countDown();
+        first.get();
+        second.get(10, TimeUnit.SECONDS);
+        assertEquals("[{\"id\":2}]", async.readAsJSON().get().toString());
+        async.shutdown();
+    }
+
+    /**
+     * Test of reads of a large file each followed by a rewrite of the file :
+     * every read sees a complete file.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testReadThenWrite() throws Exception {
+        GenericJsonManager<Object> manager = new GenericJsonManager<Object>(Files.createTempDirectory("async").toString(), "a.json") {
+            @Override
+            public Object createObject(JSONObject json) {
+                return json;
+            }
+        };
+        List<JSONObject> objects = new ArrayList<>();
+        for (int i = 0; i < 50000; i++) {
+            objects.add(new JSONObject().put("id", i).put("name", "object " + i));
+        }
+        manager.writeJSON(objects, "a.json");
+        AsyncGenericJsonManager<Object> async = new AsyncGenericJsonManager<>(manager);
+        for (int i = 0; i < 5; i++) {
+            CompletableFuture<ArrayList<JSONObject>> read = async.readAsJSON();
+            CompletableFuture<Void> write = async.writeJSON(objects);
+            assertEquals(objects.size(), read.get().size());
+            write.get();
+        }
+        assertEquals(objects.size(), async.readAsJSON().get().size());
+        async.shutdown();
+    }
+}
@@ -0,0 +1,58 @@
+package taskscheduler;
+
+import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * AsyncJsonManager tests.
+ * @author Johan
+ */
+public class AsyncJsonManagerTest {
+    /**
+     * Test of a write submitted while a read parses the file : the write
+     * waits for the end of the read, which sees the previous content.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testWriteWaitsForRead() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        JsonManager manager = new JsonManager(Files.createTempDirectory("async").toString(), "a.json") {
+            @Override
+            public ArrayList<JSONObject> read(String fileName) throws FileNotFoundException {
+                started.countDown();
+                try {
+                    gate.await();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.read(fileName);
+            }
+        };
+        manager.writeJSON(Collections.singletonList(new JSONObject().put("id", 1)), "a.json");
+        AsyncJsonManager async = new AsyncJsonManager(manager);
+        CompletableFuture<ArrayList<JSONObject>> read = async.read();
+        started.await();
+        CompletableFuture<Void> write = async.writeJSON(Collections.singletonList(new JSONObject().put("id", 2)));
+        try {
+            write.get(200, TimeUnit.MILLISECONDS);
+            fail("the write must wait for the read in progress");
+        } catch (TimeoutException expected) {
+        }
+        gate.countDown();
+        assertEquals("[{\"id\":1}]", read.get().toString());
+        write.get();
+        assertEquals("[{\"id\":2}]", async.read().get().toString());
+        async.shutdown();
+    }
+}
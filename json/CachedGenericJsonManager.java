@@ -0,0 +1,341 @@
+package distantcontrolclient;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Gestionnaire de JSON avec typage gardant en memoire le contenu des fichiers lus.
+ * Chaque fichier en cache est indexe par empreinte structurelle de ses objets
+ * et par valeur des cles demandees, ce qui remplace les parcours complets de
+ * contains, delete et replace par une recherche dans une table de hachage.
+ * Le cache d'un fichier est invalide lorsque sa date de modification ou sa
+ * taille changent, ou sur evenement du WatchService si {@link #watch()} est utilise.
+ * Les objets retournes par readAsJSON, et par read quand createObject retourne
+ * le json lu, sont partages avec le cache et ne doivent pas etre modifies ; les
+ * objets passes a writeJSON sont copies dans le cache.
+ * @author Johan
+ * @param <T> type reel des objets JSON
+ */
+public abstract class CachedGenericJsonManager<T> extends GenericJsonManager<T> {
+    private final Set<String> indexedKeys;
+    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+    private volatile WatchService watchService;
+
+    /**
+     * Constructeur du gestionnaire de JSON avec cache.
+     * @param directory chemin du repertoire utilise
+     * @param fileName nom du fichier json
+     * @param indexedKeys cles dont les valeurs sont indexees
+     */
+    public CachedGenericJsonManager(String directory, String fileName, Collection<String> indexedKeys) {
+        super(directory, fileName);
+        this.indexedKeys = Collections.unmodifiableSet(new HashSet<>(indexedKeys));
+    }
+
+    /**
+     * Constructeur du gestionnaire de JSON avec cache, sans index de cle.
+     * @param directory chemin du repertoire utilise
+     * @param fileName nom du fichier json
+     */
+    public CachedGenericJsonManager(String directory, String fileName) {
+        this(directory, fileName, Collections.emptySet());
+    }
+
+    /**
+     * Constructeur du gestionnaire de JSON avec cache, sans index de cle.
+     * @param fileName nom du fichier json
+     */
+    public CachedGenericJsonManager(String fileName) {
+        this(DEFAULT_DIRECTORY, fileName);
+    }
+
+    /**
+     * Retourne les cles dont les valeurs sont indexees.
+     * @return les cles indexees
+     */
+    public Set<String> getIndexedKeys() {
+        return this.indexedKeys;
+    }
+
+    /**
+     * Surveille le repertoire utilise avec un WatchService : le cache d'un fichier
+     * n'est alors plus verifie a chaque acces mais uniquement sur evenement.
+     * @throws IOException exception levee quand la surveillance est impossible
+     */
+    public synchronized void watch() throws IOException {
+        if (this.watchService != null) return;
+        Path dir = Paths.get(getDirectory().isEmpty() ? "." : getDirectory());
+        WatchService service = FileSystems.getDefault().newWatchService();
+        dir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.OVERFLOW);
+        Thread watcher = new Thread(() -> {
+            try {
+                for (;;) {
+                    WatchKey key = service.take();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            this.cache.clear();
+                        } else {
+                            String fileName = event.context().toString();
+                            CacheEntry entry = this.cache.get(fileName);
+                            if ((entry != null) && !entry.isUpToDate(new File(getPath(fileName)))) {
+                                this.cache.remove(fileName, entry);
+                            }
+                        }
+                    }
+                    if (!key.reset()) break;
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                //arret de la surveillance
+            }
+            this.cache.clear();
+        }, "CachedGenericJsonManager-watcher");
+        watcher.setDaemon(true);
+        this.watchService = service;
+        watcher.start();
+    }
+
+    /**
+     * Arrete la surveillance du repertoire.
+     * @throws IOException exception levee quand la fermeture du WatchService a echouee
+     */
+    public synchronized void unwatch() throws IOException {
+        if (this.watchService == null) return;
+        this.watchService.close();
+        this.watchService = null;
+    }
+
+    /**
+     * Vide le cache de tous les fichiers.
+     */
+    public void invalidate() {
+        this.cache.clear();
+    }
+
+    /**
+     * Vide le cache du fichier donne.
+     * @param fileName nom du fichier
+     */
+    public void invalidate(String fileName) {
+        this.cache.remove(fileName);
+    }
+
+    @Override
+    public boolean contains(JSONObject json, String fileName) throws FileNotFoundException {
+        return !getEntry(fileName).find(json).isEmpty();
+    }
+
+    /**
+     * Ecrit l'objet donne en memoire dans le fichier donne et met a jour le cache
+     * avec une copie des objets ecrits qui n'en proviennent pas.
+     * @param json objet json a persister
+     * @param fileName nom du fichier de stockage
+     * @throws IOException exception levee quand l'ecriture a echouee
+     */
+    @Override
+    public void writeJSON(JSONObject json, String fileName) throws IOException {
+        if (json == null) return;
+        CacheEntry previous = this.cache.remove(fileName);
+        super.writeJSON(json, fileName);
+        JSONArray objects = json.optJSONArray("Objects");
+        if (objects == null) return;
+        Map<JSONObject, Boolean> cached = new IdentityHashMap<>();
+        if (previous != null) previous.objects.forEach(o -> cached.put(o, Boolean.TRUE));
+        ArrayList<JSONObject> storedObjects = new ArrayList<>(objects.length());
+        for (int i=0; i<objects.length(); i++) {
+            JSONObject o = objects.optJSONObject(i);
+            if (o == null) return; //contenu non indexable, relu au prochain acces
+            //copie des objets de l'appelant, qui peut les modifier ensuite
+            storedObjects.add(cached.containsKey(o) ? o : new JSONObject(o.toString()));
+        }
+        this.cache.put(fileName, new CacheEntry(storedObjects, new File(getPath(fileName)), this.indexedKeys));
+    }
+
+    /**
+     * Retourne sous le format JSON la liste des objets stockes dans le fichier donne depuis le cache.
+     * @param fileName fichier dans lequel lire les objets
+     * @return la liste des objets stockes
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    @Override
+    public ArrayList<JSONObject> readAsJSON(String fileName) throws FileNotFoundException {
+        return new ArrayList<>(getEntry(fileName).objects);
+    }
+
+    /**
+     * Retourne la liste des objets stockes dans le fichier donne depuis le cache.
+     * @param fileName fichier dans lequel lire les objets
+     * @return la liste des objets stockes
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    @Override
+    public ArrayList<T> read(String fileName) throws FileNotFoundException {
+        List<JSONObject> storedObjects = getEntry(fileName).objects;
+        ArrayList<T> result = new ArrayList<>(storedObjects.size());
+        for (JSONObject json : storedObjects) {
+            T storedObject = createObject(json);
+            if (storedObject != null) result.add(storedObject);
+        }
+        return result;
+    }
+
+    @Override
+    public void delete(JSONObject json, String fileName) throws FileNotFoundException, IOException {
+        CacheEntry entry = getEntry(fileName);
+        List<JSONObject> deleted = entry.find(json);
+        if (deleted.isEmpty()) return;
+        writeJSON(entry.without(deleted), fileName);
+    }
+
+    @Override
+    public void delete(String key, String value, String fileName) throws FileNotFoundException, IOException {
+        if (!this.indexedKeys.contains(key)) {
+            super.delete(key, value, fileName);
+            return;
+        }
+        CacheEntry entry = getEntry(fileName);
+        List<JSONObject> deleted = entry.find(key, value);
+        if (deleted.isEmpty()) return;
+        writeJSON(entry.without(deleted), fileName);
+    }
+
+    /**
+     * Retourne l'entree de cache a jour du fichier donne, relit le fichier si besoin.
+     * @param fileName nom du fichier
+     * @return l'entree de cache du fichier
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    private CacheEntry getEntry(String fileName) throws FileNotFoundException {
+        File file = new File(getPath(fileName));
+        CacheEntry entry = this.cache.get(fileName);
+        if ((entry != null) && ((this.watchService != null) || entry.isUpToDate(file))) return entry;
+        long lastModified = file.lastModified();
+        long length = file.length();
+        entry = new CacheEntry(super.readAsJSON(fileName), lastModified, length, this.indexedKeys);
+        this.cache.put(fileName, entry);
+        return entry;
+    }
+
+    /**
+     * Calcule l'empreinte structurelle d'une valeur json.
+     * @param value valeur json
+     * @return l'empreinte de la valeur
+     */
+    static int fingerprint(Object value) {
+        if (value instanceof JSONObject) {
+            JSONObject json = (JSONObject) value;
+            int hash = 0;
+            for (String key : json.keySet()) {
+                hash += key.hashCode() ^ fingerprint(json.opt(key));
+            }
+            return hash;
+        }
+        if (value instanceof JSONArray) {
+            int hash = 1;
+            for (Object o : (JSONArray) value) {
+                hash = 31 * hash + fingerprint(o);
+            }
+            return hash;
+        }
+        if (value instanceof Number) {
+            try {
+                return JSONObject.numberToString((Number) value).hashCode();
+            } catch (JSONException je) {
+                return value.hashCode();
+            }
+        }
+        if (value instanceof Enum) return ((Enum<?>) value).name().hashCode();
+        return (value == null) ? 0 : value.toString().hashCode();
+    }
+
+    /**
+     * Contenu en cache d'un fichier et ses index.
+     */
+    private static class CacheEntry {
+        private final List<JSONObject> objects;
+        private final Map<Integer, List<JSONObject>> fingerprints = new HashMap<>();
+        private final Map<String, Map<String, List<JSONObject>>> indexes = new HashMap<>();
+        private final Map<String, JSONObject> nonStrings = new HashMap<>();
+        private final long lastModified;
+        private final long length;
+
+        private CacheEntry(List<JSONObject> objects, File file, Set<String> indexedKeys) {
+            this(objects, file.lastModified(), file.length(), indexedKeys);
+        }
+
+        private CacheEntry(List<JSONObject> objects, long lastModified, long length, Set<String> indexedKeys) {
+            this.objects = Collections.unmodifiableList(objects);
+            this.lastModified = lastModified;
+            this.length = length;
+            for (String key : indexedKeys) {
+                this.indexes.put(key, new HashMap<>());
+            }
+            for (JSONObject o : objects) {
+                this.fingerprints.computeIfAbsent(fingerprint(o), h -> new ArrayList<>(1)).add(o);
+                for (Map.Entry<String, Map<String, List<JSONObject>>> index : this.indexes.entrySet()) {
+                    Object value = o.opt(index.getKey());
+                    if (value instanceof String) {
+                        index.getValue().computeIfAbsent((String) value, v -> new ArrayList<>(1)).add(o);
+                    } else if (value != null) {
+                        this.nonStrings.putIfAbsent(index.getKey(), o);
+                    }
+                }
+            }
+        }
+
+        private boolean isUpToDate(File file) {
+            return (file.lastModified() == this.lastModified) && (file.length() == this.length);
+        }
+
+        private List<JSONObject> find(JSONObject json) {
+            List<JSONObject> candidates = this.fingerprints.get(fingerprint(json));
+            if (candidates == null) return Collections.emptyList();
+            List<JSONObject> result = new ArrayList<>(1);
+            String serialized = json.toString();
+            for (JSONObject o : candidates) {
+                if (o.toString().equals(serialized)) result.add(o);
+            }
+            return result;
+        }
+
+        private List<JSONObject> find(String key, String value) {
+            JSONObject nonString = this.nonStrings.get(key);
+            //meme regle que la recherche sans index : une valeur non textuelle leve une JSONException
+            if (nonString != null) nonString.getString(key);
+            List<JSONObject> result = this.indexes.get(key).get(value);
+            return (result == null) ? Collections.emptyList() : result;
+        }
+
+        private List<JSONObject> without(List<JSONObject> deleted) {
+            Map<JSONObject, Boolean> excluded = new IdentityHashMap<>();
+            deleted.forEach(o -> excluded.put(o, Boolean.TRUE));
+            List<JSONObject> result = new ArrayList<>(this.objects.size());
+            for (JSONObject o : this.objects) {
+                if (!excluded.containsKey(o)) result.add(o);
+            }
+            return result;
+        }
+    }
+}
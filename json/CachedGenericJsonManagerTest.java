@@ -0,0 +1,65 @@
+package distantcontrolclient;
+
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * CachedGenericJsonManager tests.
+ * @author Johan
+ */
+public class CachedGenericJsonManagerTest {
+    /**
+     * Test of delete method on an indexed key : same rule as the base manager,
+     * a non String value makes the deletion fail.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testIndexedDelete() throws Exception {
+        String directory = Files.createTempDirectory("cached").toString();
+        CachedGenericJsonManager<Object> manager = new CachedGenericJsonManager<Object>(directory, "c.json", Collections.singleton("id")) {
+            @Override
+            public Object createObject(JSONObject json) {
+                return json;
+            }
+        };
+        manager.writeJSON(Arrays.asList(new JSONObject().put("id", "a"), new JSONObject().put("id", "b")), "c.json");
+        manager.delete("id", "a", "c.json");
+        assertEquals("{\"id\":\"b\"}", manager.readAsJSON("c.json").get(0).toString());
+        manager.writeJSON(Arrays.asList(new JSONObject().put("id", "a"), new JSONObject().put("id", 5)), "c.json");
+        try {
+            manager.delete("id", "a", "c.json");
+            fail("5 is not a String");
+        } catch (JSONException expected) {
+        }
+        assertEquals(2, manager.readAsJSON("c.json").size());
+    }
+
+    /**
+     * Test of a written object modified afterwards by the caller : the cache
+     * keeps the written content.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testWrittenObjectsCopied() throws Exception {
+        String directory = Files.createTempDirectory("cached").toString();
+        CachedGenericJsonManager<Object> manager = new CachedGenericJsonManager<Object>(directory, "c.json", Collections.singleton("id")) {
+            @Override
+            public Object createObject(JSONObject json) {
+                return json;
+            }
+        };
+        JSONObject written = new JSONObject().put("id", "a");
+        manager.writeJSON(Collections.singletonList(written), "c.json");
+        written.put("id", "z");
+        assertEquals("[{\"id\":\"a\"}]", manager.readAsJSON("c.json").toString());
+        assertEquals(Arrays.asList(false, true), Arrays.asList(manager.contains(written, "c.json"), manager.contains(new JSONObject().put("id", "a"), "c.json")));
+        manager.delete("id", "a", "c.json");
+        assertEquals(0, manager.readAsJSON("c.json").size());
+    }
+}
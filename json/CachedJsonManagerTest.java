@@ -0,0 +1,56 @@
+package taskscheduler;
+
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * CachedJsonManager tests.
+ * @author Johan
+ */
+public class CachedJsonManagerTest {
+    /**
+     * Test of delete method on an indexed key : same rule as the base manager,
+     * a non String value makes the deletion fail with a JSONException.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testIndexedDelete() throws Exception {
+        String directory = Files.createTempDirectory("cached").toString();
+        CachedJsonManager manager = new CachedJsonManager(directory, "c.json", Collections.singleton("id"));
+        manager.writeJSON(Arrays.asList(new JSONObject().put("id", "a"), new JSONObject().put("id", "b")), "c.json");
+        manager.delete("id", "a", "c.json");
+        assertEquals(Arrays.asList("{\"id\":\"b\"}"), Arrays.asList(manager.read("c.json").get(0).toString()));
+        manager.writeJSON(Arrays.asList(new JSONObject().put("id", "a"), new JSONObject().put("id", 5)), "c.json");
+        for (JsonManager checked : Arrays.asList(new JsonManager(directory, "c.json"), manager)) {
+            try {
+                checked.delete("id", "a", "c.json");
+                fail("5 is not a String");
+            } catch (JSONException expected) {
+            }
+        }
+        assertEquals(2, manager.read("c.json").size());
+    }
+
+    /**
+     * Test of a written object modified afterwards by the caller : the cache
+     * keeps the written content.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testWrittenObjectsCopied() throws Exception {
+        String directory = Files.createTempDirectory("cached").toString();
+        CachedJsonManager manager = new CachedJsonManager(directory, "c.json", Collections.singleton("id"));
+        JSONObject written = new JSONObject().put("id", "a");
+        manager.writeJSON(Collections.singletonList(written), "c.json");
+        written.put("id", "z");
+        assertEquals("[{\"id\":\"a\"}]", manager.read("c.json").toString());
+        manager.delete("id", "a", "c.json");
+        assertEquals(0, manager.read("c.json").size());
+    }
+}
@@ -0,0 +1,481 @@
+package distantcontrolclient;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Gestionnaire de JSON avec typage stockant les objets au format JSON Lines.
+ * Chaque ajout est une ligne ajoutee en fin de fichier et chaque suppression
+ * une ligne de suppression ("-" suivi de l'objet supprime), ce qui rend les
+ * ajouts en O(1). Un compactage en tache de fond reecrit le fichier avec les
+ * seuls objets vivants des que les lignes mortes deviennent majoritaires.
+ * Un seul gestionnaire doit ecrire dans un fichier donne a la fois.
+ * Les doublons sont detectes sur le texte JSON des objets et non sur equals.
+ * Les fichiers sont toujours compacts, ni compresses ni binaires.
+ * @author Johan
+ * @param <T> type reel des objets JSON
+ */
+public abstract class GenericJsonLinesManager<T> extends GenericJsonManager<T> {
+    public static final String DEFAULT_EXTENSION = ".jsonl";
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 1000;
+    private static final char DELETE_MARKER = '-';
+    private static final String COMPACTION_SUFFIX = ".compact";
+    private final Map<String, LogState> logs = new HashMap<>();
+    private ExecutorService compactor;
+    private int compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+
+    /**
+     * Constructeur du gestionnaire de JSON Lines.
+     * @param directory chemin du repertoire utilise
+     * @param fileName nom du fichier json
+     */
+    public GenericJsonLinesManager(String directory, String fileName) {
+        super(directory, fileName);
+    }
+
+    /**
+     * Constructeur du gestionnaire de JSON Lines.
+     * @param fileName nom du fichier json
+     */
+    public GenericJsonLinesManager(String fileName) {
+        this(DEFAULT_DIRECTORY, fileName);
+    }
+
+    /**
+     * Modifie le nom du fichier utilise.
+     * @param fileName le nouveau nom du fichier
+     */
+    @Override
+    public void setFileName(String fileName) {
+        super.setFileName(fileName.contains(".") ? fileName : fileName + DEFAULT_EXTENSION);
+    }
+
+    /**
+     * Retourne le nombre minimal de lignes mortes declenchant un compactage.
+     * @return le nombre minimal de lignes mortes declenchant un compactage
+     */
+    public int getCompactionThreshold() {
+        return this.compactionThreshold;
+    }
+
+    /**
+     * Modifie le nombre minimal de lignes mortes declenchant un compactage.
+     * @param compactionThreshold nombre minimal de lignes mortes
+     */
+    public void setCompactionThreshold(int compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Retourne true : un objet JSON Lines tient toujours sur une seule ligne.
+     * @return true
+     */
+    @Override
+    public boolean isCompact() {
+        return true;
+    }
+
+    /**
+     * Le format JSON Lines est toujours compact.
+     * @param compact doit valoir true
+     * @throws UnsupportedOperationException si compact vaut false
+     */
+    @Override
+    public void setCompact(boolean compact) {
+        if (!compact) throw new UnsupportedOperationException("JSON Lines files are always compact");
+    }
+
+    /**
+     * Le format JSON Lines n'est jamais compresse.
+     * @param compressed doit valoir false
+     * @throws UnsupportedOperationException si compressed vaut true
+     */
+    @Override
+    public void setCompressed(boolean compressed) {
+        if (compressed) throw new UnsupportedOperationException("JSON Lines files cannot be compressed");
+    }
+
+    /**
+     * Le format JSON Lines est toujours textuel.
+     * @param binary doit valoir false
+     * @throws UnsupportedOperationException si binary vaut true
+     */
+    @Override
+    public void setBinary(boolean binary) {
+        if (binary) throw new UnsupportedOperationException("JSON Lines files cannot be binary");
+    }
+
+    @Override
+    public boolean contains(JSONObject json, String fileName) throws FileNotFoundException {
+        if (json == null) return false;
+        LogState log = getLog(fileName, false);
+        synchronized (log) {
+            return log.live.contains(json.toString());
+        }
+    }
+
+    @Override
+    public ArrayList<JSONObject> readAsJSON(String fileName) throws FileNotFoundException {
+        ArrayList<JSONObject> result = new ArrayList<>();
+        for (String line : liveLines(fileName)) {
+            result.add(new JSONObject(line));
+        }
+        return result;
+    }
+
+    @Override
+    public ArrayList<T> read(String fileName) throws FileNotFoundException {
+        ArrayList<T> result = new ArrayList<>();
+        for (String line : liveLines(fileName)) {
+            T storedObject = toObject(new JSONObject(line));
+            if (storedObject != null) result.add(storedObject);
+        }
+        return result;
+    }
+
+    @Override
+    public Stream<JSONObject> streamAsJSON(String fileName) throws FileNotFoundException {
+        return liveLines(fileName).stream().map(JSONObject::new);
+    }
+
+    @Override
+    public Stream<T> stream(String fileName) throws FileNotFoundException {
+        return streamAsJSON(fileName).map(this::toObject).filter(o -> o != null);
+    }
+
+    /**
+     * Remplace le contenu du fichier donne par les objets du document donne.
+     * @param json document de la forme {"Objects":[...]}
+     * @param fileName nom du fichier de stockage
+     * @throws IOException exception levee quand l'ecriture a echouee
+     */
+    @Override
+    public void writeJSON(JSONObject json, String fileName) throws IOException {
+        if (json == null) return;
+        JSONArray objects;
+        try {
+            objects = json.getJSONArray("Objects");
+        } catch (JSONException je) {
+            throw new IOException(je.getMessage(), je);
+        }
+        LogState log = getLog(fileName, true);
+        synchronized (log) {
+            log.live.clear();
+            for (int i=0; i<objects.length(); i++) {
+                log.live.add(objects.getJSONObject(i).toString());
+            }
+            rewrite(fileName, log);
+        }
+    }
+
+    /**
+     * Ajoute l'objet en fin de fichier s'il n'y est pas deja.
+     * @param object objet a ajouter au fichier
+     * @param fileName nom du fichier de stockage
+     * @throws IOException exception levee quand l'ecriture dans le fichier a echouee
+     */
+    @Override
+    public void write(T object, String fileName) throws IOException {
+        if (object == null) return;
+        String line = new JSONObject(object).toString();
+        LogState log = getLog(fileName, true);
+        synchronized (log) {
+            if (!log.live.add(line)) return;
+            append(fileName, line);
+        }
+    }
+
+    @Override
+    public void delete(JSONObject json, String fileName) throws FileNotFoundException, IOException {
+        if (json == null) return;
+        String line = json.toString();
+        LogState log = getLog(fileName, false);
+        synchronized (log) {
+            if (!log.live.remove(line)) return;
+            append(fileName, DELETE_MARKER + line);
+            log.deadLines += 2;
+            compactIfNeeded(fileName, log);
+        }
+    }
+
+    @Override
+    public void delete(T object, String fileName) throws FileNotFoundException, IOException {
+        if (object == null) return;
+        delete(new JSONObject(object), fileName);
+    }
+
+    @Override
+    public void delete(String key, String value, String fileName) throws FileNotFoundException, IOException {
+        LogState log = getLog(fileName, false);
+        synchronized (log) {
+            List<String> deleted = new ArrayList<>();
+            for (String line : log.live) {
+                JSONObject storedObject = new JSONObject(line);
+                if (storedObject.has(key) && storedObject.getString(key).equals(value)) deleted.add(line);
+            }
+            if (deleted.isEmpty()) return;
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(getPath(fileName), true))) {
+                for (String line : deleted) {
+                    log.live.remove(line);
+                    writer.write(DELETE_MARKER + line);
+                    writer.newLine();
+                }
+            }
+            log.deadLines += 2 * deleted.size();
+            compactIfNeeded(fileName, log);
+        }
+    }
+
+    /**
+     * Compacte immediatement le fichier donne en ne conservant que les objets vivants.
+     * @param fileName nom du fichier de stockage
+     * @throws IOException exception levee quand la reecriture du fichier a echouee
+     */
+    public void compact(String fileName) throws IOException {
+        LogState log = getLog(fileName, false);
+        synchronized (log) {
+            rewrite(fileName, log);
+        }
+    }
+
+    /**
+     * Compacte immediatement le fichier en ne conservant que les objets vivants.
+     * @throws IOException exception levee quand la reecriture du fichier a echouee
+     */
+    public void compact() throws IOException {
+        compact(getFileName());
+    }
+
+    /**
+     * Arrete le thread de compactage apres les compactages en attente.
+     */
+    public synchronized void shutdown() {
+        if (this.compactor != null) {
+            this.compactor.shutdown();
+            this.compactor = null;
+        }
+    }
+
+    /**
+     * Recree l'objet stocke avec le binder s'il y en a un, avec createObject sinon.
+     * @param json objet json stocke
+     * @return l'objet recree, null s'il doit etre ignore
+     */
+    private T toObject(JSONObject json) {
+        JsonBinder<T> binder = getBinder();
+        return (binder != null) ? binder.bind(json) : createObject(json);
+    }
+
+    /**
+     * Retourne une copie des lignes vivantes du fichier donne.
+     * @param fileName nom du fichier
+     * @return les lignes vivantes dans l'ordre d'ajout
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    private List<String> liveLines(String fileName) throws FileNotFoundException {
+        LogState log = getLog(fileName, false);
+        synchronized (log) {
+            return new ArrayList<>(log.live);
+        }
+    }
+
+    /**
+     * Retourne l'etat du journal du fichier donne en le chargeant si besoin.
+     * @param fileName nom du fichier
+     * @param create true pour retourner un journal vide si le fichier n'existe pas
+     * @return l'etat du journal
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    private LogState getLog(String fileName, boolean create) throws FileNotFoundException {
+        synchronized (this.logs) {
+            LogState log = this.logs.get(fileName);
+            if (log == null) {
+                File file = new File(getPath(fileName));
+                if (!file.exists() && create) {
+                    log = new LogState();
+                } else {
+                    log = load(file);
+                }
+                this.logs.put(fileName, log);
+            }
+            return log;
+        }
+    }
+
+    /**
+     * Rejoue le fichier donne pour retrouver les objets vivants. Seule une
+     * derniere ligne sans fin de ligne qui n'est pas un objet JSON (ajout
+     * interrompu) est tronquee ; une derniere ligne valide est terminee pour
+     * que l'ajout suivant commence sur une nouvelle ligne.
+     * @param file fichier a rejouer
+     * @return l'etat du journal
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas, n'est pas lisible
+     * ou contient une ligne complete qui n'est pas un objet JSON
+     */
+    private LogState load(File file) throws FileNotFoundException {
+        LogState log = new LogState();
+        try {
+            byte[] data = Files.readAllBytes(file.toPath());
+            int start = 0;
+            int lineNumber = 1;
+            for (int end = indexOf(data, start); end >= 0; end = indexOf(data, start)) {
+                try {
+                    replay(log, new String(data, start, end - start, Charset.defaultCharset()).trim());
+                } catch (JSONException je) {
+                    FileNotFoundException fnfe = new FileNotFoundException(file.getPath() + " (line " + lineNumber + ": " + je.getMessage() + ")");
+                    fnfe.initCause(je);
+                    throw fnfe;
+                }
+                start = end + 1;
+                lineNumber++;
+            }
+            String tail = new String(data, start, data.length - start, Charset.defaultCharset()).trim();
+            if (!tail.isEmpty()) {
+                boolean complete;
+                try {
+                    replay(log, tail);
+                    complete = true;
+                } catch (JSONException je) {
+                    complete = false;
+                }
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                    if (complete) {
+                        channel.write(ByteBuffer.wrap(new byte[] {'\n'}), data.length);
+                    } else {
+                        channel.truncate(start);
+                    }
+                }
+            }
+        } catch (IOException ioe) {
+            FileNotFoundException fnfe = new FileNotFoundException(file.getPath() + " (" + ioe.getMessage() + ")");
+            fnfe.initCause(ioe);
+            throw fnfe;
+        }
+        return log;
+    }
+
+    /**
+     * Applique une ligne du fichier a l'etat du journal.
+     * @param log etat du journal
+     * @param line ligne a appliquer, sans espaces en bordure
+     * @throws JSONException exception levee quand la ligne n'est pas un objet JSON
+     */
+    private static void replay(LogState log, String line) throws JSONException {
+        if (line.isEmpty()) {
+            return;
+        }
+        if (line.charAt(0) == DELETE_MARKER) {
+            log.live.remove(new JSONObject(line.substring(1)).toString());
+            log.deadLines += 2;
+        } else if (!log.live.add(new JSONObject(line).toString())) {
+            log.deadLines++;
+        }
+    }
+
+    private static int indexOf(byte[] data, int from) {
+        for (int i=from; i<data.length; i++) {
+            if (data[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Ajoute la ligne donnee en fin de fichier.
+     * @param fileName nom du fichier de stockage
+     * @param line ligne a ajouter
+     * @throws IOException exception levee quand l'ecriture a echouee
+     */
+    private void append(String fileName, String line) throws IOException {
+        File file = new File(getPath(fileName));
+        if (file.getParentFile() != null) file.getParentFile().mkdirs();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, true))) {
+            writer.write(line);
+            writer.newLine();
+        }
+    }
+
+    /**
+     * Reecrit les objets vivants dans un nouveau segment puis remplace
+     * l'ancien fichier par ce segment. Doit etre appele en possedant le verrou du journal.
+     * @param fileName nom du fichier de stockage
+     * @param log etat du journal
+     * @throws IOException exception levee quand la reecriture a echouee
+     */
+    private void rewrite(String fileName, LogState log) throws IOException {
+        File file = new File(getPath(fileName));
+        if (file.getParentFile() != null) file.getParentFile().mkdirs();
+        File segment = new File(file.getPath() + COMPACTION_SUFFIX);
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(segment))) {
+            for (String line : log.live) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+        Files.move(segment.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.deadLines = 0;
+    }
+
+    /**
+     * Programme un compactage en tache de fond si les lignes mortes sont majoritaires.
+     * @param fileName nom du fichier de stockage
+     * @param log etat du journal
+     */
+    private void compactIfNeeded(String fileName, LogState log) {
+        if ((log.deadLines < this.compactionThreshold) || (log.deadLines < log.live.size()) || log.compactionPending) return;
+        log.compactionPending = true;
+        getCompactor().execute(() -> {
+            synchronized (log) {
+                log.compactionPending = false;
+                try {
+                    rewrite(fileName, log);
+                } catch (IOException ignore) {
+                    //le fichier reste valide, le compactage sera retente plus tard
+                }
+            }
+        });
+    }
+
+    /**
+     * Retourne le thread de compactage, le cree si besoin.
+     * @return le thread de compactage
+     */
+    private synchronized ExecutorService getCompactor() {
+        if (this.compactor == null) {
+            this.compactor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "JsonLines-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return this.compactor;
+    }
+
+    /**
+     * Etat en memoire d'un fichier JSON Lines.
+     */
+    private static class LogState {
+        private final LinkedHashSet<String> live = new LinkedHashSet<>();
+        private int deadLines = 0;
+        private boolean compactionPending = false;
+    }
+}
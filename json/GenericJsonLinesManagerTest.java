@@ -0,0 +1,171 @@
+package distantcontrolclient;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * GenericJsonLinesManager tests.
+ * @author Johan
+ */
+public class GenericJsonLinesManagerTest {
+    /**
+     * Test of stream and streamAsJSON methods.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testStream() throws Exception {
+        GenericJsonLinesManager<Item> manager = newManager(Files.createTempDirectory("lines").toString());
+        manager.write(new Item(1));
+        manager.write(new Item(2));
+        manager.write(new Item(3));
+        manager.delete(new Item(2));
+        try (Stream<JSONObject> stored = manager.streamAsJSON()) {
+            assertEquals(Arrays.asList("{\"id\":1}", "{\"id\":3}"), stored.map(JSONObject::toString).collect(Collectors.toList()));
+        }
+        try (Stream<Item> stored = manager.stream()) {
+            assertEquals(Arrays.asList(1, 3), stored.map(Item::getId).collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Test of an incomplete last line : it is ignored and truncated so that
+     * the next append starts on a new line.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testTornLastLine() throws Exception {
+        String directory = Files.createTempDirectory("lines").toString();
+        File file = new File(directory, "l.jsonl");
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("{\"id\":1}\n{\"id\":2}\n{\"id");
+        }
+        GenericJsonLinesManager<Item> manager = newManager(directory);
+        assertEquals(Arrays.asList(1, 2), ids(manager));
+        assertEquals(18, file.length());
+        manager.write(new Item(4));
+        assertEquals(Arrays.asList(1, 2, 4), ids(newManager(directory)));
+    }
+
+    /**
+     * Test of a complete last line without line terminator : it is kept and
+     * terminated so that the next append starts on a new line.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testUnterminatedLastLine() throws Exception {
+        String directory = Files.createTempDirectory("lines").toString();
+        File file = new File(directory, "l.jsonl");
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("{\"id\":1}\n{\"id\":2}");
+        }
+        GenericJsonLinesManager<Item> manager = newManager(directory);
+        assertEquals(Arrays.asList(1, 2), ids(manager));
+        manager.write(new Item(3));
+        assertEquals(Arrays.asList(1, 2, 3), ids(newManager(directory)));
+    }
+
+    /**
+     * Test of a malformed complete line : the read fails and the file is left
+     * untouched.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testMalformedLine() throws Exception {
+        String directory = Files.createTempDirectory("lines").toString();
+        File file = new File(directory, "l.jsonl");
+        String content = "{\"id\":1}\n{\"id\":2\n{\"id\":3}\n{\"id\":4}";
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(content);
+        }
+        try {
+            newManager(directory).readAsJSON("l.jsonl");
+            fail("a malformed line must not be skipped");
+        } catch (FileNotFoundException expected) {
+        }
+        assertEquals(content, new String(Files.readAllBytes(file.toPath())));
+    }
+
+    /**
+     * Test of the compressed and binary settings, not supported by JSON Lines.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testUnsupportedSettings() throws Exception {
+        GenericJsonLinesManager<Item> manager = newManager(Files.createTempDirectory("lines").toString());
+        manager.setCompact(true);
+        manager.setCompressed(false);
+        manager.setBinary(false);
+        try {
+            manager.setBinary(true);
+            fail("JSON Lines files cannot be binary");
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            manager.setCompressed(true);
+            fail("JSON Lines files cannot be compressed");
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            manager.setCompact(false);
+            fail("JSON Lines files are always compact");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    /**
+     * Cree un gestionnaire sur le repertoire donne.
+     * @param directory repertoire de stockage
+     * @return le gestionnaire
+     */
+    private static GenericJsonLinesManager<Item> newManager(String directory) {
+        return new GenericJsonLinesManager<Item>(directory, "l.jsonl") {
+            @Override
+            public Item createObject(JSONObject json) {
+                return new Item(json.getInt("id"));
+            }
+        };
+    }
+
+    /**
+     * Retourne les identifiants des objets stockes.
+     * @param manager gestionnaire du fichier
+     * @return les identifiants stockes
+     * @throws Exception exception levee quand la lecture a echouee
+     */
+    private static List<Integer> ids(GenericJsonLinesManager<Item> manager) throws Exception {
+        return manager.read().stream().map(Item::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * Objet stocke par les tests.
+     */
+    public static class Item {
+        private final int id;
+
+        /**
+         * Constructeur de l'objet stocke.
+         * @param id identifiant
+         */
+        public Item(int id) {
+            this.id = id;
+        }
+
+        /**
+         * Retourne l'identifiant.
+         * @return l'identifiant
+         */
+        public int getId() {
+            return this.id;
+        }
+    }
+}
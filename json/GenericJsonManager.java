@@ -1,17 +1,48 @@
 package distantcontrolclient;
 
+import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 import org.json.JSONArray;
+import org.json.JSONBinaryReader;
+import org.json.JSONBinaryWriter;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONReader;
+import org.json.JSONStringCache;
 import org.json.JSONTokener;
+import org.json.JSONUtf8Writer;
 
 /**
  * Gestionnaire de JSON avec typage.
@@ -20,8 +51,16 @@ import org.json.JSONTokener;
  */
 public abstract class GenericJsonManager<T> {
     public static final String DEFAULT_DIRECTORY = "";
+    public static final int BUFFER_SIZE = 64 * 1024;
+    public static final String COMPRESSED_EXTENSION = ".jsonz";
+    public static final String BINARY_EXTENSION = ".jsonb";
     private String directory;
     private String fileName;
+    private boolean compact = false;
+    private boolean compressed = false;
+    private boolean binary = false;
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private JsonBinder<T> binder;
     
     /**
      * Constructeur du gestionnaire de JSON.
@@ -33,6 +72,17 @@ public abstract class GenericJsonManager<T> {
         setFileName(fileName);
     }
     
+    /**
+     * Constructeur du gestionnaire de JSON.
+     * @param directory chemin du repertoire utilise
+     * @param fileName nom du fichier json
+     * @param compressed true pour compresser tous les fichiers, quelle que soit leur extension
+     */
+    public GenericJsonManager(String directory, String fileName, boolean compressed) {
+        this(directory, fileName);
+        setCompressed(compressed);
+    }
+    
     /**
      * Constructeur du gestionnaire de JSON.
      * @param fileName nom du fichier json
@@ -48,6 +98,24 @@ public abstract class GenericJsonManager<T> {
      */
     public abstract T createObject(JSONObject json);
     
+    /**
+     * Retourne le binder utilise a la place de createObject, null si aucun.
+     * @return le binder utilise
+     */
+    public JsonBinder<T> getBinder() {
+        return this.binder;
+    }
+    
+    /**
+     * Modifie le binder utilise pour recreer les objets lus. Lorsqu'un binder est 
+     * donne, les objets sont lies directement depuis le fichier sans passer par 
+     * un JSONObject ni par createObject.
+     * @param binder le binder a utiliser, null pour revenir a createObject
+     */
+    public void setBinder(JsonBinder<T> binder) {
+        this.binder = binder;
+    }
+    
     /**
      * Retourne le chemin du repertoire utilise.
      * @return le chemin du repertoire utilise
@@ -64,6 +132,99 @@ public abstract class GenericJsonManager<T> {
         return this.fileName;
     }
     
+    /**
+     * Retourne true si les fichiers sont ecrits sans indentation, false sinon.
+     * @return true si les fichiers sont ecrits sans indentation, false sinon
+     */
+    public boolean isCompact() {
+        return this.compact;
+    }
+    
+    /**
+     * Modifie le format d'ecriture des fichiers : compact (sans indentation ni 
+     * retour a la ligne) ou indente.
+     * @param compact true pour ecrire sans indentation
+     */
+    public void setCompact(boolean compact) {
+        this.compact = compact;
+    }
+    
+    /**
+     * Retourne true si tous les fichiers sont compresses, false si seuls les 
+     * fichiers d'extension {@value #COMPRESSED_EXTENSION} le sont.
+     * @return true si tous les fichiers sont compresses, false sinon
+     */
+    public boolean isCompressed() {
+        return this.compressed;
+    }
+    
+    /**
+     * Retourne true si le fichier donne est compresse (Deflater), false sinon.
+     * @param fileName nom du fichier
+     * @return true si le fichier donne est compresse, false sinon
+     */
+    public boolean isCompressed(String fileName) {
+        return this.compressed || fileName.endsWith(COMPRESSED_EXTENSION);
+    }
+    
+    /**
+     * Modifie la compression des fichiers : si true tous les fichiers sont 
+     * compresses, sinon seuls les fichiers d'extension {@value #COMPRESSED_EXTENSION} le sont.
+     * @param compressed true pour compresser tous les fichiers
+     */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+    
+    /**
+     * Retourne le niveau de compression des fichiers compresses.
+     * @return le niveau de compression, de 0 a 9 ou -1 pour le niveau par defaut
+     */
+    public int getCompressionLevel() {
+        return this.compressionLevel;
+    }
+    
+    /**
+     * Modifie le niveau de compression des fichiers compresses : 1 privilegie 
+     * la vitesse, 9 la taille sur disque.
+     * @param compressionLevel niveau de compression, de 0 a 9 ou -1 pour le niveau par defaut
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        if ((compressionLevel < Deflater.DEFAULT_COMPRESSION) || (compressionLevel > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level: " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+    }
+    
+    /**
+     * Retourne true si tous les fichiers sont ecrits en json binaire, false si 
+     * seuls les fichiers d'extension {@value #BINARY_EXTENSION} le sont.
+     * @return true si tous les fichiers sont binaires, false sinon
+     */
+    public boolean isBinary() {
+        return this.binary;
+    }
+    
+    /**
+     * Retourne true si le fichier donne est ecrit en json binaire (JSONBinary), false sinon.
+     * @param fileName nom du fichier
+     * @return true si le fichier donne est binaire, false sinon
+     */
+    public boolean isBinary(String fileName) {
+        return this.binary || fileName.endsWith(BINARY_EXTENSION);
+    }
+    
+    /**
+     * Modifie l'encodage des fichiers : si true tous les fichiers sont ecrits 
+     * en json binaire, plus compact et plus rapide a relire que le texte, sinon 
+     * seuls les fichiers d'extension {@value #BINARY_EXTENSION} le sont. Le 
+     * json binaire peut aussi etre compresse.
+     * @param binary true pour ecrire tous les fichiers en json binaire
+     */
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+    
     /**
      * Modifie le repertoire utilise.
      * @param directory le path correspondant au nouveau repertoire
@@ -171,16 +332,18 @@ public abstract class GenericJsonManager<T> {
      * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
      */
     public ArrayList<JSONObject> readAsJSON(String fileName) throws FileNotFoundException {
-        JSONTokener tokener = new JSONTokener(new FileReader(getPath(fileName)));
+        InputStream in = openStream(fileName);
         ArrayList<JSONObject> result = new ArrayList<>();
         JSONArray objectsStored;
         try {
-            objectsStored = new JSONObject(tokener).getJSONArray("Objects");
+            objectsStored = parse(in, fileName).getJSONArray("Objects");
             for (int i=0; i<objectsStored.length(); i++) {
                 result.add(objectsStored.getJSONObject(i));
             }
         } catch (JSONException je) {
             throw new FileNotFoundException(je.getMessage());
+        } finally {
+            close(in);
         }
         return result;
     }
@@ -192,17 +355,26 @@ public abstract class GenericJsonManager<T> {
      * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
      */
     public ArrayList<T> read(String fileName) throws FileNotFoundException {
-        JSONTokener tokener = new JSONTokener(new FileReader(getPath(fileName)));
+        if (this.binder != null) {
+            try (Stream<T> storedObjects = stream(fileName)) {
+                return storedObjects.collect(Collectors.toCollection(ArrayList::new));
+            } catch (JSONException je) {
+                throw new FileNotFoundException(je.getMessage());
+            }
+        }
+        InputStream in = openStream(fileName);
         ArrayList<T> result = new ArrayList<>();
         JSONArray objectsStored;
         try {
-            objectsStored = new JSONObject(tokener).getJSONArray("Objects");
+            objectsStored = parse(in, fileName).getJSONArray("Objects");
             for (int i=0; i<objectsStored.length(); i++) {
                 T storedObject = createObject(objectsStored.getJSONObject(i));
-                if (storedObject != null) result.add(createObject(objectsStored.getJSONObject(i)));
+                if (storedObject != null) result.add(storedObject);
             }
         } catch (JSONException je) {
             throw new FileNotFoundException(je.getMessage());
+        } finally {
+            close(in);
         }
         return result;
     }
@@ -216,6 +388,67 @@ public abstract class GenericJsonManager<T> {
         return read(this.fileName);
     }
     
+    /**
+     * Retourne sous le format JSON un flux des objets stockes dans le fichier donne.
+     * Les objets sont lus un a un au fil de la consommation du flux, sans charger 
+     * tout le fichier en memoire. Le flux doit etre ferme s'il n'est pas consomme 
+     * entierement.
+     * @param fileName fichier dans lequel lire les objets
+     * @return le flux des objets stockes
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    public Stream<JSONObject> streamAsJSON(String fileName) throws FileNotFoundException {
+        if (isBinary(fileName)) {
+            BinaryObjectsIterator<JSONObject> iterator = new BinaryObjectsIterator<>(openStream(fileName), Function.identity());
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                    .onClose(iterator::close);
+        }
+        ObjectsIterator<JSONObject> iterator = new ObjectsIterator<>(openReader(fileName), GenericJsonManager::nextJSONObject);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+    
+    /**
+     * Retourne sous le format JSON un flux des objets stockes.
+     * @return le flux des objets stockes
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    public Stream<JSONObject> streamAsJSON() throws FileNotFoundException {
+        return streamAsJSON(this.fileName);
+    }
+    
+    /**
+     * Retourne un flux des objets stockes dans le fichier donne.
+     * Les objets sont recrees un a un au fil de la consommation du flux, sans 
+     * charger tout le fichier en memoire. Le flux doit etre ferme s'il n'est pas 
+     * consomme entierement.
+     * @param fileName fichier dans lequel lire les objets
+     * @return le flux des objets stockes
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    public Stream<T> stream(String fileName) throws FileNotFoundException {
+        if ((this.binder != null) && isBinary(fileName)) {
+            BinaryObjectsIterator<T> iterator = new BinaryObjectsIterator<>(openStream(fileName), this.binder::bind);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                    .onClose(iterator::close).filter(o -> o != null);
+        }
+        if (this.binder != null) {
+            ObjectsIterator<T> iterator = new ObjectsIterator<>(openReader(fileName), this.binder::bind);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                    .onClose(iterator::close).filter(o -> o != null);
+        }
+        return streamAsJSON(fileName).map(this::createObject).filter(o -> o != null);
+    }
+    
+    /**
+     * Retourne un flux des objets stockes.
+     * @return le flux des objets stockes
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    public Stream<T> stream() throws FileNotFoundException {
+        return stream(this.fileName);
+    }
+    
     /**
      * Ecrit l'objet donne en memoire dans le fichier donne.
      * @param json objet json a persister
@@ -223,13 +456,48 @@ public abstract class GenericJsonManager<T> {
      * @throws IOException exception levee quand l'ecriture a echouee
      */
     public void writeJSON(JSONObject json, String fileName) throws IOException {
-        if ((json == null) || contains(json)) return;
+        if (json == null) return;
         createFile();
-        try (FileWriter writer = new FileWriter(getPath(fileName))) {
-            writer.write(json.toString(1));
+        try (OutputStream out = Channels.newOutputStream(FileChannel.open(Paths.get(getPath(fileName)), 
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+            serialize(json, out, fileName);
         }
     }
     
+    /**
+     * Serialise le json donne dans le flux donne, selon le format d'ecriture, 
+     * l'encodage et la compression du fichier donne. Le json est ecrit au fil 
+     * de l'eau sans construire de String intermediaire ; le flux n'est pas ferme.
+     * @param json objet json a serialiser
+     * @param out destination
+     * @param fileName nom du fichier de stockage
+     * @throws IOException exception levee quand l'ecriture a echouee
+     */
+    void serialize(JSONObject json, OutputStream out, String fileName) throws IOException {
+        CharsetEncoder encoder = Charset.defaultCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        Deflater deflater = isCompressed(fileName) ? new Deflater(this.compressionLevel) : null;
+        try {
+            DeflaterOutputStream deflated = (deflater == null) ? null : new DeflaterOutputStream(out, deflater, BUFFER_SIZE);
+            if (isBinary(fileName)) {
+                new JSONBinaryWriter((deflated == null) ? out : deflated).value(json).flush();
+            } else if (StandardCharsets.UTF_8.equals(encoder.charset())) {
+                //UTF-8 : texte ecrit directement en octets, sans passer par l'encodeur
+                new JSONUtf8Writer((deflated == null) ? out : deflated).write(json, this.compact ? 0 : 1, 0).flush();
+            } else {
+                Writer writer = new BufferedWriter(new OutputStreamWriter((deflated == null) ? out : deflated, encoder), BUFFER_SIZE);
+                json.write(writer, this.compact ? 0 : 1, 0);
+                writer.flush();
+            }
+            if (deflated != null) deflated.finish();
+        } catch (JSONException je) {
+            if (je.getCause() instanceof IOException) throw (IOException) je.getCause();
+            throw je;
+        } finally {
+            if (deflater != null) deflater.end();
+        }
+    }
     
     
     /**
@@ -435,4 +703,262 @@ public abstract class GenericJsonManager<T> {
     public void replace(String key, String value, T newObject) throws FileNotFoundException, IOException {
         replace(key, value, newObject, this.fileName);
     }
+    
+    /**
+     * Ouvre en lecture le fichier donne, decompresse a la volee s'il est compresse.
+     * @param fileName nom du fichier
+     * @return le reader du fichier
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    private Reader openReader(String fileName) throws FileNotFoundException {
+        return new InputStreamReader(openStream(fileName), Charset.defaultCharset());
+    }
+    
+    /**
+     * Ouvre en lecture le fichier donne, decompresse a la volee s'il est compresse.
+     * @param fileName nom du fichier
+     * @return le flux du fichier
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    private InputStream openStream(String fileName) throws FileNotFoundException {
+        InputStream in = new FileInputStream(getPath(fileName));
+        if (isCompressed(fileName)) {
+            in = new InflaterInputStream(in, new Inflater(), BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        this.inf.end();
+                    }
+                }
+            };
+        }
+        return in;
+    }
+    
+    /**
+     * Cree le tokener d'un fichier : les cles et les valeurs courtes, repetees 
+     * d'un objet a l'autre, sont partagees par tous les objets lus au lieu 
+     * d'etre copiees dans chacun.
+     * @param reader reader du fichier
+     * @return le tokener
+     */
+    private static JSONTokener newTokener(Reader reader) {
+        JSONTokener tokener = new JSONTokener(reader);
+        tokener.setStringCache(new JSONStringCache());
+        return tokener;
+    }
+    
+    /**
+     * Lit le document json du flux donne, texte ou binaire selon le fichier donne.
+     * @param in flux du fichier
+     * @param fileName nom du fichier
+     * @return le document lu
+     */
+    private JSONObject parse(InputStream in, String fileName) {
+        if (!isBinary(fileName)) return new JSONObject(newTokener(new InputStreamReader(in, Charset.defaultCharset())));
+        Object document = new JSONBinaryReader(in).nextValue();
+        if (!(document instanceof JSONObject)) throw new JSONException("A binary JSON document must be a JSONObject");
+        return (JSONObject) document;
+    }
+    
+    /**
+     * Ferme la ressource donnee en ignorant les erreurs de fermeture.
+     * @param closeable ressource a fermer
+     */
+    private static void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignore) {
+        }
+    }
+    
+    /**
+     * Lit le prochain element du tableau "Objects".
+     * @param tokener tokener positionne avant l'element
+     * @return l'element lu
+     */
+    private static JSONObject nextJSONObject(JSONTokener tokener) {
+        Object value = tokener.nextValue();
+        if (!(value instanceof JSONObject)) {
+            throw tokener.syntaxError("Objects element is not a JSONObject");
+        }
+        return (JSONObject) value;
+    }
+    
+    /**
+     * Iterateur lisant un a un les elements du tableau "Objects" d'un fichier
+     * json sans construire l'arbre complet du fichier.
+     * @param <E> type des elements lus
+     */
+    private static class ObjectsIterator<E> implements Iterator<E>, Closeable {
+        private final Reader reader;
+        private final JSONTokener tokener;
+        private final Function<JSONTokener, E> parser;
+        private E next;
+        private boolean finished = false;
+        
+        /**
+         * Se place au debut du tableau "Objects" du fichier ouvert par le reader donne.
+         * @param reader reader du fichier
+         * @param parser lecture d'un element depuis le tokener
+         * @throws FileNotFoundException exception levee quand le fichier n'est pas lisible
+         */
+        private ObjectsIterator(Reader reader, Function<JSONTokener, E> parser) throws FileNotFoundException {
+            this.parser = parser;
+            this.reader = reader;
+            this.tokener = newTokener(this.reader);
+            try {
+                seekObjects();
+            } catch (JSONException je) {
+                close();
+                throw new FileNotFoundException(je.getMessage());
+            }
+        }
+        
+        /**
+         * Avance jusqu'au premier element du tableau "Objects" en sautant les autres cles.
+         */
+        private void seekObjects() {
+            //les autres cles sont sautees sans construire leur valeur
+            JSONReader reader = new JSONReader(this.tokener);
+            if (!reader.hasNext() || (reader.next() != JSONReader.Event.START_OBJECT)) {
+                throw this.tokener.syntaxError("A JSONObject text must begin with '{'");
+            }
+            while (reader.next() == JSONReader.Event.KEY) {
+                if ("Objects".equals(reader.getString())) {
+                    if (this.tokener.nextClean() != '[') {
+                        throw new JSONException("JSONObject[\"Objects\"] is not a JSONArray.");
+                    }
+                    if (this.tokener.nextClean() == ']') {
+                        this.finished = true;
+                    } else {
+                        this.tokener.back();
+                    }
+                    return;
+                }
+                reader.skipValue();
+            }
+            throw new JSONException("JSONObject[\"Objects\"] not found.");
+        }
+        
+        @Override
+        public boolean hasNext() {
+            if (this.next != null) return true;
+            if (this.finished) return false;
+            try {
+                this.next = this.parser.apply(this.tokener);
+                switch (this.tokener.nextClean()) {
+                    case ',':
+                        break;
+                    case ']':
+                        this.finished = true;
+                        break;
+                    default:
+                        throw this.tokener.syntaxError("Expected a ',' or ']'");
+                }
+            } catch (JSONException je) {
+                close();
+                throw je;
+            }
+            if (this.finished) close();
+            return true;
+        }
+        
+        @Override
+        public E next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            E result = this.next;
+            this.next = null;
+            return result;
+        }
+        
+        @Override
+        public void close() {
+            this.finished = true;
+            GenericJsonManager.close(this.reader);
+        }
+    }
+    
+    /**
+     * Iterateur lisant un a un les elements du tableau "Objects" d'un fichier
+     * json binaire.
+     * @param <E> type des elements lus
+     */
+    private static class BinaryObjectsIterator<E> implements Iterator<E>, Closeable {
+        private final InputStream in;
+        private final Function<JSONObject, E> parser;
+        private JSONBinaryReader reader;
+        private E next;
+        private boolean finished = false;
+        
+        /**
+         * Se place au debut du tableau "Objects" du fichier binaire ouvert par le flux donne.
+         * @param in flux du fichier
+         * @param parser conversion d'un element lu
+         * @throws FileNotFoundException exception levee quand le fichier n'est pas lisible
+         */
+        private BinaryObjectsIterator(InputStream in, Function<JSONObject, E> parser) throws FileNotFoundException {
+            this.in = in;
+            this.parser = parser;
+            try {
+                this.reader = new JSONBinaryReader(in);
+                seekObjects();
+            } catch (JSONException je) {
+                close();
+                throw new FileNotFoundException(je.getMessage());
+            }
+        }
+        
+        /**
+         * Avance jusqu'au premier element du tableau "Objects" en sautant les autres cles.
+         */
+        private void seekObjects() {
+            this.reader.beginObject();
+            while (this.reader.more()) {
+                if ("Objects".equals(this.reader.nextKey())) {
+                    this.reader.beginArray();
+                    return;
+                }
+                this.reader.skipValue();
+            }
+            throw new JSONException("JSONObject[\"Objects\"] not found.");
+        }
+        
+        @Override
+        public boolean hasNext() {
+            if (this.next != null) return true;
+            if (this.finished) return false;
+            try {
+                if (!this.reader.more()) {
+                    close();
+                    return false;
+                }
+                Object value = this.reader.nextValue();
+                if (!(value instanceof JSONObject)) {
+                    throw new JSONException("Objects element is not a JSONObject");
+                }
+                this.next = this.parser.apply((JSONObject) value);
+            } catch (JSONException je) {
+                close();
+                throw je;
+            }
+            return true;
+        }
+        
+        @Override
+        public E next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            E result = this.next;
+            this.next = null;
+            return result;
+        }
+        
+        @Override
+        public void close() {
+            this.finished = true;
+            GenericJsonManager.close(this.in);
+        }
+    }
 }
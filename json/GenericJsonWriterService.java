@@ -0,0 +1,378 @@
+package distantcontrolclient;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Service d'ecriture concurrente pour un gestionnaire de JSON avec typage.
+ * Les modifications soumises par plusieurs threads sont mises en file puis
+ * regroupees par un unique thread d'ecriture : toutes celles arrivees pendant
+ * une fenetre de commit sont appliquees en une seule reecriture atomique
+ * (fichier temporaire, fsync puis renommage). Le futur de chaque modification
+ * est complete une fois les donnees sur disque ; une modification qui echoue
+ * ne fait echouer que son propre futur.
+ * Les objets sont compares par leur format json.
+ * Un gestionnaire qui redefinit son stockage (streamAsJSON ou writeJSON, comme
+ * GenericJsonLinesManager ou ShardedGenericJsonManager) est lu et ecrit par
+ * ses propres methodes : la reecriture est alors celle du gestionnaire.
+ * @author Johan
+ * @param <T> type reel des objets JSON
+ */
+public class GenericJsonWriterService<T> {
+    public static final long DEFAULT_COMMIT_WINDOW = 10;
+    private static final String TEMP_SUFFIX = ".tmp";
+    private final GenericJsonManager<T> manager;
+    /** true si le gestionnaire redefinit la lecture ou l'ecriture de ses fichiers. */
+    private final boolean customStorage;
+    private final long commitWindow;
+    private final BlockingQueue<Mutation> queue = new LinkedBlockingQueue<>();
+    /** Verrou qui ordonne les soumissions et l'arret du service. */
+    private final Object submitLock = new Object();
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    /**
+     * Constructeur du service d'ecriture.
+     * @param manager gestionnaire des fichiers json
+     * @param commitWindow duree en millisecondes pendant laquelle les modifications sont regroupees
+     */
+    public GenericJsonWriterService(GenericJsonManager<T> manager, long commitWindow) {
+        this.manager = manager;
+        this.customStorage = overrides(manager, "streamAsJSON", String.class)
+                || overrides(manager, "writeJSON", JSONObject.class, String.class);
+        this.commitWindow = commitWindow;
+        this.flusher = new Thread(this::flushLoop, "GenericJsonWriterService-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Constructeur du service d'ecriture.
+     * @param manager gestionnaire des fichiers json
+     */
+    public GenericJsonWriterService(GenericJsonManager<T> manager) {
+        this(manager, DEFAULT_COMMIT_WINDOW);
+    }
+
+    /**
+     * Ajoute l'objet dans le fichier donne s'il n'y est pas deja. Un objet null
+     * est ignore.
+     * @param object objet a ajouter
+     * @param fileName nom du fichier de stockage
+     * @return futur complete quand l'ajout est ecrit sur disque
+     */
+    public CompletableFuture<Void> write(T object, String fileName) {
+        if (object == null) return CompletableFuture.completedFuture(null);
+        JSONObject json = new JSONObject(object);
+        String serialized = json.toString();
+        return submit(fileName, objects -> objects.addIfAbsent(json, serialized));
+    }
+
+    /**
+     * Ajoute l'objet dans le fichier s'il n'y est pas deja.
+     * @param object objet a ajouter
+     * @return futur complete quand l'ajout est ecrit sur disque
+     */
+    public CompletableFuture<Void> write(T object) {
+        return write(object, this.manager.getFileName());
+    }
+
+    /**
+     * Supprime l'objet donne du fichier donne. Un objet null est ignore.
+     * @param object objet a supprimer
+     * @param fileName nom du fichier de stockage
+     * @return futur complete quand la suppression est ecrite sur disque
+     */
+    public CompletableFuture<Void> delete(T object, String fileName) {
+        if (object == null) return CompletableFuture.completedFuture(null);
+        String serialized = new JSONObject(object).toString();
+        return submit(fileName, objects -> objects.remove(serialized));
+    }
+
+    /**
+     * Supprime l'objet donne du fichier.
+     * @param object objet a supprimer
+     * @return futur complete quand la suppression est ecrite sur disque
+     */
+    public CompletableFuture<Void> delete(T object) {
+        return delete(object, this.manager.getFileName());
+    }
+
+    /**
+     * Supprime tous les objets qui possedent la valeur indiquee associee a
+     * la cle donnee dans le fichier donne.
+     * @param key cle
+     * @param value valeur du/des objet(s) a supprimer
+     * @param fileName nom du fichier de stockage
+     * @return futur complete quand la suppression est ecrite sur disque
+     */
+    public CompletableFuture<Void> delete(String key, String value, String fileName) {
+        return submit(fileName, objects -> objects.removeIf(o -> Objects.equals(o.opt(key), value)));
+    }
+
+    /**
+     * Supprime tous les objets qui possedent la valeur indiquee associee a
+     * la cle donnee dans le fichier.
+     * @param key cle
+     * @param value valeur du/des objet(s) a supprimer
+     * @return futur complete quand la suppression est ecrite sur disque
+     */
+    public CompletableFuture<Void> delete(String key, String value) {
+        return delete(key, value, this.manager.getFileName());
+    }
+
+    /**
+     * Remplace l'objet oldObject par newObject dans le fichier donne. Un objet
+     * null est ignore, comme par GenericJsonManager.replace.
+     * @param oldObject ancien objet
+     * @param newObject nouvel objet
+     * @param fileName nom du fichier de stockage
+     * @return futur complete quand le remplacement est ecrit sur disque
+     */
+    public CompletableFuture<Void> replace(T oldObject, T newObject, String fileName) {
+        if (oldObject == null) return write(newObject, fileName);
+        if (newObject == null) return delete(oldObject, fileName);
+        String oldSerialized = new JSONObject(oldObject).toString();
+        JSONObject json = new JSONObject(newObject);
+        String newSerialized = json.toString();
+        return submit(fileName, objects -> {
+            objects.remove(oldSerialized);
+            objects.addIfAbsent(json, newSerialized);
+        });
+    }
+
+    /**
+     * Remplace l'objet oldObject par newObject dans le fichier.
+     * @param oldObject ancien objet
+     * @param newObject nouvel objet
+     * @return futur complete quand le remplacement est ecrit sur disque
+     */
+    public CompletableFuture<Void> replace(T oldObject, T newObject) {
+        return replace(oldObject, newObject, this.manager.getFileName());
+    }
+
+    /**
+     * Arrete le service apres avoir ecrit les modifications en attente.
+     * @throws InterruptedException exception levee quand l'attente de l'arret est interrompue
+     */
+    public void shutdown() throws InterruptedException {
+        synchronized (this.submitLock) {
+            this.running = false;
+        }
+        this.flusher.interrupt();
+        this.flusher.join();
+    }
+
+    /**
+     * Met en file la modification donnee.
+     * @param fileName nom du fichier de stockage
+     * @param operation modification a appliquer aux objets stockes
+     * @return futur complete quand la modification est ecrite sur disque
+     */
+    private CompletableFuture<Void> submit(String fileName, Consumer<StoredObjects> operation) {
+        Mutation mutation = new Mutation(fileName, operation);
+        //sous le verrou : une modification acceptee est en file avant que l'arret soit visible du thread d'ecriture
+        synchronized (this.submitLock) {
+            if (!this.running) throw new IllegalStateException("Writer service already shut down");
+            this.queue.add(mutation);
+        }
+        return mutation.future;
+    }
+
+    /**
+     * Retourne true si la classe du gestionnaire redefinit la methode donnee.
+     * @param manager gestionnaire des fichiers json
+     * @param name nom de la methode
+     * @param parameterTypes types des parametres de la methode
+     * @return true si la methode est redefinie, false sinon
+     */
+    private static boolean overrides(GenericJsonManager<?> manager, String name, Class<?>... parameterTypes) {
+        try {
+            return manager.getClass().getMethod(name, parameterTypes).getDeclaringClass() != GenericJsonManager.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Boucle du thread d'ecriture : attend une modification, laisse passer la
+     * fenetre de commit puis ecrit toutes les modifications en attente.
+     */
+    private void flushLoop() {
+        List<Mutation> batch = new ArrayList<>();
+        while (this.running || !this.queue.isEmpty()) {
+            try {
+                Mutation first = this.queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                if (this.running && (this.commitWindow > 0)) Thread.sleep(this.commitWindow);
+            } catch (InterruptedException ie) {
+                //arret demande : les modifications en attente sont ecrites
+            }
+            this.queue.drainTo(batch);
+            if (!batch.isEmpty()) flush(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Applique les modifications donnees, fichier par fichier. Une modification
+     * qui echoue est ignoree et seul son futur echoue.
+     * @param batch modifications a appliquer
+     */
+    private void flush(List<Mutation> batch) {
+        Map<String, List<Mutation>> byFile = new LinkedHashMap<>();
+        batch.forEach(m -> byFile.computeIfAbsent(m.fileName, f -> new ArrayList<>()).add(m));
+        for (Map.Entry<String, List<Mutation>> entry : byFile.entrySet()) {
+            List<Mutation> applied = new ArrayList<>();
+            try {
+                StoredObjects objects = load(entry.getKey());
+                for (Mutation mutation : entry.getValue()) {
+                    try {
+                        mutation.operation.accept(objects);
+                        applied.add(mutation);
+                    } catch (RuntimeException e) {
+                        mutation.future.completeExceptionally(e);
+                    }
+                }
+                if (!applied.isEmpty()) store(objects.toList(), entry.getKey());
+                applied.forEach(m -> m.future.complete(null));
+            } catch (IOException | RuntimeException e) {
+                entry.getValue().forEach(m -> m.future.completeExceptionally(e));
+            }
+        }
+    }
+
+    /**
+     * Charge les objets stockes dans le fichier donne, doublons compris. Un
+     * fichier absent est une collection vide, comme pour GenericJsonManager.write.
+     * @param fileName nom du fichier de stockage
+     * @return les objets stockes
+     * @throws IOException exception levee quand le fichier n'est pas lisible
+     */
+    private StoredObjects load(String fileName) throws IOException {
+        StoredObjects objects = new StoredObjects();
+        File file = new File(this.manager.getPath(fileName));
+        if (!this.customStorage && (!file.exists() || (file.length() == 0))) return objects;
+        try (Stream<JSONObject> storedObjects = this.manager.streamAsJSON(fileName)) {
+            storedObjects.forEach(o -> objects.append(o, o.toString()));
+        } catch (FileNotFoundException fnfe) {
+            //fichier du gestionnaire (par exemple ses shards) absent ; un fichier illisible n'est pas ecrase
+            if (file.exists()) throw fnfe;
+        } catch (JSONException je) {
+            throw new IOException(je.getMessage(), je);
+        }
+        return objects;
+    }
+
+    /**
+     * Ecrit atomiquement les objets donnes : fichier temporaire unique, fsync
+     * puis renommage. Un gestionnaire qui redefinit son stockage ecrit les
+     * objets avec writeJSON.
+     * @param objects objets a stocker
+     * @param fileName nom du fichier de stockage
+     * @throws IOException exception levee quand l'ecriture a echouee
+     */
+    private void store(List<JSONObject> objects, String fileName) throws IOException {
+        JSONObject json = new JSONObject();
+        json.put("Objects", new JSONArray(objects));
+        if (this.customStorage) {
+            this.manager.writeJSON(json, fileName);
+            return;
+        }
+        File file = new File(this.manager.getPath(fileName)).getAbsoluteFile();
+        file.getParentFile().mkdirs();
+        File temp = File.createTempFile(file.getName() + ".", TEMP_SUFFIX, file.getParentFile());
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            this.manager.serialize(json, out, fileName);
+            out.getFD().sync();
+        } catch (IOException | RuntimeException e) {
+            temp.delete();
+            throw e;
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Modification en attente d'ecriture.
+     */
+    private static class Mutation {
+        private final String fileName;
+        private final Consumer<StoredObjects> operation;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Mutation(String fileName, Consumer<StoredObjects> operation) {
+            this.fileName = fileName;
+            this.operation = operation;
+        }
+    }
+
+    /**
+     * Objets d'un fichier pendant un commit, indexes par format json : chaque
+     * objet n'est serialise qu'une fois et les ajouts et suppressions d'un
+     * objet sont des recherches dans une table de hachage. Les objets
+     * supprimes laissent une place vide jusqu'a l'ecriture.
+     */
+    private static class StoredObjects {
+        private final List<JSONObject> objects = new ArrayList<>();
+        private final List<String> texts = new ArrayList<>();
+        private final Map<String, List<Integer>> positions = new HashMap<>();
+
+        private void append(JSONObject json, String text) {
+            this.positions.computeIfAbsent(text, t -> new ArrayList<>(1)).add(this.objects.size());
+            this.objects.add(json);
+            this.texts.add(text);
+        }
+
+        private void addIfAbsent(JSONObject json, String text) {
+            if (!this.positions.containsKey(text)) append(json, text);
+        }
+
+        private void remove(String text) {
+            List<Integer> removed = this.positions.remove(text);
+            if (removed != null) removed.forEach(i -> this.objects.set(i, null));
+        }
+
+        /**
+         * Supprime les objets acceptes par le filtre, ou aucun si le filtre
+         * leve une exception.
+         * @param filter filtre des objets a supprimer
+         */
+        private void removeIf(Predicate<JSONObject> filter) {
+            List<String> removed = new ArrayList<>();
+            for (int i=0; i<this.objects.size(); i++) {
+                JSONObject o = this.objects.get(i);
+                if ((o != null) && filter.test(o)) removed.add(this.texts.get(i));
+            }
+            removed.forEach(this::remove);
+        }
+
+        private List<JSONObject> toList() {
+            List<JSONObject> result = new ArrayList<>(this.objects.size());
+            for (JSONObject o : this.objects) {
+                if (o != null) result.add(o);
+            }
+            return result;
+        }
+    }
+}
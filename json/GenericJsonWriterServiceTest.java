@@ -0,0 +1,206 @@
+package distantcontrolclient;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * GenericJsonWriterService tests.
+ * @author Johan
+ */
+public class GenericJsonWriterServiceTest {
+    /**
+     * Test of write and delete methods, with duplicate and non String values
+     * already stored.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testFlushKeepsDuplicates() throws Exception {
+        GenericJsonManager<Item> manager = newManager();
+        JSONObject a = new JSONObject().put("id", "a");
+        JSONObject number = new JSONObject().put("id", 5);
+        manager.writeJSON(new ArrayList<>(Arrays.asList(a, a, number)), "w.json");
+        GenericJsonWriterService<Item> service = new GenericJsonWriterService<>(manager, 0);
+        service.delete("id", "b").get();
+        service.write(new Item(7)).get();
+        service.write(new Item(7)).get();
+        service.shutdown();
+        List<String> stored = read(manager);
+        assertEquals(Arrays.asList(a.toString(), a.toString(), number.toString(), "{\"id\":7}"), stored);
+    }
+
+    /**
+     * Test of shutdown method : the accepted mutations are written, the
+     * following ones are rejected.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testShutdown() throws Exception {
+        GenericJsonManager<Item> manager = newManager();
+        GenericJsonWriterService<Item> service = new GenericJsonWriterService<>(manager);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i=0; i<20; i++) futures.add(service.write(new Item(i)));
+        service.shutdown();
+        for (CompletableFuture<Void> future : futures) future.get();
+        assertEquals(20, read(manager).size());
+        try {
+            service.write(new Item(99));
+            fail("Writer service already shut down");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    /**
+     * Test of random mutations grouped in one commit against the same
+     * mutations applied one by one to a list.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testRandomMutations() throws Exception {
+        GenericJsonManager<Item> manager = newManager();
+        Random random = new Random(42);
+        List<String> expected = new ArrayList<>();
+        List<JSONObject> initial = new ArrayList<>();
+        for (int i=0; i<10; i++) {
+            initial.add(new JSONObject().put("id", random.nextInt(6)));
+            expected.add(initial.get(i).toString());
+        }
+        manager.writeJSON(initial, "w.json");
+        GenericJsonWriterService<Item> service = new GenericJsonWriterService<>(manager, 1000);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i=0; i<200; i++) {
+            Item item = new Item(random.nextInt(8));
+            String serialized = new JSONObject(item).toString();
+            switch (random.nextInt(3)) {
+                case 0:
+                    futures.add(service.write(item));
+                    if (!expected.contains(serialized)) expected.add(serialized);
+                    break;
+                case 1:
+                    futures.add(service.delete(item));
+                    expected.removeIf(serialized::equals);
+                    break;
+                default:
+                    Item newItem = new Item(random.nextInt(8));
+                    futures.add(service.replace(item, newItem));
+                    expected.removeIf(serialized::equals);
+                    if (!expected.contains(new JSONObject(newItem).toString())) expected.add(new JSONObject(newItem).toString());
+                    break;
+            }
+        }
+        service.shutdown();
+        for (CompletableFuture<Void> future : futures) future.get();
+        assertEquals(expected, read(manager));
+    }
+
+    /**
+     * Test of managers with their own storage : the service reads and writes
+     * through them.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testCustomStorage() throws Exception {
+        String directory = Files.createTempDirectory("writer").toString();
+        GenericJsonManager<Item> lines = new GenericJsonLinesManager<Item>(directory, "w.jsonl") {
+            @Override
+            public Item createObject(JSONObject json) {
+                return new Item(json.getInt("id"));
+            }
+        };
+        GenericJsonManager<Item> sharded = new ShardedGenericJsonManager<Item>(directory, "w.json", "id", 4) {
+            @Override
+            public Item createObject(JSONObject json) {
+                return new Item(json.getInt("id"));
+            }
+        };
+        for (GenericJsonManager<Item> manager : Arrays.asList(lines, sharded)) {
+            GenericJsonWriterService<Item> service = new GenericJsonWriterService<>(manager, 0);
+            for (int i=0; i<10; i++) service.write(new Item(i));
+            service.delete(new Item(3)).get();
+            service.write(new Item(10)).get();
+            service.shutdown();
+            assertEquals(Arrays.asList(0, 1, 2, 4, 5, 6, 7, 8, 9, 10),
+                    manager.read().stream().map(Item::getId).sorted().collect(Collectors.toList()));
+        }
+        assertEquals("{\"id\":0}", Files.readAllLines(Paths.get(directory, "w.jsonl")).get(0));
+        assertFalse(new File(directory, "w.json").exists());
+    }
+
+    /**
+     * Test of null objects : they are ignored, as by GenericJsonManager.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testNullObjects() throws Exception {
+        GenericJsonManager<Item> manager = newManager();
+        GenericJsonWriterService<Item> service = new GenericJsonWriterService<>(manager, 0);
+        service.write(new Item(1)).get();
+        service.write(null).get();
+        service.delete(null).get();
+        service.replace(new Item(1), null).get();
+        service.replace(null, new Item(2)).get();
+        service.shutdown();
+        assertEquals(Arrays.asList("{\"id\":2}"), read(manager));
+    }
+
+    /**
+     * Cree un gestionnaire sur un repertoire temporaire.
+     * @return le gestionnaire
+     * @throws Exception exception levee quand le repertoire n'a pas pu etre cree
+     */
+    private static GenericJsonManager<Item> newManager() throws Exception {
+        return new GenericJsonManager<Item>(Files.createTempDirectory("writer").toString(), "w.json") {
+            @Override
+            public Item createObject(JSONObject json) {
+                return new Item(json.getInt("id"));
+            }
+        };
+    }
+
+    /**
+     * Retourne le format json des objets stockes.
+     * @param manager gestionnaire du fichier
+     * @return les objets stockes
+     * @throws Exception exception levee quand la lecture a echouee
+     */
+    private static List<String> read(GenericJsonManager<Item> manager) throws Exception {
+        try (Stream<JSONObject> stored = manager.streamAsJSON()) {
+            return stored.map(JSONObject::toString).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Objet stocke par les tests.
+     */
+    public static class Item {
+        private final int id;
+
+        /**
+         * Constructeur de l'objet stocke.
+         * @param id identifiant
+         */
+        public Item(int id) {
+            this.id = id;
+        }
+
+        /**
+         * Retourne l'identifiant.
+         * @return l'identifiant
+         */
+        public int getId() {
+            return this.id;
+        }
+    }
+}
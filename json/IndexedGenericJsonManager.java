@@ -0,0 +1,817 @@
+package distantcontrolclient;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONPointer;
+import org.json.JSONPointerException;
+
+/**
+ * Gestionnaire de JSON avec typage maintenant des index secondaires persistants.
+ * Le fichier de donnees est ecrit element par element : la position et la
+ * taille de chaque objet sont conservees dans le fichier binaire d'index
+ * "nom.json.idx", avec la valeur de chaque chemin JSONPointer indexe ; les
+ * valeurs triees sont reconstruites en memoire au chargement. Les recherches par egalite, intervalle ou prefixe ne lisent
+ * que l'index et les octets des objets trouves, sans analyser la collection.
+ * L'index est reconstruit a chaque reecriture a partir des objets ecrits, et
+ * complete sans reecriture lors de l'ajout d'un objet.
+ * Les valeurs indexees sont les chaines, nombres et booleens ; les nombres sont
+ * compares par valeur. Un fichier compresse ou modifie hors du gestionnaire
+ * n'est pas indexe : les recherches le parcourent alors entierement.
+ * @author Johan
+ * @param <T> type reel des objets JSON
+ */
+public abstract class IndexedGenericJsonManager<T> extends GenericJsonManager<T> {
+    public static final String INDEX_SUFFIX = ".idx";
+    private static final Comparator<Object> VALUE_ORDER = IndexedGenericJsonManager::compareValues;
+    private final Map<String, JSONPointer> pointers = new LinkedHashMap<>();
+    private final Map<String, Index> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Constructeur du gestionnaire de JSON indexe.
+     * @param directory chemin du repertoire utilise
+     * @param fileName nom du fichier json
+     * @param pointers chemins JSONPointer indexes, par exemple "/name" ou "/address/city"
+     * @throws IllegalArgumentException si un chemin n'est pas un JSONPointer valide
+     */
+    public IndexedGenericJsonManager(String directory, String fileName, Collection<String> pointers) {
+        super(directory, fileName);
+        for (String pointer : pointers) {
+            this.pointers.put(pointer, new JSONPointer(pointer));
+        }
+    }
+
+    /**
+     * Constructeur du gestionnaire de JSON indexe, sans index de valeur : seules
+     * les recherches d'objet (contains, ajout) utilisent l'index.
+     * @param directory chemin du repertoire utilise
+     * @param fileName nom du fichier json
+     */
+    public IndexedGenericJsonManager(String directory, String fileName) {
+        this(directory, fileName, Collections.emptySet());
+    }
+
+    /**
+     * Constructeur du gestionnaire de JSON indexe, sans index de valeur.
+     * @param fileName nom du fichier json
+     */
+    public IndexedGenericJsonManager(String fileName) {
+        this(DEFAULT_DIRECTORY, fileName);
+    }
+
+    /**
+     * Retourne les chemins JSONPointer indexes.
+     * @return les chemins indexes
+     */
+    public Set<String> getIndexedPointers() {
+        return Collections.unmodifiableSet(this.pointers.keySet());
+    }
+
+    /**
+     * Retourne les objets du fichier donne dont la valeur au chemin donne est egale a la valeur donnee.
+     * @param pointer chemin JSONPointer
+     * @param value valeur cherchee (chaine, nombre ou booleen)
+     * @param fileName nom du fichier
+     * @return les objets trouves, dans l'ordre du fichier
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    public ArrayList<T> findEquals(String pointer, Object value, String fileName) throws FileNotFoundException {
+        Object key = normalize(value);
+        if (key == null) throw new IllegalArgumentException("Value is not indexable: " + value);
+        return find(pointer, new Criterion(key, key, null), fileName);
+    }
+
+    /**
+     * Retourne les objets du fichier dont la valeur au chemin donne est egale a la valeur donnee.
+     * @param pointer chemin JSONPointer
+     * @param value valeur cherchee (chaine, nombre ou booleen)
+     * @return les objets trouves, dans l'ordre du fichier
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    public ArrayList<T> findEquals(String pointer, Object value) throws FileNotFoundException {
+        return findEquals(pointer, value, getFileName());
+    }
+
+    /**
+     * Retourne les objets du fichier donne dont la valeur au chemin donne est
+     * comprise entre les bornes donnees (incluses) ; une borne null n'est pas limitee.
+     * Seules les valeurs du meme type que les bornes sont retenues.
+     * @param pointer chemin JSONPointer
+     * @param min borne inferieure ou null
+     * @param max borne superieure ou null
+     * @param fileName nom du fichier
+     * @return les objets trouves, dans l'ordre du fichier
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    public ArrayList<T> findRange(String pointer, Object min, Object max, String fileName) throws FileNotFoundException {
+        Object from = normalize(min);
+        Object to = normalize(max);
+        if (((from == null) && (min != null)) || ((to == null) && (max != null))) {
+            throw new IllegalArgumentException("Bounds are not indexable: " + min + ", " + max);
+        }
+        if ((from == null) && (to == null)) throw new IllegalArgumentException("At least one bound is required");
+        if ((from != null) && (to != null) && (rank(from) != rank(to))) {
+            throw new IllegalArgumentException("Bounds of different types: " + min + ", " + max);
+        }
+        return find(pointer, new Criterion(from, to, null), fileName);
+    }
+
+    /**
+     * Retourne les objets du fichier dont la valeur au chemin donne est
+     * comprise entre les bornes donnees (incluses).
+     * @param pointer chemin JSONPointer
+     * @param min borne inferieure ou null
+     * @param max borne superieure ou null
+     * @return les objets trouves, dans l'ordre du fichier
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    public ArrayList<T> findRange(String pointer, Object min, Object max) throws FileNotFoundException {
+        return findRange(pointer, min, max, getFileName());
+    }
+
+    /**
+     * Retourne les objets du fichier donne dont la valeur au chemin donne est
+     * une chaine commencant par le prefixe donne.
+     * @param pointer chemin JSONPointer
+     * @param prefix prefixe cherche
+     * @param fileName nom du fichier
+     * @return les objets trouves, dans l'ordre du fichier
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    public ArrayList<T> findPrefix(String pointer, String prefix, String fileName) throws FileNotFoundException {
+        return find(pointer, new Criterion(null, null, prefix), fileName);
+    }
+
+    /**
+     * Retourne les objets du fichier dont la valeur au chemin donne est une
+     * chaine commencant par le prefixe donne.
+     * @param pointer chemin JSONPointer
+     * @param prefix prefixe cherche
+     * @return les objets trouves, dans l'ordre du fichier
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    public ArrayList<T> findPrefix(String pointer, String prefix) throws FileNotFoundException {
+        return findPrefix(pointer, prefix, getFileName());
+    }
+
+    @Override
+    public boolean contains(JSONObject json, String fileName) throws FileNotFoundException {
+        Index index = getIndex(fileName);
+        if (index == null) return super.contains(json, fileName);
+        return contains(index, format(json, index.compact), fileName);
+    }
+
+    @Override
+    public boolean contains(T object, String fileName) throws FileNotFoundException {
+        return contains(new JSONObject(object), fileName);
+    }
+
+    /**
+     * Ecrit le document donne element par element et reconstruit l'index du
+     * fichier a partir des objets ecrits.
+     * @param json document de la forme {"Objects":[...]}
+     * @param fileName nom du fichier de stockage
+     * @throws IOException exception levee quand l'ecriture a echouee
+     */
+    @Override
+    public void writeJSON(JSONObject json, String fileName) throws IOException {
+        if (json == null) return;
+        JSONArray objects = (json.length() == 1) ? json.optJSONArray("Objects") : null;
+        if (isCompressed(fileName) || isBinary(fileName) || !isObjectsArray(objects)) {
+            dropIndex(fileName);
+            super.writeJSON(json, fileName);
+            return;
+        }
+        createFile();
+        File file = new File(getPath(fileName));
+        Index index = new Index(isCompact(), new ArrayList<>(this.pointers.keySet()));
+        List<Object[]> keys = new ArrayList<>(objects.length());
+        try (OutputStream out = new BufferedOutputStream(Channels.newOutputStream(FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)), BUFFER_SIZE)) {
+            long position = write(out, header());
+            for (int i=0; i<objects.length(); i++) {
+                JSONObject o = objects.getJSONObject(i);
+                position += write(out, separator(i));
+                String text = format(o, index.compact);
+                byte[] bytes = bytes(text);
+                Object[] entryKeys = keys(o);
+                index.add(position, bytes.length, text.hashCode(), entryKeys);
+                keys.add(entryKeys);
+                position += write(out, bytes);
+            }
+            index.end = position;
+            write(out, footer(objects.length()));
+        } catch (IOException | RuntimeException e) {
+            dropIndex(fileName);
+            throw e;
+        }
+        storeIndex(fileName, index, keys, file);
+    }
+
+    /**
+     * Ajoute l'objet a la fin du fichier donne s'il n'y est pas deja, sans
+     * reecrire le fichier : un enregistrement est ajoute a la fin du fichier d'index.
+     * Les objets sont compares par leur format json.
+     * @param object objet a ajouter au fichier
+     * @param fileName nom du fichier de stockage
+     * @throws IOException exception levee quand l'ecriture dans le fichier a echouee
+     */
+    @Override
+    public void write(T object, String fileName) throws IOException {
+        if (object == null) return;
+        Index index = getIndex(fileName);
+        if ((index == null) || (index.compact != isCompact())) {
+            super.write(object, fileName);
+            return;
+        }
+        JSONObject json = new JSONObject(object);
+        String text = format(json, index.compact);
+        if (contains(index, text, fileName)) return;
+        File file = new File(getPath(fileName));
+        byte[] separator = separator(index.count);
+        byte[] bytes = bytes(text);
+        byte[] footer = footer(index.count + 1);
+        ByteBuffer buffer = ByteBuffer.allocate(separator.length + bytes.length + footer.length);
+        buffer.put(separator).put(bytes).put(footer).flip();
+        long position = index.end;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            long end = position + buffer.remaining();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            channel.truncate(end);
+        } catch (IOException ioe) {
+            dropIndex(fileName);
+            throw ioe;
+        }
+        Object[] keys = keys(json);
+        long offset = index.end + separator.length;
+        index.add(offset, bytes.length, text.hashCode(), keys);
+        index.end = offset + bytes.length;
+        appendIndex(fileName, index, offset, bytes.length, text.hashCode(), keys, file);
+    }
+
+    /**
+     * Cherche les objets repondant au critere donne, par l'index si le chemin
+     * est indexe et l'index a jour, sinon par parcours du fichier.
+     * @param pointer chemin JSONPointer
+     * @param criterion critere de recherche
+     * @param fileName nom du fichier
+     * @return les objets trouves, dans l'ordre du fichier
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    private ArrayList<T> find(String pointer, Criterion criterion, String fileName) throws FileNotFoundException {
+        Index index = this.pointers.containsKey(pointer) ? getIndex(fileName) : null;
+        if (index == null) {
+            JSONPointer jsonPointer = this.pointers.containsKey(pointer) ? this.pointers.get(pointer) : new JSONPointer(pointer);
+            try (Stream<JSONObject> storedObjects = streamAsJSON(fileName)) {
+                return storedObjects.filter(o -> criterion.test(normalize(query(jsonPointer, o))))
+                        .map(this::toObject)
+                        .filter(o -> o != null)
+                        .collect(Collectors.toCollection(ArrayList::new));
+            } catch (JSONException je) {
+                throw new FileNotFoundException(je.getMessage());
+            }
+        }
+        BitSet ids = new BitSet(index.count);
+        criterion.select(index.values.get(pointer)).forEach(list -> list.forEach(ids::set));
+        ArrayList<T> result = new ArrayList<>(ids.cardinality());
+        for (byte[] bytes : readEntries(index, ids, fileName)) {
+            T object;
+            try {
+                object = toObject(new JSONObject(new String(bytes, Charset.defaultCharset())));
+            } catch (JSONException je) {
+                this.indexes.remove(fileName);
+                throw new FileNotFoundException(je.getMessage());
+            }
+            if (object != null) result.add(object);
+        }
+        return result;
+    }
+
+    /**
+     * Retourne true si le fichier indexe contient l'objet de format donne :
+     * seuls les objets de meme empreinte sont lus et compares octet par octet,
+     * sans analyse json.
+     * @param index index du fichier
+     * @param text objet cherche, dans le format d'ecriture de l'index
+     * @param fileName nom du fichier
+     * @return true si le fichier contient l'objet, false sinon
+     * @throws FileNotFoundException exception levee quand le fichier n'est pas lisible
+     */
+    private boolean contains(Index index, String text, String fileName) throws FileNotFoundException {
+        List<Integer> candidates = index.byHash().get(text.hashCode());
+        if (candidates == null) return false;
+        BitSet ids = new BitSet(index.count);
+        candidates.forEach(ids::set);
+        byte[] bytes = bytes(text);
+        for (byte[] candidate : readEntries(index, ids, fileName)) {
+            if (Arrays.equals(candidate, bytes)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Lit dans l'ordre du fichier les octets des objets d'identifiants donnes.
+     * @param index index du fichier
+     * @param ids identifiants des objets
+     * @param fileName nom du fichier
+     * @return les octets des objets lus
+     * @throws FileNotFoundException exception levee quand le fichier n'est pas lisible
+     */
+    private List<byte[]> readEntries(Index index, BitSet ids, String fileName) throws FileNotFoundException {
+        List<byte[]> result = new ArrayList<>(ids.cardinality());
+        if (ids.isEmpty()) return result;
+        try (FileChannel channel = FileChannel.open(new File(getPath(fileName)).toPath(), StandardOpenOption.READ)) {
+            for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+                ByteBuffer buffer = ByteBuffer.allocate(index.lengths[id]);
+                long position = index.offsets[id];
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        throw new IOException("Unexpected end of file, index of " + fileName + " is stale");
+                    }
+                }
+                result.add(buffer.array());
+            }
+        } catch (IOException ioe) {
+            this.indexes.remove(fileName);
+            FileNotFoundException fnfe = new FileNotFoundException(ioe.getMessage());
+            fnfe.initCause(ioe);
+            throw fnfe;
+        }
+        return result;
+    }
+
+    /**
+     * Retourne l'index a jour du fichier donne, depuis la memoire ou le fichier d'index.
+     * @param fileName nom du fichier
+     * @return l'index du fichier, ou null s'il est absent, perime ou si le fichier est compresse ou binaire
+     */
+    private Index getIndex(String fileName) {
+        if (isCompressed(fileName) || isBinary(fileName)) return null;
+        File file = new File(getPath(fileName));
+        Index index = this.indexes.get(fileName);
+        if ((index != null) && index.isUpToDate(file)) return index;
+        this.indexes.remove(fileName);
+        File indexFile = new File(getPath(fileName) + INDEX_SUFFIX);
+        if (!indexFile.exists()) return null;
+        try {
+            index = Index.load(Files.readAllBytes(indexFile.toPath()));
+        } catch (IOException ioe) {
+            return null;
+        }
+        if ((index == null) || !index.isUpToDate(file) || !new HashSet<>(index.pointers).equals(this.pointers.keySet())) return null;
+        this.indexes.put(fileName, index);
+        return index;
+    }
+
+    /**
+     * Enregistre l'index donne du fichier donne : fichier temporaire puis renommage atomique.
+     * @param fileName nom du fichier
+     * @param index index du fichier
+     * @param keys cles indexees de chaque objet, dans l'ordre des chemins de l'index
+     * @param file fichier de donnees
+     * @throws IOException exception levee quand l'ecriture de l'index a echouee
+     */
+    private void storeIndex(String fileName, Index index, List<Object[]> keys, File file) throws IOException {
+        index.length = file.length();
+        index.lastModified = file.lastModified();
+        File indexFile = new File(getPath(fileName) + INDEX_SUFFIX);
+        File temp = File.createTempFile(indexFile.getName() + ".", ".tmp", indexFile.getAbsoluteFile().getParentFile());
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), BUFFER_SIZE))) {
+                index.writeHeader(out);
+                for (int id=0; id<index.count; id++) {
+                    Index.writeRecord(out, index.offsets[id], index.lengths[id], index.hashes[id], keys.get(id));
+                }
+            }
+            index.validLength = temp.length();
+            try (RandomAccessFile out = new RandomAccessFile(temp, "rw")) {
+                index.updateHeader(out);
+            }
+            Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            temp.delete();
+            dropIndex(fileName);
+            throw e;
+        }
+        this.indexes.put(fileName, index);
+    }
+
+    /**
+     * Ajoute l'enregistrement d'un objet a la fin du fichier d'index puis met
+     * a jour son en-tete : un index interrompu avant la mise a jour de
+     * l'en-tete reste perime et n'est pas utilise.
+     * @param fileName nom du fichier
+     * @param index index du fichier, deja complete avec l'objet
+     * @param offset position de l'objet
+     * @param length taille de l'objet
+     * @param hash empreinte de l'objet
+     * @param keys cles indexees de l'objet
+     * @param file fichier de donnees
+     * @throws IOException exception levee quand l'ecriture de l'index a echouee
+     */
+    private void appendIndex(String fileName, Index index, long offset, int length, int hash, Object[] keys, File file) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        Index.writeRecord(new DataOutputStream(record), offset, length, hash, keys);
+        try (RandomAccessFile out = new RandomAccessFile(getPath(fileName) + INDEX_SUFFIX, "rw")) {
+            out.seek(index.validLength);
+            out.write(record.toByteArray());
+            index.validLength += record.size();
+            index.length = file.length();
+            index.lastModified = file.lastModified();
+            index.updateHeader(out);
+        } catch (IOException ioe) {
+            dropIndex(fileName);
+            throw ioe;
+        }
+    }
+
+    /**
+     * Supprime l'index du fichier donne.
+     * @param fileName nom du fichier
+     */
+    private void dropIndex(String fileName) {
+        this.indexes.remove(fileName);
+        new File(getPath(fileName) + INDEX_SUFFIX).delete();
+    }
+
+    /**
+     * Retourne l'objet correspondant au json donne.
+     * @param json format json de l'objet
+     * @return l'objet
+     */
+    private T toObject(JSONObject json) {
+        return (getBinder() != null) ? getBinder().bind(json) : createObject(json);
+    }
+
+    /**
+     * Retourne les cles d'index de l'objet donne, dans l'ordre des chemins indexes.
+     * @param json objet
+     * @return les cles, null pour une valeur absente ou non indexable
+     */
+    private Object[] keys(JSONObject json) {
+        Object[] keys = new Object[this.pointers.size()];
+        int i = 0;
+        for (JSONPointer pointer : this.pointers.values()) {
+            keys[i++] = normalize(query(pointer, json));
+        }
+        return keys;
+    }
+
+    private byte[] header() {
+        return bytes(isCompact() ? "{\"Objects\":[" : "{\"Objects\": [");
+    }
+
+    private byte[] separator(int position) {
+        return bytes(((position > 0) ? "," : "") + (isCompact() ? "" : "\n "));
+    }
+
+    private byte[] footer(int count) {
+        return bytes(((count > 0) && !isCompact()) ? "\n]}" : "]}");
+    }
+
+    /**
+     * Retourne l'objet donne tel qu'il est ecrit dans le tableau "Objects".
+     * @param json objet a ecrire
+     * @param compact true pour le format sans indentation
+     * @return le texte de l'objet
+     */
+    private static String format(JSONObject json, boolean compact) {
+        StringWriter writer = new StringWriter();
+        int indentFactor = compact ? 0 : 1;
+        json.write(writer, indentFactor, indentFactor);
+        return writer.toString();
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(Charset.defaultCharset());
+    }
+
+    private static int write(OutputStream out, byte[] bytes) throws IOException {
+        out.write(bytes);
+        return bytes.length;
+    }
+
+    /**
+     * Retourne true si le tableau donne ne contient que des objets json.
+     * @param objects tableau
+     * @return true si le tableau ne contient que des objets json, false sinon
+     */
+    private static boolean isObjectsArray(JSONArray objects) {
+        if (objects == null) return false;
+        for (int i=0; i<objects.length(); i++) {
+            if (!(objects.opt(i) instanceof JSONObject)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Retourne la valeur au chemin donne de l'objet donne.
+     * @param pointer chemin JSONPointer
+     * @param json objet
+     * @return la valeur, ou null si le chemin n'existe pas
+     */
+    private static Object query(JSONPointer pointer, JSONObject json) {
+        try {
+            return pointer.queryFrom(json);
+        } catch (JSONPointerException jpe) {
+            return null;
+        }
+    }
+
+    /**
+     * Retourne la cle d'index de la valeur json donnee : les nombres sont
+     * convertis en BigDecimal pour etre compares par valeur.
+     * @param value valeur json
+     * @return la cle d'index, ou null si la valeur n'est pas indexable
+     */
+    private static Object normalize(Object value) {
+        if ((value instanceof String) || (value instanceof Boolean)) return value;
+        if (value instanceof BigDecimal) return value;
+        if (value instanceof Number) {
+            try {
+                return new BigDecimal(value.toString());
+            } catch (NumberFormatException nfe) {
+                return null; //NaN ou infini
+            }
+        }
+        return null;
+    }
+
+    private static int rank(Object key) {
+        if (key instanceof Boolean) return 0;
+        if (key instanceof BigDecimal) return 1;
+        return 2;
+    }
+
+    /**
+     * Ordre des cles d'index : booleens, puis nombres, puis chaines.
+     * @param a premiere cle
+     * @param b seconde cle
+     * @return le resultat de la comparaison
+     */
+    @SuppressWarnings("unchecked")
+    private static int compareValues(Object a, Object b) {
+        int rank = Integer.compare(rank(a), rank(b));
+        return (rank != 0) ? rank : ((Comparable<Object>) a).compareTo(b);
+    }
+
+    /**
+     * Critere de recherche : intervalle de cles ou prefixe de chaine.
+     */
+    private static final class Criterion {
+        private final Object min;
+        private final Object max;
+        private final String prefix;
+
+        private Criterion(Object min, Object max, String prefix) {
+            this.min = min;
+            this.max = max;
+            this.prefix = prefix;
+        }
+
+        private boolean test(Object key) {
+            if (key == null) return false;
+            if (this.prefix != null) return (key instanceof String) && ((String) key).startsWith(this.prefix);
+            Object bound = (this.min != null) ? this.min : this.max;
+            if (rank(key) != rank(bound)) return false;
+            return ((this.min == null) || (compareValues(key, this.min) >= 0))
+                    && ((this.max == null) || (compareValues(key, this.max) <= 0));
+        }
+
+        private List<List<Integer>> select(NavigableMap<Object, List<Integer>> values) {
+            Object from = (this.prefix != null) ? this.prefix : this.min;
+            NavigableMap<Object, List<Integer>> candidates = (from == null) ? values : values.tailMap(from, true);
+            List<List<Integer>> result = new ArrayList<>();
+            for (Map.Entry<Object, List<Integer>> entry : candidates.entrySet()) {
+                Object key = entry.getKey();
+                if (this.test(key)) {
+                    result.add(entry.getValue());
+                } else if ((from != null) || ((this.max != null) && (compareValues(key, this.max) > 0))) {
+                    break; //les cles suivantes sont hors du critere
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Index d'un fichier : position, taille et empreinte de chaque objet, et
+     * pour chaque chemin indexe les identifiants des objets par valeur triee.
+     * Sur disque, l'index est un en-tete suivi d'un enregistrement par objet
+     * (position, taille, empreinte, cles) ; les valeurs triees sont
+     * reconstruites au chargement.
+     */
+    private static final class Index {
+        private static final int MAGIC = 0x4A494458;
+        private static final int VERSION = 1;
+        private static final int STATE_POSITION = 9;
+        private static final byte ABSENT = 0;
+        private static final byte FALSE = 1;
+        private static final byte TRUE = 2;
+        private static final byte NUMBER = 3;
+        private static final byte STRING = 4;
+        private final boolean compact;
+        private final List<String> pointers;
+        private final Map<String, TreeMap<Object, List<Integer>>> values = new HashMap<>();
+        private long length;
+        private long lastModified;
+        private long end;
+        private long validLength;
+        private int count = 0;
+        private long[] offsets = new long[16];
+        private int[] lengths = new int[16];
+        private int[] hashes = new int[16];
+        private Map<Integer, List<Integer>> byHash;
+
+        private Index(boolean compact, List<String> pointers) {
+            this.compact = compact;
+            this.pointers = pointers;
+            for (String pointer : pointers) {
+                this.values.put(pointer, new TreeMap<>(VALUE_ORDER));
+            }
+        }
+
+        private boolean isUpToDate(File file) {
+            return (file.length() == this.length) && (file.lastModified() == this.lastModified);
+        }
+
+        private void add(long offset, int length, int hash, Object[] keys) {
+            if (this.count == this.offsets.length) {
+                this.offsets = Arrays.copyOf(this.offsets, this.count * 2);
+                this.lengths = Arrays.copyOf(this.lengths, this.count * 2);
+                this.hashes = Arrays.copyOf(this.hashes, this.count * 2);
+            }
+            int id = this.count++;
+            this.offsets[id] = offset;
+            this.lengths[id] = length;
+            this.hashes[id] = hash;
+            if (this.byHash != null) this.byHash.computeIfAbsent(hash, h -> new ArrayList<>(1)).add(id);
+            for (int i=0; i<keys.length; i++) {
+                if (keys[i] != null) {
+                    this.values.get(this.pointers.get(i)).computeIfAbsent(keys[i], v -> new ArrayList<>(1)).add(id);
+                }
+            }
+        }
+
+        private Map<Integer, List<Integer>> byHash() {
+            if (this.byHash == null) {
+                Map<Integer, List<Integer>> map = new HashMap<>();
+                for (int id=0; id<this.count; id++) {
+                    map.computeIfAbsent(this.hashes[id], h -> new ArrayList<>(1)).add(id);
+                }
+                this.byHash = map;
+            }
+            return this.byHash;
+        }
+
+        private void writeHeader(DataOutput out) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeBoolean(this.compact);
+            writeState(out);
+            out.writeInt(this.pointers.size());
+            for (String pointer : this.pointers) {
+                out.writeUTF(pointer);
+            }
+        }
+
+        private void writeState(DataOutput out) throws IOException {
+            out.writeLong(this.length);
+            out.writeLong(this.lastModified);
+            out.writeLong(this.end);
+            out.writeLong(this.validLength);
+        }
+
+        private void updateHeader(RandomAccessFile out) throws IOException {
+            out.seek(STATE_POSITION);
+            writeState(out);
+        }
+
+        private static void writeRecord(DataOutput out, long offset, int length, int hash, Object[] keys) throws IOException {
+            out.writeLong(offset);
+            out.writeInt(length);
+            out.writeInt(hash);
+            for (Object key : keys) {
+                if (key == null) {
+                    out.writeByte(ABSENT);
+                } else if (key instanceof Boolean) {
+                    out.writeByte(((Boolean) key) ? TRUE : FALSE);
+                } else if (key instanceof BigDecimal) {
+                    out.writeByte(NUMBER);
+                    out.writeUTF(key.toString());
+                } else {
+                    byte[] bytes = ((String) key).getBytes(StandardCharsets.UTF_8);
+                    out.writeByte(STRING);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+        }
+
+        /**
+         * Charge l'index depuis le contenu du fichier d'index.
+         * @param data contenu du fichier d'index
+         * @return l'index, ou null si le fichier n'est pas un index valide
+         */
+        private static Index load(byte[] data) {
+            try {
+                ByteArrayInputStream header = new ByteArrayInputStream(data);
+                DataInputStream in = new DataInputStream(header);
+                if ((in.readInt() != MAGIC) || (in.readInt() != VERSION)) return null;
+                boolean compact = in.readBoolean();
+                long length = in.readLong();
+                long lastModified = in.readLong();
+                long end = in.readLong();
+                long validLength = in.readLong();
+                if (validLength > data.length) return null;
+                int pointerCount = in.readInt();
+                List<String> pointers = new ArrayList<>(pointerCount);
+                for (int i=0; i<pointerCount; i++) {
+                    pointers.add(in.readUTF());
+                }
+                Index index = new Index(compact, pointers);
+                index.length = length;
+                index.lastModified = lastModified;
+                index.end = end;
+                index.validLength = validLength;
+                //l'en-tete se termine apres le dernier chemin, lu en UTF-8 modifie par readUTF
+                int position = data.length - header.available();
+                in = new DataInputStream(new ByteArrayInputStream(data, position, (int) (validLength - position)));
+                Object[] keys = new Object[pointerCount];
+                while (in.available() > 0) {
+                    long offset = in.readLong();
+                    int entryLength = in.readInt();
+                    int hash = in.readInt();
+                    for (int i=0; i<pointerCount; i++) {
+                        keys[i] = readKey(in);
+                    }
+                    index.add(offset, entryLength, hash, keys);
+                }
+                return index;
+            } catch (IOException | RuntimeException e) {
+                return null;
+            }
+        }
+
+        private static Object readKey(DataInput in) throws IOException {
+            switch (in.readByte()) {
+                case ABSENT:
+                    return null;
+                case FALSE:
+                    return Boolean.FALSE;
+                case TRUE:
+                    return Boolean.TRUE;
+                case NUMBER:
+                    return new BigDecimal(in.readUTF());
+                case STRING:
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    return new String(bytes, StandardCharsets.UTF_8);
+                default:
+                    throw new IOException("Corrupted index record");
+            }
+        }
+    }
+}
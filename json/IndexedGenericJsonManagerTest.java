@@ -0,0 +1,62 @@
+package distantcontrolclient;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import static org.junit.Assert.assertEquals;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * IndexedGenericJsonManager tests.
+ * @author Johan
+ */
+public class IndexedGenericJsonManagerTest {
+    /**
+     * Test of the index file with pointers whose modified UTF-8 encoding
+     * differs from UTF-8 (\0 and supplementary characters) : the index is
+     * reloaded by another manager and used without reading the whole file.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testReloadIndex() throws Exception {
+        String directory = Files.createTempDirectory("indexed").toString();
+        String zero = "/n\u0000me";
+        String emoji = "/\uD83D\uDE00";
+        List<JSONObject> objects = new ArrayList<>();
+        for (int i=0; i<3; i++) {
+            objects.add(new JSONObject().put("n\u0000me", "z" + i).put("\uD83D\uDE00", "e" + i));
+        }
+        newManager(directory, zero, emoji).writeJSON(objects, "i.json");
+        //un fichier de donnees illisible en entier : seul l'index permet de trouver les objets
+        File file = new File(directory, "i.json");
+        byte[] data = Files.readAllBytes(file.toPath());
+        long lastModified = file.lastModified();
+        data[new String(data, "ISO-8859-1").lastIndexOf(']')] = ')';
+        Files.write(file.toPath(), data);
+        file.setLastModified(lastModified);
+        IndexedGenericJsonManager<Object> reloaded = newManager(directory, zero, emoji);
+        assertEquals(Arrays.asList("z1"), reloaded.findEquals(emoji, "e1").stream()
+                .map(o -> ((JSONObject) o).getString("n\u0000me")).collect(Collectors.toList()));
+        assertEquals(Arrays.asList("z2"), reloaded.findEquals(zero, "z2").stream()
+                .map(o -> ((JSONObject) o).getString("n\u0000me")).collect(Collectors.toList()));
+    }
+
+    /**
+     * Cree un gestionnaire indexe sur le repertoire donne.
+     * @param directory repertoire de stockage
+     * @param pointers chemins indexes
+     * @return le gestionnaire
+     */
+    private static IndexedGenericJsonManager<Object> newManager(String directory, String... pointers) {
+        return new IndexedGenericJsonManager<Object>(directory, "i.json", Arrays.asList(pointers)) {
+            @Override
+            public Object createObject(JSONObject json) {
+                return json;
+            }
+        };
+    }
+}
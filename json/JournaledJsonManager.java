@@ -0,0 +1,447 @@
+package taskscheduler;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Gestionnaire de JSON journalise : les modifications ne reecrivent pas le
+ * fichier mais sont ajoutees a la fin du journal "nom.json.journal", une ligne
+ * json par modification. Le fichier lui-meme reste un instantane au format
+ * {"Objects":[...]} lisible par les autres gestionnaires ; il est reecrit
+ * toutes les {@link #getSnapshotInterval()} modifications, ou par
+ * {@link #snapshot(String)}, puis le journal est vide.
+ * Au chargement, le journal est rejoue sur l'instantane. Sa premiere ligne
+ * identifie l'instantane sur lequel il s'applique (taille et date de
+ * modification) : un journal reste d'un instantane remplace est ignore, et une
+ * derniere ligne incomplete (arret pendant l'ecriture) est tronquee.
+ * Chaque ligne decrit les objets remplaces ("set", [indice, objet]), supprimes
+ * ("delete", indices croissants) et ajoutes en fin ("add"), les indices
+ * designant les objets avant la modification.
+ * Le contenu du fichier est garde en memoire : le gestionnaire doit etre le
+ * seul a modifier le fichier, et les objets retournes par read sont partages
+ * avec lui et ne doivent pas etre modifies.
+ * @author Johan
+ */
+public class JournaledJsonManager extends JsonManager {
+    public static final String JOURNAL_SUFFIX = ".journal";
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 1000;
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+    private volatile int snapshotInterval = DEFAULT_SNAPSHOT_INTERVAL;
+    private volatile boolean synchronous = true;
+
+    /**
+     * Constructeur du gestionnaire de JSON journalise.
+     * @param directory chemin du repertoire utilise
+     * @param fileName nom du fichier json
+     */
+    public JournaledJsonManager(String directory, String fileName) {
+        super(directory, fileName);
+    }
+
+    /**
+     * Constructeur du gestionnaire de JSON journalise.
+     * @param fileName nom du fichier json
+     */
+    public JournaledJsonManager(String fileName) {
+        this(DEFAULT_DIRECTORY, fileName);
+    }
+
+    /**
+     * Retourne le nombre de modifications journalisees apres lequel l'instantane est reecrit.
+     * @return le nombre de modifications entre deux instantanes
+     */
+    public int getSnapshotInterval() {
+        return this.snapshotInterval;
+    }
+
+    /**
+     * Modifie le nombre de modifications journalisees apres lequel l'instantane est reecrit.
+     * @param snapshotInterval nombre de modifications entre deux instantanes, au moins 1
+     */
+    public void setSnapshotInterval(int snapshotInterval) {
+        if (snapshotInterval < 1) throw new IllegalArgumentException("Snapshot interval must be positive: " + snapshotInterval);
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /**
+     * Retourne true si chaque ajout au journal est force sur disque (fsync).
+     * @return true si les ajouts au journal sont synchrones, false sinon
+     */
+    public boolean isSynchronous() {
+        return this.synchronous;
+    }
+
+    /**
+     * Modifie la synchronisation des ajouts au journal : sans fsync, une
+     * modification peut etre perdue si le systeme s'arrete, mais le journal
+     * reste coherent.
+     * @param synchronous true pour forcer chaque ajout sur disque
+     */
+    public void setSynchronous(boolean synchronous) {
+        this.synchronous = synchronous;
+    }
+
+    /**
+     * Retourne le chemin du journal du fichier donne.
+     * @param fileName nom du fichier
+     * @return le chemin du journal
+     */
+    public String getJournalPath(String fileName) {
+        return getPath(fileName) + JOURNAL_SUFFIX;
+    }
+
+    /**
+     * Reecrit l'instantane du fichier donne avec les modifications journalisees puis vide le journal.
+     * @param fileName nom du fichier
+     * @throws IOException exception levee quand l'ecriture a echouee
+     */
+    public synchronized void snapshot(String fileName) throws IOException {
+        State state = getState(fileName, false);
+        if (state.entries == 0) return;
+        writeSnapshot(state.document(), fileName);
+        state.snapshotWritten(new File(getPath(fileName)));
+    }
+
+    /**
+     * Reecrit l'instantane du fichier avec les modifications journalisees puis vide le journal.
+     * @throws IOException exception levee quand l'ecriture a echouee
+     */
+    public void snapshot() throws IOException {
+        snapshot(getFileName());
+    }
+
+    @Override
+    public synchronized boolean contains(JSONObject json, String fileName) throws FileNotFoundException {
+        return getState(fileName, true).counts.containsKey(json.toString());
+    }
+
+    @Override
+    public boolean contains(Object object, String fileName) throws FileNotFoundException {
+        return contains(new JSONObject(object), fileName);
+    }
+
+    /**
+     * Ecrit le document donne comme nouvel instantane et vide le journal.
+     * @param json document de la forme {"Objects":[...]}
+     * @param fileName nom du fichier de stockage
+     * @throws IOException exception levee quand l'ecriture a echouee
+     */
+    @Override
+    public synchronized void write(JSONObject json, String fileName) throws IOException {
+        this.states.remove(fileName);
+        writeSnapshot(json, fileName);
+        JSONArray objects = json.optJSONArray("Objects");
+        if (objects == null) return;
+        State state = new State();
+        for (int i=0; i<objects.length(); i++) {
+            JSONObject o = objects.optJSONObject(i);
+            if (o == null) return; //contenu non standard, relu au prochain acces
+            state.append(o);
+        }
+        state.snapshotWritten(new File(getPath(fileName)));
+        this.states.put(fileName, state);
+    }
+
+    /**
+     * Retourne la liste des objets du fichier donne : instantane et journal rejoue.
+     * @param fileName fichier dans lequel lire les objets
+     * @return la liste des objets stockes
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    @Override
+    public synchronized ArrayList<JSONObject> read(String fileName) throws FileNotFoundException {
+        return new ArrayList<>(getState(fileName, true).objects);
+    }
+
+    @Override
+    public Stream<JSONObject> stream(String fileName) throws FileNotFoundException {
+        return read(fileName).stream();
+    }
+
+    /**
+     * Ajoute l'objet dans le fichier donne s'il n'y est pas deja, par un ajout au journal.
+     * @param object objet a ajouter au fichier
+     * @param fileName nom du fichier de stockage
+     * @throws IOException exception levee quand l'ecriture du journal a echouee
+     */
+    @Override
+    public synchronized void add(Object object, String fileName) throws IOException {
+        JSONObject json = new JSONObject(object);
+        State state = getState(fileName, false);
+        if (state.counts.containsKey(json.toString())) return;
+        journal(fileName, state, new JSONObject().put("add", new JSONArray().put(json)));
+    }
+
+    @Override
+    public synchronized void delete(JSONObject json, String fileName) throws FileNotFoundException, IOException {
+        if (!getState(fileName, true).counts.containsKey(json.toString())) return;
+        super.delete(json, fileName);
+    }
+
+    /**
+     * Applique la transformation donnee aux objets en memoire et journalise
+     * les objets remplaces, supprimes ou ajoutes, sans reecrire le fichier.
+     * @param transform transformation appliquee a chaque objet, null supprime l'objet
+     * @param appended objet ajoute s'il n'est pas deja present, ou null
+     * @param fileName nom du fichier de stockage
+     * @return le nombre d'objets remplaces, supprimes ou ajoutes
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     * @throws IOException exception levee quand l'ecriture du journal a echouee
+     */
+    @Override
+    protected synchronized int rewrite(UnaryOperator<JSONObject> transform, JSONObject appended, String fileName) throws FileNotFoundException, IOException {
+        State state = getState(fileName, true);
+        JSONArray set = new JSONArray();
+        JSONArray delete = new JSONArray();
+        String appendedKey = (appended == null) ? null : appended.toString();
+        boolean present = false;
+        for (int i=0; i<state.objects.size(); i++) {
+            JSONObject o = state.objects.get(i);
+            JSONObject result = transform.apply(o);
+            if (result == null) {
+                delete.put(i);
+                continue;
+            }
+            String text = result.toString();
+            //un objet modifie sur place est journalise comme un remplacement
+            if ((result != o) || !text.equals(state.texts.get(i))) set.put(new JSONArray().put(i).put(result));
+            if ((appendedKey != null) && !present) present = text.equals(appendedKey);
+        }
+        JSONObject record = new JSONObject();
+        if (set.length() > 0) record.put("set", set);
+        if (delete.length() > 0) record.put("delete", delete);
+        if ((appendedKey != null) && !present) record.put("add", new JSONArray().put(appended));
+        if (record.length() == 0) return 0;
+        journal(fileName, state, record);
+        return set.length() + delete.length() + (record.has("add") ? 1 : 0);
+    }
+
+    /**
+     * Ecrit le document donne comme instantane du fichier donne puis supprime le journal.
+     * @param json document de la forme {"Objects":[...]}
+     * @param fileName nom du fichier de stockage
+     * @throws IOException exception levee quand l'ecriture a echouee
+     */
+    private void writeSnapshot(JSONObject json, String fileName) throws IOException {
+        super.write(json, fileName);
+        //un journal qui survit a un arret ici ne correspond plus a l'instantane et sera ignore
+        Files.deleteIfExists(new File(getJournalPath(fileName)).toPath());
+    }
+
+    /**
+     * Ajoute la modification donnee au journal du fichier donne puis l'applique
+     * aux objets en memoire. L'instantane est reecrit si le journal est plein.
+     * @param fileName nom du fichier de stockage
+     * @param state etat du fichier
+     * @param record modification a journaliser
+     * @throws IOException exception levee quand l'ecriture du journal a echouee
+     */
+    private void journal(String fileName, State state, JSONObject record) throws IOException {
+        File journal = new File(getJournalPath(fileName));
+        StringBuilder lines = new StringBuilder();
+        if (state.entries == 0) {
+            File dir = journal.getAbsoluteFile().getParentFile();
+            if (!dir.exists()) dir.mkdirs();
+            lines.append(new JSONObject().put("length", state.length).put("lastModified", state.lastModified)).append('\n');
+        }
+        lines.append(record).append('\n');
+        try (FileOutputStream out = new FileOutputStream(journal, state.entries > 0)) {
+            out.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+            if (this.synchronous) out.getFD().sync();
+        } catch (IOException ioe) {
+            this.states.remove(fileName);
+            throw ioe;
+        }
+        state.apply(record);
+        state.entries++;
+        if (state.entries >= this.snapshotInterval) {
+            writeSnapshot(state.document(), fileName);
+            state.snapshotWritten(new File(getPath(fileName)));
+        }
+    }
+
+    /**
+     * Retourne l'etat a jour du fichier donne, recharge depuis l'instantane et
+     * le journal si le fichier a ete modifie.
+     * @param fileName nom du fichier
+     * @param required true si l'absence du fichier et du journal est une erreur
+     * @return l'etat du fichier
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    private State getState(String fileName, boolean required) throws FileNotFoundException {
+        File file = new File(getPath(fileName));
+        State state = this.states.get(fileName);
+        if ((state != null) && (file.length() == state.length) && (file.lastModified() == state.lastModified)
+                && (state.exists || !required)) {
+            return state;
+        }
+        File journal = new File(getJournalPath(fileName));
+        this.states.remove(fileName);
+        state = new State();
+        state.length = file.length();
+        state.lastModified = file.lastModified();
+        state.exists = file.exists() && (file.length() > 0);
+        if (state.exists) {
+            super.read(fileName).forEach(state::append);
+        }
+        if (journal.exists()) {
+            replay(journal, state);
+        }
+        if (required && !state.exists && (state.entries == 0)) throw new FileNotFoundException(file.getPath() + " (empty or missing file)");
+        this.states.put(fileName, state);
+        return state;
+    }
+
+    /**
+     * Rejoue le journal donne sur l'etat donne. Un journal ecrit pour un autre
+     * instantane est supprime ; une derniere ligne sans fin de ligne (ajout
+     * interrompu) est tronquee.
+     * @param journal fichier journal
+     * @param state etat charge depuis l'instantane
+     * @throws FileNotFoundException exception levee quand le journal n'est pas lisible
+     * ou contient une ligne complete qui n'est pas un objet JSON
+     */
+    private static void replay(File journal, State state) throws FileNotFoundException {
+        try {
+            byte[] data = Files.readAllBytes(journal.toPath());
+            int start = 0;
+            int valid = 0;
+            int line = 0;
+            for (int end = indexOf(data, start); end >= 0; end = indexOf(data, start)) {
+                JSONObject record = new JSONObject(new String(data, start, end - start, StandardCharsets.UTF_8));
+                if (line++ == 0) {
+                    if ((record.optLong("length", -1) != state.length) || (record.optLong("lastModified", -1) != state.lastModified)) {
+                        Files.deleteIfExists(journal.toPath());
+                        return;
+                    }
+                } else {
+                    state.apply(record);
+                    state.entries++;
+                }
+                start = end + 1;
+            }
+            if (line == 0) {
+                Files.deleteIfExists(journal.toPath());
+            } else if (start < data.length) {
+                try (FileChannel channel = FileChannel.open(journal.toPath(), StandardOpenOption.WRITE)) {
+                    channel.truncate(start);
+                }
+            }
+        } catch (IOException | JSONException e) {
+            FileNotFoundException fnfe = new FileNotFoundException(journal.getPath() + " (" + e.getMessage() + ")");
+            fnfe.initCause(e);
+            throw fnfe;
+        }
+    }
+
+    private static int indexOf(byte[] data, int from) {
+        for (int i=from; i<data.length; i++) {
+            if (data[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Contenu en memoire d'un fichier journalise.
+     */
+    private static class State {
+        private final ArrayList<JSONObject> objects = new ArrayList<>();
+        private final ArrayList<String> texts = new ArrayList<>();
+        private final HashMap<String, Integer> counts = new HashMap<>();
+        private long length;
+        private long lastModified;
+        private boolean exists;
+        private int entries = 0;
+
+        private void append(JSONObject json) {
+            String text = json.toString();
+            this.objects.add(json);
+            this.texts.add(text);
+            this.counts.merge(text, 1, Integer::sum);
+        }
+
+        private void set(int index, JSONObject json) {
+            uncount(this.texts.get(index));
+            String text = json.toString();
+            this.objects.set(index, json);
+            this.texts.set(index, text);
+            this.counts.merge(text, 1, Integer::sum);
+        }
+
+        private void uncount(String text) {
+            this.counts.computeIfPresent(text, (t, count) -> (count > 1) ? count - 1 : null);
+        }
+
+        /**
+         * Applique une modification journalisee : remplacements, suppressions
+         * puis ajouts, les indices designant les objets avant la modification.
+         * @param record modification journalisee
+         */
+        private void apply(JSONObject record) {
+            JSONArray set = record.optJSONArray("set");
+            for (int i=0; (set != null) && (i<set.length()); i++) {
+                JSONArray entry = set.getJSONArray(i);
+                set(entry.getInt(0), entry.getJSONObject(1));
+            }
+            JSONArray delete = record.optJSONArray("delete");
+            if ((delete != null) && (delete.length() == 1)) {
+                int index = delete.getInt(0);
+                uncount(this.texts.remove(index));
+                this.objects.remove(index);
+            } else if (delete != null) {
+                BitSet deleted = new BitSet(this.objects.size());
+                for (int i=0; i<delete.length(); i++) {
+                    deleted.set(delete.getInt(i));
+                }
+                int kept = 0;
+                for (int i=0; i<this.objects.size(); i++) {
+                    if (deleted.get(i)) {
+                        uncount(this.texts.get(i));
+                        continue;
+                    }
+                    this.objects.set(kept, this.objects.get(i));
+                    this.texts.set(kept, this.texts.get(i));
+                    kept++;
+                }
+                this.objects.subList(kept, this.objects.size()).clear();
+                this.texts.subList(kept, this.texts.size()).clear();
+            }
+            JSONArray add = record.optJSONArray("add");
+            for (int i=0; (add != null) && (i<add.length()); i++) {
+                append(add.getJSONObject(i));
+            }
+            this.exists = true;
+        }
+
+        /**
+         * Enregistre l'ecriture d'un instantane : le journal est vide.
+         * @param file fichier de l'instantane
+         */
+        private void snapshotWritten(File file) {
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+            this.exists = true;
+            this.entries = 0;
+        }
+
+        private JSONObject document() {
+            return new JSONObject().put("Objects", new JSONArray(this.objects));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package taskscheduler;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * JournaledJsonManager tests.
+ * @author Johan
+ */
+public class JournaledJsonManagerTest {
+    /**
+     * Test of the journal replay : another manager reads the snapshot with
+     * the journaled changes, and snapshot empties the journal.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testReplay() throws Exception {
+        String directory = Files.createTempDirectory("journaled").toString();
+        JournaledJsonManager manager = new JournaledJsonManager(directory, "j.json");
+        manager.writeJSON(Arrays.asList(item(1), item(2), item(3)), "j.json");
+        long snapshotLength = new File(directory, "j.json").length();
+        manager.add(new Item(4), "j.json");
+        manager.delete(item(2), "j.json");
+        manager.update(o -> (o.getInt("id") == 3) ? item(5) : o, "j.json");
+        assertEquals(snapshotLength, new File(directory, "j.json").length());
+        assertEquals(Arrays.asList(1, 5, 4), ids(new JournaledJsonManager(directory, "j.json")));
+        manager.snapshot("j.json");
+        File journal = new File(manager.getJournalPath("j.json"));
+        assertTrue(!journal.exists() || (journal.length() == 0));
+        assertEquals(Arrays.asList(1, 5, 4), ids(new JsonManager(directory, "j.json")));
+        assertEquals(Arrays.asList(1, 5, 4), ids(new JournaledJsonManager(directory, "j.json")));
+    }
+
+    /**
+     * Test of an incomplete last journal line : it is ignored and truncated,
+     * and the following changes are journaled after the complete lines.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testTornTail() throws Exception {
+        String directory = Files.createTempDirectory("journaled").toString();
+        JournaledJsonManager manager = new JournaledJsonManager(directory, "j.json");
+        manager.writeJSON(Arrays.asList(item(1)), "j.json");
+        manager.add(new Item(2), "j.json");
+        File journal = new File(manager.getJournalPath("j.json"));
+        long complete = journal.length();
+        try (FileOutputStream out = new FileOutputStream(journal, true)) {
+            out.write("{\"add\":[{\"id\":".getBytes(StandardCharsets.UTF_8));
+        }
+        JournaledJsonManager reloaded = new JournaledJsonManager(directory, "j.json");
+        assertEquals(Arrays.asList(1, 2), ids(reloaded));
+        assertEquals(complete, journal.length());
+        reloaded.add(new Item(3), "j.json");
+        assertEquals(Arrays.asList(1, 2, 3), ids(new JournaledJsonManager(directory, "j.json")));
+    }
+
+    /**
+     * Test of a malformed complete journal line : the read fails and the
+     * journal, with the changes after that line, is left untouched.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testCorruptLine() throws Exception {
+        String directory = Files.createTempDirectory("journaled").toString();
+        JournaledJsonManager manager = new JournaledJsonManager(directory, "j.json");
+        manager.writeJSON(Arrays.asList(item(1)), "j.json");
+        manager.add(new Item(2), "j.json");
+        File journal = new File(manager.getJournalPath("j.json"));
+        try (FileOutputStream out = new FileOutputStream(journal, true)) {
+            out.write("{\"add\":[{\"id\":\n".getBytes(StandardCharsets.UTF_8));
+        }
+        manager.add(new Item(3), "j.json");
+        long length = journal.length();
+        try {
+            ids(new JournaledJsonManager(directory, "j.json"));
+            fail("the journal has a malformed line");
+        } catch (FileNotFoundException expected) {
+        }
+        assertEquals(length, journal.length());
+    }
+
+    /**
+     * Test of replace on a missing file : it fails as with JsonManager and
+     * nothing is journaled.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testReplaceMissingFile() throws Exception {
+        String directory = Files.createTempDirectory("journaled").toString();
+        JournaledJsonManager manager = new JournaledJsonManager(directory, "j.json");
+        try {
+            manager.replace(item(1), item(2), "j.json");
+            fail("j.json does not exist");
+        } catch (FileNotFoundException expected) {
+        }
+        assertTrue(!new File(manager.getJournalPath("j.json")).exists());
+    }
+
+    /**
+     * Test of a journal left over from a replaced snapshot : it is ignored.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testStaleJournal() throws Exception {
+        String directory = Files.createTempDirectory("journaled").toString();
+        JournaledJsonManager manager = new JournaledJsonManager(directory, "j.json");
+        manager.writeJSON(Arrays.asList(item(1)), "j.json");
+        manager.add(new Item(2), "j.json");
+        new JsonManager(directory, "j.json").writeJSON(Arrays.asList(item(7), item(8)), "j.json");
+        assertEquals(Arrays.asList(7, 8), ids(new JournaledJsonManager(directory, "j.json")));
+    }
+
+    /**
+     * Retourne le format json de l'objet d'identifiant donne.
+     * @param id identifiant
+     * @return l'objet json
+     */
+    private static JSONObject item(int id) {
+        return new JSONObject(new Item(id));
+    }
+
+    /**
+     * Retourne les identifiants des objets stockes.
+     * @param manager gestionnaire du fichier
+     * @return les identifiants stockes
+     * @throws Exception exception levee quand la lecture a echouee
+     */
+    private static List<Integer> ids(JsonManager manager) throws Exception {
+        return manager.read("j.json").stream().map(o -> o.getInt("id")).collect(Collectors.toList());
+    }
+
+    /**
+     * Objet stocke par les tests.
+     */
+    public static class Item {
+        private final int id;
+
+        /**
+         * Constructeur de l'objet stocke.
+         * @param id identifiant
+         */
+        public Item(int id) {
+            this.id = id;
+        }
+
+        /**
+         * Retourne l'identifiant.
+         * @return l'identifiant
+         */
+        public int getId() {
+            return this.id;
+        }
+    }
+}
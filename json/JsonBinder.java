@@ -0,0 +1,344 @@
+package distantcontrolclient;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Liaison directe entre le json et les objets d'une classe.
+ * Les proprietes sont affectees par un constructeur dont les parametres sont
+ * nommes (record ou compilation avec -parameters), ou a defaut par le
+ * constructeur sans parametre suivi des setters et champs publics.
+ * Les accesseurs sont resolus une seule fois par classe sous forme de
+ * MethodHandle, et les objets sont lies directement depuis le JSONTokener
+ * sans construire le JSONObject intermediaire.
+ * @author Johan
+ * @param <T> type des objets lies
+ */
+public final class JsonBinder<T> {
+    private static final ClassValue<JsonBinder<?>> BINDERS = new ClassValue<JsonBinder<?>>() {
+        @Override
+        protected JsonBinder<?> computeValue(Class<?> type) {
+            return new JsonBinder<>(type);
+        }
+    };
+    private final Class<T> type;
+    private final MethodHandle constructor;
+    private final Map<String, Property> properties = new HashMap<>();
+    private final int constructorArguments;
+
+    /**
+     * Retourne le binder de la classe donnee, cree lors du premier appel.
+     * @param <T> type des objets lies
+     * @param type classe des objets lies
+     * @return le binder de la classe
+     * @throws IllegalArgumentException si la classe n'a pas de constructeur utilisable
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> JsonBinder<T> of(Class<T> type) {
+        return (JsonBinder<T>) BINDERS.get(type);
+    }
+
+    /**
+     * Resout les accesseurs de la classe donnee.
+     * @param type classe des objets lies
+     */
+    private JsonBinder(Class<T> type) {
+        this.type = type;
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        try {
+            Constructor<?> named = null;
+            Constructor<?> empty = null;
+            for (Constructor<?> c : type.getConstructors()) {
+                if (c.getParameterCount() == 0) {
+                    empty = c;
+                } else if (c.getParameters()[0].isNamePresent()
+                        && ((named == null) || (c.getParameterCount() > named.getParameterCount()))) {
+                    named = c;
+                }
+            }
+            if (empty != null) {
+                this.constructorArguments = 0;
+                this.constructor = lookup.unreflectConstructor(empty).asType(MethodType.methodType(Object.class));
+                for (Field field : type.getFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isFinal(field.getModifiers())) {
+                        this.properties.put(field.getName(), new Property(field.getGenericType(), field.getType(),
+                                lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, Object.class)), -1));
+                    }
+                }
+                for (Method method : type.getMethods()) {
+                    String name = method.getName();
+                    if (!Modifier.isStatic(method.getModifiers()) && (method.getParameterCount() == 1)
+                            && name.startsWith("set") && (name.length() > 3)) {
+                        this.properties.put(propertyName(name.substring(3)), new Property(method.getGenericParameterTypes()[0],
+                                method.getParameterTypes()[0],
+                                lookup.unreflect(method).asType(MethodType.methodType(void.class, Object.class, Object.class)), -1));
+                    }
+                }
+            } else if (named != null) {
+                Parameter[] parameters = named.getParameters();
+                this.constructorArguments = parameters.length;
+                this.constructor = lookup.unreflectConstructor(named).asSpreader(Object[].class, parameters.length)
+                        .asType(MethodType.methodType(Object.class, Object[].class));
+                for (int i=0; i<parameters.length; i++) {
+                    this.properties.put(parameters[i].getName(), new Property(parameters[i].getParameterizedType(),
+                            parameters[i].getType(), null, i));
+                }
+            } else {
+                throw new IllegalArgumentException("No usable public constructor in " + type.getName());
+            }
+        } catch (IllegalAccessException iae) {
+            throw new IllegalArgumentException("Class " + type.getName() + " is not accessible", iae);
+        }
+    }
+
+    /**
+     * Retourne la classe des objets lies.
+     * @return la classe des objets lies
+     */
+    public Class<T> getType() {
+        return this.type;
+    }
+
+    /**
+     * Cree l'objet correspondant au json donne.
+     * @param json le format json de l'objet
+     * @return l'objet correspondant au json
+     * @throws JSONException si une valeur n'est pas convertible ou si la creation echoue
+     */
+    public T bind(JSONObject json) {
+        Instance instance = new Instance();
+        for (String key : json.keySet()) {
+            instance.set(key, json.opt(key));
+        }
+        return instance.build();
+    }
+
+    /**
+     * Cree l'objet correspondant au prochain objet json du tokener, sans
+     * construire de JSONObject pour ses proprietes simples.
+     * @param x tokener positionne avant un objet json
+     * @return l'objet correspondant au json
+     * @throws JSONException si le json est invalide, si une valeur n'est pas
+     * convertible ou si la creation echoue
+     */
+    public T bind(JSONTokener x) {
+        if (x.nextClean() != '{') {
+            throw x.syntaxError("A JSONObject text must begin with '{'");
+        }
+        Instance instance = new Instance();
+        if (x.nextClean() == '}') return instance.build();
+        x.back();
+        for (;;) {
+            String key = x.nextValue().toString();
+            if (x.nextClean() != ':') {
+                throw x.syntaxError("Expected a ':' after a key");
+            }
+            instance.set(key, x.nextValue());
+            switch (x.nextClean()) {
+                case ',':
+                    break;
+                case '}':
+                    return instance.build();
+                default:
+                    throw x.syntaxError("Expected a ',' or '}'");
+            }
+        }
+    }
+
+    /**
+     * Retourne le nom de propriete correspondant au nom de setter donne (sans "set").
+     * @param name nom du setter sans le prefixe
+     * @return le nom de la propriete
+     */
+    private static String propertyName(String name) {
+        if (name.length() == 1) return name.toLowerCase(Locale.ROOT);
+        if (Character.isUpperCase(name.charAt(1))) return name;
+        return name.substring(0, 1).toLowerCase(Locale.ROOT) + name.substring(1);
+    }
+
+    /**
+     * Convertit la valeur json donnee vers le type donne.
+     * @param value valeur json
+     * @param type type cible
+     * @param genericType type generique cible
+     * @return la valeur convertie
+     * @throws JSONException si la valeur n'est pas convertible
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Object convert(Object value, Class<?> type, Type genericType) {
+        if ((value == null) || JSONObject.NULL.equals(value)) {
+            if (type.isPrimitive()) throw new JSONException("Null value for primitive " + type.getName());
+            return null;
+        }
+        if (type.isInstance(value) && !Collection.class.isAssignableFrom(type) && !Map.class.isAssignableFrom(type)) {
+            return value;
+        }
+        if (value instanceof Number) {
+            Number number = (Number) value;
+            if ((type == int.class) || (type == Integer.class)) return number.intValue();
+            if ((type == long.class) || (type == Long.class)) return number.longValue();
+            if ((type == double.class) || (type == Double.class)) return number.doubleValue();
+            if ((type == float.class) || (type == Float.class)) return number.floatValue();
+            if ((type == short.class) || (type == Short.class)) return number.shortValue();
+            if ((type == byte.class) || (type == Byte.class)) return number.byteValue();
+            if (type == BigDecimal.class) return new BigDecimal(number.toString());
+            if (type == BigInteger.class) return new BigInteger(number.toString());
+        }
+        if (type == String.class) return value.toString();
+        if (value instanceof String) {
+            String string = (String) value;
+            if (type.isEnum()) {
+                try {
+                    return Enum.valueOf((Class<Enum>) type, string);
+                } catch (IllegalArgumentException iae) {
+                    throw new JSONException("Value " + string + " is not a constant of " + type.getName(), iae);
+                }
+            }
+            if (((type == char.class) || (type == Character.class)) && (string.length() == 1)) return string.charAt(0);
+            if ((type == boolean.class) || (type == Boolean.class)) return Boolean.parseBoolean(string);
+        }
+        if ((value instanceof Boolean) && (type == boolean.class)) return value;
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            Type elementType = Object.class;
+            if (genericType instanceof ParameterizedType) {
+                elementType = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+            }
+            Class<?> elementClass = (elementType instanceof Class) ? (Class<?>) elementType : Object.class;
+            if (type.isArray()) {
+                Object result = Array.newInstance(type.getComponentType(), array.length());
+                for (int i=0; i<array.length(); i++) {
+                    Array.set(result, i, convert(array.opt(i), type.getComponentType(), type.getComponentType()));
+                }
+                return result;
+            }
+            if (type.isAssignableFrom(ArrayList.class) || type.isAssignableFrom(HashSet.class)) {
+                Collection<Object> result = type.isAssignableFrom(ArrayList.class) ? new ArrayList<>(array.length()) : new HashSet<>();
+                for (Object element : array) {
+                    result.add((elementClass == Object.class) ? unwrap(element) : convert(element, elementClass, elementType));
+                }
+                return result;
+            }
+        }
+        if (value instanceof JSONObject) {
+            if (type.isAssignableFrom(HashMap.class)) return ((JSONObject) value).toMap();
+            if (!type.isPrimitive() && !type.isInterface()) return of(type).bind((JSONObject) value);
+        }
+        throw new JSONException("Value " + value + " is not convertible to " + type.getName());
+    }
+
+    /**
+     * Retourne la valeur java simple correspondant a la valeur json donnee.
+     * @param value valeur json
+     * @return la valeur java
+     */
+    private static Object unwrap(Object value) {
+        if (value instanceof JSONObject) return ((JSONObject) value).toMap();
+        if (value instanceof JSONArray) return ((JSONArray) value).toList();
+        return JSONObject.NULL.equals(value) ? null : value;
+    }
+
+    /**
+     * Propriete liee : setter/champ ou parametre du constructeur.
+     */
+    private static final class Property {
+        private final Type genericType;
+        private final Class<?> type;
+        private final MethodHandle setter;
+        private final int argument;
+
+        private Property(Type genericType, Class<?> type, MethodHandle setter, int argument) {
+            this.genericType = genericType;
+            this.type = type;
+            this.setter = setter;
+            this.argument = argument;
+        }
+    }
+
+    /**
+     * Objet en cours de liaison.
+     */
+    private final class Instance {
+        private final Object[] arguments;
+        private final boolean[] assigned;
+        private final Object target;
+
+        private Instance() {
+            if (constructorArguments == 0) {
+                this.arguments = null;
+                this.assigned = null;
+                this.target = construct(null);
+            } else {
+                this.arguments = new Object[constructorArguments];
+                this.assigned = new boolean[constructorArguments];
+                this.target = null;
+            }
+        }
+
+        private void set(String key, Object value) {
+            Property property = properties.get(key);
+            if (property == null) return;
+            Object converted;
+            try {
+                converted = convert(value, property.type, property.genericType);
+            } catch (JSONException je) {
+                throw new JSONException("Unable to set " + key + " on " + type.getName() + ": " + je.getMessage(), je);
+            }
+            if (property.setter == null) {
+                this.arguments[property.argument] = converted;
+                this.assigned[property.argument] = true;
+                return;
+            }
+            try {
+                property.setter.invokeExact(this.target, converted);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new JSONException("Unable to set " + key + " on " + type.getName(), t);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private T build() {
+            if (this.arguments == null) return (T) this.target;
+            for (Property property : properties.values()) {
+                if (!this.assigned[property.argument] && property.type.isPrimitive()) {
+                    //valeur par defaut du type primitif (0, false...)
+                    this.arguments[property.argument] = Array.get(Array.newInstance(property.type, 1), 0);
+                }
+            }
+            return (T) construct(this.arguments);
+        }
+
+        private Object construct(Object[] args) {
+            try {
+                return (args == null) ? (Object) constructor.invokeExact() : (Object) constructor.invokeExact(args);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new JSONException("Unable to create " + type.getName(), t);
+            }
+        }
+    }
+}
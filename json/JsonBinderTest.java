@@ -0,0 +1,59 @@
+package distantcontrolclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * JsonBinder tests.
+ * @author Johan
+ */
+public class JsonBinderTest {
+    /**
+     * Test of bind method with an enum property.
+     */
+    @Test
+    public void testEnum() {
+        JsonBinder<Item> binder = JsonBinder.of(Item.class);
+        assertEquals(State.DONE, binder.bind(new JSONObject("{\"state\":\"DONE\"}")).getState());
+        try {
+            binder.bind(new JSONObject("{\"state\":\"LOST\"}"));
+            fail("LOST is not a State");
+        } catch (JSONException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("state"));
+        }
+    }
+
+    /**
+     * Etat de l'objet stocke.
+     */
+    public enum State {
+        TODO, DONE
+    }
+
+    /**
+     * Objet stocke par les tests.
+     */
+    public static class Item {
+        private State state;
+
+        /**
+         * Retourne l'etat.
+         * @return l'etat
+         */
+        public State getState() {
+            return this.state;
+        }
+
+        /**
+         * Modifie l'etat.
+         * @param state le nouvel etat
+         */
+        public void setState(State state) {
+            this.state = state;
+        }
+    }
+}
@@ -1,17 +1,48 @@
 package taskscheduler;
 
+import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 import org.json.JSONArray;
+import org.json.JSONBinaryReader;
+import org.json.JSONBinaryWriter;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONReader;
+import org.json.JSONStringCache;
 import org.json.JSONTokener;
+import org.json.JSONUtf8Writer;
 
 /**
  * Gestionnaire de JSON.
@@ -19,8 +50,16 @@ import org.json.JSONTokener;
  */
 public class JsonManager {
     public static final String DEFAULT_DIRECTORY = "";
+    public static final int BUFFER_SIZE = 64 * 1024;
+    public static final String COMPRESSED_EXTENSION = ".jsonz";
+    public static final String BINARY_EXTENSION = ".jsonb";
+    private static final String TEMP_SUFFIX = ".tmp";
     private String directory;
     private String fileName;
+    private boolean compact = false;
+    private boolean compressed = false;
+    private boolean binary = false;
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
     
     /**
      * Constructeur du gestionnaire de JSON.
@@ -32,6 +71,17 @@ public class JsonManager {
         setFileName(fileName);
     }
     
+    /**
+     * Constructeur du gestionnaire de JSON.
+     * @param directory chemin du repertoire utilise
+     * @param fileName nom du fichier json
+     * @param compressed true pour compresser tous les fichiers, quelle que soit leur extension
+     */
+    public JsonManager(String directory, String fileName, boolean compressed) {
+        this(directory, fileName);
+        setCompressed(compressed);
+    }
+    
     /**
      * Constructeur du gestionnaire de JSON.
      * @param fileName nom du fichier json
@@ -56,6 +106,99 @@ public class JsonManager {
         return this.fileName;
     }
     
+    /**
+     * Retourne true si les fichiers sont ecrits sans indentation, false sinon.
+     * @return true si les fichiers sont ecrits sans indentation, false sinon
+     */
+    public boolean isCompact() {
+        return this.compact;
+    }
+    
+    /**
+     * Modifie le format d'ecriture des fichiers : compact (sans indentation ni 
+     * retour a la ligne) ou indente.
+     * @param compact true pour ecrire sans indentation
+     */
+    public void setCompact(boolean compact) {
+        this.compact = compact;
+    }
+    
+    /**
+     * Retourne true si tous les fichiers sont compresses, false si seuls les 
+     * fichiers d'extension {@value #COMPRESSED_EXTENSION} le sont.
+     * @return true si tous les fichiers sont compresses, false sinon
+     */
+    public boolean isCompressed() {
+        return this.compressed;
+    }
+    
+    /**
+     * Retourne true si le fichier donne est compresse (Deflater), false sinon.
+     * @param fileName nom du fichier
+     * @return true si le fichier donne est compresse, false sinon
+     */
+    public boolean isCompressed(String fileName) {
+        return this.compressed || fileName.endsWith(COMPRESSED_EXTENSION);
+    }
+    
+    /**
+     * Modifie la compression des fichiers : si true tous les fichiers sont 
+     * compresses, sinon seuls les fichiers d'extension {@value #COMPRESSED_EXTENSION} le sont.
+     * @param compressed true pour compresser tous les fichiers
+     */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+    
+    /**
+     * Retourne le niveau de compression des fichiers compresses.
+     * @return le niveau de compression, de 0 a 9 ou -1 pour le niveau par defaut
+     */
+    public int getCompressionLevel() {
+        return this.compressionLevel;
+    }
+    
+    /**
+     * Modifie le niveau de compression des fichiers compresses : 1 privilegie 
+     * la vitesse, 9 la taille sur disque.
+     * @param compressionLevel niveau de compression, de 0 a 9 ou -1 pour le niveau par defaut
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        if ((compressionLevel < Deflater.DEFAULT_COMPRESSION) || (compressionLevel > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level: " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+    }
+    
+    /**
+     * Retourne true si tous les fichiers sont ecrits en json binaire, false si 
+     * seuls les fichiers d'extension {@value #BINARY_EXTENSION} le sont.
+     * @return true si tous les fichiers sont binaires, false sinon
+     */
+    public boolean isBinary() {
+        return this.binary;
+    }
+    
+    /**
+     * Retourne true si le fichier donne est ecrit en json binaire (JSONBinary), false sinon.
+     * @param fileName nom du fichier
+     * @return true si le fichier donne est binaire, false sinon
+     */
+    public boolean isBinary(String fileName) {
+        return this.binary || fileName.endsWith(BINARY_EXTENSION);
+    }
+    
+    /**
+     * Modifie l'encodage des fichiers : si true tous les fichiers sont ecrits 
+     * en json binaire, plus compact et plus rapide a relire que le texte, sinon 
+     * seuls les fichiers d'extension {@value #BINARY_EXTENSION} le sont. Le 
+     * json binaire peut aussi etre compresse.
+     * @param binary true pour ecrire tous les fichiers en json binaire
+     */
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+    
     /**
      * Modifie le repertoire utilise.
      * @param directory le path correspondant au nouveau repertoire
@@ -164,9 +307,14 @@ public class JsonManager {
      */
     public void write(JSONObject json, String fileName) throws IOException {
         createFile();
-        try (FileWriter writer = new FileWriter(getPath(fileName))) {
-            writer.write(json.toString(1));
+        File temp = createTempFile(fileName);
+        try (OutputStream out = new FileOutputStream(temp)) {
+            serialize(json, out, fileName);
+        } catch (IOException | RuntimeException e) {
+            temp.delete();
+            throw e;
         }
+        publish(temp, fileName);
     }
     
     /**
@@ -235,16 +383,18 @@ public class JsonManager {
      * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
      */
     public ArrayList<JSONObject> read(String fileName) throws FileNotFoundException {
-        JSONTokener tokener = new JSONTokener(new FileReader(getPath(fileName)));
+        InputStream in = openStream(fileName);
         ArrayList<JSONObject> result = new ArrayList<>();
         JSONArray objectsStored;
         try {
-            objectsStored = new JSONObject(tokener).getJSONArray("Objects");
+            objectsStored = parse(in, fileName).getJSONArray("Objects");
             for (int i=0; i<objectsStored.length(); i++) {
                 result.add(objectsStored.getJSONObject(i));
             }
         } catch (JSONException je) {
             throw new FileNotFoundException(je.getMessage());
+        } finally {
+            close(in);
         }
         return result;
     }
@@ -258,6 +408,54 @@ public class JsonManager {
         return read(this.fileName);
     }
     
+    /**
+     * Retourne un flux des objets stockes dans le fichier donne.
+     * Les objets sont lus un a un au fil de la consommation du flux, sans charger 
+     * tout le fichier en memoire. Le flux doit etre ferme s'il n'est pas consomme 
+     * entierement.
+     * @param fileName fichier dans lequel lire les objets
+     * @return le flux des objets stockes
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    public Stream<JSONObject> stream(String fileName) throws FileNotFoundException {
+        InputStream in = openStream(fileName);
+        if (isBinary(fileName)) {
+            BinaryObjectsIterator iterator = new BinaryObjectsIterator(in);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                    .onClose(iterator::close);
+        }
+        ObjectsIterator iterator = new ObjectsIterator(new InputStreamReader(in, Charset.defaultCharset()));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+    
+    /**
+     * Retourne un flux des objets stockes.
+     * @return le flux des objets stockes
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    public Stream<JSONObject> stream() throws FileNotFoundException {
+        return stream(this.fileName);
+    }
+    
+    /**
+     * Commence un lot de modifications du fichier donne, applique en une seule 
+     * reecriture du fichier par {@link JsonTransaction#commit()}.
+     * @param fileName nom du fichier de stockage
+     * @return le lot de modifications
+     */
+    public JsonTransaction beginTransaction(String fileName) {
+        return new JsonTransaction(this, fileName);
+    }
+    
+    /**
+     * Commence un lot de modifications du fichier.
+     * @return le lot de modifications
+     */
+    public JsonTransaction beginTransaction() {
+        return beginTransaction(this.fileName);
+    }
+    
     /**
      * Ajoute l'objet dans le fichier de donne s'il n'y est pas deja se base 
      * sur les getters pour la persistance.
@@ -297,10 +495,8 @@ public class JsonManager {
      * @throws IOException exception levee quand l'ecriture dans le fichier a echouee
      */
     public void delete(JSONObject json, String fileName) throws FileNotFoundException, IOException {
-        List<JSONObject> storedObjects = read(fileName).stream()
-                .filter(o -> !o.toString().equals(json.toString()))
-                .collect(Collectors.toList());
-        writeJSON(storedObjects, fileName);
+        String serialized = json.toString();
+        deleteWhere(o -> o.toString().equals(serialized), fileName);
     }
     
     /**
@@ -321,7 +517,7 @@ public class JsonManager {
      * @throws IOException exception levee quand l'ecriture dans le fichier a echouee
      */
     public void delete(Object object, String fileName) throws FileNotFoundException, IOException {
-        delete(new JSONObject(object));
+        delete(new JSONObject(object), fileName);
     }
     
     /**
@@ -344,10 +540,7 @@ public class JsonManager {
      * @throws IOException exception levee quand l'ecriture dans le fichier a echouee
      */
     public void delete(String key, String value, String fileName) throws FileNotFoundException, IOException {
-        List<JSONObject> storedObjects = read(fileName).stream()
-                .filter(o -> !o.has(key) || !o.getString(key).equals(value))
-                .collect(Collectors.toList());
-        writeJSON(storedObjects, fileName);
+        deleteWhere(o -> o.has(key) && o.getString(key).equals(value), fileName);
     }
     
     /**
@@ -362,6 +555,56 @@ public class JsonManager {
         delete(key, value, this.fileName);
     }
     
+    /**
+     * Supprime du fichier donne tous les objets acceptes par le filtre donne.
+     * Le fichier est parcouru en flux, sans etre charge en memoire.
+     * @param filter filtre des objets a supprimer
+     * @param fileName nom du fichier de stockage
+     * @return le nombre d'objets supprimes
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     * @throws IOException exception levee quand l'ecriture dans le fichier a echouee
+     */
+    public int deleteWhere(Predicate<JSONObject> filter, String fileName) throws FileNotFoundException, IOException {
+        return rewrite(o -> filter.test(o) ? null : o, null, fileName);
+    }
+    
+    /**
+     * Supprime du fichier tous les objets acceptes par le filtre donne.
+     * @param filter filtre des objets a supprimer
+     * @return le nombre d'objets supprimes
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     * @throws IOException exception levee quand l'ecriture dans le fichier a echouee
+     */
+    public int deleteWhere(Predicate<JSONObject> filter) throws FileNotFoundException, IOException {
+        return deleteWhere(filter, this.fileName);
+    }
+    
+    /**
+     * Modifie les objets du fichier donne par la transformation donnee : 
+     * l'objet retourne remplace l'objet lu (l'objet lu lui-meme pour le 
+     * conserver) et null le supprime. Le fichier est parcouru en flux, sans 
+     * etre charge en memoire.
+     * @param transform transformation appliquee a chaque objet
+     * @param fileName nom du fichier de stockage
+     * @return le nombre d'objets remplaces ou supprimes
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     * @throws IOException exception levee quand l'ecriture dans le fichier a echouee
+     */
+    public int update(UnaryOperator<JSONObject> transform, String fileName) throws FileNotFoundException, IOException {
+        return rewrite(transform, null, fileName);
+    }
+    
+    /**
+     * Modifie les objets du fichier par la transformation donnee.
+     * @param transform transformation appliquee a chaque objet
+     * @return le nombre d'objets remplaces ou supprimes
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     * @throws IOException exception levee quand l'ecriture dans le fichier a echouee
+     */
+    public int update(UnaryOperator<JSONObject> transform) throws FileNotFoundException, IOException {
+        return update(transform, this.fileName);
+    }
+    
     /**
      * Remplace l'objet oldObject par newObject dans le fichier donne.
      * @param oldObject ancien objet
@@ -371,8 +614,8 @@ public class JsonManager {
      * @throws IOException exception levee quand l'ecriture dans le fichier a echouee
      */
     public void replace(JSONObject oldObject, JSONObject newObject, String fileName) throws FileNotFoundException, IOException {
-        delete(oldObject, fileName);
-        add(newObject, fileName);
+        String serialized = oldObject.toString();
+        rewrite(o -> o.toString().equals(serialized) ? null : o, newObject, fileName);
     }
     
     /**
@@ -395,8 +638,7 @@ public class JsonManager {
      * @throws IOException exception levee quand l'ecriture dans le fichier a echouee
      */
     public void replace(Object oldObject, Object newObject, String fileName) throws FileNotFoundException, IOException {
-        delete(oldObject, fileName);
-        add(newObject, fileName);
+        replace(toJSON(oldObject), toJSON(newObject), fileName);
     }
     
     /**
@@ -421,8 +663,7 @@ public class JsonManager {
      * @throws IOException exception levee quand l'ecriture dans le fichier a echouee
      */
     public void replace(String key, String value, Object newObject, String fileName) throws FileNotFoundException, IOException {
-        delete(key, value, fileName);
-        add(newObject, fileName);
+        rewrite(o -> (o.has(key) && o.getString(key).equals(value)) ? null : o, toJSON(newObject), fileName);
     }
     
     /**
@@ -437,4 +678,504 @@ public class JsonManager {
     public void replace(String key, String value, Object newObject) throws FileNotFoundException, IOException {
         replace(key, value, newObject, this.fileName);
     }
+    
+    /**
+     * Reecrit le fichier donne en flux : chaque objet lu passe par la 
+     * transformation donnee et le resultat est ecrit au fur et a mesure dans un 
+     * fichier temporaire, qui remplace le fichier par renommage atomique. 
+     * L'objet ajoute est ecrit en fin de fichier s'il n'y figure pas deja. 
+     * Le fichier n'est pas reecrit si aucun objet n'est modifie. Seules les 
+     * erreurs de lecture du fichier deviennent des FileNotFoundException ; 
+     * une JSONException levee par la transformation est propagee telle quelle.
+     * @param transform transformation appliquee a chaque objet, null supprime l'objet
+     * @param appended objet ajoute s'il n'est pas deja present, ou null
+     * @param fileName nom du fichier de stockage
+     * @return le nombre d'objets remplaces, supprimes ou ajoutes
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas, est vide ou n'est pas lisible
+     * @throws IOException exception levee quand l'ecriture dans le fichier a echouee
+     */
+    protected int rewrite(UnaryOperator<JSONObject> transform, JSONObject appended, String fileName) throws FileNotFoundException, IOException {
+        File file = new File(getPath(fileName));
+        if (!file.exists() || (file.length() == 0)) {
+            throw new FileNotFoundException(file.getPath() + " (empty or missing file)");
+        }
+        String appendedKey = (appended == null) ? null : appended.toString();
+        boolean present = false;
+        boolean reading = true;
+        int changed = 0;
+        File temp = createTempFile(fileName);
+        try (Stream<JSONObject> storedObjects = stream(fileName);
+                OutputStream out = new FileOutputStream(temp);
+                ObjectsWriter writer = new ObjectsWriter(out, fileName)) {
+            Iterator<JSONObject> iterator = storedObjects.iterator();
+            while (iterator.hasNext()) {
+                JSONObject o = iterator.next();
+                reading = false;
+                JSONObject result = transform.apply(o);
+                if (result != o) changed++;
+                if (result != null) {
+                    if ((appendedKey != null) && !present) present = result.toString().equals(appendedKey);
+                    writer.write(result);
+                }
+                reading = true;
+            }
+            reading = false;
+            if ((appendedKey != null) && !present) {
+                writer.write(appended);
+                changed++;
+            }
+        } catch (JSONException je) {
+            temp.delete();
+            if (!reading) throw je;
+            throw new FileNotFoundException(je.getMessage());
+        } catch (IOException | RuntimeException e) {
+            temp.delete();
+            throw e;
+        }
+        if (changed == 0) {
+            temp.delete();
+            return 0;
+        }
+        publish(temp, fileName);
+        return changed;
+    }
+    
+    /**
+     * Remplace le contenu du fichier donne par le fichier temporaire donne, 
+     * par renommage atomique : un lecteur voit l'ancien ou le nouveau contenu, 
+     * jamais un fichier en cours d'ecriture.
+     * @param temp fichier temporaire completement ecrit
+     * @param fileName nom du fichier de stockage
+     * @throws IOException exception levee quand le remplacement a echoue
+     */
+    protected void publish(File temp, String fileName) throws IOException {
+        try {
+            Files.move(temp.toPath(), Paths.get(getPath(fileName)), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ioe) {
+            temp.delete();
+            throw ioe;
+        }
+    }
+    
+    /**
+     * Cree un fichier temporaire unique a cote du fichier donne.
+     * @param fileName nom du fichier de stockage
+     * @return le fichier temporaire
+     * @throws IOException exception levee quand la creation a echouee
+     */
+    private File createTempFile(String fileName) throws IOException {
+        File file = new File(getPath(fileName)).getAbsoluteFile();
+        return File.createTempFile(file.getName() + ".", TEMP_SUFFIX, file.getParentFile());
+    }
+    
+    /**
+     * Serialise le json donne dans le flux donne, selon le format d'ecriture, 
+     * l'encodage et la compression du fichier donne. Le json est ecrit au fil 
+     * de l'eau sans construire de String intermediaire ; le flux n'est pas ferme.
+     * @param json objet json a serialiser
+     * @param out destination
+     * @param fileName nom du fichier de stockage
+     * @throws IOException exception levee quand l'ecriture a echouee
+     */
+    private void serialize(JSONObject json, OutputStream out, String fileName) throws IOException {
+        Deflater deflater = isCompressed(fileName) ? new Deflater(this.compressionLevel) : null;
+        try {
+            DeflaterOutputStream deflated = (deflater == null) ? null : new DeflaterOutputStream(out, deflater, BUFFER_SIZE);
+            if (isBinary(fileName)) {
+                new JSONBinaryWriter((deflated == null) ? out : deflated).value(json).flush();
+            } else if (isUtf8()) {
+                new JSONUtf8Writer((deflated == null) ? out : deflated).write(json, this.compact ? 0 : 1, 0).flush();
+            } else {
+                Writer writer = new BufferedWriter(new OutputStreamWriter((deflated == null) ? out : deflated, newEncoder()), BUFFER_SIZE);
+                json.write(writer, this.compact ? 0 : 1, 0);
+                writer.flush();
+            }
+            if (deflated != null) deflated.finish();
+        } catch (JSONException je) {
+            if (je.getCause() instanceof IOException) throw (IOException) je.getCause();
+            throw je;
+        } finally {
+            if (deflater != null) deflater.end();
+        }
+    }
+    
+    /**
+     * Ouvre en lecture le fichier donne, decompresse a la volee s'il est compresse.
+     * @param fileName nom du fichier
+     * @return le flux du fichier
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    private InputStream openStream(String fileName) throws FileNotFoundException {
+        InputStream in = new FileInputStream(getPath(fileName));
+        if (isCompressed(fileName)) {
+            in = new InflaterInputStream(in, new Inflater(), BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        this.inf.end();
+                    }
+                }
+            };
+        }
+        return in;
+    }
+    
+    /**
+     * Cree le tokener d'un fichier : les cles et les valeurs courtes, repetees 
+     * d'un objet a l'autre, sont partagees par tous les objets lus au lieu 
+     * d'etre copiees dans chacun.
+     * @param reader reader du fichier
+     * @return le tokener
+     */
+    private static JSONTokener newTokener(Reader reader) {
+        JSONTokener tokener = new JSONTokener(reader);
+        tokener.setStringCache(new JSONStringCache());
+        return tokener;
+    }
+    
+    /**
+     * Lit le document json du flux donne, texte ou binaire selon le fichier donne.
+     * @param in flux du fichier
+     * @param fileName nom du fichier
+     * @return le document lu
+     */
+    private JSONObject parse(InputStream in, String fileName) {
+        if (!isBinary(fileName)) return new JSONObject(newTokener(new InputStreamReader(in, Charset.defaultCharset())));
+        Object document = new JSONBinaryReader(in).nextValue();
+        if (!(document instanceof JSONObject)) throw new JSONException("A binary JSON document must be a JSONObject");
+        return (JSONObject) document;
+    }
+    
+    /**
+     * Indique si le charset par defaut est UTF-8 : le texte est alors ecrit 
+     * directement en octets, sans passer par un encodeur.
+     * @return true si le charset par defaut est UTF-8
+     */
+    private static boolean isUtf8() {
+        return StandardCharsets.UTF_8.equals(Charset.defaultCharset());
+    }
+    
+    /**
+     * Retourne un encodeur du charset par defaut remplacant les caracteres non encodables.
+     * @return l'encodeur
+     */
+    private static CharsetEncoder newEncoder() {
+        return Charset.defaultCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+    
+    /**
+     * Retourne le format json de l'objet donne.
+     * @param object objet ou JSONObject
+     * @return le format json de l'objet
+     */
+    private static JSONObject toJSON(Object object) {
+        return (object instanceof JSONObject) ? (JSONObject) object : new JSONObject(object);
+    }
+    
+    /**
+     * Ferme la ressource donnee en ignorant les erreurs de fermeture.
+     * @param closeable ressource a fermer
+     */
+    private static void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignore) {
+        }
+    }
+    
+    /**
+     * Ecriture au fil de l'eau d'un document {"Objects":[...]}, element par 
+     * element, dans le format d'ecriture et la compression du gestionnaire.
+     */
+    private class ObjectsWriter implements Closeable {
+        private final Deflater deflater;
+        private final DeflaterOutputStream deflated;
+        private final Writer writer;
+        private final JSONUtf8Writer utf8Writer;
+        private final JSONBinaryWriter binaryWriter;
+        private final int indentFactor;
+        private int count = 0;
+        private JSONObject first;
+        
+        /**
+         * Commence le document dans le flux donne.
+         * @param out destination, non fermee par l'ecriture
+         * @param fileName nom du fichier de stockage, determine la compression
+         * @throws IOException exception levee quand l'ecriture a echouee
+         */
+        private ObjectsWriter(OutputStream out, String fileName) throws IOException {
+            this.indentFactor = compact ? 0 : 1;
+            this.deflater = isCompressed(fileName) ? new Deflater(compressionLevel) : null;
+            this.deflated = (this.deflater == null) ? null : new DeflaterOutputStream(out, this.deflater, BUFFER_SIZE);
+            if (isBinary(fileName)) {
+                //nombre d'elements inconnu : tableau binaire termine par un marqueur de fin
+                this.writer = null;
+                this.utf8Writer = null;
+                this.binaryWriter = new JSONBinaryWriter((this.deflated == null) ? out : this.deflated);
+                this.binaryWriter.object().key("Objects").array();
+                return;
+            }
+            this.binaryWriter = null;
+            if (isUtf8()) {
+                this.writer = null;
+                this.utf8Writer = new JSONUtf8Writer((this.deflated == null) ? out : this.deflated);
+                this.utf8Writer.raw(compact ? "{\"Objects\":[" : "{\"Objects\": [");
+                return;
+            }
+            this.utf8Writer = null;
+            this.writer = new BufferedWriter(new OutputStreamWriter((this.deflated == null) ? out : this.deflated, newEncoder()), BUFFER_SIZE);
+            this.writer.write(compact ? "{\"Objects\":[" : "{\"Objects\": [");
+        }
+        
+        /**
+         * Ecrit l'element donne a la suite du tableau.
+         * @param json element a ecrire
+         * @throws IOException exception levee quand l'ecriture a echouee
+         */
+        private void write(JSONObject json) throws IOException {
+            try {
+                if (this.binaryWriter != null) {
+                    this.binaryWriter.value(json);
+                    return;
+                }
+                int index = this.count++;
+                //JSONArray ecrit un tableau d'un seul element sans retour a la ligne : le premier element attend le suivant
+                if ((this.indentFactor > 0) && (index == 0)) {
+                    this.first = json;
+                    return;
+                }
+                if (this.first != null) {
+                    writeElement(this.first, false, this.indentFactor);
+                    this.first = null;
+                }
+                writeElement(json, index > 0, this.indentFactor);
+            } catch (JSONException je) {
+                if (je.getCause() instanceof IOException) throw (IOException) je.getCause();
+                throw je;
+            }
+        }
+        
+        /**
+         * Ecrit l'element donne dans le tableau texte.
+         * @param json element a ecrire
+         * @param comma true si l'element n'est pas le premier du tableau
+         * @param indent indentation de l'element, 0 pour un element seul ou compact
+         * @throws IOException exception levee quand l'ecriture a echouee
+         */
+        private void writeElement(JSONObject json, boolean comma, int indent) throws IOException {
+            if (this.utf8Writer != null) {
+                if (comma) this.utf8Writer.raw(",");
+                if (indent > 0) this.utf8Writer.raw("\n ");
+                this.utf8Writer.write(json, this.indentFactor, indent);
+                return;
+            }
+            if (comma) this.writer.write(',');
+            if (indent > 0) this.writer.write("\n ");
+            json.write(this.writer, this.indentFactor, indent);
+        }
+        
+        /**
+         * Termine le document et vide les tampons.
+         * @throws IOException exception levee quand l'ecriture a echouee
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                if (this.binaryWriter != null) {
+                    this.binaryWriter.endArray().endObject().flush();
+                } else {
+                    if (this.first != null) writeElement(this.first, false, 0);
+                    String end = ((this.count > 1) && (this.indentFactor > 0)) ? "\n]}" : "]}";
+                    if (this.utf8Writer != null) {
+                        this.utf8Writer.raw(end).flush();
+                    } else {
+                        this.writer.write(end);
+                        this.writer.flush();
+                    }
+                }
+                if (this.deflated != null) this.deflated.finish();
+            } catch (JSONException je) {
+                if (je.getCause() instanceof IOException) throw (IOException) je.getCause();
+                throw je;
+            } finally {
+                if (this.deflater != null) this.deflater.end();
+            }
+        }
+    }
+    
+    /**
+     * Iterateur lisant un a un les elements du tableau "Objects" d'un fichier
+     * json sans construire l'arbre complet du fichier.
+     */
+    private static class ObjectsIterator implements Iterator<JSONObject>, Closeable {
+        private final Reader reader;
+        private final JSONTokener tokener;
+        private JSONObject next;
+        private boolean finished = false;
+        
+        /**
+         * Se place au debut du tableau "Objects" du fichier ouvert par le reader donne.
+         * @param reader reader du fichier
+         * @throws FileNotFoundException exception levee quand le fichier n'est pas lisible
+         */
+        private ObjectsIterator(Reader reader) throws FileNotFoundException {
+            this.reader = reader;
+            this.tokener = newTokener(this.reader);
+            try {
+                seekObjects();
+            } catch (JSONException je) {
+                close();
+                throw new FileNotFoundException(je.getMessage());
+            }
+        }
+        
+        /**
+         * Avance jusqu'au premier element du tableau "Objects" en sautant les autres cles.
+         */
+        private void seekObjects() {
+            //les autres cles sont sautees sans construire leur valeur
+            JSONReader reader = new JSONReader(this.tokener);
+            if (!reader.hasNext() || (reader.next() != JSONReader.Event.START_OBJECT)) {
+                throw this.tokener.syntaxError("A JSONObject text must begin with '{'");
+            }
+            while (reader.next() == JSONReader.Event.KEY) {
+                if ("Objects".equals(reader.getString())) {
+                    if (this.tokener.nextClean() != '[') {
+                        throw new JSONException("JSONObject[\"Objects\"] is not a JSONArray.");
+                    }
+                    if (this.tokener.nextClean() == ']') {
+                        this.finished = true;
+                    } else {
+                        this.tokener.back();
+                    }
+                    return;
+                }
+                reader.skipValue();
+            }
+            throw new JSONException("JSONObject[\"Objects\"] not found.");
+        }
+        
+        @Override
+        public boolean hasNext() {
+            if (this.next != null) return true;
+            if (this.finished) return false;
+            try {
+                Object value = this.tokener.nextValue();
+                if (!(value instanceof JSONObject)) {
+                    throw this.tokener.syntaxError("Objects element is not a JSONObject");
+                }
+                this.next = (JSONObject) value;
+                switch (this.tokener.nextClean()) {
+                    case ',':
+                        break;
+                    case ']':
+                        this.finished = true;
+                        break;
+                    default:
+                        throw this.tokener.syntaxError("Expected a ',' or ']'");
+                }
+            } catch (JSONException je) {
+                close();
+                throw je;
+            }
+            if (this.finished) close();
+            return true;
+        }
+        
+        @Override
+        public JSONObject next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            JSONObject result = this.next;
+            this.next = null;
+            return result;
+        }
+        
+        @Override
+        public void close() {
+            this.finished = true;
+            JsonManager.close(this.reader);
+        }
+    }
+    
+    /**
+     * Iterateur paresseux sur les elements du tableau "Objects" d'un fichier 
+     * json binaire. Le flux est ferme a la fin du tableau, en cas d'erreur ou 
+     * a la fermeture du stream.
+     */
+    private static class BinaryObjectsIterator implements Iterator<JSONObject>, Closeable {
+        private final InputStream in;
+        private JSONBinaryReader reader;
+        private JSONObject next;
+        private boolean finished = false;
+        
+        /**
+         * Se place au debut du tableau "Objects" du fichier binaire ouvert par le flux donne.
+         * @param in flux du fichier
+         * @throws FileNotFoundException exception levee quand le fichier n'est pas lisible
+         */
+        private BinaryObjectsIterator(InputStream in) throws FileNotFoundException {
+            this.in = in;
+            try {
+                this.reader = new JSONBinaryReader(in);
+                seekObjects();
+            } catch (JSONException je) {
+                close();
+                throw new FileNotFoundException(je.getMessage());
+            }
+        }
+        
+        /**
+         * Avance jusqu'au premier element du tableau "Objects" en sautant les autres cles.
+         */
+        private void seekObjects() {
+            this.reader.beginObject();
+            while (this.reader.more()) {
+                if ("Objects".equals(this.reader.nextKey())) {
+                    this.reader.beginArray();
+                    return;
+                }
+                this.reader.skipValue();
+            }
+            throw new JSONException("JSONObject[\"Objects\"] not found.");
+        }
+        
+        @Override
+        public boolean hasNext() {
+            if (this.next != null) return true;
+            if (this.finished) return false;
+            try {
+                if (!this.reader.more()) {
+                    close();
+                    return false;
+                }
+                Object value = this.reader.nextValue();
+                if (!(value instanceof JSONObject)) {
+                    throw new JSONException("Objects element is not a JSONObject");
+                }
+                this.next = (JSONObject) value;
+            } catch (JSONException je) {
+                close();
+                throw je;
+            }
+            return true;
+        }
+        
+        @Override
+        public JSONObject next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            JSONObject result = this.next;
+            this.next = null;
+            return result;
+        }
+        
+        @Override
+        public void close() {
+            this.finished = true;
+            JsonManager.close(this.in);
+        }
+    }
 }
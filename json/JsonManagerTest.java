@@ -0,0 +1,101 @@
+package taskscheduler;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * JsonManager tests.
+ * @author Johan
+ */
+public class JsonManagerTest {
+    /**
+     * Test of the streamed rewrite : the file is written as JSONObject.toString
+     * would write it, indented or compact, whatever the number of objects.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testRewriteFormat() throws Exception {
+        String directory = Files.createTempDirectory("manager").toString();
+        for (boolean compact : new boolean[] {false, true}) {
+            for (int n=1; n<5; n++) {
+                JsonManager manager = new JsonManager(directory, "m.json");
+                manager.setCompact(compact);
+                List<JSONObject> objects = new ArrayList<>();
+                for (int i=0; i<n; i++) {
+                    objects.add(new JSONObject().put("id", i).put("sub", new JSONObject().put("a", new JSONArray().put(1).put(2))));
+                }
+                manager.writeJSON(objects, "m.json");
+                manager.deleteWhere(o -> o.getInt("id") == 0, "m.json");
+                String expected = new JSONObject().put("Objects", new JSONArray(manager.read("m.json"))).toString(compact ? 0 : 1);
+                String stored = new String(Files.readAllBytes(Paths.get(directory, "m.json")), Charset.defaultCharset());
+                assertEquals(compact + " " + (n - 1), expected, stored);
+            }
+        }
+    }
+
+    /**
+     * Test of replace on a missing or empty file : it fails as the read does
+     * and no file is created.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testReplaceMissingFile() throws Exception {
+        String directory = Files.createTempDirectory("manager").toString();
+        JsonManager manager = new JsonManager(directory, "m.json");
+        try {
+            manager.replace("n", "x", new JSONObject().put("z", 1), "missing.json");
+            fail("missing.json does not exist");
+        } catch (FileNotFoundException expected) {
+        }
+        assertFalse(new File(directory, "missing.json").exists());
+        Files.createFile(Paths.get(directory, "empty.json"));
+        try {
+            manager.replace(new JSONObject().put("z", 0), new JSONObject().put("z", 1), "empty.json");
+            fail("empty.json is empty");
+        } catch (FileNotFoundException expected) {
+        }
+        assertEquals(0, new File(directory, "empty.json").length());
+    }
+
+    /**
+     * Test of a JSONException thrown by a filter or a key lookup : it is not
+     * turned into a FileNotFoundException and the file is left unchanged.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testTransformException() throws Exception {
+        String directory = Files.createTempDirectory("manager").toString();
+        JsonManager manager = new JsonManager(directory, "m.json");
+        manager.writeJSON(Arrays.asList(new JSONObject().put("id", 5), new JSONObject().put("id", "a")), "m.json");
+        try {
+            manager.deleteWhere(o -> o.getInt("nope") == 1, "m.json");
+            fail("nope is not a key");
+        } catch (JSONException expected) {
+        }
+        try {
+            manager.delete("id", "a", "m.json");
+            fail("5 is not a String");
+        } catch (JSONException expected) {
+        }
+        assertEquals(2, manager.read("m.json").size());
+        Files.write(Paths.get(directory, "m.json"), "{\"Objects\":[{\"id\":".getBytes(Charset.defaultCharset()));
+        try {
+            manager.deleteWhere(o -> true, "m.json");
+            fail("m.json is truncated");
+        } catch (FileNotFoundException expected) {
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package taskscheduler;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Lot de modifications d'un fichier json.
+ * Les ajouts, suppressions et remplacements sont memorises puis appliques
+ * en une seule lecture et une seule reecriture du fichier lors du commit.
+ * @author Johan
+ */
+public class JsonTransaction {
+    private final JsonManager manager;
+    private final String fileName;
+    private final List<Consumer<StoredObjects>> operations = new ArrayList<>();
+
+    /**
+     * Constructeur du lot de modifications.
+     * @param manager gestionnaire du fichier
+     * @param fileName nom du fichier de stockage
+     */
+    JsonTransaction(JsonManager manager, String fileName) {
+        this.manager = manager;
+        this.fileName = fileName;
+    }
+
+    /**
+     * Retourne le nom du fichier modifie.
+     * @return le nom du fichier modifie
+     */
+    public String getFileName() {
+        return this.fileName;
+    }
+
+    /**
+     * Retourne le nombre de modifications en attente.
+     * @return le nombre de modifications en attente
+     */
+    public int size() {
+        return this.operations.size();
+    }
+
+    /**
+     * Ajoute l'objet s'il n'est pas deja stocke.
+     * @param object objet a ajouter
+     * @return ce lot de modifications
+     */
+    public JsonTransaction add(Object object) {
+        JSONObject json = toJSON(object);
+        String serialized = json.toString();
+        this.operations.add(objects -> objects.addIfAbsent(json, serialized));
+        return this;
+    }
+
+    /**
+     * Supprime l'objet donne.
+     * @param object objet a supprimer
+     * @return ce lot de modifications
+     */
+    public JsonTransaction delete(Object object) {
+        String serialized = toJSON(object).toString();
+        this.operations.add(objects -> objects.remove(serialized));
+        return this;
+    }
+
+    /**
+     * Supprime tous les objets qui possedent la valeur indiquee associee a la cle donnee.
+     * @param key cle
+     * @param value valeur du/des objet(s) a supprimer
+     * @return ce lot de modifications
+     */
+    public JsonTransaction delete(String key, String value) {
+        this.operations.add(objects -> objects.removeIf(o -> o.has(key) && o.getString(key).equals(value)));
+        return this;
+    }
+
+    /**
+     * Remplace l'objet oldObject par newObject.
+     * @param oldObject ancien objet
+     * @param newObject nouvel objet
+     * @return ce lot de modifications
+     */
+    public JsonTransaction replace(Object oldObject, Object newObject) {
+        return delete(oldObject).add(newObject);
+    }
+
+    /**
+     * Remplace les objets avec la valeur donnee associee a la cle donnee par newObject.
+     * @param key la cle
+     * @param value valeur associee a la cle
+     * @param newObject nouvel objet
+     * @return ce lot de modifications
+     */
+    public JsonTransaction replace(String key, String value, Object newObject) {
+        return delete(key, value).add(newObject);
+    }
+
+    /**
+     * Abandonne les modifications en attente.
+     */
+    public void rollback() {
+        this.operations.clear();
+    }
+
+    /**
+     * Applique les modifications en attente : le fichier est lu une fois,
+     * les modifications sont appliquees en memoire puis le fichier est reecrit une fois.
+     * Un fichier absent ou vide est considere comme une collection vide. Les
+     * objets stockes en double et non modifies sont conserves tels quels.
+     * @throws FileNotFoundException exception levee quand le fichier n'est pas lisible
+     * @throws IOException exception levee quand l'ecriture dans le fichier a echouee
+     */
+    public void commit() throws FileNotFoundException, IOException {
+        if (this.operations.isEmpty()) return;
+        StoredObjects objects = new StoredObjects();
+        File file = new File(this.manager.getPath(this.fileName));
+        if (file.exists() && (file.length() > 0)) {
+            try (Stream<JSONObject> storedObjects = this.manager.stream(this.fileName)) {
+                storedObjects.forEach(o -> objects.append(o, o.toString()));
+            } catch (JSONException je) {
+                throw new FileNotFoundException(je.getMessage());
+            }
+        }
+        this.operations.forEach(operation -> operation.accept(objects));
+        this.manager.writeJSON(objects.toList(), this.fileName);
+        this.operations.clear();
+    }
+
+    /**
+     * Retourne le format json de l'objet donne.
+     * @param object objet ou JSONObject
+     * @return le format json de l'objet
+     */
+    private static JSONObject toJSON(Object object) {
+        return (object instanceof JSONObject) ? (JSONObject) object : new JSONObject(object);
+    }
+
+    /**
+     * Objets du fichier pendant le commit, indexes par format json : chaque
+     * objet n'est serialise qu'une fois et les ajouts et suppressions d'un
+     * objet sont des recherches dans une table de hachage. Les objets
+     * supprimes laissent une place vide jusqu'a la fin du commit.
+     */
+    private static class StoredObjects {
+        private final List<JSONObject> objects = new ArrayList<>();
+        private final List<String> texts = new ArrayList<>();
+        private final Map<String, List<Integer>> positions = new HashMap<>();
+
+        private void append(JSONObject json, String text) {
+            this.positions.computeIfAbsent(text, t -> new ArrayList<>(1)).add(this.objects.size());
+            this.objects.add(json);
+            this.texts.add(text);
+        }
+
+        private void addIfAbsent(JSONObject json, String text) {
+            if (!this.positions.containsKey(text)) append(json, text);
+        }
+
+        private void remove(String text) {
+            List<Integer> removed = this.positions.remove(text);
+            if (removed != null) removed.forEach(i -> this.objects.set(i, null));
+        }
+
+        /**
+         * Supprime les objets acceptes par le filtre, ou aucun si le filtre
+         * leve une exception.
+         * @param filter filtre des objets a supprimer
+         */
+        private void removeIf(Predicate<JSONObject> filter) {
+            List<String> removed = new ArrayList<>();
+            for (int i=0; i<this.objects.size(); i++) {
+                JSONObject o = this.objects.get(i);
+                if ((o != null) && filter.test(o)) removed.add(this.texts.get(i));
+            }
+            removed.forEach(this::remove);
+        }
+
+        private List<JSONObject> toList() {
+            List<JSONObject> result = new ArrayList<>(this.objects.size());
+            for (JSONObject o : this.objects) {
+                if (o != null) result.add(o);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package taskscheduler;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * JsonTransaction tests.
+ * @author Johan
+ */
+public class JsonTransactionTest {
+    /**
+     * Test of commit method, with duplicate objects already stored.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testCommitKeepsDuplicates() throws Exception {
+        JsonManager manager = new JsonManager(Files.createTempDirectory("transaction").toString(), "t.json");
+        JSONObject a = new JSONObject().put("id", "a");
+        JSONObject b = new JSONObject().put("id", "b");
+        manager.writeJSON(new ArrayList<>(Arrays.asList(a, a, b)));
+        manager.beginTransaction().add(new JSONObject().put("id", "c")).commit();
+        List<JSONObject> stored = manager.read();
+        assertEquals(4, stored.size());
+        assertEquals("a", stored.get(0).getString("id"));
+        assertEquals("a", stored.get(1).getString("id"));
+        assertEquals("c", stored.get(3).getString("id"));
+    }
+
+    /**
+     * Test of add and delete methods.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testAddAndDelete() throws Exception {
+        JsonManager manager = new JsonManager(Files.createTempDirectory("transaction").toString(), "t.json");
+        JSONObject a = new JSONObject().put("id", "a");
+        JSONObject b = new JSONObject().put("id", "b");
+        manager.writeJSON(new ArrayList<>(Arrays.asList(a, a, b)));
+        manager.beginTransaction().add(b).add(new JSONObject().put("id", "c")).delete(a).commit();
+        List<JSONObject> stored = manager.read();
+        assertEquals(2, stored.size());
+        assertEquals("b", stored.get(0).getString("id"));
+        assertEquals("c", stored.get(1).getString("id"));
+        manager.beginTransaction().delete("id", "c").commit();
+        assertEquals(1, manager.read().size());
+    }
+
+    /**
+     * Test of random mutations against the same mutations applied one by one
+     * to a list.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testRandomMutations() throws Exception {
+        JsonManager manager = new JsonManager(Files.createTempDirectory("transaction").toString(), "t.json");
+        Random random = new Random(42);
+        for (int run=0; run<50; run++) {
+            List<JSONObject> expected = new ArrayList<>();
+            for (int i=0; i<10; i++) {
+                expected.add(new JSONObject().put("id", "o" + random.nextInt(6)));
+            }
+            manager.writeJSON(new ArrayList<>(expected));
+            JsonTransaction transaction = manager.beginTransaction();
+            for (int i=0; i<30; i++) {
+                JSONObject json = new JSONObject().put("id", "o" + random.nextInt(8));
+                String serialized = json.toString();
+                switch (random.nextInt(4)) {
+                    case 0:
+                        transaction.add(json);
+                        if (expected.stream().noneMatch(o -> o.toString().equals(serialized))) expected.add(json);
+                        break;
+                    case 1:
+                        transaction.delete(json);
+                        expected.removeIf(o -> o.toString().equals(serialized));
+                        break;
+                    case 2:
+                        transaction.delete("id", json.getString("id"));
+                        expected.removeIf(o -> o.getString("id").equals(json.getString("id")));
+                        break;
+                    default:
+                        JSONObject newObject = new JSONObject().put("id", "o" + random.nextInt(8));
+                        transaction.replace(json, newObject);
+                        expected.removeIf(o -> o.toString().equals(serialized));
+                        if (expected.stream().noneMatch(o -> o.toString().equals(newObject.toString()))) expected.add(newObject);
+                        break;
+                }
+            }
+            transaction.commit();
+            assertEquals(expected.toString(), manager.read().toString());
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package distantcontrolclient;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Gestionnaire de JSON avec typage repartissant les objets sur plusieurs
+ * fichiers selon le hachage de la valeur d'une cle.
+ * Le fichier "nom.json" est decoupe en "nom.0.json", "nom.1.json"... : les
+ * lectures completes chargent les fichiers en parallele sur un ForkJoinPool
+ * et les operations sur un objet ou sur la cle de repartition ne touchent
+ * que le fichier concerne.
+ * @author Johan
+ * @param <T> type reel des objets JSON
+ */
+public abstract class ShardedGenericJsonManager<T> extends GenericJsonManager<T> {
+    private final String shardKey;
+    private final int shardCount;
+    private final ForkJoinPool pool;
+    private final GenericJsonManager<T> shards;
+
+    /**
+     * Constructeur du gestionnaire de JSON reparti.
+     * @param directory chemin du repertoire utilise
+     * @param fileName nom du fichier json
+     * @param shardKey cle dont la valeur determine le fichier de chaque objet
+     * @param shardCount nombre de fichiers
+     * @param pool pool utilise pour les lectures paralleles
+     */
+    public ShardedGenericJsonManager(String directory, String fileName, String shardKey, int shardCount, ForkJoinPool pool) {
+        super(directory, fileName);
+        if (shardCount < 1) throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        this.shardKey = shardKey;
+        this.shardCount = shardCount;
+        this.pool = pool;
+        //le fichier par defaut des fichiers est le premier d'entre eux : createFile ne cree pas de fichier parasite
+        this.shards = new GenericJsonManager<T>(directory, getShardName(getFileName(), 0)) {
+            @Override
+            public T createObject(JSONObject json) {
+                return ShardedGenericJsonManager.this.createObject(json);
+            }
+        };
+    }
+
+    /**
+     * Constructeur du gestionnaire de JSON reparti, lisant sur le pool commun.
+     * @param directory chemin du repertoire utilise
+     * @param fileName nom du fichier json
+     * @param shardKey cle dont la valeur determine le fichier de chaque objet
+     * @param shardCount nombre de fichiers
+     */
+    public ShardedGenericJsonManager(String directory, String fileName, String shardKey, int shardCount) {
+        this(directory, fileName, shardKey, shardCount, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Retourne la cle dont la valeur determine le fichier de chaque objet.
+     * @return la cle de repartition
+     */
+    public String getShardKey() {
+        return this.shardKey;
+    }
+
+    /**
+     * Retourne le nombre de fichiers.
+     * @return le nombre de fichiers
+     */
+    public int getShardCount() {
+        return this.shardCount;
+    }
+
+    /**
+     * Retourne le nom du fichier d'indice donne pour le fichier donne.
+     * @param fileName nom du fichier
+     * @param shard indice du fichier
+     * @return le nom du fichier d'indice donne
+     */
+    public String getShardName(String fileName, int shard) {
+        int extension = fileName.lastIndexOf('.');
+        if (extension < 0) return fileName + "." + shard;
+        return fileName.substring(0, extension) + "." + shard + fileName.substring(extension);
+    }
+
+    /**
+     * Retourne l'indice du fichier contenant l'objet json donne.
+     * @param json objet json
+     * @return l'indice du fichier de l'objet
+     */
+    public int getShard(JSONObject json) {
+        return getShard(json.opt(this.shardKey));
+    }
+
+    /**
+     * Retourne l'indice du fichier contenant les objets de valeur donnee pour la cle de repartition.
+     * Les nombres sont haches sous leur forme JSON afin que 5, 5L et 5.0 soient dans le meme fichier.
+     * @param value valeur de la cle de repartition
+     * @return l'indice du fichier
+     */
+    private int getShard(Object value) {
+        if (value == null) return 0;
+        String text = (value instanceof Number) ? JSONObject.numberToString((Number) value) : String.valueOf(value);
+        return Math.floorMod(text.hashCode(), this.shardCount);
+    }
+
+    @Override
+    public void setDirectory(String directory) {
+        super.setDirectory(directory);
+        if (this.shards != null) this.shards.setDirectory(directory);
+    }
+
+    @Override
+    public void setCompact(boolean compact) {
+        super.setCompact(compact);
+        if (this.shards != null) this.shards.setCompact(compact);
+    }
+
+    @Override
+    public void setCompressed(boolean compressed) {
+        super.setCompressed(compressed);
+        if (this.shards != null) this.shards.setCompressed(compressed);
+    }
+
+    @Override
+    public void setBinary(boolean binary) {
+        super.setBinary(binary);
+        if (this.shards != null) this.shards.setBinary(binary);
+    }
+
+    @Override
+    public void setCompressionLevel(int compressionLevel) {
+        super.setCompressionLevel(compressionLevel);
+        if (this.shards != null) this.shards.setCompressionLevel(compressionLevel);
+    }
+
+    @Override
+    public void setBinder(JsonBinder<T> binder) {
+        super.setBinder(binder);
+        if (this.shards != null) this.shards.setBinder(binder);
+    }
+
+    @Override
+    public boolean contains(JSONObject json, String fileName) throws FileNotFoundException {
+        String shard = getShardName(fileName, getShard(json));
+        return !isEmpty(shard) && this.shards.contains(json, shard);
+    }
+
+    @Override
+    public boolean contains(T object, String fileName) throws FileNotFoundException {
+        String shard = getShardName(fileName, getShard(new JSONObject(object)));
+        return !isEmpty(shard) && this.shards.contains(object, shard);
+    }
+
+    @Override
+    public ArrayList<JSONObject> readAsJSON(String fileName) throws FileNotFoundException {
+        return readShards(fileName, this.shards::readAsJSON);
+    }
+
+    @Override
+    public ArrayList<T> read(String fileName) throws FileNotFoundException {
+        return readShards(fileName, this.shards::read);
+    }
+
+    @Override
+    public Stream<JSONObject> streamAsJSON(String fileName) throws FileNotFoundException {
+        return shardNames(fileName).flatMap(shard -> {
+            try {
+                return this.shards.streamAsJSON(shard);
+            } catch (FileNotFoundException fnfe) {
+                throw new JSONException(fnfe.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public Stream<T> stream(String fileName) throws FileNotFoundException {
+        return shardNames(fileName).flatMap(shard -> {
+            try {
+                return this.shards.stream(shard);
+            } catch (FileNotFoundException fnfe) {
+                throw new JSONException(fnfe.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Repartit les objets du document donne dans les fichiers.
+     * @param json document de la forme {"Objects":[...]}
+     * @param fileName nom du fichier de stockage
+     * @throws IOException exception levee quand l'ecriture a echouee
+     */
+    @Override
+    public void writeJSON(JSONObject json, String fileName) throws IOException {
+        if (json == null) return;
+        List<List<JSONObject>> partitions = new ArrayList<>(this.shardCount);
+        for (int i=0; i<this.shardCount; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        JSONArray objects;
+        try {
+            objects = json.getJSONArray("Objects");
+        } catch (JSONException je) {
+            throw new IOException(je.getMessage(), je);
+        }
+        for (int i=0; i<objects.length(); i++) {
+            JSONObject o = objects.getJSONObject(i);
+            partitions.get(getShard(o)).add(o);
+        }
+        for (int i=0; i<this.shardCount; i++) {
+            this.shards.writeJSON(partitions.get(i), getShardName(fileName, i));
+        }
+    }
+
+    @Override
+    public void write(T object, String fileName) throws IOException {
+        if (object == null) return;
+        this.shards.write(object, getShardName(fileName, getShard(new JSONObject(object))));
+    }
+
+    @Override
+    public void delete(JSONObject json, String fileName) throws FileNotFoundException, IOException {
+        String shard = getShardName(fileName, getShard(json));
+        if (!isEmpty(shard)) this.shards.delete(json, shard);
+    }
+
+    @Override
+    public void delete(T object, String fileName) throws FileNotFoundException, IOException {
+        if (object == null) return;
+        String shard = getShardName(fileName, getShard(new JSONObject(object)));
+        if (!isEmpty(shard)) this.shards.delete(object, shard);
+    }
+
+    @Override
+    public void delete(String key, String value, String fileName) throws FileNotFoundException, IOException {
+        if (key.equals(this.shardKey)) {
+            String shard = getShardName(fileName, getShard(value));
+            if (!isEmpty(shard)) this.shards.delete(key, value, shard);
+            return;
+        }
+        for (String shard : shardNames(fileName).collect(Collectors.toList())) {
+            this.shards.delete(key, value, shard);
+        }
+    }
+
+    /**
+     * Retourne true si le fichier donne est absent ou vide, false sinon.
+     * @param shard nom du fichier
+     * @return true si le fichier donne est absent ou vide, false sinon
+     */
+    private boolean isEmpty(String shard) {
+        File file = new File(getPath(shard));
+        return !file.exists() || (file.length() == 0);
+    }
+
+    /**
+     * Retourne les noms des fichiers non vides du fichier donne.
+     * @param fileName nom du fichier
+     * @return les noms des fichiers non vides
+     * @throws FileNotFoundException exception levee quand aucun fichier n'existe
+     */
+    private Stream<String> shardNames(String fileName) throws FileNotFoundException {
+        List<String> names = new ArrayList<>(this.shardCount);
+        IntStream.range(0, this.shardCount).mapToObj(i -> getShardName(fileName, i))
+                .filter(shard -> !isEmpty(shard))
+                .forEach(names::add);
+        if (names.isEmpty()) throw new FileNotFoundException(getPath(getShardName(fileName, 0)));
+        return names.stream();
+    }
+
+    /**
+     * Applique en parallele l'operation donnee a chaque fichier non vide et
+     * concatene les resultats dans l'ordre des fichiers.
+     * @param <E> type des elements lus
+     * @param fileName nom du fichier
+     * @param reader operation appliquee a chaque fichier
+     * @return la concatenation des resultats
+     * @throws FileNotFoundException exception levee quand aucun fichier n'existe ou qu'une lecture echoue
+     */
+    private <E> ArrayList<E> readShards(String fileName, ShardReader<E> reader) throws FileNotFoundException {
+        List<ForkJoinTask<List<E>>> tasks = new ArrayList<>(this.shardCount);
+        shardNames(fileName).forEach(shard -> tasks.add(this.pool.submit((Callable<List<E>>) () -> reader.read(shard))));
+        ArrayList<E> result = new ArrayList<>();
+        try {
+            for (ForkJoinTask<List<E>> task : tasks) {
+                result.addAll(task.get());
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new FileNotFoundException("Interrupted while reading " + getPath(fileName));
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof FileNotFoundException) throw (FileNotFoundException) ee.getCause();
+            if (ee.getCause() instanceof RuntimeException) throw (RuntimeException) ee.getCause();
+            FileNotFoundException fnfe = new FileNotFoundException(ee.getCause().getMessage());
+            fnfe.initCause(ee.getCause());
+            throw fnfe;
+        }
+        return result;
+    }
+
+    /**
+     * Operation appliquee a un fichier de la repartition.
+     * @param <E> type des elements lus
+     */
+    @FunctionalInterface
+    private interface ShardReader<E> {
+        List<E> read(String shard) throws IOException;
+    }
+}
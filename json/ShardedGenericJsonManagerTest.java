@@ -0,0 +1,90 @@
+package distantcontrolclient;
+
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import static org.junit.Assert.assertEquals;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * ShardedGenericJsonManager tests.
+ * @author Johan
+ */
+public class ShardedGenericJsonManagerTest {
+    /**
+     * Test of getShard method : equal numbers of different types share a shard.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testNumberShard() throws Exception {
+        ShardedGenericJsonManager<Item> manager = newManager();
+        for (int i=0; i<100; i++) {
+            int shard = manager.getShard(new JSONObject().put("id", i));
+            assertEquals(shard, manager.getShard(new JSONObject().put("id", (long) i)));
+            assertEquals(shard, manager.getShard(new JSONObject().put("id", (double) i)));
+            assertEquals(shard, manager.getShard(new JSONObject().put("id", String.valueOf(i))));
+        }
+    }
+
+    /**
+     * Test of delete method on a key other than the shard key.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testDeleteOtherKey() throws Exception {
+        ShardedGenericJsonManager<Item> manager = newManager();
+        for (int i=0; i<20; i++) manager.write(new Item(i, (i % 3 == 0) ? "a" : "b"));
+        manager.delete("name", "a");
+        assertEquals(Arrays.asList(1, 2, 4, 5, 7, 8, 10, 11, 13, 14, 16, 17, 19),
+                manager.read().stream().map(Item::getId).sorted().collect(Collectors.toList()));
+    }
+
+    /**
+     * Cree un gestionnaire reparti sur un repertoire temporaire.
+     * @return le gestionnaire
+     * @throws Exception exception levee quand le repertoire n'a pas pu etre cree
+     */
+    private static ShardedGenericJsonManager<Item> newManager() throws Exception {
+        return new ShardedGenericJsonManager<Item>(Files.createTempDirectory("sharded").toString(), "s.json", "id", 4) {
+            @Override
+            public Item createObject(JSONObject json) {
+                return new Item(json.getInt("id"), json.getString("name"));
+            }
+        };
+    }
+
+    /**
+     * Objet stocke par les tests.
+     */
+    public static class Item {
+        private final int id;
+        private final String name;
+
+        /**
+         * Constructeur de l'objet stocke.
+         * @param id identifiant
+         * @param name nom
+         */
+        public Item(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        /**
+         * Retourne l'identifiant.
+         * @return l'identifiant
+         */
+        public int getId() {
+            return this.id;
+        }
+
+        /**
+         * Retourne le nom.
+         * @return le nom
+         */
+        public String getName() {
+            return this.name;
+        }
+    }
+}
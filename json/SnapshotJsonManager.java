@@ -0,0 +1,289 @@
+package taskscheduler;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import org.json.JSONObject;
+
+/**
+ * Gestionnaire de JSON partageable entre plusieurs processus.
+ * Chaque ecriture produit une nouvelle generation immuable du fichier
+ * ("nom.g42.json") puis bascule atomiquement le pointeur "nom.json.head" vers
+ * elle : un lecteur lit toujours une generation complete, sans verrou et sans
+ * attendre les ecrivains. Les ecritures (lecture-modification-ecriture
+ * comprises) sont serialisees par un verrou exclusif FileChannel sur le
+ * fichier "nom.json.lock", double d'un verrou dans la JVM.
+ * Tant qu'aucune generation n'a ete ecrite, le fichier "nom.json" est lu tel quel.
+ * @author Johan
+ */
+public class SnapshotJsonManager extends JsonManager {
+    public static final int DEFAULT_RETAINED_GENERATIONS = 2;
+    private static final String HEAD_SUFFIX = ".head";
+    private static final String LOCK_SUFFIX = ".lock";
+    /** Verrous de la JVM par chemin canonique, partages par toutes les instances. */
+    private static final Map<String, ReentrantLock> LOCKS = new ConcurrentHashMap<>();
+    private volatile int retainedGenerations = DEFAULT_RETAINED_GENERATIONS;
+
+    /**
+     * Constructeur du gestionnaire de JSON partage.
+     * @param directory chemin du repertoire utilise
+     * @param fileName nom du fichier json
+     */
+    public SnapshotJsonManager(String directory, String fileName) {
+        super(directory, fileName);
+    }
+
+    /**
+     * Constructeur du gestionnaire de JSON partage.
+     * @param fileName nom du fichier json
+     */
+    public SnapshotJsonManager(String fileName) {
+        this(DEFAULT_DIRECTORY, fileName);
+    }
+
+    /**
+     * Retourne le nombre de generations conservees sur disque.
+     * @return le nombre de generations conservees
+     */
+    public int getRetainedGenerations() {
+        return this.retainedGenerations;
+    }
+
+    /**
+     * Modifie le nombre de generations conservees sur disque : un lecteur qui a
+     * resolu une generation peut encore l'ouvrir tant qu'elle fait partie des
+     * generations conservees.
+     * @param retainedGenerations nombre de generations conservees, au moins 1
+     */
+    public void setRetainedGenerations(int retainedGenerations) {
+        if (retainedGenerations < 1) throw new IllegalArgumentException("At least one generation must be retained: " + retainedGenerations);
+        this.retainedGenerations = retainedGenerations;
+    }
+
+    /**
+     * Retourne la generation courante du fichier donne.
+     * @param fileName nom du fichier
+     * @return la generation courante, 0 si aucune generation n'a ete ecrite
+     * @throws IOException exception levee quand le pointeur n'est pas lisible
+     */
+    public long getGeneration(String fileName) throws IOException {
+        File head = new File(super.getPath(fileName) + HEAD_SUFFIX);
+        if (!head.exists()) return 0;
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(head.toPath()), StandardCharsets.US_ASCII).trim());
+        } catch (NumberFormatException nfe) {
+            throw new IOException("Corrupted generation pointer " + head.getPath(), nfe);
+        } catch (NoSuchFileException nsfe) {
+            return 0;
+        }
+    }
+
+    /**
+     * Retourne la generation courante du fichier.
+     * @return la generation courante, 0 si aucune generation n'a ete ecrite
+     * @throws IOException exception levee quand le pointeur n'est pas lisible
+     */
+    public long getGeneration() throws IOException {
+        return getGeneration(getFileName());
+    }
+
+    /**
+     * Retourne le chemin de la generation courante du fichier donne, ou le
+     * chemin du fichier lui-meme si aucune generation n'a ete ecrite.
+     * @param fileName nom du fichier
+     * @return le chemin de stockage
+     */
+    @Override
+    public String getPath(String fileName) {
+        try {
+            long generation = getGeneration(fileName);
+            return (generation == 0) ? super.getPath(fileName) : getGenerationPath(fileName, generation);
+        } catch (IOException ioe) {
+            throw new IllegalStateException(ioe.getMessage(), ioe);
+        }
+    }
+
+    /**
+     * Retourne la liste des objets de la generation courante du fichier donne,
+     * sans verrou : une generation remplacee pendant la lecture reste lisible.
+     * @param fileName fichier dans lequel lire les objets
+     * @return la liste des objets stockes
+     * @throws FileNotFoundException exception levee quand le fichier n'existe pas ou n'est pas lisible
+     */
+    @Override
+    public ArrayList<JSONObject> read(String fileName) throws FileNotFoundException {
+        for (;;) {
+            long generation = currentGeneration(fileName);
+            try {
+                return super.read(fileName);
+            } catch (FileNotFoundException fnfe) {
+                //generation supprimee entre la resolution du pointeur et l'ouverture : on relit le pointeur
+                if (currentGeneration(fileName) == generation) throw fnfe;
+            }
+        }
+    }
+
+    @Override
+    public Stream<JSONObject> stream(String fileName) throws FileNotFoundException {
+        for (;;) {
+            long generation = currentGeneration(fileName);
+            try {
+                return super.stream(fileName);
+            } catch (FileNotFoundException fnfe) {
+                if (currentGeneration(fileName) == generation) throw fnfe;
+            }
+        }
+    }
+
+    @Override
+    public void write(JSONObject json, String fileName) throws IOException {
+        locked(fileName, () -> {
+            super.write(json, fileName);
+            return null;
+        });
+    }
+
+    @Override
+    public void add(Object object, String fileName) throws IOException {
+        locked(fileName, () -> {
+            super.add(object, fileName);
+            return null;
+        });
+    }
+
+    @Override
+    protected int rewrite(UnaryOperator<JSONObject> transform, JSONObject appended, String fileName) throws FileNotFoundException, IOException {
+        return locked(fileName, () -> super.rewrite(transform, appended, fileName));
+    }
+
+    @Override
+    public JsonTransaction beginTransaction(String fileName) {
+        return new JsonTransaction(this, fileName) {
+            @Override
+            public void commit() throws FileNotFoundException, IOException {
+                locked(fileName, () -> {
+                    super.commit();
+                    return null;
+                });
+            }
+        };
+    }
+
+    /**
+     * Publie le fichier temporaire donne comme nouvelle generation puis bascule
+     * atomiquement le pointeur vers elle. Les generations trop anciennes sont supprimees.
+     * @param temp fichier temporaire completement ecrit
+     * @param fileName nom du fichier de stockage
+     * @throws IOException exception levee quand la publication a echouee
+     */
+    @Override
+    protected void publish(File temp, String fileName) throws IOException {
+        locked(fileName, () -> {
+            long generation = getGeneration(fileName) + 1;
+            try {
+                Files.move(temp.toPath(), Paths.get(getGenerationPath(fileName, generation)),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ioe) {
+                temp.delete();
+                throw ioe;
+            }
+            File head = new File(super.getPath(fileName) + HEAD_SUFFIX);
+            File headTemp = File.createTempFile(head.getName() + ".", ".tmp", head.getAbsoluteFile().getParentFile());
+            try (FileOutputStream out = new FileOutputStream(headTemp)) {
+                out.write(Long.toString(generation).getBytes(StandardCharsets.US_ASCII));
+                out.getFD().sync();
+            } catch (IOException ioe) {
+                headTemp.delete();
+                throw ioe;
+            }
+            Files.move(headTemp.toPath(), head.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            for (long old = generation - this.retainedGenerations; old > 0; old--) {
+                //un fichier encore ouvert (Windows) est supprime lors d'une publication suivante
+                File file = new File(getGenerationPath(fileName, old));
+                if (!file.exists()) break;
+                file.delete();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Retourne le chemin de la generation donnee du fichier donne.
+     * @param fileName nom du fichier
+     * @param generation numero de generation
+     * @return le chemin de la generation
+     */
+    private String getGenerationPath(String fileName, long generation) {
+        int extension = fileName.lastIndexOf('.');
+        if (extension < 0) return super.getPath(fileName + ".g" + generation);
+        return super.getPath(fileName.substring(0, extension) + ".g" + generation + fileName.substring(extension));
+    }
+
+    /**
+     * Retourne la generation courante du fichier donne pour une lecture.
+     * @param fileName nom du fichier
+     * @return la generation courante
+     * @throws FileNotFoundException exception levee quand le pointeur n'est pas lisible
+     */
+    private long currentGeneration(String fileName) throws FileNotFoundException {
+        try {
+            return getGeneration(fileName);
+        } catch (IOException ioe) {
+            throw new FileNotFoundException(ioe.getMessage());
+        }
+    }
+
+    /**
+     * Execute l'operation donnee sous le verrou exclusif du fichier donne :
+     * verrou de la JVM puis verrou FileChannel, pris une seule fois par un
+     * thread qui le detient deja. Le verrou de la JVM est commun a toutes les
+     * instances sur le meme fichier : une JVM ne demande jamais deux fois le
+     * verrou FileChannel d'un fichier, ce qui leverait OverlappingFileLockException.
+     * @param <R> type du resultat
+     * @param fileName nom du fichier
+     * @param operation operation a executer
+     * @return le resultat de l'operation
+     * @throws IOException exception levee quand le verrouillage ou l'operation a echoue
+     */
+    private <R> R locked(String fileName, LockedOperation<R> operation) throws IOException {
+        File lockFile = new File(super.getPath(fileName) + LOCK_SUFFIX);
+        ReentrantLock lock = LOCKS.computeIfAbsent(lockFile.getCanonicalPath(), f -> new ReentrantLock());
+        lock.lock();
+        FileChannel channel = null;
+        try {
+            if (lock.getHoldCount() == 1) {
+                File dir = lockFile.getAbsoluteFile().getParentFile();
+                if (!dir.exists()) dir.mkdirs();
+                channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                channel.lock();
+            }
+            return operation.run();
+        } finally {
+            if (channel != null) channel.close();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Operation executee sous le verrou d'un fichier.
+     * @param <R> type du resultat
+     */
+    @FunctionalInterface
+    private interface LockedOperation<R> {
+        R run() throws IOException;
+    }
+}
@@ -0,0 +1,77 @@
+package taskscheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * SnapshotJsonManager tests.
+ * @author Johan
+ */
+public class SnapshotJsonManagerTest {
+    /**
+     * Test of add method, with two instances on the same file in one JVM.
+     * @throws Exception exception levee quand le test a echoue
+     */
+    @Test
+    public void testAddFromTwoInstances() throws Exception {
+        File directory = Files.createTempDirectory("snapshot").toFile();
+        SnapshotJsonManager first = new SnapshotJsonManager(directory.getPath(), "s.json");
+        SnapshotJsonManager second = new SnapshotJsonManager(directory.getPath() + File.separator + ".", "s.json");
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        Thread t1 = new Thread(() -> addAll(first, 0, failures));
+        Thread t2 = new Thread(() -> addAll(second, 1000, failures));
+        t1.start();
+        t2.start();
+        t1.join();
+        t2.join();
+        assertTrue(failures.toString(), failures.isEmpty());
+        assertEquals(2 * 30, first.read().size());
+        assertEquals(2 * 30, second.read().size());
+    }
+
+    /**
+     * Ajoute des objets numerotes a partir de l'indice donne.
+     * @param manager gestionnaire utilise
+     * @param start premier indice
+     * @param failures erreurs rencontrees
+     */
+    private static void addAll(SnapshotJsonManager manager, int start, List<Throwable> failures) {
+        try {
+            for (int i=start; i<start + 30; i++) {
+                manager.add(new Item(i));
+            }
+        } catch (IOException | RuntimeException e) {
+            failures.add(e);
+        }
+    }
+
+    /**
+     * Objet stocke par les tests.
+     */
+    public static class Item {
+        private final int id;
+
+        /**
+         * Constructeur de l'objet stocke.
+         * @param id identifiant
+         */
+        public Item(int id) {
+            this.id = id;
+        }
+
+        /**
+         * Retourne l'identifiant.
+         * @return l'identifiant
+         */
+        public int getId() {
+            return this.id;
+        }
+    }
+}
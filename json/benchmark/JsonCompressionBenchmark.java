@@ -0,0 +1,107 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import org.json.JSONObject;
+import taskscheduler.JsonManager;
+
+/**
+ * Mesure le compromis entre taille sur disque et cout CPU de la compression
+ * et de l'encodage binaire des fichiers du gestionnaire de JSON : chaque 
+ * configuration ecrit puis relit (lecture complete et en flux) le meme jeu d'objets.
+ * Usage : java benchmark.JsonCompressionBenchmark [nombre d'objets] [iterations] [repertoire]
+ * @author Johan
+ */
+public class JsonCompressionBenchmark {
+
+    /**
+     * Lance le benchmark.
+     * @param args nombre d'objets, nombre d'iterations et repertoire de travail (optionnels)
+     * @throws IOException exception levee quand l'ecriture ou la lecture a echouee
+     */
+    public static void main(String[] args) throws IOException {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 50000;
+        int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+        String directory = (args.length > 2) ? args[2] : System.getProperty("java.io.tmpdir");
+        List<JSONObject> objects = createObjects(count);
+        System.out.println(String.format(Locale.ROOT, "%-22s %12s %8s %10s %10s %10s",
+                "configuration", "bytes", "ratio", "write ms", "read ms", "stream ms"));
+        long reference = run("indented", directory, "bench.json", false, false, Deflater.DEFAULT_COMPRESSION, objects, iterations, 0);
+        run("compact", directory, "bench.json", true, false, Deflater.DEFAULT_COMPRESSION, objects, iterations, reference);
+        run("compressed level 1", directory, "bench.jsonz", true, false, Deflater.BEST_SPEED, objects, iterations, reference);
+        run("compressed level 6", directory, "bench.jsonz", true, false, Deflater.DEFAULT_COMPRESSION, objects, iterations, reference);
+        run("compressed level 9", directory, "bench.jsonz", true, false, Deflater.BEST_COMPRESSION, objects, iterations, reference);
+        run("binary", directory, "bench.jsonb", true, true, Deflater.DEFAULT_COMPRESSION, objects, iterations, reference);
+        run("binary compressed 1", directory, "bench.jsonz", true, true, Deflater.BEST_SPEED, objects, iterations, reference);
+        run("binary compressed 6", directory, "bench.jsonz", true, true, Deflater.DEFAULT_COMPRESSION, objects, iterations, reference);
+    }
+
+    /**
+     * Mesure une configuration et affiche le resultat.
+     * @param label nom de la configuration
+     * @param directory repertoire de travail
+     * @param fileName nom du fichier, compresse si son extension est .jsonz
+     * @param compact true pour ecrire sans indentation
+     * @param binary true pour ecrire en json binaire
+     * @param level niveau de compression
+     * @param objects objets ecrits
+     * @param iterations nombre de mesures, la meilleure est retenue
+     * @param reference taille de reference pour le ratio, 0 si c'est cette configuration
+     * @return la taille du fichier ecrit
+     * @throws IOException exception levee quand l'ecriture ou la lecture a echouee
+     */
+    private static long run(String label, String directory, String fileName, boolean compact, boolean binary, int level,
+            List<JSONObject> objects, int iterations, long reference) throws IOException {
+        JsonManager manager = new JsonManager(directory, fileName);
+        manager.setCompact(compact);
+        manager.setBinary(binary);
+        manager.setCompressionLevel(level);
+        long write = Long.MAX_VALUE;
+        long read = Long.MAX_VALUE;
+        long stream = Long.MAX_VALUE;
+        for (int i=0; i<iterations; i++) {
+            long start = System.nanoTime();
+            manager.writeJSON(objects);
+            write = Math.min(write, System.nanoTime() - start);
+            start = System.nanoTime();
+            if (manager.read().size() != objects.size()) throw new IllegalStateException("Read mismatch");
+            read = Math.min(read, System.nanoTime() - start);
+            start = System.nanoTime();
+            try (Stream<JSONObject> storedObjects = manager.stream()) {
+                if (storedObjects.count() != objects.size()) throw new IllegalStateException("Stream mismatch");
+            }
+            stream = Math.min(stream, System.nanoTime() - start);
+        }
+        File file = new File(manager.getPath());
+        long bytes = file.length();
+        file.delete();
+        System.out.println(String.format(Locale.ROOT, "%-22s %12d %8.2f %10.1f %10.1f %10.1f", label, bytes,
+                (reference == 0) ? 1.0 : (double) bytes / reference, write / 1e6, read / 1e6, stream / 1e6));
+        return bytes;
+    }
+
+    /**
+     * Cree un jeu d'objets representatif (taches planifiees).
+     * @param count nombre d'objets
+     * @return les objets crees
+     */
+    private static List<JSONObject> createObjects(int count) {
+        List<JSONObject> objects = new ArrayList<>(count);
+        for (int i=0; i<count; i++) {
+            JSONObject json = new JSONObject();
+            json.put("id", i);
+            json.put("name", "Task " + i);
+            json.put("command", "backup --source /home/user" + (i % 100) + " --target /mnt/archive");
+            json.put("enabled", (i % 3) != 0);
+            json.put("period", 60000L * (1 + (i % 60)));
+            json.put("priority", (i % 10) / 10.0);
+            objects.add(json);
+        }
+        return objects;
+    }
+}
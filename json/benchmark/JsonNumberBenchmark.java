@@ -0,0 +1,123 @@
+package benchmark;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Mesure la conversion des nombres par le parseur JSON : JSONObject.stringToValue
+ * face a l'ancienne conversion (Double.valueOf / Long.valueOf, aller-retour par
+ * toString et exceptions), puis l'analyse complete d'un document numerique
+ * depuis une String et depuis un Reader.
+ * Usage : java benchmark.JsonNumberBenchmark [nombre de valeurs] [iterations]
+ * @author Johan
+ */
+public class JsonNumberBenchmark {
+
+    /**
+     * Lance le benchmark.
+     * @param args nombre de valeurs et nombre d'iterations (optionnels)
+     */
+    public static void main(String[] args) {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+        int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+        List<String> tokens = createTokens(count);
+        String document = "[" + String.join(",", tokens) + "]";
+        System.out.println(String.format(Locale.ROOT, "%-28s %10s %12s", "configuration", "ms", "values/ms"));
+        long legacy = Long.MAX_VALUE;
+        long current = Long.MAX_VALUE;
+        long parseString = Long.MAX_VALUE;
+        long parseReader = Long.MAX_VALUE;
+        long checksum = 0;
+        for (int i=0; i<iterations; i++) {
+            long start = System.nanoTime();
+            for (String token : tokens) checksum += legacyStringToValue(token).hashCode();
+            legacy = Math.min(legacy, System.nanoTime() - start);
+            start = System.nanoTime();
+            for (String token : tokens) checksum -= JSONObject.stringToValue(token).hashCode();
+            current = Math.min(current, System.nanoTime() - start);
+            start = System.nanoTime();
+            checksum += new JSONArray(document).length();
+            parseString = Math.min(parseString, System.nanoTime() - start);
+            start = System.nanoTime();
+            checksum += new JSONArray(new JSONTokener(new StringReader(document))).length();
+            parseReader = Math.min(parseReader, System.nanoTime() - start);
+        }
+        if (checksum != 2L * iterations * count) throw new IllegalStateException("Conversion mismatch");
+        print("stringToValue (previous)", legacy, count);
+        print("stringToValue", current, count);
+        print("JSONArray(String)", parseString, count);
+        print("JSONArray(Reader)", parseReader, count);
+    }
+
+    /**
+     * Affiche une mesure.
+     * @param label nom de la configuration
+     * @param nanos duree en nanosecondes
+     * @param count nombre de valeurs converties
+     */
+    private static void print(String label, long nanos, int count) {
+        System.out.println(String.format(Locale.ROOT, "%-28s %10.1f %12.0f", label, nanos / 1e6, count / (nanos / 1e6)));
+    }
+
+    /**
+     * Cree un jeu de nombres representatif : entiers, grands entiers, 
+     * decimaux courts et doubles complets.
+     * @param count nombre de valeurs
+     * @return les valeurs sous forme de texte json
+     */
+    private static List<String> createTokens(int count) {
+        Random random = new Random(42);
+        List<String> tokens = new ArrayList<>(count);
+        for (int i=0; i<count; i++) {
+            switch (i % 4) {
+                case 0:
+                    tokens.add(Integer.toString(random.nextInt(100000)));
+                    break;
+                case 1:
+                    tokens.add(Long.toString(random.nextLong()));
+                    break;
+                case 2:
+                    tokens.add(String.format(Locale.ROOT, "%.2f", random.nextDouble() * 1000));
+                    break;
+                default:
+                    tokens.add(Double.toString(random.nextGaussian() * 1e6));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Ancienne conversion de JSONObject.stringToValue, reference du benchmark.
+     * @param string texte a convertir
+     * @return la valeur convertie
+     */
+    private static Object legacyStringToValue(String string) {
+        if ("".equals(string)) return string;
+        if ("true".equalsIgnoreCase(string)) return Boolean.TRUE;
+        if ("false".equalsIgnoreCase(string)) return Boolean.FALSE;
+        if ("null".equalsIgnoreCase(string)) return JSONObject.NULL;
+        char initial = string.charAt(0);
+        if (((initial >= '0') && (initial <= '9')) || (initial == '-')) {
+            try {
+                if ((string.indexOf('.') > -1) || (string.indexOf('e') > -1) || (string.indexOf('E') > -1) || "-0".equals(string)) {
+                    Double d = Double.valueOf(string);
+                    if (!d.isInfinite() && !d.isNaN()) return d;
+                } else {
+                    Long myLong = Long.valueOf(string);
+                    if (string.equals(myLong.toString())) {
+                        if (myLong.longValue() == myLong.intValue()) return Integer.valueOf(myLong.intValue());
+                        return myLong;
+                    }
+                }
+            } catch (Exception ignore) {
+            }
+        }
+        return string;
+    }
+}
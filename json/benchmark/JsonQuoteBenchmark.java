@@ -0,0 +1,165 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import org.json.JSONObject;
+
+/**
+ * Mesure l'echappement des chaines par JSONObject.quote face a l'ancien 
+ * echappement caractere par caractere, sur des chaines representatives : 
+ * cles courtes, libelles, descriptions, chemins, fragments html et textes 
+ * accentues. Les deux echappements sont verifies identiques avant la mesure.
+ * Usage : java benchmark.JsonQuoteBenchmark [nombre de chaines] [iterations]
+ * @author Johan
+ */
+public class JsonQuoteBenchmark {
+
+    /**
+     * Lance le benchmark.
+     * @param args nombre de chaines et nombre d'iterations (optionnels)
+     * @throws IOException exception levee quand l'ecriture a echouee
+     */
+    public static void main(String[] args) throws IOException {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 200000;
+        int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : 10;
+        List<String> strings = createStrings(count);
+        long chars = 0;
+        for (String string : strings) {
+            chars += string.length();
+            StringWriter legacy = new StringWriter();
+            StringWriter current = new StringWriter();
+            legacyQuote(string, legacy);
+            JSONObject.quote(string, current);
+            if (!legacy.toString().equals(current.toString())) throw new IllegalStateException("Quote mismatch: " + legacy);
+        }
+        System.out.println(String.format(Locale.ROOT, "%-20s %10s %12s", "configuration", "ms", "chars/us"));
+        long legacy = Long.MAX_VALUE;
+        long current = Long.MAX_VALUE;
+        long checksum = 0;
+        StringWriter writer = new StringWriter((int) (chars * 2));
+        for (int i=0; i<iterations; i++) {
+            writer.getBuffer().setLength(0);
+            long start = System.nanoTime();
+            for (String string : strings) legacyQuote(string, writer);
+            legacy = Math.min(legacy, System.nanoTime() - start);
+            checksum += writer.getBuffer().length();
+            writer.getBuffer().setLength(0);
+            start = System.nanoTime();
+            for (String string : strings) JSONObject.quote(string, writer);
+            current = Math.min(current, System.nanoTime() - start);
+            checksum -= writer.getBuffer().length();
+        }
+        if (checksum != 0) throw new IllegalStateException("Quote mismatch");
+        print("quote (previous)", legacy, chars);
+        print("quote", current, chars);
+    }
+
+    /**
+     * Affiche une mesure.
+     * @param label nom de la configuration
+     * @param nanos duree en nanosecondes
+     * @param chars nombre de caracteres echappes
+     */
+    private static void print(String label, long nanos, long chars) {
+        System.out.println(String.format(Locale.ROOT, "%-20s %10.1f %12.0f", label, nanos / 1e6, chars / (nanos / 1e3)));
+    }
+
+    /**
+     * Cree un jeu de chaines representatif des fichiers json des gestionnaires.
+     * @param count nombre de chaines
+     * @return les chaines
+     */
+    private static List<String> createStrings(int count) {
+        Random random = new Random(42);
+        String[] words = {"task", "scheduler", "client", "update", "remote", "control", "periodic", "backup", "report", "user"};
+        List<String> strings = new ArrayList<>(count);
+        for (int i=0; i<count; i++) {
+            StringBuilder builder = new StringBuilder();
+            switch (i % 6) {
+                case 0:
+                    builder.append(words[random.nextInt(words.length)]).append(random.nextInt(100));
+                    break;
+                case 1:
+                    builder.append("Task ").append(words[random.nextInt(words.length)]).append(" #").append(i);
+                    break;
+                case 2:
+                    for (int w=0, n=5+random.nextInt(20); w<n; w++) builder.append(words[random.nextInt(words.length)]).append(' ');
+                    builder.append("\"done\".\n");
+                    break;
+                case 3:
+                    builder.append("C:\\Users\\johan\\").append(words[random.nextInt(words.length)]).append("\\data/").append(i).append(".json");
+                    break;
+                case 4:
+                    builder.append("<p>").append(words[random.nextInt(words.length)]).append("</p>\t<br/>");
+                    break;
+                default:
+                    builder.append("T\u00e2che planifi\u00e9e \u00e0 ").append(random.nextInt(24)).append("h \u2014 \u00e9tat : r\u00e9ussi \u2713");
+            }
+            strings.add(builder.toString());
+        }
+        return strings;
+    }
+
+    /**
+     * Ancien echappement de JSONObject.quote, reference du benchmark.
+     * @param string chaine a echapper
+     * @param w destination
+     * @throws IOException exception levee quand l'ecriture a echouee
+     */
+    private static void legacyQuote(String string, Writer w) throws IOException {
+        if (string == null || string.isEmpty()) {
+            w.write("\"\"");
+            return;
+        }
+        char b;
+        char c = 0;
+        String hhhh;
+        int len = string.length();
+        w.write('"');
+        for (int i=0; i<len; i++) {
+            b = c;
+            c = string.charAt(i);
+            switch (c) {
+                case '\\':
+                case '"':
+                    w.write('\\');
+                    w.write(c);
+                    break;
+                case '/':
+                    if (b == '<') w.write('\\');
+                    w.write(c);
+                    break;
+                case '\b':
+                    w.write("\\b");
+                    break;
+                case '\t':
+                    w.write("\\t");
+                    break;
+                case '\n':
+                    w.write("\\n");
+                    break;
+                case '\f':
+                    w.write("\\f");
+                    break;
+                case '\r':
+                    w.write("\\r");
+                    break;
+                default:
+                    if (c < ' ' || (c >= '\u0080' && c < '\u00a0') || (c >= '\u2000' && c < '\u2100')) {
+                        w.write("\\u");
+                        hhhh = Integer.toHexString(c);
+                        w.write("0000", 0, 4 - hhhh.length());
+                        w.write(hhhh);
+                    } else {
+                        w.write(c);
+                    }
+            }
+        }
+        w.write('"');
+    }
+}
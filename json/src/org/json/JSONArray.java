@@ -84,9 +84,10 @@ import java.util.Map;
 public class JSONArray implements Iterable<Object> {
 
     /**
-     * The arrayList where the JSONArray's properties are kept.
+     * The arrayList where the JSONArray's properties are kept. A parsed
+     * array of numbers of one kind is kept in a {@link JSONNumberList}.
      */
-    private final ArrayList<Object> myArrayList;
+    private List<Object> myArrayList;
 
     /**
      * Construct an empty JSONArray.
@@ -135,11 +136,13 @@ public class JSONArray implements Iterable<Object> {
                         throw x.syntaxError("Expected a ',' or ']'");
                     }
                     if (nextChar == ']') {
+                        this.compactNumbers();
                         return;
                     }
                     x.back();
                     break;
                 case ']':
+                    this.compactNumbers();
                     return;
                 default:
                     throw x.syntaxError("Expected a ',' or ']'");
@@ -162,6 +165,88 @@ public class JSONArray implements Iterable<Object> {
         this(new JSONTokener(source));
     }
 
+    /**
+     * Construct a JSONArray from a source JSON text whose objects are lazy,
+     * as by {@link JSONObject#parseLazily(String)}: the keys of each object
+     * are read, and its values are decoded the first time they are accessed.
+     * Other elements are decoded at once.
+     *
+     * @param source
+     *            A string that begins with <code>[</code>&nbsp;<small>(left
+     *            bracket)</small> and ends with <code>]</code>
+     *            &nbsp;<small>(right bracket)</small>.
+     * @return A JSONArray of lazy JSONObjects.
+     * @throws JSONException
+     *             If there is a syntax error outside of the values of the
+     *             objects.
+     */
+    public static JSONArray parseLazily(String source) throws JSONException {
+        return parseLazily(new JSONTokener(source));
+    }
+
+    /**
+     * Construct a JSONArray whose objects are lazy from an in-memory
+     * JSONTokener, positioned before the array.
+     *
+     * @param x
+     *            A JSONTokener on a String, a char array or a CharSequence.
+     * @return A JSONArray of lazy JSONObjects.
+     * @throws JSONException
+     *             If there is a syntax error outside of the values of the
+     *             objects.
+     */
+    static JSONArray parseLazily(JSONTokener x) throws JSONException {
+        JSONArray ja = new JSONArray();
+        if (x.nextClean() != '[') {
+            throw x.syntaxError("A JSONArray text must start with '['");
+        }
+
+        char nextChar = x.nextClean();
+        if (nextChar == 0) {
+            // array is unclosed. No ']' found, instead EOF
+            throw x.syntaxError("Expected a ',' or ']'");
+        }
+        if (nextChar != ']') {
+            x.back();
+            for (;;) {
+                char c = x.nextClean();
+                x.back();
+                if (c == ',') {
+                    ja.myArrayList.add(JSONObject.NULL);
+                } else if (c == '{') {
+                    ja.myArrayList.add(JSONObject.parseLazily(x));
+                } else if (c == '[') {
+                    ja.myArrayList.add(parseLazily(x));
+                } else {
+                    ja.myArrayList.add(x.nextValue());
+                }
+                switch (x.nextClean()) {
+                case 0:
+                    // array is unclosed. No ']' found, instead EOF
+                    throw x.syntaxError("Expected a ',' or ']'");
+                case ',':
+                    nextChar = x.nextClean();
+                    if (nextChar == 0) {
+                        // array is unclosed. No ']' found, instead EOF
+                        throw x.syntaxError("Expected a ',' or ']'");
+                    }
+                    if (nextChar == ']') {
+                        ja.compactNumbers();
+                        return ja;
+                    }
+                    x.back();
+                    break;
+                case ']':
+                    ja.compactNumbers();
+                    return ja;
+                default:
+                    throw x.syntaxError("Expected a ',' or ']'");
+                }
+            }
+        }
+        return ja;
+    }
+
     /**
      * Construct a JSONArray from a Collection.
      *
@@ -195,7 +280,7 @@ public class JSONArray implements Iterable<Object> {
         this();
         if (array.getClass().isArray()) {
             int length = Array.getLength(array);
-            this.myArrayList.ensureCapacity(length);
+            ((ArrayList<Object>) this.myArrayList).ensureCapacity(length);
             for (int i = 0; i < length; i += 1) {
                 this.put(JSONObject.wrap(Array.get(array, i)));
             }
@@ -263,6 +348,10 @@ public class JSONArray implements Iterable<Object> {
      *             to a number.
      */
     public double getDouble(int index) throws JSONException {
+        final JSONNumberList numbers = this.numbers();
+        if (numbers != null && index >= 0 && index < numbers.size()) {
+            return numbers.doubleValue(index);
+        }
         final Object object = this.get(index);
         if(object instanceof Number) {
             return ((Number)object).doubleValue();
@@ -395,6 +484,10 @@ public class JSONArray implements Iterable<Object> {
      *             If the key is not found or if the value is not a number.
      */
     public int getInt(int index) throws JSONException {
+        final JSONNumberList numbers = this.numbers();
+        if (numbers != null && index >= 0 && index < numbers.size()) {
+            return numbers.intValue(index);
+        }
         final Object object = this.get(index);
         if(object instanceof Number) {
             return ((Number)object).intValue();
@@ -453,6 +546,10 @@ public class JSONArray implements Iterable<Object> {
      *             to a number.
      */
     public long getLong(int index) throws JSONException {
+        final JSONNumberList numbers = this.numbers();
+        if (numbers != null && index >= 0 && index < numbers.size()) {
+            return numbers.longValue(index);
+        }
         final Object object = this.get(index);
         if(object instanceof Number) {
             return ((Number)object).longValue();
@@ -597,6 +694,10 @@ public class JSONArray implements Iterable<Object> {
      * @return The value.
      */
     public double optDouble(int index, double defaultValue) {
+        final JSONNumberList numbers = this.numbers();
+        if (numbers != null && index >= 0 && index < numbers.size()) {
+            return numbers.doubleValue(index);
+        }
         final Number val = this.optNumber(index, null);
         if (val == null) {
             return defaultValue;
@@ -669,6 +770,10 @@ public class JSONArray implements Iterable<Object> {
      * @return The value.
      */
     public int optInt(int index, int defaultValue) {
+        final JSONNumberList numbers = this.numbers();
+        if (numbers != null && index >= 0 && index < numbers.size()) {
+            return numbers.intValue(index);
+        }
         final Number val = this.optNumber(index, null);
         if (val == null) {
             return defaultValue;
@@ -812,6 +917,10 @@ public class JSONArray implements Iterable<Object> {
      * @return The value.
      */
     public long optLong(int index, long defaultValue) {
+        final JSONNumberList numbers = this.numbers();
+        if (numbers != null && index >= 0 && index < numbers.size()) {
+            return numbers.longValue(index);
+        }
         final Number val = this.optNumber(index, null);
         if (val == null) {
             return defaultValue;
@@ -1151,7 +1260,9 @@ public class JSONArray implements Iterable<Object> {
         }
         // if we are inserting past the length, we want to grow the array all at once
         // instead of incrementally.
-        this.myArrayList.ensureCapacity(index + 1);
+        if (this.myArrayList instanceof ArrayList) {
+            ((ArrayList<Object>) this.myArrayList).ensureCapacity(index + 1);
+        }
         while (index != this.length()) {
             // we don't need to test validity of NULL objects
             this.myArrayList.add(JSONObject.NULL);
@@ -1476,6 +1587,73 @@ public class JSONArray implements Iterable<Object> {
         return results;
     }
 
+    /**
+     * Returns the elements of this array as ints. An array of numbers parsed
+     * from a JSON text is copied from its primitive storage, without boxing.
+     *
+     * @return an int array holding the elements, converted like
+     *         {@link #getInt(int)}
+     * @throws JSONException
+     *             If an element is not a number and cannot be converted.
+     */
+    public int[] toIntArray() throws JSONException {
+        final JSONNumberList numbers = this.numbers();
+        if (numbers != null) {
+            return numbers.toIntArray();
+        }
+        final int length = this.length();
+        int[] values = new int[length];
+        for (int i = 0; i < length; i += 1) {
+            values[i] = this.getInt(i);
+        }
+        return values;
+    }
+
+    /**
+     * Returns the elements of this array as longs. An array of numbers parsed
+     * from a JSON text is copied from its primitive storage, without boxing.
+     *
+     * @return a long array holding the elements, converted like
+     *         {@link #getLong(int)}
+     * @throws JSONException
+     *             If an element is not a number and cannot be converted.
+     */
+    public long[] toLongArray() throws JSONException {
+        final JSONNumberList numbers = this.numbers();
+        if (numbers != null) {
+            return numbers.toLongArray();
+        }
+        final int length = this.length();
+        long[] values = new long[length];
+        for (int i = 0; i < length; i += 1) {
+            values[i] = this.getLong(i);
+        }
+        return values;
+    }
+
+    /**
+     * Returns the elements of this array as doubles. An array of numbers
+     * parsed from a JSON text is copied from its primitive storage, without
+     * boxing.
+     *
+     * @return a double array holding the elements, converted like
+     *         {@link #getDouble(int)}
+     * @throws JSONException
+     *             If an element is not a number and cannot be converted.
+     */
+    public double[] toDoubleArray() throws JSONException {
+        final JSONNumberList numbers = this.numbers();
+        if (numbers != null) {
+            return numbers.toDoubleArray();
+        }
+        final int length = this.length();
+        double[] values = new double[length];
+        for (int i = 0; i < length; i += 1) {
+            values[i] = this.getDouble(i);
+        }
+        return values;
+    }
+
     /**
      * Check if JSONArray is empty.
      *
@@ -1485,6 +1663,31 @@ public class JSONArray implements Iterable<Object> {
         return this.myArrayList.isEmpty();
     }
     
+    /**
+     * Keep the parsed elements in a primitive array if they are all numbers
+     * of one kind.
+     */
+    private void compactNumbers() {
+        if (this.myArrayList instanceof ArrayList) {
+            this.myArrayList = JSONNumberList.compact((ArrayList<Object>) this.myArrayList);
+        }
+    }
+
+    /**
+     * Get the primitive storage of the elements.
+     *
+     * @return the elements, or null if they are boxed.
+     */
+    JSONNumberList numbers() {
+        if (this.myArrayList instanceof JSONNumberList) {
+            JSONNumberList numbers = (JSONNumberList) this.myArrayList;
+            if (numbers.kind() != JSONNumberList.BOXED) {
+                return numbers;
+            }
+        }
+        return null;
+    }
+
     /**
      * Create a new JSONException in a common format for incorrect conversions.
      * @param idx index of the item
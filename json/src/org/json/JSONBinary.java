@@ -0,0 +1,122 @@
+package org.json;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * JSONBinary describes a compact binary encoding of JSON values, used where
+ * the text does not need to be human readable (internal persistence, IPC).
+ * <p>
+ * A stream starts with the four bytes <code>JSNB</code> and a version byte,
+ * followed by any number of values. Each value starts with a one byte tag:
+ * <ul>
+ * <li>null, false and true are a single tag,</li>
+ * <li>integers are zigzag varints, doubles and floats are IEEE 754 big endian,</li>
+ * <li>BigInteger and BigDecimal are stored as two's complement bytes (and a
+ * scale for BigDecimal),</li>
+ * <li>strings are a varint UTF-8 length and the UTF-8 bytes. Every short
+ * string (keys and values up to {@value #MAX_REFERENCED_LENGTH} bytes) gets
+ * the next index of the string table of the stream, and its next occurrences
+ * are written as a back-reference to that index,</li>
+ * <li>objects and arrays are a varint element count followed by the
+ * elements, an object element being a string key and a value. Streamed
+ * objects and arrays have no count and end with an END tag.</li>
+ * </ul>
+ * Values decode to the types produced by the text parser: JSONObject,
+ * JSONArray, String, Boolean, Integer or Long, Double, BigInteger,
+ * BigDecimal and JSONObject.NULL, floats staying Float.
+ * @author JSON.org
+ * @version 2026-10-18
+ */
+public final class JSONBinary {
+    /** Maximum UTF-8 length of the strings added to the string table. */
+    public static final int MAX_REFERENCED_LENGTH = 64;
+    /** Maximum size of the string table of a stream. */
+    public static final int MAX_REFERENCES = 1 << 16;
+
+    static final byte[] MAGIC = {'J', 'S', 'N', 'B'};
+    static final int VERSION = 1;
+
+    static final int NULL = 0x00;
+    static final int FALSE = 0x01;
+    static final int TRUE = 0x02;
+    static final int INTEGER = 0x03;
+    static final int DOUBLE = 0x04;
+    static final int FLOAT = 0x05;
+    static final int BIG_INTEGER = 0x06;
+    static final int BIG_DECIMAL = 0x07;
+    static final int STRING = 0x08;
+    static final int STRING_REFERENCE = 0x09;
+    static final int OBJECT = 0x0A;
+    static final int ARRAY = 0x0B;
+    static final int OBJECT_STREAM = 0x0C;
+    static final int ARRAY_STREAM = 0x0D;
+    static final int END = 0x0E;
+
+    private JSONBinary() {
+    }
+
+    /**
+     * Encode a value, with the stream header.
+     * @param value a JSONObject, JSONArray, String, Number, Boolean or
+     *  JSONObject.NULL, or a value accepted by {@link JSONObject#wrap(Object)}.
+     * @return the binary encoding of the value.
+     * @throws JSONException if the value cannot be encoded.
+     */
+    public static byte[] encode(Object value) throws JSONException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new JSONBinaryWriter(out).value(value).flush();
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode the first value of a binary encoding.
+     * @param bytes the binary encoding, starting with the stream header.
+     * @return the decoded value.
+     * @throws JSONException if the bytes are not a valid binary encoding.
+     */
+    public static Object decode(byte[] bytes) throws JSONException {
+        return new JSONBinaryReader(new ByteArrayInputStream(bytes)).nextValue();
+    }
+
+    /**
+     * Test if the given bytes start with the binary stream header.
+     * @param bytes the first bytes of a stream or file.
+     * @return true if the bytes start with the header of a binary encoding.
+     */
+    public static boolean isBinary(byte[] bytes) {
+        if (bytes.length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (bytes[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
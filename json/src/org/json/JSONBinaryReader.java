@@ -0,0 +1,492 @@
+package org.json;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * JSONBinaryReader reads values encoded by {@link JSONBinaryWriter}. The
+ * stream header is checked by the constructor.
+ * <p>
+ * <code>nextValue</code> decodes a complete value. A large document can be
+ * read piece by piece: <code>beginObject</code> and <code>beginArray</code>
+ * enter a container, <code>more</code> tells whether it has another element,
+ * <code>nextKey</code> reads the key of an object element and
+ * <code>skipValue</code> passes over a value without building it. For
+ * example, <pre>
+ * JSONBinaryReader reader = new JSONBinaryReader(in);
+ * reader.beginObject();
+ * while (reader.more()) {
+ *     if ("Objects".equals(reader.nextKey())) {
+ *         reader.beginArray();
+ *         while (reader.more()) {
+ *             JSONObject element = (JSONObject) reader.nextValue();
+ *         }
+ *         reader.endArray();
+ *     } else {
+ *         reader.skipValue();
+ *     }
+ * }
+ * reader.endObject();</pre>
+ * The reader buffers its input, and does not close the underlying stream.
+ * @author JSON.org
+ * @version 2026-10-18
+ */
+public class JSONBinaryReader {
+    private static final int BUFFER_SIZE = 8192;
+
+    /** The source of the encoding. */
+    private final InputStream in;
+
+    /** The string table. */
+    private final ArrayList<String> strings = new ArrayList<String>();
+
+    /** The buffered bytes. */
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    /** The position of the next byte in the buffer. */
+    private int position = 0;
+
+    /** The number of bytes in the buffer. */
+    private int limit = 0;
+
+    /**
+     * The remaining elements of each entered container, -1 for a streamed
+     * container.
+     */
+    private long[] remaining = new long[16];
+
+    /** Whether each entered container is an object. */
+    private boolean[] objects = new boolean[16];
+
+    /** The number of entered containers. */
+    private int depth = 0;
+
+    /**
+     * Make a fresh JSONBinaryReader and check the stream header.
+     * @param in the source of the encoding.
+     * @throws JSONException if the stream does not start with the header of
+     *  a binary encoding of a supported version.
+     */
+    public JSONBinaryReader(InputStream in) throws JSONException {
+        this.in = in;
+        for (int i = 0; i < JSONBinary.MAGIC.length; i++) {
+            if (this.readByte() != JSONBinary.MAGIC[i]) {
+                throw new JSONException("Not a binary JSON stream.");
+            }
+        }
+        int version = this.readByte();
+        if (version != JSONBinary.VERSION) {
+            throw new JSONException("Unsupported binary JSON version " + version + ".");
+        }
+    }
+
+    /**
+     * Determine if the current container has another element, or, outside
+     * of any container, if the stream has another value.
+     * @return true if another element or value can be read.
+     * @throws JSONException if the stream cannot be read.
+     */
+    public boolean more() throws JSONException {
+        if (this.depth == 0) {
+            return this.peekByte() >= 0;
+        }
+        long count = this.remaining[this.depth - 1];
+        if (count >= 0) {
+            return count > 0;
+        }
+        int next = this.peekByte();
+        if (next < 0) {
+            throw new JSONException("Unexpected end of binary JSON stream.");
+        }
+        return next != JSONBinary.END;
+    }
+
+    /**
+     * Enter the object at the current position.
+     * @throws JSONException if the next value is not an object.
+     */
+    public void beginObject() throws JSONException {
+        this.begin(JSONBinary.OBJECT, JSONBinary.OBJECT_STREAM, true);
+    }
+
+    /**
+     * Pass over the remaining elements of the current object and leave it.
+     * @throws JSONException if the stream is not valid.
+     */
+    public void endObject() throws JSONException {
+        while (this.more()) {
+            this.nextKey();
+            this.skipValue();
+        }
+        this.end();
+    }
+
+    /**
+     * Enter the array at the current position.
+     * @throws JSONException if the next value is not an array.
+     */
+    public void beginArray() throws JSONException {
+        this.begin(JSONBinary.ARRAY, JSONBinary.ARRAY_STREAM, false);
+    }
+
+    /**
+     * Pass over the remaining elements of the current array and leave it.
+     * @throws JSONException if the stream is not valid.
+     */
+    public void endArray() throws JSONException {
+        while (this.more()) {
+            this.skipValue();
+        }
+        this.end();
+    }
+
+    /**
+     * Read the key of the next element of the current object. The value must
+     * then be read or skipped.
+     * @return the key.
+     * @throws JSONException if the stream is not valid.
+     */
+    public String nextKey() throws JSONException {
+        if (this.depth == 0 || !this.objects[this.depth - 1]) {
+            throw new JSONException("Not in a JSONObject.");
+        }
+        this.consume();
+        int tag = this.readByte();
+        if (tag != JSONBinary.STRING && tag != JSONBinary.STRING_REFERENCE) {
+            throw new JSONException("Expected a key.");
+        }
+        return this.readString(tag);
+    }
+
+    /**
+     * Decode the next value.
+     * @return a JSONObject, JSONArray, String, Boolean, Integer, Long, Double,
+     *  Float, BigInteger, BigDecimal or JSONObject.NULL.
+     * @throws JSONException if the stream is not valid.
+     */
+    public Object nextValue() throws JSONException {
+        this.consumeValue();
+        return this.readValue(this.readByte());
+    }
+
+    /**
+     * Pass over the next value without building it.
+     * @throws JSONException if the stream is not valid.
+     */
+    public void skipValue() throws JSONException {
+        this.consumeValue();
+        int tag = this.readByte();
+        switch (tag) {
+        case JSONBinary.OBJECT:
+        case JSONBinary.OBJECT_STREAM:
+            this.enter(tag == JSONBinary.OBJECT ? this.readVarint() : -1, true);
+            this.endObject();
+            break;
+        case JSONBinary.ARRAY:
+        case JSONBinary.ARRAY_STREAM:
+            this.enter(tag == JSONBinary.ARRAY ? this.readVarint() : -1, false);
+            this.endArray();
+            break;
+        case JSONBinary.STRING:
+        case JSONBinary.STRING_REFERENCE:
+            // short strings still enter the string table
+            this.readString(tag);
+            break;
+        case JSONBinary.BIG_INTEGER:
+            this.skip(this.readLength());
+            break;
+        case JSONBinary.BIG_DECIMAL:
+            this.readVarint();
+            this.skip(this.readLength());
+            break;
+        default:
+            this.readValue(tag);
+        }
+    }
+
+    private Object readValue(int tag) throws JSONException {
+        switch (tag) {
+        case JSONBinary.NULL:
+            return JSONObject.NULL;
+        case JSONBinary.FALSE:
+            return Boolean.FALSE;
+        case JSONBinary.TRUE:
+            return Boolean.TRUE;
+        case JSONBinary.INTEGER:
+            long value = this.readLong();
+            if (value == (int) value) {
+                return Integer.valueOf((int) value);
+            }
+            return Long.valueOf(value);
+        case JSONBinary.DOUBLE:
+            return Double.valueOf(Double.longBitsToDouble(this.readRaw(8)));
+        case JSONBinary.FLOAT:
+            return Float.valueOf(Float.intBitsToFloat((int) this.readRaw(4)));
+        case JSONBinary.BIG_INTEGER:
+            return new BigInteger(this.readBytes(this.readLength()));
+        case JSONBinary.BIG_DECIMAL:
+            int scale = (int) this.readLong();
+            return new BigDecimal(new BigInteger(this.readBytes(this.readLength())), scale);
+        case JSONBinary.STRING:
+        case JSONBinary.STRING_REFERENCE:
+            return this.readString(tag);
+        case JSONBinary.OBJECT:
+        case JSONBinary.OBJECT_STREAM:
+            this.enter(tag == JSONBinary.OBJECT ? this.readVarint() : -1, true);
+            JSONObject object = new JSONObject();
+            while (this.more()) {
+                String key = this.nextKey();
+                object.put(key, this.readValue(this.readByte()));
+            }
+            this.end();
+            return object;
+        case JSONBinary.ARRAY:
+        case JSONBinary.ARRAY_STREAM:
+            this.enter(tag == JSONBinary.ARRAY ? this.readVarint() : -1, false);
+            JSONArray array = new JSONArray();
+            while (this.more()) {
+                this.consume();
+                array.put(this.readValue(this.readByte()));
+            }
+            this.end();
+            return array;
+        case -1:
+            throw new JSONException("Unexpected end of binary JSON stream.");
+        default:
+            throw new JSONException("Unknown binary JSON tag " + tag + ".");
+        }
+    }
+
+    private void begin(int tag, int streamTag, boolean object) throws JSONException {
+        this.consumeValue();
+        int next = this.readByte();
+        if (next == tag) {
+            this.enter(this.readVarint(), object);
+        } else if (next == streamTag) {
+            this.enter(-1, object);
+        } else {
+            throw new JSONException(object ? "Expected a JSONObject." : "Expected a JSONArray.");
+        }
+    }
+
+    private void enter(long count, boolean object) {
+        if (this.depth == this.remaining.length) {
+            this.remaining = Arrays.copyOf(this.remaining, this.depth * 2);
+            this.objects = Arrays.copyOf(this.objects, this.depth * 2);
+        }
+        this.objects[this.depth] = object;
+        this.remaining[this.depth++] = count;
+    }
+
+    private void end() throws JSONException {
+        if (this.depth == 0) {
+            throw new JSONException("Not in a container.");
+        }
+        if (this.remaining[--this.depth] < 0 && this.readByte() != JSONBinary.END) {
+            throw new JSONException("Expected the end of a streamed container.");
+        }
+    }
+
+    /**
+     * Count a value about to be read, if it is an element of an array that
+     * is not streamed. The values of an object are counted by their key.
+     */
+    private void consumeValue() {
+        if (this.depth > 0 && !this.objects[this.depth - 1]) {
+            this.consume();
+        }
+    }
+
+    /**
+     * Count the element about to be read in the current container, if it is
+     * not streamed.
+     */
+    private void consume() {
+        if (this.depth == 0 || this.remaining[this.depth - 1] < 0) {
+            return;
+        }
+        if (this.remaining[this.depth - 1] == 0) {
+            throw new JSONException("No more elements in the container.");
+        }
+        this.remaining[this.depth - 1]--;
+    }
+
+    private String readString(int tag) throws JSONException {
+        if (tag == JSONBinary.STRING_REFERENCE) {
+            long index = this.readVarint();
+            if (index >= this.strings.size()) {
+                throw new JSONException("Invalid string reference " + index + ".");
+            }
+            return this.strings.get((int) index);
+        }
+        int length = this.readLength();
+        String string;
+        if (length <= BUFFER_SIZE) {
+            this.require(length);
+            string = new String(this.buffer, this.position, length, StandardCharsets.UTF_8);
+            this.position += length;
+        } else {
+            string = new String(this.readBytes(length), StandardCharsets.UTF_8);
+        }
+        if (length <= JSONBinary.MAX_REFERENCED_LENGTH
+                && this.strings.size() < JSONBinary.MAX_REFERENCES) {
+            this.strings.add(string);
+        }
+        return string;
+    }
+
+    private int readLength() throws JSONException {
+        long length = this.readVarint();
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new JSONException("Invalid binary JSON length " + length + ".");
+        }
+        return (int) length;
+    }
+
+    private byte[] readBytes(int length) throws JSONException {
+        byte[] bytes = new byte[length];
+        int copied = Math.min(length, this.limit - this.position);
+        System.arraycopy(this.buffer, this.position, bytes, 0, copied);
+        this.position += copied;
+        try {
+            while (copied < length) {
+                int read = this.in.read(bytes, copied, length - copied);
+                if (read < 0) {
+                    throw new JSONException("Unexpected end of binary JSON stream.");
+                }
+                copied += read;
+            }
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return bytes;
+    }
+
+    private void skip(int length) throws JSONException {
+        while (length > 0) {
+            this.require(1);
+            int skipped = Math.min(length, this.limit - this.position);
+            this.position += skipped;
+            length -= skipped;
+        }
+    }
+
+    private long readLong() throws JSONException {
+        long value = this.readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readVarint() throws JSONException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = this.readByte();
+            if (b < 0) {
+                throw new JSONException("Unexpected end of binary JSON stream.");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new JSONException("Malformed binary JSON varint.");
+    }
+
+    private long readRaw(int length) throws JSONException {
+        this.require(length);
+        long bits = 0;
+        for (int i = 0; i < length; i++) {
+            bits = (bits << 8) | (this.buffer[this.position++] & 0xFF);
+        }
+        return bits;
+    }
+
+    /**
+     * Read a byte.
+     * @return the byte, or -1 at the end of the stream.
+     * @throws JSONException if the stream cannot be read.
+     */
+    private int readByte() throws JSONException {
+        if (this.position == this.limit && !this.fill()) {
+            return -1;
+        }
+        return this.buffer[this.position++] & 0xFF;
+    }
+
+    private int peekByte() throws JSONException {
+        if (this.position == this.limit && !this.fill()) {
+            return -1;
+        }
+        return this.buffer[this.position] & 0xFF;
+    }
+
+    /**
+     * Make the given number of bytes available in the buffer.
+     * @param length the number of bytes, at most the buffer size.
+     * @throws JSONException if the stream ends before.
+     */
+    private void require(int length) throws JSONException {
+        if (this.limit - this.position >= length) {
+            return;
+        }
+        System.arraycopy(this.buffer, this.position, this.buffer, 0, this.limit - this.position);
+        this.limit -= this.position;
+        this.position = 0;
+        try {
+            while (this.limit < length) {
+                int read = this.in.read(this.buffer, this.limit, BUFFER_SIZE - this.limit);
+                if (read < 0) {
+                    throw new JSONException("Unexpected end of binary JSON stream.");
+                }
+                this.limit += read;
+            }
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+    }
+
+    private boolean fill() throws JSONException {
+        try {
+            int read;
+            do {
+                read = this.in.read(this.buffer, 0, BUFFER_SIZE);
+            } while (read == 0);
+            if (read < 0) {
+                return false;
+            }
+            this.position = 0;
+            this.limit = read;
+            return true;
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+/**
+ * JSONBinary, JSONBinaryWriter and JSONBinaryReader tests.
+ * @author JSON.org
+ * @version 2026-10-18
+ */
+public class JSONBinaryTest {
+
+    /**
+     * Every value type decodes to the type and value that was encoded.
+     */
+    @Test
+    public void testRoundTrip() {
+        StringBuilder longString = new StringBuilder();
+        for (int i = 0; i < 100; i += 1) {
+            longString.append("\u00e9\u4e2d\uD83D\uDE00");
+        }
+        JSONObject document = new JSONObject()
+                .put("null", JSONObject.NULL)
+                .put("true", true)
+                .put("false", false)
+                .put("int", -123456)
+                .put("long", 1234567890123L)
+                .put("minLong", Long.MIN_VALUE)
+                .put("double", 0.1)
+                .put("negativeZero", -0.0)
+                .put("float", 1.5f)
+                .put("bigInteger", new BigInteger("123456789012345678901234567890"))
+                .put("bigDecimal", new BigDecimal("-1234567890.12345678901234567890"))
+                .put("empty", "")
+                .put("unicode", "\u00e9\u4e2d\uD83D\uDE00\u0000")
+                .put("long string", longString.toString())
+                .put("emptyObject", new JSONObject())
+                .put("emptyArray", new JSONArray())
+                .put("nested", new JSONObject().put("array", new JSONArray().put(1).put("a").put(new JSONArray().put(JSONObject.NULL))));
+        byte[] bytes = JSONBinary.encode(document);
+        assertTrue(JSONBinary.isBinary(bytes));
+        JSONObject decoded = (JSONObject) JSONBinary.decode(bytes);
+        assertTrue(document.similar(decoded));
+        assertEquals(document.keySet(), decoded.keySet());
+        for (String key : document.keySet()) {
+            assertEquals(key, document.get(key).getClass(), decoded.get(key).getClass());
+        }
+        assertEquals(Double.valueOf(-0.0), decoded.get("negativeZero"));
+        assertEquals(Long.MIN_VALUE, decoded.get("minLong"));
+        assertEquals("hello", JSONBinary.decode(JSONBinary.encode("hello")));
+        assertFalse(JSONBinary.isBinary(document.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Repeated short strings are written once and then referenced, including
+     * past the size of the string table.
+     */
+    @Test
+    public void testStringReferences() {
+        JSONArray array = new JSONArray();
+        for (int i = 0; i < 1000; i += 1) {
+            array.put(new JSONObject().put("name", "value").put("id", i));
+        }
+        byte[] bytes = JSONBinary.encode(array);
+        // written inline, the three strings alone would take a tag, a length and their bytes each time
+        assertTrue(bytes.length < 1000 * (6 + 7 + 4));
+        assertTrue(array.similar(JSONBinary.decode(bytes)));
+
+        JSONArray strings = new JSONArray();
+        for (int i = 0; i < JSONBinary.MAX_REFERENCES + 100; i += 1) {
+            strings.put("s" + i);
+        }
+        for (int i = 0; i < 200; i += 1) {
+            strings.put("s" + i);
+            strings.put("s" + (JSONBinary.MAX_REFERENCES + i % 100));
+        }
+        assertTrue(strings.similar(JSONBinary.decode(JSONBinary.encode(strings))));
+    }
+
+    /**
+     * Streamed containers, without element count, are read by nextValue and
+     * piece by piece, and skipValue passes over any value.
+     */
+    @Test
+    public void testStreamedContainers() {
+        JSONObject first = new JSONObject().put("id", 1).put("tags", new JSONArray().put("a").put("b"));
+        JSONObject second = new JSONObject().put("id", 2).put("tags", new JSONArray());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new JSONBinaryWriter(out)
+                .object()
+                    .key("skipped")
+                    .array()
+                        .value(first)
+                        .object().key("id").value(3).endObject()
+                    .endArray()
+                    .key("Objects")
+                    .array()
+                        .value(first)
+                        .value(second)
+                    .endArray()
+                    .key("count")
+                    .value(2)
+                .endObject()
+                .flush();
+        byte[] bytes = out.toByteArray();
+
+        JSONObject expected = new JSONObject()
+                .put("skipped", new JSONArray().put(first).put(new JSONObject().put("id", 3)))
+                .put("Objects", new JSONArray().put(first).put(second))
+                .put("count", 2);
+        assertTrue(expected.similar(JSONBinary.decode(bytes)));
+
+        JSONBinaryReader reader = new JSONBinaryReader(new ByteArrayInputStream(bytes));
+        JSONArray objects = new JSONArray();
+        int count = 0;
+        reader.beginObject();
+        while (reader.more()) {
+            String key = reader.nextKey();
+            if ("Objects".equals(key)) {
+                reader.beginArray();
+                while (reader.more()) {
+                    objects.put(reader.nextValue());
+                }
+                reader.endArray();
+            } else if ("count".equals(key)) {
+                count = ((Number) reader.nextValue()).intValue();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        assertTrue(new JSONArray().put(first).put(second).similar(objects));
+        assertEquals(2, count);
+    }
+}
@@ -0,0 +1,317 @@
+package org.json;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JSONBinaryWriter writes values in the binary encoding described by
+ * {@link JSONBinary}. The stream header is written by the constructor.
+ * <p>
+ * Complete values are written by <code>value</code>. Large documents can be
+ * streamed with <code>object</code>/<code>endObject</code> and
+ * <code>array</code>/<code>endArray</code>, which write containers without
+ * an element count: inside a streamed object the caller alternates
+ * <code>key</code> and <code>value</code>. For example, <pre>
+ * new JSONBinaryWriter(out)
+ *     .object()
+ *         .key("Objects")
+ *         .array()
+ *             .value(first)
+ *             .value(second)
+ *         .endArray()
+ *     .endObject()
+ *     .flush();</pre>
+ * The writer buffers its output: <code>flush</code> must be called once the
+ * values are written. The underlying stream is not closed.
+ * @author JSON.org
+ * @version 2026-10-18
+ */
+public class JSONBinaryWriter {
+    private static final int BUFFER_SIZE = 8192;
+
+    /** The destination of the encoding. */
+    private final OutputStream out;
+
+    /** The index of each string of the string table. */
+    private final Map<String, Integer> references = new HashMap<String, Integer>();
+
+    /** The pending bytes. */
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    /** The number of pending bytes. */
+    private int position = 0;
+
+    /**
+     * Make a fresh JSONBinaryWriter and write the stream header.
+     * @param out the destination of the encoding.
+     */
+    public JSONBinaryWriter(OutputStream out) {
+        this.out = out;
+        System.arraycopy(JSONBinary.MAGIC, 0, this.buffer, 0, JSONBinary.MAGIC.length);
+        this.buffer[JSONBinary.MAGIC.length] = (byte) JSONBinary.VERSION;
+        this.position = JSONBinary.MAGIC.length + 1;
+    }
+
+    /**
+     * Begin a streamed object, ended by {@link #endObject()}.
+     * @return this
+     * @throws JSONException if the stream cannot be written.
+     */
+    public JSONBinaryWriter object() throws JSONException {
+        return this.tag(JSONBinary.OBJECT_STREAM);
+    }
+
+    /**
+     * End a streamed object.
+     * @return this
+     * @throws JSONException if the stream cannot be written.
+     */
+    public JSONBinaryWriter endObject() throws JSONException {
+        return this.tag(JSONBinary.END);
+    }
+
+    /**
+     * Begin a streamed array, ended by {@link #endArray()}.
+     * @return this
+     * @throws JSONException if the stream cannot be written.
+     */
+    public JSONBinaryWriter array() throws JSONException {
+        return this.tag(JSONBinary.ARRAY_STREAM);
+    }
+
+    /**
+     * End a streamed array.
+     * @return this
+     * @throws JSONException if the stream cannot be written.
+     */
+    public JSONBinaryWriter endArray() throws JSONException {
+        return this.tag(JSONBinary.END);
+    }
+
+    /**
+     * Write a key of a streamed object. The next call must write its value.
+     * @param key the key, not null.
+     * @return this
+     * @throws JSONException if the key is null or the stream cannot be written.
+     */
+    public JSONBinaryWriter key(String key) throws JSONException {
+        if (key == null) {
+            throw new JSONException("Null key.");
+        }
+        try {
+            this.writeString(key);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    /**
+     * Write a complete value.
+     * @param value a JSONObject, JSONArray, String, Number, Boolean,
+     *  JSONObject.NULL or null, or a value accepted by
+     *  {@link JSONObject#wrap(Object)}.
+     * @return this
+     * @throws JSONException if the value is a non-finite number or the stream
+     *  cannot be written.
+     */
+    public JSONBinaryWriter value(Object value) throws JSONException {
+        try {
+            this.writeValue(value);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    /**
+     * Write the pending bytes and flush the underlying stream.
+     * @throws JSONException if the stream cannot be written.
+     */
+    public void flush() throws JSONException {
+        try {
+            this.drain();
+            this.out.flush();
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+    }
+
+    private JSONBinaryWriter tag(int tag) throws JSONException {
+        try {
+            this.writeByte(tag);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null || JSONObject.NULL.equals(value)) {
+            this.writeByte(JSONBinary.NULL);
+        } else if (value instanceof String) {
+            this.writeString((String) value);
+        } else if (value instanceof Boolean) {
+            this.writeByte(((Boolean) value).booleanValue() ? JSONBinary.TRUE : JSONBinary.FALSE);
+        } else if (value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            this.writeByte(JSONBinary.INTEGER);
+            this.writeLong(((Number) value).longValue());
+        } else if (value instanceof Double) {
+            double d = ((Double) value).doubleValue();
+            JSONObject.testValidity(value);
+            this.writeByte(JSONBinary.DOUBLE);
+            this.writeRaw(Double.doubleToLongBits(d), 8);
+        } else if (value instanceof Float) {
+            JSONObject.testValidity(value);
+            this.writeByte(JSONBinary.FLOAT);
+            this.writeRaw(Float.floatToIntBits(((Float) value).floatValue()), 4);
+        } else if (value instanceof BigInteger) {
+            this.writeByte(JSONBinary.BIG_INTEGER);
+            this.writeBytes(((BigInteger) value).toByteArray());
+        } else if (value instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) value;
+            this.writeByte(JSONBinary.BIG_DECIMAL);
+            this.writeLong(decimal.scale());
+            this.writeBytes(decimal.unscaledValue().toByteArray());
+        } else if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            this.writeByte(JSONBinary.OBJECT);
+            this.writeVarint(object.length());
+            for (Map.Entry<String, Object> entry : object.entrySet()) {
+                this.writeString(entry.getKey());
+                this.writeValue(entry.getValue());
+            }
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            this.writeByte(JSONBinary.ARRAY);
+            this.writeVarint(array.length());
+            for (Object element : array) {
+                this.writeValue(element);
+            }
+        } else if (value instanceof Number) {
+            this.writeValue(JSONObject.stringToValue(JSONObject.numberToString((Number) value)));
+        } else if (value instanceof Character || value instanceof Enum) {
+            this.writeString(value instanceof Enum ? ((Enum<?>) value).name() : value.toString());
+        } else if (value instanceof JSONString) {
+            this.writeValue(new JSONTokener(((JSONString) value).toJSONString()).nextValue());
+        } else {
+            Object wrapped = JSONObject.wrap(value);
+            if (wrapped == null) {
+                throw new JSONException("Unable to encode " + value.getClass().getName());
+            }
+            this.writeValue(wrapped == value ? value.toString() : wrapped);
+        }
+    }
+
+    /**
+     * Write a string, as a back-reference if it is in the string table.
+     * @param string the string.
+     * @throws IOException if the stream cannot be written.
+     */
+    private void writeString(String string) throws IOException {
+        Integer reference = this.references.get(string);
+        if (reference != null) {
+            this.writeByte(JSONBinary.STRING_REFERENCE);
+            this.writeVarint(reference.intValue());
+            return;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        this.writeByte(JSONBinary.STRING);
+        this.writeBytes(bytes);
+        if (bytes.length <= JSONBinary.MAX_REFERENCED_LENGTH
+                && this.references.size() < JSONBinary.MAX_REFERENCES) {
+            this.references.put(string, Integer.valueOf(this.references.size()));
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        this.writeVarint(bytes.length);
+        if (bytes.length > BUFFER_SIZE - this.position) {
+            this.drain();
+            if (bytes.length > BUFFER_SIZE) {
+                this.out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, this.buffer, this.position, bytes.length);
+        this.position += bytes.length;
+    }
+
+    /**
+     * Write a signed integer as a zigzag varint.
+     * @param value the integer.
+     * @throws IOException if the stream cannot be written.
+     */
+    private void writeLong(long value) throws IOException {
+        this.writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Write an unsigned integer, seven bits per byte, low bits first.
+     * @param value the integer.
+     * @throws IOException if the stream cannot be written.
+     */
+    private void writeVarint(long value) throws IOException {
+        if (BUFFER_SIZE - this.position < 10) {
+            this.drain();
+        }
+        while ((value & ~0x7FL) != 0) {
+            this.buffer[this.position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        this.buffer[this.position++] = (byte) value;
+    }
+
+    private void writeRaw(long bits, int length) throws IOException {
+        if (BUFFER_SIZE - this.position < length) {
+            this.drain();
+        }
+        for (int shift = (length - 1) * 8; shift >= 0; shift -= 8) {
+            this.buffer[this.position++] = (byte) (bits >>> shift);
+        }
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (this.position == BUFFER_SIZE) {
+            this.drain();
+        }
+        this.buffer[this.position++] = (byte) b;
+    }
+
+    private void drain() throws IOException {
+        if (this.position > 0) {
+            this.out.write(this.buffer, 0, this.position);
+            this.position = 0;
+        }
+    }
+}
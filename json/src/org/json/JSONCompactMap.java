@@ -0,0 +1,390 @@
+package org.json;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JSONCompactMap keeps the properties of a small JSONObject in a flat array
+ * of values described by a shared key layout, its shape, instead of a
+ * <code>HashMap</code> table and one node per entry. Objects which have the
+ * same keys, added in the same order, share one shape: each of them only
+ * holds its values.
+ * <p>
+ * The map switches to a <code>HashMap</code> when it grows past
+ * {@link #MAX_SIZE} entries. Until then it iterates in the same order as a
+ * <code>HashMap</code> of default capacity holding the same entries, and the
+ * switch rebuilds that <code>HashMap</code> exactly, so the text written for
+ * an object does not depend on its storage.
+ * @author JSON.org
+ * @version 2026-10-18
+ */
+final class JSONCompactMap extends AbstractMap<String, Object> {
+
+    /** The largest number of entries kept in the flat array. */
+    static final int MAX_SIZE = 8;
+
+    /**
+     * The largest number of shapes shared through the transition tree.
+     * Beyond it, objects with new key layouts get shapes of their own, so
+     * that objects with arbitrary keys cannot grow the tree forever.
+     */
+    static final int MAX_SHAPES = 16384;
+
+    /** The number of buckets of a HashMap of default capacity. */
+    private static final int BUCKETS = 16;
+
+    private static final Object[] NO_VALUES = new Object[0];
+
+    private static final AtomicInteger SHAPE_COUNT = new AtomicInteger();
+
+    private static final Shape EMPTY = new Shape(new String[0]);
+
+    /** The key layout, or null once the entries are in the table. */
+    private Shape shape = EMPTY;
+
+    /** The values, in the order of the keys of the shape. */
+    private Object[] values = NO_VALUES;
+
+    /** The entries once the map has grown past MAX_SIZE, or null. */
+    private HashMap<String, Object> table;
+
+    /** The number of structural modifications, for the iterators. */
+    private int modCount;
+
+    @Override
+    public int size() {
+        return this.table != null ? this.table.size() : this.values.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (this.table != null) {
+            return this.table.containsKey(key);
+        }
+        return this.shape.indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (this.table != null) {
+            return this.table.get(key);
+        }
+        int index = this.shape.indexOf(key);
+        return index < 0 ? null : this.values[index];
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        if (this.table != null) {
+            return this.table.put(key, value);
+        }
+        int index = this.shape.indexOf(key);
+        if (index >= 0) {
+            Object previous = this.values[index];
+            this.values[index] = value;
+            return previous;
+        }
+        if (key == null) {
+            throw new NullPointerException("Null key.");
+        }
+        this.modCount += 1;
+        final int length = this.values.length;
+        if (length == MAX_SIZE) {
+            HashMap<String, Object> table = new HashMap<String, Object>();
+            for (int i = 0; i < length; i += 1) {
+                table.put(this.shape.keys[i], this.values[i]);
+            }
+            table.put(key, value);
+            this.table = table;
+            this.shape = null;
+            this.values = null;
+            return null;
+        }
+        Shape next = this.shape.with(key);
+        index = next.indexOf(key);
+        Object[] values = new Object[length + 1];
+        System.arraycopy(this.values, 0, values, 0, index);
+        System.arraycopy(this.values, index, values, index + 1, length - index);
+        values[index] = value;
+        this.shape = next;
+        this.values = values;
+        return null;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        if (this.table != null) {
+            return this.table.remove(key);
+        }
+        int index = this.shape.indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        Object previous = this.values[index];
+        this.removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        this.modCount += 1;
+        if (this.table != null) {
+            this.table.clear();
+        } else {
+            this.shape = EMPTY;
+            this.values = NO_VALUES;
+        }
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        if (this.table != null) {
+            return this.table.entrySet();
+        }
+        return new EntrySet();
+    }
+
+    private void removeAt(int index) {
+        this.modCount += 1;
+        final int length = this.values.length;
+        Shape next = EMPTY;
+        Object[] values = new Object[length - 1];
+        for (int i = 0, j = 0; i < length; i += 1) {
+            if (i != index) {
+                next = next.with(this.shape.keys[i]);
+                values[j] = this.values[i];
+                j += 1;
+            }
+        }
+        this.shape = next;
+        this.values = values;
+    }
+
+    /**
+     * The entries of the flat array. The set is a view: it reads the map at
+     * each access and its entries write their values through.
+     */
+    private final class EntrySet extends AbstractSet<Entry<String, Object>> {
+        @Override
+        public int size() {
+            return JSONCompactMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            JSONCompactMap.this.clear();
+        }
+
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+            if (JSONCompactMap.this.table != null) {
+                return JSONCompactMap.this.table.entrySet().iterator();
+            }
+            return new EntryIterator();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Entry<String, Object>> {
+        private int expectedModCount = JSONCompactMap.this.modCount;
+        private int next = 0;
+        private int last = -1;
+
+        @Override
+        public boolean hasNext() {
+            return this.next < JSONCompactMap.this.size();
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            this.checkForComodification();
+            if (this.next >= JSONCompactMap.this.values.length) {
+                throw new NoSuchElementException();
+            }
+            this.last = this.next;
+            this.next += 1;
+            return new CompactEntry(JSONCompactMap.this.shape.keys[this.last]);
+        }
+
+        @Override
+        public void remove() {
+            if (this.last < 0) {
+                throw new IllegalStateException();
+            }
+            this.checkForComodification();
+            JSONCompactMap.this.removeAt(this.last);
+            this.next = this.last;
+            this.last = -1;
+            this.expectedModCount = JSONCompactMap.this.modCount;
+        }
+
+        private void checkForComodification() {
+            if (JSONCompactMap.this.modCount != this.expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * An entry of the flat array, which reads and writes its value through
+     * the map.
+     */
+    private final class CompactEntry implements Entry<String, Object> {
+        private final String key;
+
+        CompactEntry(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public String getKey() {
+            return this.key;
+        }
+
+        @Override
+        public Object getValue() {
+            return JSONCompactMap.this.get(this.key);
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            return JSONCompactMap.this.put(this.key, value);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> entry = (Entry<?, ?>) other;
+            Object value = this.getValue();
+            return this.key.equals(entry.getKey())
+                    && (value == null ? entry.getValue() == null : value.equals(entry.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            Object value = this.getValue();
+            return this.key.hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return this.key + "=" + this.getValue();
+        }
+    }
+
+    /**
+     * A key layout: the keys of a map, in the iteration order of a HashMap
+     * of default capacity, that is by bucket then by arrival. The shapes
+     * form a tree whose transitions add one key.
+     */
+    static final class Shape {
+        final String[] keys;
+        private final ConcurrentHashMap<String, Shape> transitions = new ConcurrentHashMap<String, Shape>();
+
+        Shape(String[] keys) {
+            this.keys = keys;
+        }
+
+        /**
+         * Get the index of a key.
+         * @param key the key.
+         * @return the index, or -1 if the shape has no such key.
+         */
+        int indexOf(Object key) {
+            final String[] keys = this.keys;
+            for (int i = 0; i < keys.length; i += 1) {
+                if (keys[i] == key) {
+                    return i;
+                }
+            }
+            if (!(key instanceof String)) {
+                return -1;
+            }
+            final int hash = key.hashCode();
+            for (int i = 0; i < keys.length; i += 1) {
+                if (keys[i].hashCode() == hash && keys[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Get the shape which has one more key, shared if possible.
+         * @param key a key the shape does not have.
+         * @return the shape.
+         */
+        Shape with(String key) {
+            Shape next = this.transitions.get(key);
+            if (next != null) {
+                return next;
+            }
+            // the key goes after the keys of its bucket and of the buckets before it
+            final int bucket = bucket(key);
+            int index = 0;
+            while (index < this.keys.length && bucket(this.keys[index]) <= bucket) {
+                index += 1;
+            }
+            String[] keys = new String[this.keys.length + 1];
+            System.arraycopy(this.keys, 0, keys, 0, index);
+            System.arraycopy(this.keys, index, keys, index + 1, this.keys.length - index);
+            keys[index] = key;
+            next = new Shape(keys);
+            if (SHAPE_COUNT.get() < MAX_SHAPES) {
+                Shape previous = this.transitions.putIfAbsent(key, next);
+                if (previous != null) {
+                    return previous;
+                }
+                SHAPE_COUNT.incrementAndGet();
+            }
+            return next;
+        }
+
+        /**
+         * Get the bucket of a key in a HashMap of default capacity.
+         * @param key the key.
+         * @return the bucket.
+         */
+        private static int bucket(String key) {
+            final int h = key.hashCode();
+            return (h ^ (h >>> 16)) & (BUCKETS - 1);
+        }
+    }
+}
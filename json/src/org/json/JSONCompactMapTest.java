@@ -0,0 +1,116 @@
+package org.json;
+
+import static org.junit.Assert.assertEquals;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * JSONCompactMap tests.
+ * @author JSON.org
+ * @version 2026-10-18
+ */
+public class JSONCompactMapTest {
+
+    /**
+     * Keys with colliding hash codes or buckets, and ordinary keys.
+     */
+    private static final String[] KEYS = {
+        "Aa", "BB", "AaAa", "BBBB", "AaBB", "BBAa", "id", "name", "value", "type",
+        "a", "q", "0", "1", "10", "x", "key" + (char) 0x10000, "Objects", "", "z"
+    };
+
+    /**
+     * Random puts, removes, iterator removals, setValue and clear give the
+     * same entries in the same iteration order as a HashMap of default
+     * capacity, below and beyond MAX_SIZE.
+     */
+    @Test
+    public void testOrderMatchesHashMap() {
+        Random random = new Random(42);
+        for (int run = 0; run < 500; run += 1) {
+            JSONCompactMap compact = new JSONCompactMap();
+            HashMap<String, Object> expected = new HashMap<>();
+            int keyCount = 1 + random.nextInt(KEYS.length);
+            for (int step = 0; step < 60; step += 1) {
+                String key = KEYS[random.nextInt(keyCount)];
+                int operation = random.nextInt(20);
+                if (operation < 12) {
+                    assertEquals(expected.put(key, step), compact.put(key, step));
+                } else if (operation < 16) {
+                    assertEquals(expected.remove(key), compact.remove(key));
+                } else if (operation < 18) {
+                    removeNth(expected, step % 5);
+                    removeNth(compact, step % 5);
+                } else if (operation < 19) {
+                    setNth(expected, step % 5, -step);
+                    setNth(compact, step % 5, -step);
+                } else if (step % 3 == 0) {
+                    expected.clear();
+                    compact.clear();
+                }
+                assertEquals(entries(expected), entries(compact));
+                assertEquals(expected, compact);
+                assertEquals(expected.size(), compact.size());
+                assertEquals(expected.containsKey(key), compact.containsKey(key));
+            }
+        }
+    }
+
+    /**
+     * Objects with the same keys written in the same order give the text of
+     * a HashMap, whatever their number of keys.
+     */
+    @Test
+    public void testToString() {
+        for (int size = 0; size <= KEYS.length; size += 1) {
+            JSONObject object = new JSONObject();
+            Map<String, Object> map = new HashMap<>();
+            for (int i = 0; i < size; i += 1) {
+                object.put(KEYS[i], i);
+                map.put(KEYS[i], i);
+            }
+            StringBuilder expected = new StringBuilder("{");
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                if (expected.length() > 1) {
+                    expected.append(',');
+                }
+                expected.append(JSONObject.quote(entry.getKey())).append(':').append(entry.getValue());
+            }
+            assertEquals(expected.append('}').toString(), object.toString());
+        }
+    }
+
+    private static List<String> entries(Map<String, Object> map) {
+        List<String> entries = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            entries.add(entry.getKey() + "=" + entry.getValue());
+        }
+        return entries;
+    }
+
+    private static void removeNth(Map<String, Object> map, int n) {
+        Iterator<Map.Entry<String, Object>> iterator = map.entrySet().iterator();
+        for (int i = 0; iterator.hasNext(); i += 1) {
+            iterator.next();
+            if (i == n) {
+                iterator.remove();
+                return;
+            }
+        }
+    }
+
+    private static void setNth(Map<String, Object> map, int n, Object value) {
+        int i = 0;
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            if (i++ == n) {
+                entry.setValue(value);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package org.json;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * JSONNumberList keeps the elements of a homogeneous numeric JSONArray in a
+ * primitive array instead of an <code>ArrayList</code> of boxed numbers. The
+ * parser produces one when every element of an array is an Integer, an
+ * Integer or a Long, or a Double, which is the way
+ * {@link JSONObject#stringToValue(String)} types numbers: the list then
+ * returns exactly the values the parser would have stored.
+ * <p>
+ * The list is mutable. Storing a value that the primitive array cannot hold
+ * as the same type moves the elements to a boxed <code>ArrayList</code>,
+ * except for a Long stored in a list of Integers, which widens the list to
+ * longs.
+ * @author JSON.org
+ * @version 2026-10-18
+ */
+final class JSONNumberList extends AbstractList<Object> implements RandomAccess {
+
+    /** The kind of a list of Integers, kept in an int array. */
+    static final int INT = 0;
+
+    /**
+     * The kind of a list of Integers and Longs, kept in a long array. The
+     * values in the int range are Integers, the others Longs.
+     */
+    static final int LONG = 1;
+
+    /** The kind of a list of Doubles, kept in a double array. */
+    static final int DOUBLE = 2;
+
+    /** The kind of a list whose elements have been moved to boxed storage. */
+    static final int BOXED = 3;
+
+    /** Shorter arrays are left boxed: their primitive copy would save little. */
+    static final int MIN_LENGTH = 4;
+
+    private int kind;
+    private int[] ints;
+    private long[] longs;
+    private double[] doubles;
+    private ArrayList<Object> boxed;
+    private int size;
+
+    private JSONNumberList(int kind, int capacity) {
+        this.kind = kind;
+        if (kind == INT) {
+            this.ints = new int[capacity];
+        } else if (kind == LONG) {
+            this.longs = new long[capacity];
+        } else {
+            this.doubles = new double[capacity];
+        }
+    }
+
+    /**
+     * Return a primitive-backed copy of a list of elements if they are all
+     * numbers of one kind, or the list itself.
+     * @param list the parsed elements.
+     * @return a JSONNumberList or the list.
+     */
+    static List<Object> compact(ArrayList<Object> list) {
+        final int length = list.size();
+        if (length < MIN_LENGTH) {
+            return list;
+        }
+        int kind = kindOf(list.get(0));
+        for (int i = 1; i < length && kind != BOXED; i += 1) {
+            int other = kindOf(list.get(i));
+            if (other != kind) {
+                kind = (kind != DOUBLE && other != DOUBLE && other != BOXED) ? LONG : BOXED;
+            }
+        }
+        if (kind == BOXED) {
+            return list;
+        }
+        JSONNumberList numbers = new JSONNumberList(kind, length);
+        for (int i = 0; i < length; i += 1) {
+            numbers.store(i, list.get(i));
+        }
+        numbers.size = length;
+        return numbers;
+    }
+
+    /**
+     * Return the kind of list which can hold a value.
+     * @param value the value.
+     * @return INT, LONG, DOUBLE or BOXED.
+     */
+    private static int kindOf(Object value) {
+        if (value instanceof Integer) {
+            return INT;
+        }
+        if (value instanceof Long) {
+            long l = ((Long) value).longValue();
+            // a Long in the int range would come back as an Integer
+            return (l < Integer.MIN_VALUE || l > Integer.MAX_VALUE) ? LONG : BOXED;
+        }
+        if (value instanceof Double) {
+            return DOUBLE;
+        }
+        return BOXED;
+    }
+
+    /**
+     * Get the kind of the list.
+     * @return INT, LONG, DOUBLE, or BOXED once the elements are boxed.
+     */
+    int kind() {
+        return this.kind;
+    }
+
+    /**
+     * Get an element as an int, like <code>Number.intValue</code>. The list
+     * must not be boxed.
+     * @param index the index, between 0 and size() - 1.
+     * @return the element.
+     */
+    int intValue(int index) {
+        switch (this.kind) {
+        case INT:
+            return this.ints[index];
+        case LONG:
+            return (int) this.longs[index];
+        default:
+            return (int) this.doubles[index];
+        }
+    }
+
+    /**
+     * Get an element as a long, like <code>Number.longValue</code>. The list
+     * must not be boxed.
+     * @param index the index, between 0 and size() - 1.
+     * @return the element.
+     */
+    long longValue(int index) {
+        switch (this.kind) {
+        case INT:
+            return this.ints[index];
+        case LONG:
+            return this.longs[index];
+        default:
+            return (long) this.doubles[index];
+        }
+    }
+
+    /**
+     * Get an element as a double, like <code>Number.doubleValue</code>. The
+     * list must not be boxed.
+     * @param index the index, between 0 and size() - 1.
+     * @return the element.
+     */
+    double doubleValue(int index) {
+        switch (this.kind) {
+        case INT:
+            return this.ints[index];
+        case LONG:
+            return this.longs[index];
+        default:
+            return this.doubles[index];
+        }
+    }
+
+    /**
+     * Copy the elements into an int array. The list must not be boxed.
+     * @return the elements, converted like <code>Number.intValue</code>.
+     */
+    int[] toIntArray() {
+        if (this.kind == INT) {
+            return Arrays.copyOf(this.ints, this.size);
+        }
+        int[] values = new int[this.size];
+        for (int i = 0; i < this.size; i += 1) {
+            values[i] = this.intValue(i);
+        }
+        return values;
+    }
+
+    /**
+     * Copy the elements into a long array. The list must not be boxed.
+     * @return the elements, converted like <code>Number.longValue</code>.
+     */
+    long[] toLongArray() {
+        if (this.kind == LONG) {
+            return Arrays.copyOf(this.longs, this.size);
+        }
+        long[] values = new long[this.size];
+        for (int i = 0; i < this.size; i += 1) {
+            values[i] = this.longValue(i);
+        }
+        return values;
+    }
+
+    /**
+     * Copy the elements into a double array. The list must not be boxed.
+     * @return the elements, converted like <code>Number.doubleValue</code>.
+     */
+    double[] toDoubleArray() {
+        if (this.kind == DOUBLE) {
+            return Arrays.copyOf(this.doubles, this.size);
+        }
+        double[] values = new double[this.size];
+        for (int i = 0; i < this.size; i += 1) {
+            values[i] = this.doubleValue(i);
+        }
+        return values;
+    }
+
+    @Override
+    public Object get(int index) {
+        if (this.kind == BOXED) {
+            return this.boxed.get(index);
+        }
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+        switch (this.kind) {
+        case INT:
+            return Integer.valueOf(this.ints[index]);
+        case LONG:
+            long l = this.longs[index];
+            if (l == (int) l) {
+                return Integer.valueOf((int) l);
+            }
+            return Long.valueOf(l);
+        default:
+            return Double.valueOf(this.doubles[index]);
+        }
+    }
+
+    @Override
+    public int size() {
+        return this.kind == BOXED ? this.boxed.size() : this.size;
+    }
+
+    @Override
+    public Object set(int index, Object element) {
+        Object previous = this.get(index);
+        if (this.accept(element)) {
+            this.store(index, element);
+        } else {
+            this.box();
+            this.boxed.set(index, element);
+        }
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Object element) {
+        if (index < 0 || index > this.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size());
+        }
+        this.modCount += 1;
+        if (!this.accept(element)) {
+            this.box();
+        }
+        if (this.kind == BOXED) {
+            this.boxed.add(index, element);
+            return;
+        }
+        this.ensureCapacity(this.size + 1);
+        Object array = this.kind == INT ? this.ints : this.kind == LONG ? this.longs : this.doubles;
+        System.arraycopy(array, index, array, index + 1, this.size - index);
+        this.size += 1;
+        this.store(index, element);
+    }
+
+    @Override
+    public Object remove(int index) {
+        Object previous = this.get(index);
+        this.modCount += 1;
+        if (this.kind == BOXED) {
+            this.boxed.remove(index);
+            return previous;
+        }
+        Object array = this.kind == INT ? this.ints : this.kind == LONG ? this.longs : this.doubles;
+        System.arraycopy(array, index + 1, array, index, this.size - index - 1);
+        this.size -= 1;
+        return previous;
+    }
+
+    /**
+     * Tell if a value can be stored without changing its type, widening a
+     * list of Integers to longs for a Long outside of the int range.
+     * @param value the value.
+     * @return true if the value can be stored in the primitive array.
+     */
+    private boolean accept(Object value) {
+        if (this.kind == BOXED) {
+            return false;
+        }
+        int other = kindOf(value);
+        if (other == this.kind || (this.kind == LONG && other == INT)) {
+            return true;
+        }
+        if (this.kind == INT && other == LONG) {
+            this.longs = new long[this.ints.length];
+            for (int i = 0; i < this.size; i += 1) {
+                this.longs[i] = this.ints[i];
+            }
+            this.ints = null;
+            this.kind = LONG;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Store an accepted value in the primitive array.
+     * @param index the index.
+     * @param value the value.
+     */
+    private void store(int index, Object value) {
+        switch (this.kind) {
+        case INT:
+            this.ints[index] = ((Integer) value).intValue();
+            break;
+        case LONG:
+            this.longs[index] = ((Number) value).longValue();
+            break;
+        default:
+            this.doubles[index] = ((Double) value).doubleValue();
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        switch (this.kind) {
+        case INT:
+            if (capacity > this.ints.length) {
+                this.ints = Arrays.copyOf(this.ints, Math.max(capacity, this.ints.length * 2));
+            }
+            break;
+        case LONG:
+            if (capacity > this.longs.length) {
+                this.longs = Arrays.copyOf(this.longs, Math.max(capacity, this.longs.length * 2));
+            }
+            break;
+        default:
+            if (capacity > this.doubles.length) {
+                this.doubles = Arrays.copyOf(this.doubles, Math.max(capacity, this.doubles.length * 2));
+            }
+        }
+    }
+
+    /**
+     * Move the elements to boxed storage.
+     */
+    private void box() {
+        if (this.kind == BOXED) {
+            return;
+        }
+        ArrayList<Object> list = new ArrayList<Object>(this.size + 1);
+        for (int i = 0; i < this.size; i += 1) {
+            list.add(this.get(i));
+        }
+        this.boxed = list;
+        this.kind = BOXED;
+        this.ints = null;
+        this.longs = null;
+        this.doubles = null;
+    }
+}
@@ -0,0 +1,123 @@
+package org.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * JSONNumberList tests.
+ * @author JSON.org
+ * @version 2026-10-18
+ */
+public class JSONNumberListTest {
+
+    /**
+     * The parser stores homogeneous numeric arrays in primitive arrays and
+     * gives back the values and types it would have boxed.
+     */
+    @Test
+    public void testParse() {
+        String[] sources = {
+            "[1, 2, 3, 4]",
+            "[1, 2, 3, 2147483648]",
+            "[-9223372036854775808, 1, 2, 3]",
+            "[1.5, 2.0, -0.0, 4e10]",
+            "[1, 2, 3, 4.5]",
+            "[1, 2, 3, \"4\"]",
+            "[1, 2]"
+        };
+        for (String source : sources) {
+            JSONArray parsed = new JSONArray(source);
+            List<Object> boxed = new ArrayList<>();
+            for (Object value : parsed) {
+                boxed.add(value);
+            }
+            JSONArray expected = new JSONArray(boxed);
+            assertSameElements(source, expected, parsed);
+            assertEquals(source, expected.toString(), parsed.toString());
+        }
+        assertNotNull(new JSONArray("[1, 2, 3, 4]").numbers());
+        assertNotNull(new JSONArray("[1, 2, 3, 2147483648]").numbers());
+        assertNotNull(new JSONArray("[1.5, 2.0, -0.0, 4e10]").numbers());
+    }
+
+    /**
+     * set, add and remove keep the type of every element, whether the list
+     * stays primitive, widens to longs or moves to boxed storage.
+     */
+    @Test
+    public void testMutations() {
+        Object[] values = {
+            7, -7, 2147483647, 3000000000L, -3000000000L, 5L, 2.5, -0.0, 1e300,
+            "8", 1.5f, new BigDecimal("1.25"), JSONObject.NULL, true
+        };
+        List<List<Object>> initials = Arrays.asList(
+                Arrays.<Object>asList(1, 2, 3, 4),
+                Arrays.<Object>asList(1, 2, 3, 2147483648L),
+                Arrays.<Object>asList(1.5, 2.5, 3.5, 4.5));
+        Random random = new Random(42);
+        for (List<Object> initial : initials) {
+            for (int run = 0; run < 200; run += 1) {
+                List<Object> list = JSONNumberList.compact(new ArrayList<>(initial));
+                assertTrue(list instanceof JSONNumberList);
+                List<Object> model = new ArrayList<>(initial);
+                for (int step = 0; step < 20; step += 1) {
+                    Object value = values[random.nextInt(values.length)];
+                    int operation = random.nextInt(4);
+                    if (operation == 0 && !model.isEmpty()) {
+                        int index = random.nextInt(model.size());
+                        assertEquals(model.set(index, value), list.set(index, value));
+                    } else if (operation == 1) {
+                        list.add(value);
+                        model.add(value);
+                    } else if (operation == 2 && !model.isEmpty()) {
+                        int index = random.nextInt(model.size());
+                        assertEquals(model.remove(index), list.remove(index));
+                    } else {
+                        int index = random.nextInt(model.size() + 1);
+                        list.add(index, value);
+                        model.add(index, value);
+                    }
+                    assertSameElements(initial.toString(), new JSONArray(model), new JSONArray(list));
+                }
+            }
+        }
+    }
+
+    /**
+     * JSONArray.put on a parsed numeric array keeps the types of the elements.
+     */
+    @Test
+    public void testPut() {
+        JSONArray array = new JSONArray("[1, 2, 3, 4]");
+        array.put(0, 3000000000L);
+        array.put(1, 2.5);
+        array.put(7);
+        array.remove(2);
+        JSONArray expected = new JSONArray(Arrays.<Object>asList(3000000000L, 2.5, 4, 7));
+        assertSameElements("put", expected, array);
+        assertEquals("[3000000000,2.5,4,7]", array.toString());
+    }
+
+    /**
+     * Check that two arrays hold equal elements of the same classes.
+     * @param message the assertion message.
+     * @param expected the expected elements.
+     * @param actual the actual elements.
+     */
+    private static void assertSameElements(String message, JSONArray expected, JSONArray actual) {
+        assertEquals(message, expected.length(), actual.length());
+        for (int i = 0; i < expected.length(); i += 1) {
+            Object e = expected.get(i);
+            Object a = actual.get(i);
+            assertEquals(message + " at " + i, e, a);
+            assertTrue(message + " at " + i, e.getClass() == a.getClass());
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package org.json;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+/**
+ * JSONNumberScanner converts the characters of an unquoted token into a
+ * number the way <code>JSONObject.stringToValue</code> does, working on a
+ * char array: no String is created for the token, and no exception is
+ * thrown for a token that is not a number.
+ * <p>
+ * An integer is kept if it is in the canonical form of a long, that is
+ * without a plus sign, leading zeros or overflow. A decimal with at most 18
+ * significant digits, a mantissa below 2<sup>53</sup> and a power of ten
+ * between -22 and 22 is computed with a single correctly rounded
+ * multiplication or division, which gives the same double as
+ * <code>Double.parseDouble</code>. Other decimals are left to
+ * <code>Double.parseDouble</code>.
+ * @author JSON.org
+ * @version 2026-10-18
+ */
+final class JSONNumberScanner {
+    /** The largest mantissa that a double holds exactly. */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /** The most significant digits kept in a long mantissa. */
+    private static final int MAX_DIGITS = 18;
+
+    /** The powers of ten that a double holds exactly. */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /** The longest string copied into the buffer of the thread. */
+    private static final int BUFFER_LENGTH = 64;
+
+    /** The buffer of each thread for the strings given to scan. */
+    private static final ThreadLocal<char[]> BUFFER = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[BUFFER_LENGTH];
+        }
+    };
+
+    private JSONNumberScanner() {
+    }
+
+    /**
+     * Convert a range of characters into an Integer, a Long or a Double, as
+     * <code>JSONObject.stringToValue</code> does.
+     * @param chars The characters.
+     * @param offset The index of the first character.
+     * @param length The number of characters.
+     * @return The number, or null if the characters are not a number and
+     *  stay a string.
+     */
+    static Number scan(char[] chars, int offset, int length) {
+        if (isDecimalNotation(chars, offset, length)) {
+            double d = scanDouble(chars, offset, length);
+            return Double.isNaN(d) ? null : Double.valueOf(d);
+        }
+        long sign = scanSign(chars, offset, length);
+        if (sign == 0) {
+            return null;
+        }
+        long value = scanLong(chars, offset, length);
+        if (value == (int) value) {
+            return Integer.valueOf((int) value);
+        }
+        return Long.valueOf(value);
+    }
+
+    /**
+     * Tests if the characters should be read as a decimal, as
+     * <code>JSONObject.isDecimalNotation</code> does.
+     * @param chars The characters.
+     * @param offset The index of the first character.
+     * @param length The number of characters.
+     * @return true if the characters are "-0" or contain '.', 'e', or 'E'.
+     */
+    static boolean isDecimalNotation(char[] chars, int offset, int length) {
+        for (int i = offset; i < offset + length; i += 1) {
+            char c = chars[i];
+            if (c == '.' || c == 'e' || c == 'E') {
+                return true;
+            }
+        }
+        return length == 2 && chars[offset] == '-' && chars[offset + 1] == '0';
+    }
+
+    /**
+     * Check that the characters are a long in canonical form.
+     * @param chars The characters.
+     * @param offset The index of the first character.
+     * @param length The number of characters.
+     * @return -1 or 1, the sign of the long, or 0 if the characters are not a
+     *  canonical long.
+     */
+    static long scanSign(char[] chars, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        boolean negative = chars[offset] == '-';
+        int i = negative ? offset + 1 : offset;
+        int end = offset + length;
+        if (i == end || (chars[i] == '0' && end > i + 1)) {
+            return 0;
+        }
+        // Accumulated negatively, so that Long.MIN_VALUE fits.
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multmin = limit / 10;
+        long value = 0;
+        for (; i < end; i += 1) {
+            char c = chars[i];
+            if (c < '0' || c > '9' || value < multmin) {
+                return 0;
+            }
+            value *= 10;
+            if (value < limit + (c - '0')) {
+                return 0;
+            }
+            value -= c - '0';
+        }
+        return negative ? -1 : 1;
+    }
+
+    /**
+     * Convert characters checked by <code>scanSign</code> into a long.
+     * @param chars The characters.
+     * @param offset The index of the first character.
+     * @param length The number of characters.
+     * @return The value.
+     */
+    static long scanLong(char[] chars, int offset, int length) {
+        boolean negative = chars[offset] == '-';
+        long value = 0;
+        for (int i = negative ? offset + 1 : offset; i < offset + length; i += 1) {
+            value = value * 10 - (chars[i] - '0');
+        }
+        return negative ? value : -value;
+    }
+
+    /**
+     * Convert characters in decimal notation into a finite double.
+     * @param chars The characters.
+     * @param offset The index of the first character.
+     * @param length The number of characters.
+     * @return The value, or NaN if the characters are not a finite number.
+     */
+    static double scanDouble(char[] chars, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        boolean negative = i < end && chars[i] == '-';
+        if (negative) {
+            i += 1;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean exact = true;
+        boolean any = false;
+        for (; i < end && chars[i] >= '0' && chars[i] <= '9'; i += 1) {
+            int digit = chars[i] - '0';
+            any = true;
+            if (digits < MAX_DIGITS) {
+                if (mantissa != 0 || digit != 0) {
+                    mantissa = mantissa * 10 + digit;
+                    digits += 1;
+                }
+            } else {
+                exponent += 1;
+                exact &= digit == 0;
+            }
+        }
+        if (i < end && chars[i] == '.') {
+            for (i += 1; i < end && chars[i] >= '0' && chars[i] <= '9'; i += 1) {
+                int digit = chars[i] - '0';
+                any = true;
+                if (digits < MAX_DIGITS) {
+                    if (mantissa != 0 || digit != 0) {
+                        mantissa = mantissa * 10 + digit;
+                        digits += 1;
+                    }
+                    exponent -= 1;
+                } else {
+                    exact &= digit == 0;
+                }
+            }
+        }
+        if (any && i < end && (chars[i] == 'e' || chars[i] == 'E')) {
+            i += 1;
+            boolean negativeExponent = i < end && chars[i] == '-';
+            if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+                i += 1;
+            }
+            int exponentStart = i;
+            int value = 0;
+            for (; i < end && chars[i] >= '0' && chars[i] <= '9'; i += 1) {
+                // Beyond this any exponent overflows or underflows anyway.
+                if (value < 100000) {
+                    value = value * 10 + (chars[i] - '0');
+                }
+            }
+            if (i == exponentStart) {
+                return parseDouble(chars, offset, length);
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        if (!any || i != end || !exact || mantissa > MAX_EXACT_MANTISSA) {
+            return parseDouble(chars, offset, length);
+        }
+        double value;
+        if (mantissa == 0 || exponent == 0) {
+            value = mantissa;
+        } else if (exponent > 0 && exponent < POWERS_OF_TEN.length) {
+            value = mantissa * POWERS_OF_TEN[exponent];
+        } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[-exponent];
+        } else {
+            return parseDouble(chars, offset, length);
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Convert characters into a finite double with <code>Double.parseDouble</code>,
+     * for the forms that the fast path does not handle.
+     * @param chars The characters.
+     * @param offset The index of the first character.
+     * @param length The number of characters.
+     * @return The value, or NaN if the characters are not a finite number.
+     */
+    private static double parseDouble(char[] chars, int offset, int length) {
+        try {
+            double d = Double.parseDouble(new String(chars, offset, length));
+            return Double.isInfinite(d) ? Double.NaN : d;
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Convert a String into an Integer, a Long or a Double, as
+     * {@link #scan(char[], int, int)} does. A short string is copied into a
+     * buffer kept by the thread, so no array is allocated for it.
+     * @param string The string.
+     * @return The number, or null if the string is not a number and stays a
+     *  string.
+     */
+    static Number scan(String string) {
+        int length = string.length();
+        if (length > BUFFER_LENGTH) {
+            return scan(string.toCharArray(), 0, length);
+        }
+        char[] chars = BUFFER.get();
+        string.getChars(0, length, chars, 0);
+        return scan(chars, 0, length);
+    }
+}
@@ -30,16 +30,20 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -151,6 +155,45 @@ public class JSONObject {
             return "null";
         }
     }
+
+    /**
+     * A value of a lazy JSONObject that has not been decoded yet: the range
+     * of the source text that holds it.
+     */
+    private static final class LazyValue {
+        /** The source text. */
+        private final char[] source;
+
+        /** The index of the first character of the value. */
+        private final int start;
+
+        /** The index after the last character of the value. */
+        private final int end;
+
+        LazyValue(char[] source, int start, int end) {
+            this.source = source;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Decode the value. An object or an array is decoded lazily in turn.
+         *
+         * @return The value.
+         * @throws JSONException If there is a syntax error in the value.
+         */
+        Object decode() throws JSONException {
+            JSONTokener x = new JSONTokener(this.source, this.start, this.end);
+            switch (this.source[this.start]) {
+            case '{':
+                return parseLazily(x);
+            case '[':
+                return JSONArray.parseLazily(x);
+            default:
+                return x.nextValue();
+            }
+        }
+    }
     
     /**
      *  Regular Expression Pattern that matches JSON Numbers. This is primarily used for
@@ -159,10 +202,40 @@ public class JSONObject {
     static final Pattern NUMBER_PATTERN = Pattern.compile("-?(?:0|[1-9]\\d*)(?:\\.\\d+)?(?:[eE][+-]?\\d+)?");
 
     /**
-     * The map where the JSONObject's properties are kept.
+     * The escape of each ASCII character in a quoted string: 0 when it is
+     * written as is, the escaping letter for the short escapes, 'u' for a
+     * unicode escape. The slash, escaped only after a '&lt;', is marked '/'.
+     */
+    static final char[] ESCAPES = new char[128];
+
+    /** The lowercase hexadecimal digits of the unicode escapes. */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    static {
+        for (int c = 0; c < ' '; c += 1) {
+            ESCAPES[c] = 'u';
+        }
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\t'] = 't';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\r'] = 'r';
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['/'] = '/';
+    }
+
+    /**
+     * The map where the JSONObject's properties are kept. An empty JSONObject
+     * starts with a {@link JSONCompactMap}.
      */
     private final Map<String, Object> map;
 
+    /**
+     * True if some values of the map may still be undecoded LazyValues.
+     */
+    private boolean lazy;
+
     /**
      * It is sometimes more convenient and less ambiguous to have a
      * <code>NULL</code> object than to use Java's <code>null</code> value.
@@ -181,7 +254,9 @@ public class JSONObject {
         // implementations to rearrange their items for a faster element 
         // retrieval based on associative access.
         // Therefore, an implementation mustn't rely on the order of the item.
-        this.map = new HashMap<String, Object>();
+        // Small objects are kept flat, in a JSONCompactMap which iterates in
+        // the order of the HashMap it turns into when it grows.
+        this.map = new JSONCompactMap();
     }
 
     /**
@@ -406,6 +481,90 @@ public class JSONObject {
         this(new JSONTokener(source));
     }
 
+    /**
+     * Construct a JSONObject from a source JSON text without decoding its
+     * values. Only the keys are read, with the position of each value in the
+     * source text. A value is decoded the first time it is accessed; an
+     * object gives a JSONObject that is lazy in turn, and an array gives a
+     * JSONArray whose objects are lazy. A consumer that reads a few values
+     * out of large objects skips the parsing and the allocation of the others.
+     * <p>
+     * The source is kept as long as a value is not decoded. A syntax error
+     * inside a value is only reported when the value is decoded, at a
+     * position counted from the start of the value. Decoding
+     * modifies the JSONObject, so a lazy JSONObject must not be read by
+     * several threads at once.
+     *
+     * @param source
+     *            A string beginning with <code>{</code>&nbsp;<small>(left
+     *            brace)</small> and ending with <code>}</code>
+     *            &nbsp;<small>(right brace)</small>.
+     * @return A lazy JSONObject.
+     * @throws JSONException
+     *             If there is a syntax error outside of the values, or a
+     *             duplicated key.
+     */
+    public static JSONObject parseLazily(String source) throws JSONException {
+        return parseLazily(new JSONTokener(source));
+    }
+
+    /**
+     * Construct a lazy JSONObject from an in-memory JSONTokener, positioned
+     * before the object.
+     *
+     * @param x
+     *            A JSONTokener on a String, a char array or a CharSequence.
+     * @return A lazy JSONObject.
+     * @throws JSONException
+     *             If there is a syntax error outside of the values, or a
+     *             duplicated key.
+     */
+    static JSONObject parseLazily(JSONTokener x) throws JSONException {
+        JSONObject jo = new JSONObject();
+        char c;
+        String key;
+
+        if (x.nextClean() != '{') {
+            throw x.syntaxError("A JSONObject text must begin with '{'");
+        }
+        for (;;) {
+            c = x.nextClean();
+            switch (c) {
+            case 0:
+                throw x.syntaxError("A JSONObject text must end with '}'");
+            case '}':
+                return jo;
+            default:
+                x.back();
+                key = x.nextValue().toString();
+            }
+
+            if (x.nextClean() != ':') {
+                throw x.syntaxError("Expected a ':' after a key");
+            }
+            if (jo.map.containsKey(key)) {
+                throw x.syntaxError("Duplicate key \"" + key + "\"");
+            }
+            int start = x.skipValue();
+            jo.map.put(key, new LazyValue(x.getBuffer(), start, x.getPosition()));
+            jo.lazy = true;
+
+            switch (x.nextClean()) {
+            case ';':
+            case ',':
+                if (x.nextClean() == '}') {
+                    return jo;
+                }
+                x.back();
+                break;
+            case '}':
+                return jo;
+            default:
+                throw x.syntaxError("Expected a ',' or '}'");
+            }
+        }
+    }
+
     /**
      * Construct a JSONObject from a ResourceBundle.
      *
@@ -961,6 +1120,15 @@ public class JSONObject {
      * @return An Entry Set
      */
     protected Set<Entry<String, Object>> entrySet() {
+        if (this.lazy) {
+            // every value is read through the entries: decode them all
+            for (final Entry<String, Object> entry : this.map.entrySet()) {
+                if (entry.getValue() instanceof LazyValue) {
+                    entry.setValue(((LazyValue) entry.getValue()).decode());
+                }
+            }
+            this.lazy = false;
+        }
         return this.map.entrySet();
     }
 
@@ -1034,7 +1202,15 @@ public class JSONObject {
      * @return An object which is the value, or null if there is no value.
      */
     public Object opt(String key) {
-        return key == null ? null : this.map.get(key);
+        if (key == null) {
+            return null;
+        }
+        Object value = this.map.get(key);
+        if (this.lazy && value instanceof LazyValue) {
+            value = ((LazyValue) value).decode();
+            this.map.put(key, value);
+        }
+        return value;
     }
 
     /**
@@ -1482,43 +1658,81 @@ public class JSONObject {
      *            the bean
      */
     private void populateMap(Object bean) {
-        Class<?> klass = bean.getClass();
-
-        // If klass is a System class then set includeSuperClass to false.
-
-        boolean includeSuperClass = klass.getClassLoader() != null;
-
-        Method[] methods = includeSuperClass ? klass.getMethods() : klass.getDeclaredMethods();
-        for (final Method method : methods) {
-            final int modifiers = method.getModifiers();
-            if (Modifier.isPublic(modifiers)
-                    && !Modifier.isStatic(modifiers)
-                    && method.getParameterTypes().length == 0
-                    && !method.isBridge()
-                    && method.getReturnType() != Void.TYPE
-                    && isValidMethodName(method.getName())) {
-                final String key = getKeyNameFromMethod(method);
-                if (key != null && !key.isEmpty()) {
+        for (final BeanProperty property : BEAN_PROPERTIES.get(bean.getClass())) {
+            final Object result;
+            try {
+                result = (Object) property.getter.invokeExact(bean);
+            } catch (Exception ignore) {
+                // a getter throwing an exception is skipped
+                continue;
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new JSONException(t);
+            }
+            if (result != null) {
+                this.map.put(property.key, wrap(result));
+                // we don't use the result anywhere outside of wrap
+                // if it's a resource we should be sure to close it
+                // after calling toString
+                if (result instanceof Closeable) {
                     try {
-                        final Object result = method.invoke(bean);
-                        if (result != null) {
-                            this.map.put(key, wrap(result));
-                            // we don't use the result anywhere outside of wrap
-                            // if it's a resource we should be sure to close it
-                            // after calling toString
-                            if (result instanceof Closeable) {
-                                try {
-                                    ((Closeable) result).close();
-                                } catch (IOException ignore) {
-                                }
-                            }
+                        ((Closeable) result).close();
+                    } catch (IOException ignore) {
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Getters resolved once per bean class by {@link #populateMap(Object)}.
+     * Resolving them means walking every public method and its annotations
+     * through the class hierarchy, which is far more expensive than calling
+     * them, so it is only done the first time a class is seen.
+     */
+    private static final ClassValue<BeanProperty[]> BEAN_PROPERTIES = new ClassValue<BeanProperty[]>() {
+        @Override
+        protected BeanProperty[] computeValue(Class<?> klass) {
+            // If klass is a System class then set includeSuperClass to false.
+
+            boolean includeSuperClass = klass.getClassLoader() != null;
+
+            Method[] methods = includeSuperClass ? klass.getMethods() : klass.getDeclaredMethods();
+            List<BeanProperty> properties = new ArrayList<BeanProperty>(methods.length);
+            for (final Method method : methods) {
+                final int modifiers = method.getModifiers();
+                if (Modifier.isPublic(modifiers)
+                        && !Modifier.isStatic(modifiers)
+                        && method.getParameterTypes().length == 0
+                        && !method.isBridge()
+                        && method.getReturnType() != Void.TYPE
+                        && isValidMethodName(method.getName())) {
+                    final String key = getKeyNameFromMethod(method);
+                    if (key != null && !key.isEmpty()) {
+                        try {
+                            MethodHandle getter = MethodHandles.publicLookup().unreflect(method)
+                                    .asType(MethodType.methodType(Object.class, Object.class));
+                            properties.add(new BeanProperty(key, getter));
+                        } catch (IllegalAccessException ignore) {
                         }
-                    } catch (IllegalAccessException ignore) {
-                    } catch (IllegalArgumentException ignore) {
-                    } catch (InvocationTargetException ignore) {
                     }
                 }
             }
+            return properties.toArray(new BeanProperty[properties.size()]);
+        }
+    };
+
+    /**
+     * A bean property: the JSON key and the getter producing its value.
+     */
+    private static final class BeanProperty {
+        final String key;
+        final MethodHandle getter;
+
+        BeanProperty(String key, MethodHandle getter) {
+            this.key = key;
+            this.getter = getter;
         }
     }
 
@@ -1968,61 +2182,61 @@ public class JSONObject {
         }
     }
 
+    /**
+     * Write a string in double quotes with backslash sequences in all the
+     * right places, like {@link #quote(String)}. The characters which need no
+     * escaping are written in runs, with one <code>write</code> per run.
+     *
+     * @param string
+     *            A String
+     * @param w
+     *            The writer
+     * @return The writer.
+     * @throws IOException if the writer cannot be written.
+     */
     public static Writer quote(String string, Writer w) throws IOException {
         if (string == null || string.isEmpty()) {
             w.write("\"\"");
             return w;
         }
 
-        char b;
-        char c = 0;
-        String hhhh;
-        int i;
+        char c;
+        char escape;
+        int run = 0;
         int len = string.length();
 
         w.write('"');
-        for (i = 0; i < len; i += 1) {
-            b = c;
+        for (int i = 0; i < len; i += 1) {
             c = string.charAt(i);
-            switch (c) {
-            case '\\':
-            case '"':
-                w.write('\\');
-                w.write(c);
-                break;
-            case '/':
-                if (b == '<') {
-                    w.write('\\');
-                }
-                w.write(c);
-                break;
-            case '\b':
-                w.write("\\b");
-                break;
-            case '\t':
-                w.write("\\t");
-                break;
-            case '\n':
-                w.write("\\n");
-                break;
-            case '\f':
-                w.write("\\f");
-                break;
-            case '\r':
-                w.write("\\r");
-                break;
-            default:
-                if (c < ' ' || (c >= '\u0080' && c < '\u00a0')
-                        || (c >= '\u2000' && c < '\u2100')) {
-                    w.write("\\u");
-                    hhhh = Integer.toHexString(c);
-                    w.write("0000", 0, 4 - hhhh.length());
-                    w.write(hhhh);
-                } else {
-                    w.write(c);
+            if (c < 0x80) {
+                escape = ESCAPES[c];
+                if (escape == 0
+                        || (escape == '/' && (i == 0 || string.charAt(i - 1) != '<'))) {
+                    continue;
                 }
+            } else if (c >= '\u00a0' && (c < '\u2000' || c >= '\u2100')) {
+                continue;
+            } else {
+                escape = 'u';
+            }
+            if (i > run) {
+                w.write(string, run, i - run);
+            }
+            run = i + 1;
+            w.write('\\');
+            if (escape == 'u') {
+                w.write('u');
+                w.write(HEX_DIGITS[(c >> 12) & 0xf]);
+                w.write(HEX_DIGITS[(c >> 8) & 0xf]);
+                w.write(HEX_DIGITS[(c >> 4) & 0xf]);
+                w.write(HEX_DIGITS[c & 0xf]);
+            } else {
+                w.write(escape);
             }
         }
+        if (len > run) {
+            w.write(string, run, len - run);
+        }
         w.write('"');
         return w;
     }
@@ -2036,7 +2250,11 @@ public class JSONObject {
      *         no value.
      */
     public Object remove(String key) {
-        return this.map.remove(key);
+        Object value = this.map.remove(key);
+        if (value instanceof LazyValue) {
+            return ((LazyValue) value).decode();
+        }
+        return value;
     }
 
     /**
@@ -2193,30 +2411,84 @@ public class JSONObject {
 
         char initial = string.charAt(0);
         if ((initial >= '0' && initial <= '9') || initial == '-') {
-            try {
-                // if we want full Big Number support the contents of this
-                // `try` block can be replaced with:
-                // return stringToNumber(string);
-                if (isDecimalNotation(string)) {
-                    Double d = Double.valueOf(string);
-                    if (!d.isInfinite() && !d.isNaN()) {
-                        return d;
-                    }
-                } else {
-                    Long myLong = Long.valueOf(string);
-                    if (string.equals(myLong.toString())) {
-                        if (myLong.longValue() == myLong.intValue()) {
-                            return Integer.valueOf(myLong.intValue());
-                        }
-                        return myLong;
-                    }
-                }
-            } catch (Exception ignore) {
+            // if we want full Big Number support this can be replaced with:
+            // return stringToNumber(string);
+            Number number = JSONNumberScanner.scan(string);
+            if (number != null) {
+                return number;
             }
         }
         return string;
     }
 
+    /**
+     * Convert a range of characters into a number, boolean, or null, as
+     * {@link #stringToValue(String)} does. A String is only created when
+     * the characters are not a number or a keyword.
+     *
+     * @param chars
+     *            The characters, already trimmed.
+     * @param offset
+     *            The index of the first character.
+     * @param length
+     *            The number of characters.
+     * @return A simple JSON value.
+     */
+    static Object stringToValue(char[] chars, int offset, int length) {
+        if (length == 0) {
+            return "";
+        }
+        if (regionEqualsIgnoreCase(chars, offset, length, "true")) {
+            return Boolean.TRUE;
+        }
+        if (regionEqualsIgnoreCase(chars, offset, length, "false")) {
+            return Boolean.FALSE;
+        }
+        if (regionEqualsIgnoreCase(chars, offset, length, "null")) {
+            return JSONObject.NULL;
+        }
+        char initial = chars[offset];
+        if ((initial >= '0' && initial <= '9') || initial == '-') {
+            Number number = JSONNumberScanner.scan(chars, offset, length);
+            if (number != null) {
+                return number;
+            }
+        }
+        return new String(chars, offset, length);
+    }
+
+    /**
+     * Compare a range of characters with a word, ignoring case as
+     * <code>String.equalsIgnoreCase</code> does.
+     *
+     * @param chars
+     *            The characters.
+     * @param offset
+     *            The index of the first character.
+     * @param length
+     *            The number of characters.
+     * @param word
+     *            The word.
+     * @return true if the characters are the word.
+     */
+    private static boolean regionEqualsIgnoreCase(char[] chars, int offset, int length, String word) {
+        if (length != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i += 1) {
+            char c = chars[offset + i];
+            char w = word.charAt(i);
+            if (c != w) {
+                char upper = Character.toUpperCase(c);
+                char wordUpper = Character.toUpperCase(w);
+                if (upper != wordUpper && Character.toLowerCase(upper) != Character.toLowerCase(wordUpper)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     /**
      * Throw an exception if the object is a NaN or infinite number.
      *
@@ -2442,7 +2714,7 @@ public class JSONObject {
         } else if (value instanceof Boolean) {
             writer.write(value.toString());
         } else if (value instanceof Enum<?>) {
-            writer.write(quote(((Enum<?>)value).name()));
+            quote(((Enum<?>)value).name(), writer);
         } else if (value instanceof JSONObject) {
             ((JSONObject) value).write(writer, indentFactor, indent);
         } else if (value instanceof JSONArray) {
@@ -2504,7 +2776,7 @@ public class JSONObject {
             if (length == 1) {
             	final Entry<String,?> entry = this.entrySet().iterator().next();
                 final String key = entry.getKey();
-                writer.write(quote(key));
+                quote(key, writer);
                 writer.write(':');
                 if (indentFactor > 0) {
                     writer.write(' ');
@@ -2525,7 +2797,7 @@ public class JSONObject {
                     }
                     indent(writer, newIndent);
                     final String key = entry.getKey();
-                    writer.write(quote(key));
+                    quote(key, writer);
                     writer.write(':');
                     if (indentFactor > 0) {
                         writer.write(' ');
@@ -0,0 +1,294 @@
+package org.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * JSONObject tests.
+ * @author JSON.org
+ * @version 2026-10-18
+ */
+public class JSONObjectTest {
+
+    /**
+     * A getter which throws is skipped, the other getters are kept.
+     */
+    @Test
+    public void testBeanWithFailingGetter() {
+        JSONObject jo = new JSONObject(new FailingBean());
+        assertEquals(1, jo.getInt("id"));
+        assertFalse(jo.has("broken"));
+    }
+
+    /**
+     * A cyclic bean is not silently truncated.
+     */
+    @Test
+    public void testCyclicBean() {
+        try {
+            new JSONObject(new CyclicBean());
+            fail("A cyclic bean cannot be converted");
+        } catch (StackOverflowError expected) {
+        }
+    }
+
+    /**
+     * A lazy JSONObject gives the same values, text and structure as the
+     * constructor, whatever order its values are read in.
+     */
+    @Test
+    public void testParseLazily() {
+        String source = "{\"id\": 12, \"name\": \"a \\\"}]\\\" b\", \"d\": -1.5e3, \"t\": true, \"n\": null,"
+                + " \"big\": 123456789012345678901234567890, \"empty\": {}, \"list\": [1, \"x\", {\"k\": [2, {}]}, []],"
+                + " \"nested\": {\"inner\": {\"s\": \"}\", \"a\": [\"]\", {\"z\": 0}]}}}";
+        JSONObject eager = new JSONObject(source);
+        assertEquals(eager.toString(), JSONObject.parseLazily(source).toString());
+        assertTrue(eager.similar(JSONObject.parseLazily(source)));
+
+        JSONObject lazy = JSONObject.parseLazily(source);
+        assertEquals(12, lazy.getInt("id"));
+        assertEquals("a \"}]\" b", lazy.getString("name"));
+        assertEquals("}", lazy.getJSONObject("nested").getJSONObject("inner").getString("s"));
+        assertEquals(0, lazy.getJSONObject("nested").getJSONObject("inner").getJSONArray("a").getJSONObject(1).getInt("z"));
+        assertEquals(eager.get("big"), lazy.get("big"));
+        assertEquals(JSONObject.NULL, lazy.remove("n"));
+        eager.remove("n");
+        assertEquals(eager.toMap(), lazy.toMap());
+        assertEquals(eager.toString(), lazy.toString());
+
+        String array = "[{\"id\": 1, \"v\": [1, 2]}, {\"id\": 2, \"v\": {\"w\": \"]\"}}]";
+        JSONArray lazyArray = JSONArray.parseLazily(array);
+        assertEquals("]", lazyArray.getJSONObject(1).getJSONObject("v").getString("w"));
+        assertTrue(new JSONArray(array).similar(lazyArray));
+    }
+
+    /**
+     * A lazy JSONObject reports the errors around its values at once, and
+     * the errors inside a value when the value is read.
+     */
+    @Test
+    public void testParseLazilyErrors() {
+        for (String source : new String[] {"{\"a\": 1, \"a\": 2}", "{\"a\": 1", "{\"a\" 1}", "{\"a\": [1, 2}", "[1]"}) {
+            try {
+                JSONObject.parseLazily(source);
+                fail(source);
+            } catch (JSONException expected) {
+            }
+        }
+        JSONObject lazy = JSONObject.parseLazily("{\"ok\": 1, \"bad\": {\"x\" 1}}");
+        assertEquals(1, lazy.getInt("ok"));
+        try {
+            lazy.getJSONObject("bad");
+            fail("Missing ':' in the value");
+        } catch (JSONException expected) {
+        }
+    }
+
+    /**
+     * stringToValue, from a String or from characters, and XML.stringToValue
+     * give the same values as the former Double.valueOf / Long.valueOf code.
+     */
+    @Test
+    public void testStringToValue() {
+        List<String> strings = new ArrayList<>(Arrays.asList(
+                "", "0", "-0", "00", "-", "--1", "1-", "7", "-7", "2147483647", "2147483648",
+                "-2147483648", "-2147483649", "9223372036854775807", "9223372036854775808",
+                "-9223372036854775808", "-9223372036854775809", "01", "0.0", "-0.0", "1.",
+                ".5", "-.5", "1.5", "1e3", "1E3", "1e+3", "1e-3", "1e", "1e+", "e1", "1.5e308",
+                "1e309", "-1e309", "4.9e-324", "1e-400", "0.1", "0.30000000000000004",
+                "123456789012345678901234567890", "1234567890.1234567890123", "9007199254740993",
+                "9007199254740993.0", "1.5d", "1.5f", "0x10", "0x1.8p1", "1_000", "1 ", " 1",
+                "true", "TRUE", "False", "null", "NULL", "abc", "-abc", "Infinity", "-Infinity", "NaN"));
+        // longer than the buffer of JSONNumberScanner.scan(String)
+        strings.add("0." + String.join("", Collections.nCopies(70, "0")) + "1");
+        strings.add(String.join("", Collections.nCopies(70, "9")));
+        strings.add("-" + String.join("", Collections.nCopies(70, "1")) + "e-60");
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i += 1) {
+            strings.add(Long.toString(random.nextLong() >> random.nextInt(64)));
+            strings.add(Double.toString(Double.longBitsToDouble(random.nextLong())));
+            strings.add(Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20)));
+            strings.add((random.nextInt(2000) - 1000) + "." + random.nextInt(1000) + "e" + (random.nextInt(60) - 30));
+        }
+        for (String string : strings) {
+            Object expected = legacyStringToValue(string);
+            assertEquals(string, expected, JSONObject.stringToValue(string));
+            assertEquals(string, expected, XML.stringToValue(string));
+            char[] chars = ("[" + string + "]").toCharArray();
+            assertEquals(string, expected, JSONObject.stringToValue(chars, 1, string.length()));
+        }
+    }
+
+    /**
+     * quote writes the same text as the former char by char code, for strings
+     * mixing plain runs with every escaped or special character.
+     * @throws IOException if the writer fails.
+     */
+    @Test
+    public void testQuote() throws IOException {
+        String special = "\\\"/<\b\t\n\f\r\u0000\u001f\u007f\u0080\u009f\u00a0\u1fff\u2000\u2028\u20ff\u2100\uD83D\uDE00";
+        List<String> strings = new ArrayList<>(Arrays.asList(null, "", "a", "plain ascii text", "</script>", "<", "/", "//", "</"));
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i += 1) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(40);
+            for (int j = 0; j < length; j += 1) {
+                sb.append(random.nextInt(3) == 0 ? special.charAt(random.nextInt(special.length()))
+                        : (char) ('a' + random.nextInt(26)));
+            }
+            strings.add(sb.toString());
+        }
+        for (String string : strings) {
+            String expected = legacyQuote(string, new StringWriter()).toString();
+            assertEquals(string, expected, JSONObject.quote(string));
+            assertEquals(string, expected, JSONObject.quote(string, new StringWriter()).toString());
+        }
+    }
+
+    /**
+     * quote as it was before the strings were escaped in runs.
+     * @param string A String.
+     * @param w The writer.
+     * @return The writer.
+     * @throws IOException if the writer fails.
+     */
+    private static Writer legacyQuote(String string, Writer w) throws IOException {
+        if (string == null || string.isEmpty()) {
+            w.write("\"\"");
+            return w;
+        }
+        char b;
+        char c = 0;
+        String hhhh;
+        int len = string.length();
+        w.write('"');
+        for (int i = 0; i < len; i += 1) {
+            b = c;
+            c = string.charAt(i);
+            switch (c) {
+            case '\\':
+            case '"':
+                w.write('\\');
+                w.write(c);
+                break;
+            case '/':
+                if (b == '<') {
+                    w.write('\\');
+                }
+                w.write(c);
+                break;
+            case '\b':
+                w.write("\\b");
+                break;
+            case '\t':
+                w.write("\\t");
+                break;
+            case '\n':
+                w.write("\\n");
+                break;
+            case '\f':
+                w.write("\\f");
+                break;
+            case '\r':
+                w.write("\\r");
+                break;
+            default:
+                if (c < ' ' || (c >= '\u0080' && c < '\u00a0')
+                        || (c >= '\u2000' && c < '\u2100')) {
+                    w.write("\\u");
+                    hhhh = Integer.toHexString(c);
+                    w.write("0000", 0, 4 - hhhh.length());
+                    w.write(hhhh);
+                } else {
+                    w.write(c);
+                }
+            }
+        }
+        w.write('"');
+        return w;
+    }
+
+    /**
+     * stringToValue as it was before JSONNumberScanner.
+     * @param string A String.
+     * @return A simple JSON value.
+     */
+    private static Object legacyStringToValue(String string) {
+        if ("".equals(string)) {
+            return string;
+        }
+        if ("true".equalsIgnoreCase(string)) {
+            return Boolean.TRUE;
+        }
+        if ("false".equalsIgnoreCase(string)) {
+            return Boolean.FALSE;
+        }
+        if ("null".equalsIgnoreCase(string)) {
+            return JSONObject.NULL;
+        }
+        char initial = string.charAt(0);
+        if ((initial >= '0' && initial <= '9') || initial == '-') {
+            try {
+                if (string.indexOf('.') > -1 || string.indexOf('e') > -1
+                        || string.indexOf('E') > -1 || "-0".equals(string)) {
+                    Double d = Double.valueOf(string);
+                    if (!d.isInfinite() && !d.isNaN()) {
+                        return d;
+                    }
+                } else {
+                    Long myLong = Long.valueOf(string);
+                    if (string.equals(myLong.toString())) {
+                        if (myLong.longValue() == myLong.intValue()) {
+                            return Integer.valueOf(myLong.intValue());
+                        }
+                        return myLong;
+                    }
+                }
+            } catch (Exception ignore) {
+            }
+        }
+        return string;
+    }
+
+    /**
+     * A bean whose getter throws.
+     */
+    public static class FailingBean {
+        /**
+         * @return the id.
+         */
+        public int getId() {
+            return 1;
+        }
+
+        /**
+         * @return nothing, always throws.
+         */
+        public String getBroken() {
+            throw new IllegalStateException("broken");
+        }
+    }
+
+    /**
+     * A bean which refers to itself.
+     */
+    public static class CyclicBean {
+        /**
+         * @return this bean.
+         */
+        public CyclicBean getSelf() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,681 @@
+package org.json;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+import java.io.Reader;
+import java.util.NoSuchElementException;
+
+/**
+ * JSONReader is a pull parser: it reads JSON text from a {@link JSONTokener}
+ * one event at a time instead of building a JSONObject or JSONArray. The
+ * caller asks for the <code>next</code> event and reads the key or value
+ * behind it, so a document of any size can be scanned in constant memory.
+ * <p>
+ * Numbers are read with <code>getInt</code>, <code>getLong</code> and
+ * <code>getDouble</code> without boxing, <code>skipChildren</code> passes
+ * over an object or an array without building it, and <code>getValue</code>
+ * builds the current value when the caller does want it. For example,
+ * <pre>
+ * JSONReader reader = new JSONReader(new JSONTokener(in));
+ * long total = 0;
+ * while (reader.hasNext()) {
+ *     if (reader.next() == JSONReader.Event.KEY) {
+ *         if ("size".equals(reader.getString())
+ *                 &amp;&amp; reader.next() == JSONReader.Event.VALUE_NUMBER) {
+ *             total += reader.getLong();
+ *         } else {
+ *             reader.skipValue();
+ *         }
+ *     }
+ * }</pre>
+ * The reader accepts the same text as the JSONObject and JSONArray
+ * constructors: single quoted strings, unquoted keys and values, ';' between
+ * pairs, missing array elements and trailing separators. An unquoted value
+ * is a number only when <code>JSONObject.stringToValue</code> would make it a
+ * Number. Several values may follow each other at the top level, as in a file
+ * with one JSON text per line. Keys and strings are taken from the
+ * {@link JSONStringCache} of the tokener, if it has one.
+ * @author JSON.org
+ * @version 2026-10-18
+ */
+public class JSONReader {
+    /** The characters that end an unquoted token. */
+    private static final String DELIMITERS = ",:]}/\\\"[{;=#";
+    /**
+     * The events of a JSON text.
+     */
+    public enum Event {
+        /** The start of an object, '{'. */
+        START_OBJECT,
+        /** The end of an object, '}'. */
+        END_OBJECT,
+        /** The start of an array, '['. */
+        START_ARRAY,
+        /** The end of an array, ']'. */
+        END_ARRAY,
+        /** The key of an object pair. */
+        KEY,
+        /** A string value. */
+        VALUE_STRING,
+        /** A number value. */
+        VALUE_NUMBER,
+        /** The true value. */
+        VALUE_TRUE,
+        /** The false value. */
+        VALUE_FALSE,
+        /** The null value, or a missing array element. */
+        VALUE_NULL
+    }
+
+    /** The source of the text. */
+    private final JSONTokener tokener;
+
+    /** The text of the current key or scalar value. */
+    private final StringBuilder text = new StringBuilder();
+
+    /** The characters of the current unquoted token, for the number scanner. */
+    private char[] chars = new char[32];
+
+    /** The current key or string value, built on demand. */
+    private String string;
+
+    /** The current event, or null before the first one. */
+    private Event current;
+
+    /** The value of the current number, when it is an integer. */
+    private long longValue;
+
+    /** The value of the current number, when it has a decimal notation. */
+    private double doubleValue;
+
+    /** True if the current number has a decimal notation. */
+    private boolean decimal;
+
+    /** The kind of each open container, true for an object. */
+    private boolean[] objects = new boolean[32];
+
+    /** The number of open containers. */
+    private int depth;
+
+    /** True if no element of the innermost container has been read yet. */
+    private boolean first;
+
+    /** True if a key has been read and its value has not. */
+    private boolean afterKey;
+
+    /**
+     * Construct a JSONReader on a JSONTokener.
+     * @param tokener The source of the text.
+     */
+    public JSONReader(JSONTokener tokener) {
+        this.tokener = tokener;
+    }
+
+    /**
+     * Construct a JSONReader on a Reader. The caller must close the Reader.
+     * @param reader The source of the text.
+     */
+    public JSONReader(Reader reader) {
+        this(new JSONTokener(reader));
+    }
+
+    /**
+     * Construct a JSONReader on a string.
+     * @param source The text.
+     */
+    public JSONReader(String source) {
+        this(new JSONTokener(source));
+    }
+
+    /**
+     * Determine if the text has another event. Inside a container there is
+     * always one, possibly the end of the container; at the top level there
+     * is one if something other than white space follows.
+     * @return true if <code>next</code> can be called.
+     * @throws JSONException If the source cannot be read.
+     */
+    public boolean hasNext() throws JSONException {
+        if (this.depth > 0) {
+            return true;
+        }
+        if (this.tokener.nextClean() == 0) {
+            return false;
+        }
+        this.tokener.back();
+        return true;
+    }
+
+    /**
+     * Read the next event.
+     * @return The event.
+     * @throws JSONException If the text is not valid JSON.
+     * @throws NoSuchElementException If the text has no more events.
+     */
+    public Event next() throws JSONException {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        this.string = null;
+        if (this.depth == 0 || this.afterKey) {
+            this.afterKey = false;
+            return this.current = this.readValue(this.tokener.nextClean());
+        }
+        char c = this.tokener.nextClean();
+        if (this.objects[this.depth - 1]) {
+            if (!this.first) {
+                if (c == ',' || c == ';') {
+                    c = this.tokener.nextClean();
+                } else if (c != '}') {
+                    throw this.tokener.syntaxError("Expected a ',' or '}'");
+                }
+            }
+            if (c == '}') {
+                return this.current = this.pop(Event.END_OBJECT);
+            }
+            if (c == 0) {
+                throw this.tokener.syntaxError("A JSONObject text must end with '}'");
+            }
+            this.readKey(c);
+            if (this.tokener.nextClean() != ':') {
+                throw this.tokener.syntaxError("Expected a ':' after a key");
+            }
+            this.first = false;
+            this.afterKey = true;
+            return this.current = Event.KEY;
+        }
+        if (!this.first) {
+            if (c == ',') {
+                c = this.tokener.nextClean();
+            } else if (c != ']') {
+                throw this.tokener.syntaxError("Expected a ',' or ']'");
+            }
+        }
+        if (c == 0) {
+            throw this.tokener.syntaxError("Expected a ',' or ']'");
+        }
+        if (c == ']') {
+            return this.current = this.pop(Event.END_ARRAY);
+        }
+        this.first = false;
+        if (c == ',') {
+            // A missing element is null, as in the JSONArray constructor.
+            this.tokener.back();
+            this.text.setLength(0);
+            return this.current = Event.VALUE_NULL;
+        }
+        return this.current = this.readValue(c);
+    }
+
+    /**
+     * Get the current event.
+     * @return The event returned by the last call to <code>next</code>, or
+     *  null if <code>next</code> has not been called.
+     */
+    public Event getEvent() {
+        return this.current;
+    }
+
+    /**
+     * Get the number of objects and arrays that are open.
+     * @return The depth, 0 at the top level.
+     */
+    public int getDepth() {
+        return this.depth;
+    }
+
+    /**
+     * Get the current key, or the text of the current string, number, boolean
+     * or null.
+     * @return The text.
+     * @throws JSONException If the current event is not a key or a value.
+     */
+    public String getString() throws JSONException {
+        if (this.current == null || this.isContainerEvent()) {
+            throw new JSONException("No text at " + this.current);
+        }
+        if (this.string == null) {
+            JSONStringCache cache = this.tokener.getStringCache();
+            this.string = (cache == null) ? this.text.toString() : cache.intern(this.text);
+        }
+        return this.string;
+    }
+
+    /**
+     * Get the current number as a long. A number with a decimal notation is
+     * truncated, and a string is converted, as by <code>JSONObject.getLong</code>.
+     * @return The value.
+     * @throws JSONException If the current value is not a number.
+     */
+    public long getLong() throws JSONException {
+        if (this.current == Event.VALUE_NUMBER) {
+            return this.decimal ? (long) this.doubleValue : this.longValue;
+        }
+        return this.stringToNumber().longValue();
+    }
+
+    /**
+     * Get the current number as an int. A number with a decimal notation is
+     * truncated, and a string is converted, as by <code>JSONObject.getInt</code>.
+     * @return The value.
+     * @throws JSONException If the current value is not a number.
+     */
+    public int getInt() throws JSONException {
+        if (this.current == Event.VALUE_NUMBER) {
+            return this.decimal ? (int) this.doubleValue : (int) this.longValue;
+        }
+        return this.stringToNumber().intValue();
+    }
+
+    /**
+     * Get the current number as a double. A string is converted, as by
+     * <code>JSONObject.getDouble</code>.
+     * @return The value.
+     * @throws JSONException If the current value is not a number.
+     */
+    public double getDouble() throws JSONException {
+        if (this.current == Event.VALUE_NUMBER) {
+            return this.decimal ? this.doubleValue : this.longValue;
+        }
+        return this.stringToNumber().doubleValue();
+    }
+
+    /**
+     * Get the current boolean. The strings "true" and "false" are accepted,
+     * as by <code>JSONObject.getBoolean</code>.
+     * @return The value.
+     * @throws JSONException If the current value is not a boolean.
+     */
+    public boolean getBoolean() throws JSONException {
+        if (this.current == Event.VALUE_TRUE) {
+            return true;
+        }
+        if (this.current == Event.VALUE_FALSE) {
+            return false;
+        }
+        if (this.current == Event.VALUE_STRING) {
+            if (this.textEqualsIgnoreCase("true")) {
+                return true;
+            }
+            if (this.textEqualsIgnoreCase("false")) {
+                return false;
+            }
+        }
+        throw new JSONException("Value is not a Boolean at " + this.current);
+    }
+
+    /**
+     * Get the current value as the JSONObject and JSONArray constructors
+     * would: a String, Boolean, Integer, Long, Double or JSONObject.NULL. On
+     * START_OBJECT or START_ARRAY the whole object or array is read, and the
+     * reader moves to the matching END_OBJECT or END_ARRAY.
+     * @return The value, or the key on a KEY event.
+     * @throws JSONException If there is a syntax error, or the current event
+     *  is an end event.
+     */
+    public Object getValue() throws JSONException {
+        if (this.current == null) {
+            throw new JSONException("No current value");
+        }
+        switch (this.current) {
+        case START_OBJECT:
+            this.tokener.back();
+            JSONObject object = new JSONObject(this.tokener);
+            this.current = this.pop(Event.END_OBJECT);
+            return object;
+        case START_ARRAY:
+            this.tokener.back();
+            JSONArray array = new JSONArray(this.tokener);
+            this.current = this.pop(Event.END_ARRAY);
+            return array;
+        case KEY:
+        case VALUE_STRING:
+            return this.getString();
+        case VALUE_NUMBER:
+            if (this.decimal) {
+                return Double.valueOf(this.doubleValue);
+            }
+            if (this.longValue == (int) this.longValue) {
+                return Integer.valueOf((int) this.longValue);
+            }
+            return Long.valueOf(this.longValue);
+        case VALUE_TRUE:
+            return Boolean.TRUE;
+        case VALUE_FALSE:
+            return Boolean.FALSE;
+        case VALUE_NULL:
+            return JSONObject.NULL;
+        default:
+            throw new JSONException("No value at " + this.current);
+        }
+    }
+
+    /**
+     * Skip the content of the current object or array, without building it
+     * and without checking more than its brackets and strings. The reader
+     * moves to the matching END_OBJECT or END_ARRAY. On any other event
+     * nothing is skipped.
+     * @throws JSONException If the text ends before the container.
+     */
+    public void skipChildren() throws JSONException {
+        if (this.current != Event.START_OBJECT && this.current != Event.START_ARRAY) {
+            return;
+        }
+        int level = 1;
+        boolean token = false;
+        while (level > 0) {
+            char c = this.tokener.next();
+            if (token) {
+                // A quote inside an unquoted token does not start a string.
+                if (c >= ' ' && DELIMITERS.indexOf(c) < 0) {
+                    continue;
+                }
+                token = false;
+            }
+            switch (c) {
+            case 0:
+                throw this.tokener.syntaxError("Unterminated " +
+                        (this.current == Event.START_OBJECT ? "JSONObject" : "JSONArray"));
+            case '{':
+            case '[':
+                level += 1;
+                break;
+            case '}':
+            case ']':
+                level -= 1;
+                break;
+            case '"':
+            case '\'':
+                this.readString(c, false);
+                break;
+            default:
+                token = c > ' ' && DELIMITERS.indexOf(c) < 0;
+            }
+        }
+        this.current = this.pop(this.current == Event.START_OBJECT ? Event.END_OBJECT : Event.END_ARRAY);
+    }
+
+    /**
+     * Skip the current value. On a KEY event the value of the pair is read
+     * and skipped; on START_OBJECT or START_ARRAY the container is skipped as
+     * by <code>skipChildren</code>.
+     * @throws JSONException If there is a syntax error.
+     */
+    public void skipValue() throws JSONException {
+        if (this.current == Event.KEY) {
+            this.next();
+        }
+        this.skipChildren();
+    }
+
+    /**
+     * Read a value that begins with the given character.
+     * @param c The first character of the value.
+     * @return The event of the value.
+     * @throws JSONException If there is a syntax error.
+     */
+    private Event readValue(char c) throws JSONException {
+        switch (c) {
+        case '{':
+            this.push(true);
+            return Event.START_OBJECT;
+        case '[':
+            this.push(false);
+            return Event.START_ARRAY;
+        case '"':
+        case '\'':
+            this.text.setLength(0);
+            this.readString(c, true);
+            return Event.VALUE_STRING;
+        default:
+            this.readToken(c);
+            return this.classifyToken();
+        }
+    }
+
+    /**
+     * Read a key that begins with the given character, quoted or not.
+     * @param c The first character of the key.
+     * @throws JSONException If there is a syntax error.
+     */
+    private void readKey(char c) throws JSONException {
+        this.text.setLength(0);
+        if (c == '"' || c == '\'') {
+            this.readString(c, true);
+        } else {
+            this.readToken(c);
+        }
+    }
+
+    /**
+     * Read the characters of a string up to the closing quote, with backslash
+     * processing.
+     * @param quote The quoting character.
+     * @param keep True to append the characters to the text, false to skip them.
+     * @throws JSONException If the string is unterminated or has a bad escape.
+     */
+    private void readString(char quote, boolean keep) throws JSONException {
+        for (;;) {
+            char c = this.tokener.next();
+            switch (c) {
+            case 0:
+            case '\n':
+            case '\r':
+                throw this.tokener.syntaxError("Unterminated string");
+            case '\\':
+                c = this.tokener.next();
+                switch (c) {
+                case 'b':
+                    c = '\b';
+                    break;
+                case 't':
+                    c = '\t';
+                    break;
+                case 'n':
+                    c = '\n';
+                    break;
+                case 'f':
+                    c = '\f';
+                    break;
+                case 'r':
+                    c = '\r';
+                    break;
+                case 'u':
+                    c = this.readHex();
+                    break;
+                case '"':
+                case '\'':
+                case '\\':
+                case '/':
+                    break;
+                default:
+                    throw this.tokener.syntaxError("Illegal escape.");
+                }
+                if (keep) {
+                    this.text.append(c);
+                }
+                break;
+            default:
+                if (c == quote) {
+                    return;
+                }
+                if (keep) {
+                    this.text.append(c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the four hexadecimal digits of a unicode escape.
+     * @return The character.
+     * @throws JSONException If a digit is not hexadecimal.
+     */
+    private char readHex() throws JSONException {
+        int value = 0;
+        for (int i = 0; i < 4; i += 1) {
+            int digit = JSONTokener.dehexchar(this.tokener.next());
+            if (digit < 0) {
+                throw this.tokener.syntaxError("Illegal escape.");
+            }
+            value = (value << 4) | digit;
+        }
+        return (char) value;
+    }
+
+    /**
+     * Read an unquoted token that begins with the given character, up to a
+     * formatting character, as <code>JSONTokener.nextValue</code> does.
+     * @param c The first character of the token.
+     * @throws JSONException If the token is empty.
+     */
+    private void readToken(char c) throws JSONException {
+        this.text.setLength(0);
+        while (c >= ' ' && DELIMITERS.indexOf(c) < 0) {
+            this.text.append(c);
+            c = this.tokener.next();
+        }
+        if (c != 0) {
+            this.tokener.back();
+        }
+        int length = this.text.length();
+        while (length > 0 && this.text.charAt(length - 1) <= ' ') {
+            length -= 1;
+        }
+        this.text.setLength(length);
+        if (length == 0) {
+            throw this.tokener.syntaxError("Missing value");
+        }
+    }
+
+    /**
+     * Find the event of the unquoted token in the text, as
+     * <code>JSONObject.stringToValue</code> would convert it.
+     * @return The event.
+     */
+    private Event classifyToken() {
+        if (this.textEqualsIgnoreCase("true")) {
+            return Event.VALUE_TRUE;
+        }
+        if (this.textEqualsIgnoreCase("false")) {
+            return Event.VALUE_FALSE;
+        }
+        if (this.textEqualsIgnoreCase("null")) {
+            return Event.VALUE_NULL;
+        }
+        char initial = this.text.charAt(0);
+        if ((initial >= '0' && initial <= '9') || initial == '-') {
+            int length = this.text.length();
+            if (this.chars.length < length) {
+                this.chars = new char[Math.max(length, this.chars.length * 2)];
+            }
+            this.text.getChars(0, length, this.chars, 0);
+            if (JSONNumberScanner.isDecimalNotation(this.chars, 0, length)) {
+                double d = JSONNumberScanner.scanDouble(this.chars, 0, length);
+                if (!Double.isNaN(d)) {
+                    this.decimal = true;
+                    this.doubleValue = d;
+                    return Event.VALUE_NUMBER;
+                }
+            } else if (JSONNumberScanner.scanSign(this.chars, 0, length) != 0) {
+                this.decimal = false;
+                this.longValue = JSONNumberScanner.scanLong(this.chars, 0, length);
+                return Event.VALUE_NUMBER;
+            }
+        }
+        return Event.VALUE_STRING;
+    }
+
+    /**
+     * Convert the current string to a number.
+     * @return The number.
+     * @throws JSONException If the current value is not a number or a string
+     *  holding a number.
+     */
+    private Number stringToNumber() throws JSONException {
+        if (this.current == Event.VALUE_STRING && this.text.length() > 0) {
+            try {
+                return JSONObject.stringToNumber(this.getString());
+            } catch (NumberFormatException e) {
+                throw new JSONException("Value is not a number: " + this.getString(), e);
+            }
+        }
+        throw new JSONException("Value is not a number at " + this.current);
+    }
+
+    /**
+     * Compare the text with a lower case word, ignoring case.
+     * @param word The word.
+     * @return true if the text is the word.
+     */
+    private boolean textEqualsIgnoreCase(String word) {
+        int length = word.length();
+        if (this.text.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i += 1) {
+            if (Character.toLowerCase(this.text.charAt(i)) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determine if the current event opens or closes a container.
+     * @return true for START_OBJECT, END_OBJECT, START_ARRAY and END_ARRAY.
+     */
+    private boolean isContainerEvent() {
+        return this.current == Event.START_OBJECT || this.current == Event.END_OBJECT
+                || this.current == Event.START_ARRAY || this.current == Event.END_ARRAY;
+    }
+
+    /**
+     * Open a container.
+     * @param object true for an object, false for an array.
+     */
+    private void push(boolean object) {
+        if (this.depth == this.objects.length) {
+            boolean[] grown = new boolean[this.depth * 2];
+            System.arraycopy(this.objects, 0, grown, 0, this.depth);
+            this.objects = grown;
+        }
+        this.objects[this.depth] = object;
+        this.depth += 1;
+        this.first = true;
+        this.afterKey = false;
+    }
+
+    /**
+     * Close the innermost container.
+     * @param event The end event of the container.
+     * @return The end event.
+     */
+    private Event pop(Event event) {
+        this.depth -= 1;
+        this.first = false;
+        this.afterKey = false;
+        return event;
+    }
+}
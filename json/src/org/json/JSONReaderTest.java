@@ -0,0 +1,252 @@
+package org.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * JSONReader tests.
+ * @author JSON.org
+ * @version 2026-10-18
+ */
+public class JSONReaderTest {
+
+    /**
+     * Texts accepted by the JSONObject and JSONArray constructors, with the
+     * lenient syntax they allow.
+     */
+    private static final String[] TEXTS = {
+        "{}",
+        "[]",
+        "[,1]",
+        "[1,]",
+        "[1,,2]",
+        "[,]",
+        "{\"a\":1,}",
+        "{a:1;b:'x',c : \"y\"}",
+        "['single \"quoted\"', \"double 'quoted'\"]",
+        "[abc, -0, 0, -1, 1e3, 1.5E-3, 0x10, 00, 1_0, true, TRUE, false, null, NULL, -abc, 2147483648]",
+        "[9223372036854775807, -9223372036854775808, 0.1, -0.0, 4.9e-324, 1.7976931348623157e308]",
+        "{\"a\":{\"b\":[{\"c\":[[]]},{}]},\"d\":[[1,[2,[3]]]]}",
+        "{\"brackets\":\"]}{[\\\",'\",\"key]\":\"}\"}",
+        "{\"escapes\":\"\\b\\t\\n\\f\\r\\\"\\\\\\/\\u0041\\u00e9\\uD83D\\uDE00\"}",
+        "  {  \"spaced\"  :  [ 1 , 2 ]  }  ",
+        "[unquoted text with spaces , 1 2]"
+    };
+
+    /**
+     * A tree rebuilt from the events is the tree built by the JSONObject and
+     * JSONArray constructors.
+     */
+    @Test
+    public void testEvents() {
+        List<String> texts = new ArrayList<>(Arrays.asList(TEXTS));
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i += 1) {
+            texts.add(randomObject(random, 0).toString(random.nextInt(3)));
+        }
+        for (String text : texts) {
+            JSONReader reader = new JSONReader(text);
+            reader.next();
+            assertEquals(text, parse(text).toString(), build(reader, false).toString());
+            assertEquals(text, 0, reader.getDepth());
+            assertFalse(text, reader.hasNext());
+        }
+    }
+
+    /**
+     * skipValue on a key and skipChildren on an object or an array leave the
+     * reader after the skipped value, whatever strings and brackets it holds.
+     */
+    @Test
+    public void testSkip() {
+        List<String> texts = new ArrayList<>(Arrays.asList(TEXTS));
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i += 1) {
+            texts.add(randomObject(random, 0).toString(random.nextInt(3)));
+        }
+        for (String text : texts) {
+            JSONReader reader = new JSONReader(text);
+            reader.next();
+            assertEquals(text, prune(parse(text)).toString(), build(reader, true).toString());
+            assertFalse(text, reader.hasNext());
+            reader = new JSONReader(text);
+            reader.next();
+            reader.skipChildren();
+            assertEquals(text, 0, reader.getDepth());
+            assertFalse(text, reader.hasNext());
+        }
+    }
+
+    /**
+     * Several values may follow each other at the top level.
+     */
+    @Test
+    public void testTopLevelValues() {
+        JSONReader reader = new JSONReader("{\"a\":[1]}\n[2, 3]\n\"four\" 5\n");
+        List<Object> values = new ArrayList<>();
+        while (reader.hasNext()) {
+            reader.next();
+            values.add(reader.getValue());
+        }
+        assertEquals("[{\"a\":[1]}, [2,3], four, 5]", values.toString());
+    }
+
+    /**
+     * Syntax errors are reported like the JSONObject and JSONArray
+     * constructors do.
+     */
+    @Test
+    public void testErrors() {
+        String[] texts = {"{\"a\" 1}", "{\"a\":1 \"b\":2}", "[\"a\" \"b\"]", "{\"a\":1", "[1", "[\"a]", "{\"a\":[}"};
+        for (String text : texts) {
+            try {
+                parse(text);
+                fail(text);
+            } catch (JSONException expected) {
+            }
+            try {
+                JSONReader reader = new JSONReader(text);
+                while (reader.hasNext()) {
+                    reader.next();
+                }
+                fail(text);
+            } catch (JSONException expected) {
+            }
+        }
+    }
+
+    /**
+     * Build the current value from the events. With skip, the pairs whose
+     * key starts with 's' are skipped with skipValue, and a first array
+     * element which is an object or an array with skipChildren.
+     * @param reader the reader, on the first event of the value.
+     * @param skip true to skip some values.
+     * @return the value.
+     */
+    private static Object build(JSONReader reader, boolean skip) {
+        switch (reader.getEvent()) {
+        case START_OBJECT:
+            JSONObject object = new JSONObject();
+            while (reader.next() != JSONReader.Event.END_OBJECT) {
+                String key = reader.getString();
+                if (skip && key.startsWith("s")) {
+                    reader.skipValue();
+                } else {
+                    reader.next();
+                    object.put(key, build(reader, skip));
+                }
+            }
+            return object;
+        case START_ARRAY:
+            JSONArray array = new JSONArray();
+            for (int i = 0; reader.next() != JSONReader.Event.END_ARRAY; i += 1) {
+                JSONReader.Event event = reader.getEvent();
+                if (skip && i == 0 && (event == JSONReader.Event.START_OBJECT || event == JSONReader.Event.START_ARRAY)) {
+                    int depth = reader.getDepth();
+                    reader.skipChildren();
+                    assertEquals(depth - 1, reader.getDepth());
+                    assertEquals(event == JSONReader.Event.START_OBJECT ? JSONReader.Event.END_OBJECT
+                            : JSONReader.Event.END_ARRAY, reader.getEvent());
+                } else {
+                    array.put(build(reader, skip));
+                }
+            }
+            return array;
+        default:
+            return reader.getValue();
+        }
+    }
+
+    /**
+     * Remove from a tree what build skips.
+     * @param value a value of the tree.
+     * @return the value without the skipped parts.
+     */
+    private static Object prune(Object value) {
+        if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            JSONObject pruned = new JSONObject();
+            for (String key : object.keySet()) {
+                if (!key.startsWith("s")) {
+                    pruned.put(key, prune(object.get(key)));
+                }
+            }
+            return pruned;
+        }
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            JSONArray pruned = new JSONArray();
+            for (int i = 0; i < array.length(); i += 1) {
+                Object element = array.get(i);
+                if (i > 0 || !(element instanceof JSONObject || element instanceof JSONArray)) {
+                    pruned.put(prune(element));
+                }
+            }
+            return pruned;
+        }
+        return value;
+    }
+
+    private static Object parse(String text) {
+        String trimmed = text.trim();
+        return trimmed.startsWith("{") ? new JSONObject(trimmed) : new JSONArray(trimmed);
+    }
+
+    private static JSONObject randomObject(Random random, int depth) {
+        JSONObject object = new JSONObject();
+        int length = random.nextInt(6);
+        for (int i = 0; i < length; i += 1) {
+            object.put(randomString(random), randomValue(random, depth + 1));
+        }
+        return object;
+    }
+
+    private static JSONArray randomArray(Random random, int depth) {
+        JSONArray array = new JSONArray();
+        int length = random.nextInt(6);
+        for (int i = 0; i < length; i += 1) {
+            array.put(randomValue(random, depth + 1));
+        }
+        return array;
+    }
+
+    private static Object randomValue(Random random, int depth) {
+        switch (random.nextInt(depth < 4 ? 9 : 7)) {
+        case 0:
+            return randomString(random);
+        case 1:
+            return random.nextInt();
+        case 2:
+            return random.nextLong();
+        case 3:
+            return random.nextGaussian() * Math.pow(10, random.nextInt(40) - 20);
+        case 4:
+            return random.nextBoolean();
+        case 5:
+            return JSONObject.NULL;
+        case 6:
+            return random.nextInt(100);
+        case 7:
+            return randomObject(random, depth);
+        default:
+            return randomArray(random, depth);
+        }
+    }
+
+    private static String randomString(Random random) {
+        String special = "{}[]\"',:;\\/ \n\t\u00e9\uD83D\uDE00";
+        StringBuilder sb = new StringBuilder();
+        int length = random.nextInt(10);
+        for (int i = 0; i < length; i += 1) {
+            sb.append(random.nextInt(3) == 0 ? special.charAt(random.nextInt(special.length()))
+                    : (char) ('a' + random.nextInt(26)));
+        }
+        return sb.toString();
+    }
+}
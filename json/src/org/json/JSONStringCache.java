@@ -0,0 +1,167 @@
+package org.json;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+import java.util.Arrays;
+
+/**
+ * JSONStringCache is a bounded symbol table for the strings produced while
+ * parsing. Documents made of many similar objects repeat the same keys and
+ * the same short values; when a {@link JSONTokener} is given a cache, each
+ * of these strings is kept once and shared by every JSONObject that holds it,
+ * instead of one copy per object.
+ * <p>
+ * The cache is a fixed table of slots indexed by the hash of the characters:
+ * a string replaces the one in its slot on a miss, so its memory stays
+ * bounded by the number of slots and the maximum length, whatever the size
+ * of the input. A hit returns the cached string without creating a new one.
+ * Strings longer than the maximum length are never cached. A cache may be
+ * shared by several tokeners, in one thread or several: the strings are
+ * compared before being returned, so a race can only cause a miss.
+ * <pre>
+ * JSONTokener x = new JSONTokener(reader);
+ * x.setStringCache(new JSONStringCache());
+ * JSONArray objects = new JSONArray(x);</pre>
+ * @author JSON.org
+ * @version 2026-10-18
+ */
+public class JSONStringCache {
+    /** The default number of slots. */
+    public static final int DEFAULT_SIZE = 4096;
+
+    /** The default maximum length of a cached string. */
+    public static final int DEFAULT_MAX_LENGTH = 32;
+
+    /** The slots. */
+    private final String[] strings;
+
+    /** The mask that turns a hash into a slot index. */
+    private final int mask;
+
+    /** The maximum length of a cached string. */
+    private final int maxLength;
+
+    /**
+     * Construct a cache with {@value #DEFAULT_SIZE} slots for strings of at
+     * most {@value #DEFAULT_MAX_LENGTH} characters.
+     */
+    public JSONStringCache() {
+        this(DEFAULT_SIZE, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * Construct a cache.
+     * @param size The number of slots, rounded up to a power of two.
+     * @param maxLength The maximum length of a cached string.
+     */
+    public JSONStringCache(int size, int maxLength) {
+        if (size < 1 || size > 1 << 30) {
+            throw new IllegalArgumentException("Invalid cache size: " + size);
+        }
+        int slots = Integer.highestOneBit(size);
+        if (slots < size) {
+            slots <<= 1;
+        }
+        this.strings = new String[slots];
+        this.mask = slots - 1;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Get the maximum length of a cached string.
+     * @return The maximum length.
+     */
+    public int getMaxLength() {
+        return this.maxLength;
+    }
+
+    /**
+     * Get the canonical string for a range of a char array.
+     * @param chars The array.
+     * @param offset The index of the first character.
+     * @param length The number of characters.
+     * @return The cached string equal to the characters, or a new string.
+     */
+    public String intern(char[] chars, int offset, int length) {
+        if (length > this.maxLength) {
+            return new String(chars, offset, length);
+        }
+        int hash = 0;
+        for (int i = 0; i < length; i += 1) {
+            hash = 31 * hash + chars[offset + i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & this.mask;
+        String cached = this.strings[slot];
+        if (cached != null && cached.length() == length) {
+            int i = 0;
+            while (i < length && cached.charAt(i) == chars[offset + i]) {
+                i += 1;
+            }
+            if (i == length) {
+                return cached;
+            }
+        }
+        String string = new String(chars, offset, length);
+        this.strings[slot] = string;
+        return string;
+    }
+
+    /**
+     * Get the canonical string for a character sequence.
+     * @param s The characters.
+     * @return The cached string equal to the characters, or a new string.
+     */
+    public String intern(CharSequence s) {
+        int length = s.length();
+        if (length > this.maxLength) {
+            return s.toString();
+        }
+        int hash = 0;
+        for (int i = 0; i < length; i += 1) {
+            hash = 31 * hash + s.charAt(i);
+        }
+        int slot = (hash ^ (hash >>> 16)) & this.mask;
+        String cached = this.strings[slot];
+        if (cached != null && cached.length() == length) {
+            int i = 0;
+            while (i < length && cached.charAt(i) == s.charAt(i)) {
+                i += 1;
+            }
+            if (i == length) {
+                return cached;
+            }
+        }
+        String string = s.toString();
+        this.strings[slot] = string;
+        return string;
+    }
+
+    /**
+     * Remove every string from the cache.
+     */
+    public void clear() {
+        Arrays.fill(this.strings, null);
+    }
+}
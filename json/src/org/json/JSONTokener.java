@@ -5,7 +5,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.StringReader;
 
 /*
 Copyright (c) 2002 JSON.org
@@ -35,8 +34,15 @@ SOFTWARE.
  * A JSONTokener takes a source string and extracts characters and tokens from
  * it. It is used by the JSONObject and JSONArray constructors to parse
  * JSON source strings.
+ * <p>
+ * A source held in memory (a String, a char array or another CharSequence)
+ * is scanned directly in a char array, without a Reader. The line and the
+ * character position are then only computed when an error is reported.
+ * <p>
+ * A {@link JSONStringCache} set with <code>setStringCache</code> makes the
+ * quoted strings, keys included, be shared instead of copied.
  * @author JSON.org
- * @version 2014-05-03
+ * @version 2026-10-18
  */
 public class JSONTokener {
     /** current read character position on the current line. */
@@ -55,6 +61,18 @@ public class JSONTokener {
     private boolean usePrevious;
     /** the number of characters read in the previous line. */
     private long characterPreviousLine;
+    /** characters of an in-memory source, or null when reading a Reader. */
+    private final char[] buffer;
+    /** index of the first character of the source in the buffer. */
+    private final int start;
+    /** index after the last character of the source in the buffer. */
+    private final int limit;
+    /** index of the next character to read in the buffer. */
+    private int position;
+    /** cache of the strings read, or null. */
+    private JSONStringCache stringCache;
+    /** characters of the last unquoted token read from a Reader. */
+    private char[] token = new char[32];
 
 
     /**
@@ -66,6 +84,9 @@ public class JSONTokener {
         this.reader = reader.markSupported()
                 ? reader
                         : new BufferedReader(reader);
+        this.buffer = null;
+        this.start = 0;
+        this.limit = 0;
         this.eof = false;
         this.usePrevious = false;
         this.previous = 0;
@@ -91,7 +112,94 @@ public class JSONTokener {
      * @param s     A source string.
      */
     public JSONTokener(String s) {
-        this(new StringReader(s));
+        this(s.toCharArray(), 0, s.length());
+    }
+
+
+    /**
+     * Construct a JSONTokener from a character sequence. The characters are
+     * copied, so the sequence may change afterwards.
+     *
+     * @param s     A source character sequence.
+     */
+    public JSONTokener(CharSequence s) {
+        this(toCharArray(s), 0, s.length());
+    }
+
+
+    /**
+     * Construct a JSONTokener from a char array. The array is read in place
+     * and must not be modified while the tokener is used.
+     *
+     * @param chars     The source characters.
+     */
+    public JSONTokener(char[] chars) {
+        this(chars, 0, chars.length);
+    }
+
+
+    /**
+     * Construct a JSONTokener on a range of a char array.
+     *
+     * @param buffer    The array holding the source.
+     * @param start     The index of the first character of the source.
+     * @param limit     The index after the last character of the source.
+     */
+    JSONTokener(char[] buffer, int start, int limit) {
+        this.reader = null;
+        this.buffer = buffer;
+        this.start = start;
+        this.limit = limit;
+        this.position = start;
+        this.eof = false;
+        this.usePrevious = false;
+        this.previous = 0;
+        this.index = 0;
+        this.character = 1;
+        this.characterPreviousLine = 0;
+        this.line = 1;
+    }
+
+
+    /**
+     * Copy a character sequence into a new char array.
+     *
+     * @param s     The sequence.
+     * @return      The characters of the sequence.
+     */
+    private static char[] toCharArray(CharSequence s) {
+        if (s instanceof String) {
+            return ((String) s).toCharArray();
+        }
+        char[] chars = new char[s.length()];
+        if (s instanceof StringBuilder) {
+            ((StringBuilder) s).getChars(0, chars.length, chars, 0);
+        } else {
+            for (int i = 0; i < chars.length; i += 1) {
+                chars[i] = s.charAt(i);
+            }
+        }
+        return chars;
+    }
+
+
+    /**
+     * Get the cache of the strings read by this tokener.
+     * @return The cache, or null if strings are not cached.
+     */
+    public JSONStringCache getStringCache() {
+        return this.stringCache;
+    }
+
+
+    /**
+     * Set the cache of the strings read by this tokener. The quoted strings
+     * that are not longer than the maximum length of the cache, and so most
+     * keys, are then taken from the cache.
+     * @param stringCache The cache, or null to stop caching strings.
+     */
+    public void setStringCache(JSONStringCache stringCache) {
+        this.stringCache = stringCache;
     }
 
 
@@ -103,6 +211,15 @@ public class JSONTokener {
      *  or if already at the start of the string
      */
     public void back() throws JSONException {
+        if (this.buffer != null) {
+            if (this.usePrevious || this.position <= this.start) {
+                throw new JSONException("Stepping back two steps is not supported");
+            }
+            this.position -= 1;
+            this.usePrevious = true;
+            this.eof = false;
+            return;
+        }
         if (this.usePrevious || this.index <= 0) {
             throw new JSONException("Stepping back two steps is not supported");
         }
@@ -164,6 +281,14 @@ public class JSONTokener {
         if(this.usePrevious) {
             return true;
         }
+        if (this.buffer != null) {
+            // the null character can not be consumed by next()
+            if (this.position < this.limit && this.buffer[this.position] != 0) {
+                return true;
+            }
+            this.eof = true;
+            return false;
+        }
         try {
             this.reader.mark(1);
         } catch (IOException e) {
@@ -190,6 +315,19 @@ public class JSONTokener {
      * @throws JSONException Thrown if there is an error reading the source string.
      */
     public char next() throws JSONException {
+        if (this.buffer != null) {
+            // the position is only counted in lines and characters by toString
+            this.usePrevious = false;
+            if (this.position < this.limit) {
+                char c = this.buffer[this.position];
+                if (c != 0) {
+                    this.position += 1;
+                    return c;
+                }
+            }
+            this.eof = true;
+            return 0;
+        }
         int c;
         if (this.usePrevious) {
             this.usePrevious = false;
@@ -267,6 +405,17 @@ public class JSONTokener {
         if (n == 0) {
             return "";
         }
+        if (this.buffer != null) {
+            if (n > this.limit - this.position) {
+                this.position = this.limit;
+                this.eof = true;
+                throw this.syntaxError("Substring bounds error");
+            }
+            String chars = new String(this.buffer, this.position, n);
+            this.position += n;
+            this.usePrevious = false;
+            return chars;
+        }
 
         char[] chars = new char[n];
         int pos = 0;
@@ -288,6 +437,21 @@ public class JSONTokener {
      * @return  A character, or 0 if there are no more characters.
      */
     public char nextClean() throws JSONException {
+        if (this.buffer != null) {
+            this.usePrevious = false;
+            while (this.position < this.limit) {
+                char c = this.buffer[this.position];
+                if (c == 0) {
+                    break;
+                }
+                this.position += 1;
+                if (c > ' ') {
+                    return c;
+                }
+            }
+            this.eof = true;
+            return 0;
+        }
         for (;;) {
             char c = this.next();
             if (c == 0 || c > ' ') {
@@ -311,6 +475,27 @@ public class JSONTokener {
     public String nextString(char quote) throws JSONException {
         char c;
         StringBuilder sb = new StringBuilder();
+        if (this.buffer != null) {
+            // a string without escapes is copied in one piece
+            this.usePrevious = false;
+            int begin = this.position;
+            int i = begin;
+            while (i < this.limit) {
+                c = this.buffer[i];
+                if (c == quote) {
+                    this.position = i + 1;
+                    return this.stringCache == null
+                            ? new String(this.buffer, begin, i - begin)
+                            : this.stringCache.intern(this.buffer, begin, i - begin);
+                }
+                if (c == '\\' || c == '\n' || c == '\r' || c == 0) {
+                    break;
+                }
+                i += 1;
+            }
+            sb.append(this.buffer, begin, i - begin);
+            this.position = i;
+        }
         for (;;) {
             c = this.next();
             switch (c) {
@@ -355,7 +540,7 @@ public class JSONTokener {
                 break;
             default:
                 if (c == quote) {
-                    return sb.toString();
+                    return this.stringCache == null ? sb.toString() : this.stringCache.intern(sb);
                 }
                 sb.append(c);
             }
@@ -420,7 +605,6 @@ public class JSONTokener {
      */
     public Object nextValue() throws JSONException {
         char c = this.nextClean();
-        String string;
 
         switch (c) {
         case '"':
@@ -440,23 +624,173 @@ public class JSONTokener {
          * is allowed to also accept non-standard forms.
          *
          * Accumulate characters until we reach the end of the text or a
-         * formatting character.
+         * formatting character. The token is converted from a char array,
+         * so that no String is made for a number.
          */
 
-        StringBuilder sb = new StringBuilder();
+        if (this.buffer != null && c != 0) {
+            int begin = this.position - 1;
+            int end = begin;
+            while (end < this.limit && (c = this.buffer[end]) >= ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0) {
+                end += 1;
+            }
+            // stop on the formatting character, as back() would
+            this.position = end;
+            this.eof = end == this.limit || this.buffer[end] == 0;
+            this.usePrevious = !this.eof;
+            int last = end;
+            while (last > begin && this.buffer[last - 1] <= ' ') {
+                last -= 1;
+            }
+            if (last == begin) {
+                throw this.syntaxError("Missing value");
+            }
+            return JSONObject.stringToValue(this.buffer, begin, last - begin);
+        }
+
+        int length = 0;
         while (c >= ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0) {
-            sb.append(c);
+            if (length == this.token.length) {
+                char[] grown = new char[length * 2];
+                System.arraycopy(this.token, 0, grown, 0, length);
+                this.token = grown;
+            }
+            this.token[length] = c;
+            length += 1;
             c = this.next();
         }
         if (!this.eof) {
             this.back();
         }
 
-        string = sb.toString().trim();
-        if ("".equals(string)) {
+        while (length > 0 && this.token[length - 1] <= ' ') {
+            length -= 1;
+        }
+        if (length == 0) {
+            throw this.syntaxError("Missing value");
+        }
+        return JSONObject.stringToValue(this.token, 0, length);
+    }
+
+
+    /**
+     * Skip the next value of an in-memory source without building it, for
+     * the lazy JSONObject. Only the brackets, the strings and the unquoted
+     * tokens are recognized; the content of the value is checked when it is
+     * decoded.
+     * @return The index of the first character of the value in the buffer.
+     *  The value ends at the current position.
+     * @throws JSONException If the source is a Reader, or the value is
+     *  missing or unterminated.
+     */
+    int skipValue() throws JSONException {
+        if (this.buffer == null) {
+            throw new JSONException("Lazy parsing requires an in-memory source");
+        }
+        char c = this.nextClean();
+        int begin = this.position - 1;
+        switch (c) {
+        case 0:
             throw this.syntaxError("Missing value");
+        case '"':
+        case '\'':
+            this.skipString(c);
+            return begin;
+        case '{':
+        case '[':
+            this.skipContainer(c);
+            return begin;
+        default:
+            if (c < ' ' || ",:]}/\\\"[{;=#".indexOf(c) >= 0) {
+                this.back();
+                throw this.syntaxError("Missing value");
+            }
+            while (this.position < this.limit && (c = this.buffer[this.position]) >= ' '
+                    && ",:]}/\\\"[{;=#".indexOf(c) < 0) {
+                this.position += 1;
+            }
+            return begin;
+        }
+    }
+
+
+    /**
+     * Skip the characters of a string, up to the closing quote.
+     * @param quote The quoting character.
+     * @throws JSONException If the string is unterminated.
+     */
+    private void skipString(char quote) throws JSONException {
+        for (;;) {
+            char c = this.next();
+            if (c == 0 || c == '\n' || c == '\r') {
+                throw this.syntaxError("Unterminated string");
+            }
+            if (c == '\\') {
+                this.next();
+            } else if (c == quote) {
+                return;
+            }
         }
-        return JSONObject.stringToValue(string);
+    }
+
+
+    /**
+     * Skip the content of an object or an array, up to the matching bracket.
+     * @param open The opening bracket, already read.
+     * @throws JSONException If the object or the array is unterminated.
+     */
+    private void skipContainer(char open) throws JSONException {
+        int level = 1;
+        boolean token = false;
+        while (level > 0) {
+            char c = this.next();
+            if (token) {
+                // a quote inside an unquoted token does not start a string
+                if (c >= ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0) {
+                    continue;
+                }
+                token = false;
+            }
+            switch (c) {
+            case 0:
+                throw this.syntaxError(open == '{'
+                        ? "A JSONObject text must end with '}'"
+                        : "Expected a ',' or ']'");
+            case '{':
+            case '[':
+                level += 1;
+                break;
+            case '}':
+            case ']':
+                level -= 1;
+                break;
+            case '"':
+            case '\'':
+                this.skipString(c);
+                break;
+            default:
+                token = c > ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0;
+            }
+        }
+    }
+
+
+    /**
+     * Get the array of an in-memory source.
+     * @return The buffer, or null if the source is a Reader.
+     */
+    char[] getBuffer() {
+        return this.buffer;
+    }
+
+
+    /**
+     * Get the index of the next character to read in the buffer of an
+     * in-memory source.
+     * @return The position.
+     */
+    int getPosition() {
+        return this.position;
     }
 
 
@@ -471,6 +805,18 @@ public class JSONTokener {
      */
     public char skipTo(char to) throws JSONException {
         char c;
+        if (this.buffer != null) {
+            int startPosition = this.position;
+            do {
+                c = this.next();
+                if (c == 0) {
+                    this.position = startPosition;
+                    return 0;
+                }
+            } while (c != to);
+            this.back();
+            return c;
+        }
         try {
             long startIndex = this.index;
             long startCharacter = this.character;
@@ -525,6 +871,29 @@ public class JSONTokener {
      */
     @Override
     public String toString() {
+        if (this.buffer != null) {
+            // count the lines and characters read, as next() does for a Reader
+            long character = 1;
+            long line = 1;
+            char previous = 0;
+            for (int i = this.start; i < this.position; i += 1) {
+                char c = this.buffer[i];
+                if (c == '\r') {
+                    line += 1;
+                    character = 0;
+                } else if (c == '\n') {
+                    if (previous != '\r') {
+                        line += 1;
+                    }
+                    character = 0;
+                } else {
+                    character += 1;
+                }
+                previous = c;
+            }
+            return " at " + (this.position - this.start) + " [character " + character + " line " +
+                    line + "]";
+        }
         return " at " + this.index + " [character " + this.character + " line " +
                 this.line + "]";
     }
@@ -0,0 +1,581 @@
+package org.json;
+
+/*
+Copyright (c) 2002 JSON.org
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+The Software shall be used for Good, not Evil.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * JSONUtf8Writer writes JSON text directly as UTF-8 bytes into an
+ * <code>OutputStream</code>, a <code>WritableByteChannel</code> or a
+ * <code>ByteBuffer</code>, without going through a <code>Writer</code> and a
+ * charset encoder. The text is the same as the one produced by
+ * {@link JSONObject#write(java.io.Writer, int, int)} and
+ * {@link JSONArray#write(java.io.Writer, int, int)}, encoded in UTF-8. An
+ * unpaired surrogate is written as <code>'?'</code>, like the standard
+ * encoder does.
+ * <p>
+ * Strings are escaped like {@link JSONObject#quote(String, java.io.Writer)}:
+ * runs of characters which need no escaping are copied into the buffer
+ * without per-character bounds checks, and integers are formatted in place
+ * without allocating. For example, <pre>
+ * new JSONUtf8Writer(out)
+ *     .write(jsonObject, 1, 0)
+ *     .flush();</pre>
+ * The writer buffers its output: <code>flush</code> must be called once the
+ * values are written. The underlying destination is not closed. A
+ * <code>ByteBuffer</code> destination which has not enough room left is
+ * reported as a write error.
+ * @author JSON.org
+ * @version 2026-10-18
+ */
+public class JSONUtf8Writer {
+    private static final int BUFFER_SIZE = 8192;
+
+    /** The longest escape or encoded character, in bytes. */
+    private static final int MAX_CHAR_BYTES = 6;
+
+    /** The longest formatted long, in bytes. */
+    private static final int MAX_LONG_BYTES = 20;
+
+    private static final byte[] HEX = {
+        '0', '1', '2', '3', '4', '5', '6', '7',
+        '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'
+    };
+
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] MIN_LONG = {
+        '-', '9', '2', '2', '3', '3', '7', '2', '0', '3',
+        '6', '8', '5', '4', '7', '7', '5', '8', '0', '8'
+    };
+
+    /** The destination stream, or null. */
+    private final OutputStream out;
+
+    /** The destination channel, or null. */
+    private final WritableByteChannel channel;
+
+    /** The destination buffer, or null. */
+    private final ByteBuffer target;
+
+    /** The pending bytes. */
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    /** The number of pending bytes. */
+    private int position = 0;
+
+    /**
+     * Make a fresh JSONUtf8Writer writing into a stream.
+     * @param out the destination of the text.
+     */
+    public JSONUtf8Writer(OutputStream out) {
+        this(out, null, null);
+    }
+
+    /**
+     * Make a fresh JSONUtf8Writer writing into a channel.
+     * @param channel the destination of the text.
+     */
+    public JSONUtf8Writer(WritableByteChannel channel) {
+        this(null, channel, null);
+    }
+
+    /**
+     * Make a fresh JSONUtf8Writer writing into a buffer, from its position.
+     * @param target the destination of the text.
+     */
+    public JSONUtf8Writer(ByteBuffer target) {
+        this(null, null, target);
+    }
+
+    private JSONUtf8Writer(OutputStream out, WritableByteChannel channel, ByteBuffer target) {
+        if (out == null && channel == null && target == null) {
+            throw new NullPointerException("Null destination.");
+        }
+        this.out = out;
+        this.channel = channel;
+        this.target = target;
+    }
+
+    /**
+     * Write a value as compact JSON text.
+     * @param value a JSONObject, JSONArray, String, Number, Boolean,
+     *  JSONObject.NULL or null, or any value accepted by
+     *  {@link JSONObject#write(java.io.Writer, int, int)}.
+     * @return this
+     * @throws JSONException if the value is a non-finite number or the
+     *  destination cannot be written.
+     */
+    public JSONUtf8Writer write(Object value) throws JSONException {
+        return this.write(value, 0, 0);
+    }
+
+    /**
+     * Write a value as JSON text, indented like
+     * {@link JSONObject#write(java.io.Writer, int, int)}.
+     * @param value the value.
+     * @param indentFactor
+     *            The number of spaces to add to each level of indentation.
+     * @param indent
+     *            The indentation of the top level.
+     * @return this
+     * @throws JSONException if the value is a non-finite number or the
+     *  destination cannot be written.
+     */
+    public JSONUtf8Writer write(Object value, int indentFactor, int indent)
+            throws JSONException {
+        try {
+            this.writeValue(value, indentFactor, indent);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    /**
+     * Write text as is, encoded in UTF-8. It is not quoted: it must be valid
+     * JSON at its place in the document.
+     * @param text the text.
+     * @return this
+     * @throws JSONException if the destination cannot be written.
+     */
+    public JSONUtf8Writer raw(String text) throws JSONException {
+        try {
+            this.writeRaw(text);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    /**
+     * Write a string as a quoted JSON string, escaped like
+     * {@link JSONObject#quote(String)}.
+     * @param string the string, or null for an empty string.
+     * @return this
+     * @throws JSONException if the destination cannot be written.
+     */
+    public JSONUtf8Writer quote(String string) throws JSONException {
+        try {
+            this.writeQuoted(string == null ? "" : string);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    /**
+     * Write the pending bytes and flush the underlying stream.
+     * @throws JSONException if the destination cannot be written.
+     */
+    public void flush() throws JSONException {
+        try {
+            this.drain();
+            if (this.out != null) {
+                this.out.flush();
+            }
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+    }
+
+    private void writeValue(Object value, int indentFactor, int indent)
+            throws IOException {
+        if (value == null || value.equals(null)) {
+            this.writeBytes(NULL);
+        } else if (value instanceof String) {
+            this.writeQuoted((String) value);
+        } else if (value instanceof JSONObject) {
+            this.writeObject((JSONObject) value, indentFactor, indent);
+        } else if (value instanceof JSONArray) {
+            this.writeArray((JSONArray) value, indentFactor, indent);
+        } else if (value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            this.writeLong(((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            this.writeBytes(((Boolean) value).booleanValue() ? TRUE : FALSE);
+        } else if (value instanceof JSONString) {
+            Object o;
+            try {
+                o = ((JSONString) value).toJSONString();
+            } catch (Exception e) {
+                throw new JSONException(e);
+            }
+            if (o != null) {
+                this.writeRaw(o.toString());
+            } else {
+                this.writeQuoted(value.toString());
+            }
+        } else if (value instanceof Double || value instanceof Float) {
+            JSONObject.testValidity(value);
+            double d = ((Number) value).doubleValue();
+            // Double.toString and Float.toString write the integral values
+            // below 10^7 as "n.0", which numberToString shaves to "n".
+            if (d == (long) d && Math.abs(d) < 1e7) {
+                if (d == 0 && 1 / d < 0) {
+                    this.writeRaw("-0");
+                } else {
+                    this.writeLong((long) d);
+                }
+            } else {
+                this.writeRaw(JSONObject.numberToString((Number) value));
+            }
+        } else if (value instanceof Number) {
+            // not all Numbers may match actual JSON Numbers. i.e. fractions or Imaginary
+            final String numberAsString = JSONObject.numberToString((Number) value);
+            if (JSONObject.NUMBER_PATTERN.matcher(numberAsString).matches()) {
+                this.writeRaw(numberAsString);
+            } else {
+                this.writeQuoted(numberAsString);
+            }
+        } else if (value instanceof Enum<?>) {
+            this.writeQuoted(((Enum<?>) value).name());
+        } else if (value instanceof Map) {
+            this.writeObject(new JSONObject((Map<?, ?>) value), indentFactor, indent);
+        } else if (value instanceof Collection) {
+            this.writeArray(new JSONArray((Collection<?>) value), indentFactor, indent);
+        } else if (value.getClass().isArray()) {
+            this.writeArray(new JSONArray(value), indentFactor, indent);
+        } else {
+            this.writeQuoted(value.toString());
+        }
+    }
+
+    private void writeObject(JSONObject object, int indentFactor, int indent)
+            throws IOException {
+        final int length = object.length();
+        this.writeByte('{');
+        if (length == 1) {
+            final Map.Entry<String, Object> entry = object.entrySet().iterator().next();
+            this.writeMember(entry.getKey(), entry.getValue(), indentFactor, indent);
+        } else if (length != 0) {
+            final int newIndent = indent + indentFactor;
+            boolean needsComma = false;
+            for (final Map.Entry<String, Object> entry : object.entrySet()) {
+                if (needsComma) {
+                    this.writeByte(',');
+                }
+                if (indentFactor > 0) {
+                    this.writeByte('\n');
+                }
+                this.writeIndent(newIndent);
+                this.writeMember(entry.getKey(), entry.getValue(), indentFactor, newIndent);
+                needsComma = true;
+            }
+            if (indentFactor > 0) {
+                this.writeByte('\n');
+            }
+            this.writeIndent(indent);
+        }
+        this.writeByte('}');
+    }
+
+    private void writeMember(String key, Object value, int indentFactor, int indent)
+            throws IOException {
+        this.writeQuoted(key);
+        this.writeByte(':');
+        if (indentFactor > 0) {
+            this.writeByte(' ');
+        }
+        try {
+            this.writeValue(value, indentFactor, indent);
+        } catch (RuntimeException e) {
+            throw new JSONException("Unable to write JSONObject value for key: " + key, e);
+        }
+    }
+
+    private void writeArray(JSONArray array, int indentFactor, int indent)
+            throws IOException {
+        final int length = array.length();
+        this.writeByte('[');
+        if (length == 1) {
+            this.writeElement(array, 0, indentFactor, indent);
+        } else if (length != 0) {
+            final int newIndent = indent + indentFactor;
+            for (int i = 0; i < length; i += 1) {
+                if (i > 0) {
+                    this.writeByte(',');
+                }
+                if (indentFactor > 0) {
+                    this.writeByte('\n');
+                }
+                this.writeIndent(newIndent);
+                this.writeElement(array, i, indentFactor, newIndent);
+            }
+            if (indentFactor > 0) {
+                this.writeByte('\n');
+            }
+            this.writeIndent(indent);
+        }
+        this.writeByte(']');
+    }
+
+    private void writeElement(JSONArray array, int index, int indentFactor, int indent)
+            throws IOException {
+        final JSONNumberList numbers = array.numbers();
+        if (numbers != null && numbers.kind() != JSONNumberList.DOUBLE) {
+            this.writeLong(numbers.longValue(index));
+            return;
+        }
+        try {
+            this.writeValue(array.opt(index), indentFactor, indent);
+        } catch (RuntimeException e) {
+            throw new JSONException("Unable to write JSONArray value at index: " + index, e);
+        }
+    }
+
+    /**
+     * Write a quoted string. The characters which need no escaping are
+     * copied in runs, the bounds of the buffer being checked once per run.
+     * @param string the string.
+     * @throws IOException if the destination cannot be written.
+     */
+    private void writeQuoted(String string) throws IOException {
+        final int length = string.length();
+        byte[] buffer = this.buffer;
+        this.writeByte('"');
+        int i = 0;
+        while (i < length) {
+            int p = this.position;
+            int stop = Math.min(length, i + BUFFER_SIZE - p);
+            char c = 0;
+            while (i < stop) {
+                c = string.charAt(i);
+                if (c >= 0x80 || JSONObject.ESCAPES[c] != 0) {
+                    break;
+                }
+                buffer[p] = (byte) c;
+                p += 1;
+                i += 1;
+            }
+            this.position = p;
+            if (i == stop) {
+                if (i < length) {
+                    this.drain();
+                }
+                continue;
+            }
+            if (BUFFER_SIZE - this.position < MAX_CHAR_BYTES) {
+                this.drain();
+            }
+            if (c < 0x80) {
+                char escape = JSONObject.ESCAPES[c];
+                if (escape == 'u') {
+                    this.writeUnicodeEscape(c);
+                } else if (escape == '/') {
+                    if (i > 0 && string.charAt(i - 1) == '<') {
+                        buffer[this.position++] = '\\';
+                    }
+                    buffer[this.position++] = '/';
+                } else {
+                    buffer[this.position++] = '\\';
+                    buffer[this.position++] = (byte) escape;
+                }
+            } else if (c < 0xa0 || (c >= '\u2000' && c < '\u2100')) {
+                this.writeUnicodeEscape(c);
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(string.charAt(i + 1))) {
+                    this.writeCodePoint(Character.toCodePoint(c, string.charAt(i + 1)));
+                    i += 1;
+                } else {
+                    buffer[this.position++] = '?';
+                }
+            } else {
+                this.writeCodePoint(c);
+            }
+            i += 1;
+        }
+        this.writeByte('"');
+    }
+
+    /**
+     * Write text as is, encoded in UTF-8.
+     * @param text the text.
+     * @throws IOException if the destination cannot be written.
+     */
+    private void writeRaw(String text) throws IOException {
+        final int length = text.length();
+        byte[] buffer = this.buffer;
+        int i = 0;
+        while (i < length) {
+            int p = this.position;
+            int stop = Math.min(length, i + BUFFER_SIZE - p);
+            char c = 0;
+            while (i < stop) {
+                c = text.charAt(i);
+                if (c >= 0x80) {
+                    break;
+                }
+                buffer[p] = (byte) c;
+                p += 1;
+                i += 1;
+            }
+            this.position = p;
+            if (i == stop) {
+                if (i < length) {
+                    this.drain();
+                }
+                continue;
+            }
+            if (BUFFER_SIZE - this.position < MAX_CHAR_BYTES) {
+                this.drain();
+            }
+            if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    this.writeCodePoint(Character.toCodePoint(c, text.charAt(i + 1)));
+                    i += 1;
+                } else {
+                    buffer[this.position++] = '?';
+                }
+            } else {
+                this.writeCodePoint(c);
+            }
+            i += 1;
+        }
+    }
+
+    /**
+     * Write a non-ASCII code point in UTF-8. The buffer must have room for
+     * four bytes.
+     * @param codePoint the code point.
+     */
+    private void writeCodePoint(int codePoint) {
+        byte[] buffer = this.buffer;
+        int p = this.position;
+        if (codePoint < 0x800) {
+            buffer[p++] = (byte) (0xc0 | (codePoint >> 6));
+        } else if (codePoint < 0x10000) {
+            buffer[p++] = (byte) (0xe0 | (codePoint >> 12));
+            buffer[p++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+        } else {
+            buffer[p++] = (byte) (0xf0 | (codePoint >> 18));
+            buffer[p++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+            buffer[p++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+        }
+        buffer[p++] = (byte) (0x80 | (codePoint & 0x3f));
+        this.position = p;
+    }
+
+    /**
+     * Write a \\u escape. The buffer must have room for six bytes.
+     * @param c the escaped character.
+     */
+    private void writeUnicodeEscape(char c) {
+        byte[] buffer = this.buffer;
+        int p = this.position;
+        buffer[p++] = '\\';
+        buffer[p++] = 'u';
+        buffer[p++] = HEX[(c >> 12) & 0xf];
+        buffer[p++] = HEX[(c >> 8) & 0xf];
+        buffer[p++] = HEX[(c >> 4) & 0xf];
+        buffer[p++] = HEX[c & 0xf];
+        this.position = p;
+    }
+
+    /**
+     * Write a long in decimal, formatted in place in the buffer.
+     * @param value the long.
+     * @throws IOException if the destination cannot be written.
+     */
+    private void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            this.writeBytes(MIN_LONG);
+            return;
+        }
+        if (BUFFER_SIZE - this.position < MAX_LONG_BYTES) {
+            this.drain();
+        }
+        if (value < 0) {
+            this.buffer[this.position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long bound = 10; digits < 19 && value >= bound; bound *= 10) {
+            digits += 1;
+        }
+        int p = this.position + digits;
+        this.position = p;
+        do {
+            this.buffer[--p] = (byte) ('0' + (int) (value % 10));
+            value /= 10;
+        } while (value != 0);
+    }
+
+    private void writeIndent(int indent) throws IOException {
+        while (indent > 0) {
+            if (this.position == BUFFER_SIZE) {
+                this.drain();
+            }
+            int count = Math.min(indent, BUFFER_SIZE - this.position);
+            for (int i = 0; i < count; i += 1) {
+                this.buffer[this.position++] = ' ';
+            }
+            indent -= count;
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        if (BUFFER_SIZE - this.position < bytes.length) {
+            this.drain();
+        }
+        System.arraycopy(bytes, 0, this.buffer, this.position, bytes.length);
+        this.position += bytes.length;
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (this.position == BUFFER_SIZE) {
+            this.drain();
+        }
+        this.buffer[this.position++] = (byte) b;
+    }
+
+    private void drain() throws IOException {
+        if (this.position == 0) {
+            return;
+        }
+        if (this.out != null) {
+            this.out.write(this.buffer, 0, this.position);
+        } else if (this.channel != null) {
+            ByteBuffer pending = ByteBuffer.wrap(this.buffer, 0, this.position);
+            while (pending.hasRemaining()) {
+                this.channel.write(pending);
+            }
+        } else {
+            if (this.target.remaining() < this.position) {
+                throw new IOException("Not enough room left in the buffer.");
+            }
+            this.target.put(this.buffer, 0, this.position);
+        }
+        this.position = 0;
+    }
+}
@@ -0,0 +1,159 @@
+package org.json;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * JSONUtf8Writer tests.
+ * @author JSON.org
+ * @version 2026-10-18
+ */
+public class JSONUtf8WriterTest {
+
+    /**
+     * Characters which are escaped, encoded on several bytes or unpaired.
+     */
+    private static final String SPECIAL = "\\\"/<\b\t\n\f\r\u0000\u001f\u007f\u0080\u00e9\u07ff\u0800"
+            + "\u2028\u2029\uffff\uD83D\uDE00\uD800\uDFFF\uDBFF";
+
+    /**
+     * The bytes are the UTF-8 encoding of the text written by
+     * JSONObject.write and JSONArray.write, at every indentation, for random
+     * documents built or parsed.
+     */
+    @Test
+    public void testSameAsWrite() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i += 1) {
+            Object document = random.nextBoolean() ? randomObject(random, 0) : randomArray(random, 0);
+            Object parsed = document instanceof JSONObject ? new JSONObject(document.toString())
+                    : new JSONArray(document.toString());
+            for (Object value : Arrays.asList(document, parsed)) {
+                for (int indentFactor = 0; indentFactor <= 2; indentFactor += 1) {
+                    assertArrayEquals(value.toString(), expected(value, indentFactor), utf8(value, indentFactor));
+                }
+            }
+        }
+    }
+
+    /**
+     * The stream, channel and buffer destinations receive the same bytes,
+     * including a text longer than the internal buffer.
+     * @throws Exception if a destination fails.
+     */
+    @Test
+    public void testDestinations() throws Exception {
+        JSONArray array = new JSONArray();
+        for (int i = 0; i < 5000; i += 1) {
+            array.put(new JSONObject().put("id", i).put("name", "\u00e9l\u00e9ment " + i + SPECIAL));
+        }
+        byte[] expected = expected(array, 1);
+        ByteArrayOutputStream channelBytes = new ByteArrayOutputStream();
+        new JSONUtf8Writer(Channels.newChannel(channelBytes)).write(array, 1, 0).flush();
+        assertArrayEquals(expected, channelBytes.toByteArray());
+        ByteBuffer buffer = ByteBuffer.allocate(expected.length);
+        new JSONUtf8Writer(buffer).write(array, 1, 0).flush();
+        assertArrayEquals(expected, buffer.array());
+        assertEquals(expected.length, buffer.position());
+        assertArrayEquals(expected, utf8(array, 1));
+    }
+
+    private static byte[] expected(Object value, int indentFactor) {
+        StringWriter writer = new StringWriter();
+        if (value instanceof JSONObject) {
+            ((JSONObject) value).write(writer, indentFactor, 0);
+        } else {
+            ((JSONArray) value).write(writer, indentFactor, 0);
+        }
+        return writer.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(Object value, int indentFactor) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new JSONUtf8Writer(out).write(value, indentFactor, 0).flush();
+        return out.toByteArray();
+    }
+
+    private static JSONObject randomObject(Random random, int depth) {
+        JSONObject object = new JSONObject();
+        int length = random.nextInt(6);
+        for (int i = 0; i < length; i += 1) {
+            object.put(randomString(random), randomValue(random, depth + 1));
+        }
+        return object;
+    }
+
+    private static JSONArray randomArray(Random random, int depth) {
+        if (random.nextInt(4) == 0) {
+            // homogeneous numbers are parsed into a JSONNumberList
+            StringBuilder text = new StringBuilder("[");
+            int length = 2 + random.nextInt(6);
+            int kind = random.nextInt(3);
+            for (int i = 0; i < length; i += 1) {
+                if (i > 0) {
+                    text.append(',');
+                }
+                text.append(kind == 0 ? Integer.toString(random.nextInt())
+                        : kind == 1 ? Long.toString(random.nextLong()) : Double.toString(random.nextGaussian() * 1e6));
+            }
+            return new JSONArray(text.append(']').toString());
+        }
+        JSONArray array = new JSONArray();
+        int length = random.nextInt(6);
+        for (int i = 0; i < length; i += 1) {
+            array.put(randomValue(random, depth + 1));
+        }
+        return array;
+    }
+
+    private static Object randomValue(Random random, int depth) {
+        switch (random.nextInt(depth < 3 ? 13 : 11)) {
+        case 0:
+            return randomString(random);
+        case 1:
+            return random.nextInt();
+        case 2:
+            return random.nextLong() >> random.nextInt(64);
+        case 3:
+            return random.nextGaussian() * Math.pow(10, random.nextInt(40) - 20);
+        case 4:
+            return (float) (random.nextGaussian() * Math.pow(10, random.nextInt(20) - 10));
+        case 5:
+            return new BigDecimal(BigInteger.valueOf(random.nextLong()), random.nextInt(40) - 20);
+        case 6:
+            return new BigInteger(100, random);
+        case 7:
+            return random.nextBoolean();
+        case 8:
+            return JSONObject.NULL;
+        case 9:
+            return Long.MIN_VALUE;
+        case 10:
+            return -0.0;
+        case 11:
+            return randomObject(random, depth);
+        default:
+            return randomArray(random, depth);
+        }
+    }
+
+    private static String randomString(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int length = random.nextInt(20);
+        for (int i = 0; i < length; i += 1) {
+            sb.append(random.nextInt(3) == 0 ? SPECIAL.charAt(random.nextInt(SPECIAL.length()))
+                    : (char) ('a' + random.nextInt(26)));
+        }
+        return sb.toString();
+    }
+}
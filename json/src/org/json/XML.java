@@ -445,25 +445,11 @@ public class XML {
 
         char initial = string.charAt(0);
         if ((initial >= '0' && initial <= '9') || initial == '-') {
-            try {
-                // if we want full Big Number support this block can be replaced with:
-                // return stringToNumber(string);
-                if (string.indexOf('.') > -1 || string.indexOf('e') > -1
-                        || string.indexOf('E') > -1 || "-0".equals(string)) {
-                    Double d = Double.valueOf(string);
-                    if (!d.isInfinite() && !d.isNaN()) {
-                        return d;
-                    }
-                } else {
-                    Long myLong = Long.valueOf(string);
-                    if (string.equals(myLong.toString())) {
-                        if (myLong.longValue() == myLong.intValue()) {
-                            return Integer.valueOf(myLong.intValue());
-                        }
-                        return myLong;
-                    }
-                }
-            } catch (Exception ignore) {
+            // if we want full Big Number support this can be replaced with:
+            // return stringToNumber(string);
+            Number number = JSONNumberScanner.scan(string);
+            if (number != null) {
+                return number;
             }
         }
         return string;